@@ -0,0 +1,40 @@
+#!/usr/bin/env bash
+# Compares throughput and latency under a closed-loop load (post tweet / read feed) of the default platform-thread
+# mode and the virtual-threads profile. Both modes run on the same JVM, which must be Java 21 or later. Needs the
+# database from application.properties.
+#
+# Usage: scripts/load-benchmark.sh [clients] [seconds]    results are appended to target/load-benchmark.csv
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+CLIENTS=${1:-400}
+SECONDS_PER_MODE=${2:-30}
+PORT=${PORT:-8080}
+JAVA=${JAVA:-java}
+RESULTS=target/load-benchmark.csv
+
+sh mvnw -q -B -DskipTests package test-compile dependency:build-classpath -Dmdep.outputFile=target/benchmark.classpath
+JAR=$(ls target/*.jar | head -1)
+
+[[ -f "$RESULTS" ]] || echo "timestamp,mode,result" > "$RESULTS"
+for mode in platform virtual-threads; do
+    PROFILE_ARGS=()
+    if [[ "$mode" == "virtual-threads" ]]; then
+        PROFILE_ARGS=(--spring.profiles.active=virtual-threads)
+    fi
+    "$JAVA" -jar "$JAR" --server.port="$PORT" "${PROFILE_ARGS[@]}" > "target/load-$mode.log" 2>&1 &
+    pid=$!
+    until curl -sf "http://localhost:$PORT/tags" > /dev/null; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "$mode failed to start, see target/load-$mode.log" >&2
+            exit 1
+        fi
+        sleep 0.2
+    done
+    result=$("$JAVA" -cp "target/test-classes:target/classes:$(cat target/benchmark.classpath)" \
+        com.cooksys.twitter_api.config.LoadBenchmark "http://localhost:$PORT" "$CLIENTS" "$SECONDS_PER_MODE")
+    kill "$pid"
+    wait "$pid" || true
+    echo "$(date -Iseconds),$mode,\"$result\"" >> "$RESULTS"
+    echo "$mode: $result"
+done
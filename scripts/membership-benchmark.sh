@@ -0,0 +1,11 @@
+#!/usr/bin/env bash
+# Compares the cost of relationship membership checks (likes, follows) under field-wise entity equality over lists
+# and id-based equality over lists and sets.
+#
+# Usage: scripts/membership-benchmark.sh [collection size] [iterations]
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+sh mvnw -q -B test-compile dependency:build-classpath -Dmdep.outputFile=target/benchmark.classpath
+java -cp "target/test-classes:target/classes:$(cat target/benchmark.classpath)" \
+    com.cooksys.twitter_api.entities.MembershipBenchmark "$@"
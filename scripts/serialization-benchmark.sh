@@ -0,0 +1,11 @@
+#!/usr/bin/env bash
+# Compares payload size and serialization throughput of JSON and CBOR (Accept: application/cbor) responses for a
+# synthetic feed page.
+#
+# Usage: scripts/serialization-benchmark.sh [page size] [iterations]
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+sh mvnw -q -B test-compile dependency:build-classpath -Dmdep.outputFile=target/benchmark.classpath
+java -cp "target/test-classes:target/classes:$(cat target/benchmark.classpath)" \
+    com.cooksys.twitter_api.config.SerializationBenchmark "$@"
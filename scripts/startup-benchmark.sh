@@ -0,0 +1,42 @@
+#!/usr/bin/env bash
+# Measures time from process launch to the first successful request (GET /tags) for the default run mode and the
+# fast-startup mode (AOT + AppCDS + lazy init + JIT warmup). Needs the database from application.properties.
+#
+# Usage: scripts/startup-benchmark.sh [runs]    results are appended to target/startup-benchmark.csv
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+RUNS=${1:-5}
+PORT=${PORT:-8080}
+RESULTS=target/startup-benchmark.csv
+OUT=target/fast-startup
+
+scripts/fast-startup.sh --build-only
+CLASSPATH="$OUT/BOOT-INF/classes:$(ls "$OUT"/BOOT-INF/lib/*.jar | tr '\n' ':')"
+MAIN=com.cooksys.twitter_api.TwitterApiApplication
+
+declare -A MODES=(
+    [default]="java -jar $(ls target/*.jar | head -1)"
+    [fast-startup]="java -cp $CLASSPATH -Dspring.aot.enabled=true -Dspring.profiles.active=fast-startup -XX:SharedArchiveFile=$OUT/app.jsa $MAIN"
+)
+
+[[ -f "$RESULTS" ]] || echo "timestamp,mode,run,millis_to_first_request" > "$RESULTS"
+for mode in default fast-startup; do
+    for run in $(seq 1 "$RUNS"); do
+        start=$(date +%s%N)
+        ${MODES[$mode]} --server.port="$PORT" > "target/startup-$mode-$run.log" 2>&1 &
+        pid=$!
+        until curl -sf "http://localhost:$PORT/tags" > /dev/null; do
+            if ! kill -0 "$pid" 2> /dev/null; then
+                echo "$mode run $run failed, see target/startup-$mode-$run.log" >&2
+                exit 1
+            fi
+            sleep 0.01
+        done
+        millis=$(( ($(date +%s%N) - start) / 1000000 ))
+        kill "$pid"
+        wait "$pid" || true
+        echo "$(date -Iseconds),$mode,$run,$millis" >> "$RESULTS"
+        echo "$mode run $run: ${millis} ms"
+    done
+done
@@ -0,0 +1,45 @@
+package com.cooksys.twitter_api.analytics;
+
+import java.util.Locale;
+
+/**
+ * Width of a hashtag usage bucket. Buckets are aligned to UTC.
+ */
+public enum Granularity {
+
+    MINUTE(60_000L),
+    HOUR(3_600_000L),
+    DAY(86_400_000L);
+
+    private final long millis;
+
+    Granularity(long millis) {
+        this.millis = millis;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * Start of the bucket containing the given time.
+     *
+     * @throws ArithmeticException when that start is before {@link Long#MIN_VALUE}
+     */
+    public long floor(long time) {
+        return Math.subtractExact(time, Math.floorMod(time, millis));
+    }
+
+    /**
+     * The granularity named, in any case; null when there is none of that name.
+     */
+    public static Granularity parse(String name) {
+        for (Granularity granularity : values()) {
+            if (granularity.name().equals(name.toUpperCase(Locale.ROOT))) {
+                return granularity;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.cooksys.twitter_api.analytics;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Reads and updates the {@code hashtag_usage_rollup} and {@code hashtag_author_rollup} tables. Updates read the row
+ * {@code for update} before changing it, since a sketch can only be merged, not added to in SQL, and so that writers
+ * of the same row take turns; call them inside a transaction. Everything is additive, so the same tables on several
+ * shards or several writers' increments combine by summing uses and merging sketches.
+ */
+@Repository
+public class HashtagRollupStore {
+
+    public record UsageRow(String labelKey, Granularity granularity, Timestamp bucketStart, long uses, byte[] authors) {
+    }
+
+    public record AuthorRow(String labelKey, long authorId, long uses, Timestamp lastUsed) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public HashtagRollupStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void addUsage(String labelKey, Granularity granularity, Timestamp bucketStart, long uses,
+                         HyperLogLog authors) {
+        List<byte[]> current = jdbcTemplate.query(
+                "select authors from hashtag_usage_rollup where label_key = ? and granularity = ? and bucket_start = ?"
+                        + " for update",
+                (row, number) -> row.getBytes("authors"), labelKey, granularity.name(), bucketStart);
+        if (current.isEmpty()) {
+            jdbcTemplate.update("insert into hashtag_usage_rollup (label_key, granularity, bucket_start, uses, authors)"
+                    + " values (?, ?, ?, ?, ?)", labelKey, granularity.name(), bucketStart, uses, authors.toBytes());
+            return;
+        }
+        HyperLogLog merged = HyperLogLog.fromBytes(current.get(0));
+        merged.merge(authors);
+        jdbcTemplate.update("update hashtag_usage_rollup set uses = uses + ?, authors = ?"
+                        + " where label_key = ? and granularity = ? and bucket_start = ?",
+                uses, merged.toBytes(), labelKey, granularity.name(), bucketStart);
+    }
+
+    public void addAuthorUses(String labelKey, long authorId, long uses, Timestamp lastUsed) {
+        List<Long> current = jdbcTemplate.query(
+                "select uses from hashtag_author_rollup where label_key = ? and author_id = ? for update",
+                (row, number) -> row.getLong("uses"), labelKey, authorId);
+        if (current.isEmpty()) {
+            jdbcTemplate.update("insert into hashtag_author_rollup (label_key, author_id, uses, last_used)"
+                    + " values (?, ?, ?, ?)", labelKey, authorId, uses, lastUsed);
+            return;
+        }
+        jdbcTemplate.update("update hashtag_author_rollup set uses = uses + ?, last_used = greatest(last_used, ?)"
+                + " where label_key = ? and author_id = ?", uses, lastUsed, labelKey, authorId);
+    }
+
+    /**
+     * The buckets of every granularity starting in {@code [from, to)}.
+     */
+    public List<UsageRow> findUsage(String labelKey, Timestamp from, Timestamp to) {
+        return jdbcTemplate.query("select label_key, granularity, bucket_start, uses, authors from hashtag_usage_rollup"
+                        + " where label_key = ? and bucket_start >= ? and bucket_start < ? order by bucket_start",
+                (row, number) -> new UsageRow(row.getString("label_key"),
+                        Granularity.valueOf(row.getString("granularity")), row.getTimestamp("bucket_start"),
+                        row.getLong("uses"), row.getBytes("authors")),
+                labelKey, from, to);
+    }
+
+    public List<AuthorRow> findTopAuthors(String labelKey, int limit) {
+        return jdbcTemplate.query("select label_key, author_id, uses, last_used from hashtag_author_rollup"
+                        + " where label_key = ? order by uses desc, last_used desc limit ?",
+                (row, number) -> new AuthorRow(row.getString("label_key"), row.getLong("author_id"),
+                        row.getLong("uses"), row.getTimestamp("last_used")),
+                labelKey, limit);
+    }
+
+    /**
+     * Folds up to {@code max} buckets of granularity {@code from} starting before {@code before} into the enclosing
+     * buckets of granularity {@code into}, and returns how many were folded.
+     */
+    public int fold(Granularity from, Granularity into, Timestamp before, int max) {
+        List<UsageRow> rows = jdbcTemplate.query(
+                "select label_key, bucket_start, uses, authors from hashtag_usage_rollup where granularity = ?"
+                        + " and bucket_start < ? order by label_key, bucket_start limit ? for update",
+                (row, number) -> new UsageRow(row.getString("label_key"), from, row.getTimestamp("bucket_start"),
+                        row.getLong("uses"), row.getBytes("authors")),
+                from.name(), before, max);
+        Map<UsageBucket.Key, UsageBucket> folded = new TreeMap<>();
+        for (UsageRow row : rows) {
+            folded.computeIfAbsent(new UsageBucket.Key(row.labelKey(), into.floor(row.bucketStart().getTime())),
+                    key -> new UsageBucket()).add(row.uses(), HyperLogLog.fromBytes(row.authors()));
+        }
+        folded.forEach((key, bucket) -> addUsage(key.labelKey(), into, new Timestamp(key.start()), bucket.getUses(),
+                bucket.getAuthors()));
+        List<Object[]> deleted = new ArrayList<>(rows.size());
+        for (UsageRow row : rows) {
+            deleted.add(new Object[] { row.labelKey(), from.name(), row.bucketStart() });
+        }
+        jdbcTemplate.batchUpdate("delete from hashtag_usage_rollup"
+                + " where label_key = ? and granularity = ? and bucket_start = ?", deleted);
+        return rows.size();
+    }
+
+}
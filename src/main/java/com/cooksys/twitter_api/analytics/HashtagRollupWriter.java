@@ -0,0 +1,150 @@
+package com.cooksys.twitter_api.analytics;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cooksys.twitter_api.entities.Hashtag;
+import com.cooksys.twitter_api.storage.DomainEvent;
+import com.cooksys.twitter_api.storage.EventLog;
+import com.cooksys.twitter_api.storage.EventType;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Keeps the hashtag usage rollups up to date from the {@link EventLog}, so stats never have to go back to the tweets.
+ * <p>
+ * Each flush reads the {@code HASHTAG_USED} events after this consumer's offset, adds them up in memory per tag and
+ * minute and per tag and author, applies the sums in one transaction and then commits the offset. A failed flush
+ * leaves the offset where it was and is retried whole; only a crash between the commit and the offset write counts a
+ * batch twice. Every node rolls up the events of its own log into the same tables.
+ * <p>
+ * Compaction folds minute buckets older than {@code minute-retention} into hour buckets and hour buckets older than
+ * {@code hour-retention} into day buckets, so a tag costs at most a couple of days of minutes, a month of hours and
+ * one row a day after that. Cut-offs are aligned to the coarser bucket, which is therefore folded all at once.
+ */
+@Component
+public class HashtagRollupWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(HashtagRollupWriter.class);
+
+    private static final String CONSUMER = "hashtag-rollups";
+    private static final int READ_BATCH = 5000;
+    private static final int FOLD_BATCH = 1000;
+
+    @Value("${twitter.tag-stats.minute-retention:172800000}")
+    private long minuteRetention;
+
+    @Value("${twitter.tag-stats.hour-retention:2592000000}")
+    private long hourRetention;
+
+    private record AuthorKey(String labelKey, long authorId) implements Comparable<AuthorKey> {
+
+        @Override
+        public int compareTo(AuthorKey other) {
+            int byLabel = labelKey.compareTo(other.labelKey);
+            return byLabel != 0 ? byLabel : Long.compare(authorId, other.authorId);
+        }
+    }
+
+    private final EventLog eventLog;
+    private final HashtagRollupStore hashtagRollupStore;
+    private final TransactionTemplate transactionTemplate;
+    // flushes and compactions change the same rows
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public HashtagRollupWriter(EventLog eventLog, HashtagRollupStore hashtagRollupStore,
+                               TransactionTemplate transactionTemplate) {
+        this.eventLog = eventLog;
+        this.hashtagRollupStore = hashtagRollupStore;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!eventLog.hasOffset(CONSUMER)) {
+            // the V7 migration backfilled everything that happened before the rollups existed
+            eventLog.commitOffset(CONSUMER, eventLog.getLastSequence());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${twitter.tag-stats.flush-interval:5000}")
+    public void flush() {
+        lock.lock();
+        try {
+            List<DomainEvent> events;
+            do {
+                events = eventLog.poll(CONSUMER, READ_BATCH);
+                if (events.isEmpty()) {
+                    return;
+                }
+                apply(events);
+                eventLog.commitOffset(CONSUMER, events.get(events.size() - 1).getSequence());
+            } while (events.size() == READ_BATCH);
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Hashtag rollup flush failed, retrying on the next one: {}", e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${twitter.tag-stats.compaction-interval:600000}")
+    public void compact() {
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            fold(Granularity.MINUTE, Granularity.HOUR, Granularity.HOUR.floor(now - minuteRetention));
+            fold(Granularity.HOUR, Granularity.DAY, Granularity.DAY.floor(now - hourRetention));
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Hashtag rollup compaction failed, retrying on the next one: {}", e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void apply(List<DomainEvent> events) {
+        Map<UsageBucket.Key, UsageBucket> minutes = new TreeMap<>();
+        // [uses, last used] per tag and author
+        Map<AuthorKey, long[]> authors = new TreeMap<>();
+        for (DomainEvent event : events) {
+            if (event.getType() != EventType.HASHTAG_USED || event.getPayload() == null) {
+                continue;
+            }
+            String labelKey = Hashtag.keyOf(event.getPayload());
+            minutes.computeIfAbsent(new UsageBucket.Key(labelKey, Granularity.MINUTE.floor(event.getTimestamp())),
+                    key -> new UsageBucket()).add(event.getActorId());
+            long[] uses = authors.computeIfAbsent(new AuthorKey(labelKey, event.getActorId()), key -> new long[2]);
+            uses[0]++;
+            uses[1] = Math.max(uses[1], event.getTimestamp());
+        }
+        if (minutes.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            minutes.forEach((key, bucket) -> hashtagRollupStore.addUsage(key.labelKey(), Granularity.MINUTE,
+                    new Timestamp(key.start()), bucket.getUses(), bucket.getAuthors()));
+            authors.forEach((key, uses) -> hashtagRollupStore.addAuthorUses(key.labelKey(), key.authorId(), uses[0],
+                    new Timestamp(uses[1])));
+        });
+    }
+
+    private void fold(Granularity from, Granularity into, long before) {
+        int folded;
+        do {
+            folded = transactionTemplate.execute(
+                    status -> hashtagRollupStore.fold(from, into, new Timestamp(before), FOLD_BATCH));
+        } while (folded == FOLD_BATCH);
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.cooksys.twitter_api.analytics;
+
+import java.util.Comparator;
+
+/**
+ * Uses and author sketch of one tag in one bucket, accumulated in memory before being added to a rollup row.
+ */
+class UsageBucket {
+
+    record Key(String labelKey, long start) implements Comparable<Key> {
+
+        private static final Comparator<Key> ORDER = Comparator.comparing(Key::labelKey).thenComparingLong(Key::start);
+
+        // rows are locked in this order, so two writers cannot deadlock on each other's rows
+        @Override
+        public int compareTo(Key other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    private long uses;
+    private final HyperLogLog authors = new HyperLogLog();
+
+    void add(long authorId) {
+        uses++;
+        authors.add(authorId);
+    }
+
+    void add(long uses, HyperLogLog authors) {
+        this.uses += uses;
+        this.authors.merge(authors);
+    }
+
+    long getUses() {
+        return uses;
+    }
+
+    HyperLogLog getAuthors() {
+        return authors;
+    }
+
+}
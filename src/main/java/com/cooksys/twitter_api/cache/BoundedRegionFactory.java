@@ -0,0 +1,77 @@
+package com.cooksys.twitter_api.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+/**
+ * Hibernate second-level cache kept in process, one {@link BoundedStorageAccess} per region.
+ * <p>
+ * Entity, natural-id and query result regions hold at most {@value #MAX_ENTRIES} entries
+ * ({@code hibernate.cache.bounded.max_entries}, default 10000), or
+ * {@code hibernate.cache.bounded.max_entries.<region name>} for a single region. The update timestamps region is
+ * never bounded: Hibernate treats a table with no recorded timestamp as unchanged, so evicting one would serve stale
+ * query results.
+ */
+public class BoundedRegionFactory extends RegionFactoryTemplate {
+
+    public static final String MAX_ENTRIES = "hibernate.cache.bounded.max_entries";
+
+    private final Map<String, BoundedStorageAccess> regions = new ConcurrentHashMap<>();
+    private Map<String, Object> configValues = Map.of();
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions settings, Map<String, Object> configValues) {
+        this.configValues = configValues;
+    }
+
+    @Override
+    protected void releaseFromUse() {
+        regions.values().forEach(BoundedStorageAccess::release);
+        regions.clear();
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+                                                                    DomainDataRegionBuildingContext buildingContext) {
+        return register(regionConfig.getRegionName(), maxEntries(regionConfig.getRegionName()));
+    }
+
+    @Override
+    protected StorageAccess createQueryResultsRegionStorageAccess(String regionName,
+                                                                  SessionFactoryImplementor sessionFactory) {
+        return register(regionName, maxEntries(regionName));
+    }
+
+    @Override
+    protected StorageAccess createTimestampsRegionStorageAccess(String regionName,
+                                                                SessionFactoryImplementor sessionFactory) {
+        return register(regionName, 0);
+    }
+
+    public List<BoundedStorageAccess> getRegions() {
+        return new ArrayList<>(regions.values());
+    }
+
+    private BoundedStorageAccess register(String regionName, int maxEntries) {
+        BoundedStorageAccess storage = new BoundedStorageAccess(regionName, maxEntries);
+        regions.put(regionName, storage);
+        return storage;
+    }
+
+    private int maxEntries(String regionName) {
+        Object value = configValues.getOrDefault(MAX_ENTRIES + "." + regionName,
+                configValues.getOrDefault(MAX_ENTRIES, "10000"));
+        return Integer.parseInt(value.toString());
+    }
+
+}
@@ -0,0 +1,183 @@
+package com.cooksys.twitter_api.cache;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.cooksys.twitter_api.entities.Hashtag;
+import com.cooksys.twitter_api.entities.Tweet;
+import com.cooksys.twitter_api.entities.User;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Keeps the in-process caches of several nodes sharing one database consistent: after a change to a user, tweet or
+ * hashtag commits, the node that made it broadcasts the entity and its new version, and every other node drops what
+ * it caches for that entity. Without a transport ({@code twitter.cache-bus.transport} unset) nothing is broadcast,
+ * which is right for a single node.
+ * <p>
+ * Each node remembers the newest version it has applied or published per entity, for the last
+ * {@code tracked-versions} entities, and ignores messages at or below it, so duplicates and messages overtaken by a
+ * newer one do nothing. Caches holding versioned values can ask {@link #isStale} before serving or storing an entry,
+ * and caches of their own register through {@link #addListener}, which hears of this node's changes after commit as
+ * well as of the other nodes'. A receiving node always evicts the entity from its Hibernate second-level cache,
+ * together with the query cache when a user changes since username lookups are cached there. The in-process indexes
+ * follow this node's event log and hear of the other nodes' changes through {@code IndexInvalidationListener}.
+ */
+@Component
+public class CacheInvalidationBus {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    private final String node = UUID.randomUUID().toString();
+    private final Optional<InvalidationTransport> transport;
+    private final EntityManagerFactory entityManagerFactory;
+    private final List<Consumer<Invalidation>> listeners = new CopyOnWriteArrayList<>();
+    private final Map<String, Long> appliedVersions;
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong ignored = new AtomicLong();
+
+    public CacheInvalidationBus(Optional<InvalidationTransport> transport, EntityManagerFactory entityManagerFactory,
+                                @Value("${twitter.cache-bus.tracked-versions:100000}") int trackedVersions) {
+        this.transport = transport;
+        this.entityManagerFactory = entityManagerFactory;
+        appliedVersions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > trackedVersions;
+            }
+        };
+        transport.ifPresent(present -> present.subscribe(this::receive));
+    }
+
+    /**
+     * Announces that the entity is now at the given version, once the current transaction commits.
+     */
+    public void publish(CachedEntity entity, long id, long version) {
+        Invalidation invalidation = new Invalidation(entity, id, version, node);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    committed(invalidation);
+                }
+            });
+        } else {
+            committed(invalidation);
+        }
+    }
+
+    public void addListener(Consumer<Invalidation> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Whether a version of the entity newer than the given one has been published here or announced by another node.
+     */
+    public boolean isStale(CachedEntity entity, long id, long version) {
+        synchronized (appliedVersions) {
+            Long latest = appliedVersions.get(key(entity, id));
+            return latest != null && latest > version;
+        }
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    public long getPublished() {
+        return published.get();
+    }
+
+    public long getApplied() {
+        return applied.get();
+    }
+
+    public long getIgnored() {
+        return ignored.get();
+    }
+
+    void receive(Invalidation invalidation) {
+        if (node.equals(invalidation.getNode())) {
+            return;
+        }
+        synchronized (appliedVersions) {
+            String key = key(invalidation.getEntity(), invalidation.getId());
+            Long latest = appliedVersions.get(key);
+            if (latest != null && latest >= invalidation.getVersion()) {
+                ignored.incrementAndGet();
+                return;
+            }
+            appliedVersions.put(key, invalidation.getVersion());
+        }
+        applied.incrementAndGet();
+        evict(invalidation);
+        notifyListeners(invalidation);
+    }
+
+    private void committed(Invalidation invalidation) {
+        synchronized (appliedVersions) {
+            appliedVersions.merge(key(invalidation.getEntity(), invalidation.getId()), invalidation.getVersion(),
+                    Math::max);
+        }
+        notifyListeners(invalidation);
+        if (transport.isPresent()) {
+            send(invalidation);
+        }
+    }
+
+    private void notifyListeners(Invalidation invalidation) {
+        for (Consumer<Invalidation> listener : listeners) {
+            try {
+                listener.accept(invalidation);
+            } catch (RuntimeException e) {
+                log.warn("Cache invalidation listener failed for {}", invalidation, e);
+            }
+        }
+    }
+
+    private void send(Invalidation invalidation) {
+        published.incrementAndGet();
+        try {
+            transport.get().publish(invalidation);
+        } catch (RuntimeException e) {
+            // the change is committed either way; the other nodes' entries age out of their bounded caches
+            log.warn("Could not publish {}", invalidation, e);
+        }
+    }
+
+    private void evict(Invalidation invalidation) {
+        Cache cache = entityManagerFactory.getCache();
+        switch (invalidation.getEntity()) {
+            case USER -> {
+                cache.evict(User.class, invalidation.getId());
+                entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+            }
+            case TWEET -> cache.evict(Tweet.class, invalidation.getId());
+            case HASHTAG -> cache.evict(Hashtag.class, invalidation.getId());
+            case FOLLOWING -> {
+                // follow collections are not in the second-level cache
+            }
+        }
+    }
+
+    private static String key(CachedEntity entity, long id) {
+        return entity.name() + ':' + id;
+    }
+
+}
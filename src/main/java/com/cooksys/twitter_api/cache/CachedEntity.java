@@ -0,0 +1,13 @@
+package com.cooksys.twitter_api.cache;
+
+/**
+ * Kinds of entity other nodes may hold in process and must drop when they change. Versions are the entity's
+ * {@code @Version} counter for users and tweets, the last-used time in milliseconds for hashtags, and the time of the
+ * change in milliseconds for the users a user follows, which are not part of the user's version.
+ */
+public enum CachedEntity {
+    USER,
+    TWEET,
+    HASHTAG,
+    FOLLOWING
+}
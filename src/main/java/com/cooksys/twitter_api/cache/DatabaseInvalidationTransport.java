@@ -0,0 +1,137 @@
+package com.cooksys.twitter_api.cache;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Passes invalidations through the {@code cache_invalidation} table of the shared database, so it works wherever the
+ * nodes already reach the same database and needs nothing else running.
+ * <p>
+ * Publishing only queues the message; a scheduled poll writes the queue in one batch and then reads the rows other
+ * nodes wrote since the last poll, so a change reaches the other nodes within about one poll interval. Rows committed
+ * out of id order are not missed: each poll re-reads the last {@code poll-overlap} milliseconds by creation time and
+ * the bus drops what it has already applied. Rows older than {@code retention} are deleted.
+ */
+@Component
+@ConditionalOnProperty(name = "twitter.cache-bus.transport", havingValue = "database")
+public class DatabaseInvalidationTransport implements InvalidationTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseInvalidationTransport.class);
+
+    private static final int READ_BATCH = 1000;
+
+    @Value("${twitter.cache-bus.poll-overlap:5000}")
+    private long pollOverlap;
+
+    @Value("${twitter.cache-bus.retention:600000}")
+    private long retention;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConcurrentLinkedQueue<Invalidation> outbox = new ConcurrentLinkedQueue<>();
+    private final List<Consumer<Invalidation>> receivers = new CopyOnWriteArrayList<>();
+    // creation time of the newest row read so far; only touched by the poll
+    private Timestamp readUpTo;
+    private long lastPrune;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public DatabaseInvalidationTransport(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void publish(Invalidation invalidation) {
+        outbox.add(invalidation);
+    }
+
+    @Override
+    public void subscribe(Consumer<Invalidation> receiver) {
+        receivers.add(receiver);
+    }
+
+    @Scheduled(fixedDelayString = "${twitter.cache-bus.poll-interval:500}")
+    public void poll() {
+        lock.lock();
+        try {
+            flush();
+            receive();
+            prune();
+        } catch (DataAccessException e) {
+            // keep the queue and the read position; the next poll retries
+            log.warn("Cache invalidation poll failed: {}", e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flush() {
+        List<Invalidation> batch = new ArrayList<>();
+        for (Invalidation invalidation = outbox.peek(); invalidation != null && batch.size() < READ_BATCH;
+             invalidation = outbox.peek()) {
+            batch.add(outbox.poll());
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(
+                    "insert into cache_invalidation (entity, entity_id, version, node) values (?, ?, ?, ?)", batch,
+                    batch.size(), (statement, invalidation) -> {
+                        statement.setString(1, invalidation.getEntity().name());
+                        statement.setLong(2, invalidation.getId());
+                        statement.setLong(3, invalidation.getVersion());
+                        statement.setString(4, invalidation.getNode());
+                    });
+        } catch (DataAccessException e) {
+            outbox.addAll(batch);
+            throw e;
+        }
+    }
+
+    private void receive() {
+        if (readUpTo == null) {
+            // start from now; changes from before this node started are not in its caches
+            readUpTo = jdbcTemplate.queryForObject("select localtimestamp", Timestamp.class);
+        }
+        Timestamp from = new Timestamp(readUpTo.getTime() - pollOverlap);
+        List<Timestamp> created = new ArrayList<>();
+        List<Invalidation> received = jdbcTemplate.query(
+                "select entity, entity_id, version, node, created from cache_invalidation where created > ?"
+                        + " order by created, id",
+                (row, number) -> {
+                    created.add(row.getTimestamp("created"));
+                    return new Invalidation(CachedEntity.valueOf(row.getString("entity")), row.getLong("entity_id"),
+                            row.getLong("version"), row.getString("node"));
+                }, from);
+        for (Invalidation invalidation : received) {
+            receivers.forEach(receiver -> receiver.accept(invalidation));
+        }
+        if (!created.isEmpty() && created.get(created.size() - 1).after(readUpTo)) {
+            readUpTo = created.get(created.size() - 1);
+        }
+    }
+
+    private void prune() {
+        long now = System.currentTimeMillis();
+        if (now - lastPrune < retention / 10) {
+            return;
+        }
+        lastPrune = now;
+        jdbcTemplate.update("delete from cache_invalidation where created < ?",
+                new Timestamp(readUpTo.getTime() - retention));
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.cooksys.twitter_api.cache;
+
+/**
+ * Approximate access counts of recently seen keys, for cache admission: a count-min sketch of four rows of counters
+ * capped at 15. Once {@code 10 * width} accesses have been recorded every counter is halved, so the counts follow
+ * what is popular now rather than what was popular once. Estimates never undercount between two halvings.
+ * <p>
+ * Not thread safe; callers synchronize.
+ */
+final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final long[] SEEDS = { 0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L,
+            0x27D4EB2F165667C5L };
+
+    private final byte[][] counters;
+    private final int mask;
+    private final int sampleSize;
+    private int recorded;
+
+    /**
+     * A sketch with at least {@code width} counters per row, rounded up to a power of two.
+     */
+    FrequencySketch(int width) {
+        int rounded = width <= 16 ? 16 : Integer.highestOneBit(width - 1) << 1;
+        this.counters = new byte[DEPTH][rounded];
+        this.mask = rounded - 1;
+        this.sampleSize = 10 * rounded;
+    }
+
+    void increment(long key) {
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = index(key, row);
+            if (counters[row][index] < MAX_COUNT) {
+                counters[row][index]++;
+                added = true;
+            }
+        }
+        if (added && ++recorded >= sampleSize) {
+            halve();
+        }
+    }
+
+    int frequency(long key) {
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, counters[row][index(key, row)]);
+        }
+        return frequency;
+    }
+
+    private void halve() {
+        for (byte[] row : counters) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>= 1;
+            }
+        }
+        recorded /= 2;
+    }
+
+    private int index(long key, int row) {
+        long hash = (key + SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+        hash ^= hash >>> 32;
+        return (int) hash & mask;
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.cooksys.twitter_api.cache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Delivers invalidations synchronously to every node in the same JVM subscribed to the same channel
+ * ({@code twitter.cache-bus.channel}), i.e. to other application contexts started by a test.
+ */
+@Component
+@ConditionalOnProperty(name = "twitter.cache-bus.transport", havingValue = "in-memory")
+public class InMemoryInvalidationTransport implements InvalidationTransport {
+
+    private static final Map<String, List<Consumer<Invalidation>>> channels = new ConcurrentHashMap<>();
+
+    private final List<Consumer<Invalidation>> channel;
+    private final List<Consumer<Invalidation>> receivers = new CopyOnWriteArrayList<>();
+
+    public InMemoryInvalidationTransport(@Value("${twitter.cache-bus.channel:default}") String channel) {
+        this.channel = channels.computeIfAbsent(channel, name -> new CopyOnWriteArrayList<>());
+    }
+
+    @Override
+    public void publish(Invalidation invalidation) {
+        channel.forEach(receiver -> receiver.accept(invalidation));
+    }
+
+    @Override
+    public void subscribe(Consumer<Invalidation> receiver) {
+        receivers.add(receiver);
+        channel.add(receiver);
+    }
+
+    @PreDestroy
+    public void stop() {
+        channel.removeAll(receivers);
+    }
+
+}
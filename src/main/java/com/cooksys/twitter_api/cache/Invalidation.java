@@ -0,0 +1,24 @@
+package com.cooksys.twitter_api.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * "Entity {@code id} of kind {@code entity} changed and is now at {@code version}", as sent over the
+ * {@link CacheInvalidationBus} by the node that committed the change.
+ */
+@AllArgsConstructor
+@Getter
+@ToString
+public class Invalidation {
+
+    private final CachedEntity entity;
+
+    private final long id;
+
+    private final long version;
+
+    private final String node;
+
+}
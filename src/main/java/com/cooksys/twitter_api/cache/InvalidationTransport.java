@@ -0,0 +1,19 @@
+package com.cooksys.twitter_api.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries invalidations between nodes. A transport may deliver a message more than once, late or out of order, and
+ * may hand a node its own messages back; the {@link CacheInvalidationBus} sorts that out by version and node.
+ */
+public interface InvalidationTransport {
+
+    /**
+     * Sends a committed change to the other nodes. Must not block on the network for long; called after commit on the
+     * thread that made the change.
+     */
+    void publish(Invalidation invalidation);
+
+    void subscribe(Consumer<Invalidation> receiver);
+
+}
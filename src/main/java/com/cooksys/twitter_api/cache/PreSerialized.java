@@ -0,0 +1,16 @@
+package com.cooksys.twitter_api.cache;
+
+import com.fasterxml.jackson.core.SerializableString;
+
+/**
+ * A response DTO that can carry its own JSON, set by the {@link ResponseFragmentCache} when the DTO is cached and
+ * written out as is by {@link ResponseFragmentModule}. DTOs carrying JSON are shared between requests and must not be
+ * modified.
+ */
+public interface PreSerialized {
+
+    SerializableString getJson();
+
+    void setJson(SerializableString json);
+
+}
@@ -0,0 +1,307 @@
+package com.cooksys.twitter_api.cache;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.cooksys.twitter_api.dtos.TweetResponseDto;
+import com.cooksys.twitter_api.dtos.UserResponseDto;
+import com.cooksys.twitter_api.entities.Tweet;
+import com.cooksys.twitter_api.entities.User;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Mapped and serialized responses of hot users and tweets, so a viral tweet or a popular profile is mapped and
+ * written to JSON once per version instead of once per request. Cached DTOs carry their JSON, which
+ * {@link ResponseFragmentModule} copies into the response as is, also when the DTO is an element of a list or nested
+ * in another DTO.
+ * <p>
+ * There is one entry per entity, holding the versions of everything its DTO was built from: the user's, or for a
+ * tweet its own, its author's and recursively those of the tweets it replies to or reposts. A lookup whose entity has
+ * other versions misses and replaces the entry, so a change that bumps a version is never served stale, whichever
+ * node made it. On top of that, every change published on the {@link CacheInvalidationBus} (updates, deletes and
+ * re-activations, on this node after commit and on the others as announced) removes the entity's entry, and entries
+ * older than a version announced by another node are neither served nor stored.
+ * <p>
+ * The cache holds at most {@code max-bytes} of JSON. Admission is frequency based (TinyLFU): every lookup is counted
+ * in a {@link FrequencySketch}, and when the cache is full a new entry only gets in if it has been asked for more often
+ * than each least recently used entry it would evict, so one-off reads of cold tweets cannot push hot ones out. A
+ * rejected candidate is mapped as usual and not serialized here. {@code max-bytes=0} turns the cache off. Entities
+ * without a positive id (never persisted) are not cached.
+ */
+@Component
+public class ResponseFragmentCache {
+
+    private record EntryKey(CachedEntity entity, long id) {
+    }
+
+    private record Entry(long[] versions, PreSerialized dto, int weight) {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final long maxBytes;
+    // access ordered, so iteration starts at the least recently used entry
+    private final Map<EntryKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long bytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public ResponseFragmentCache(ObjectMapper objectMapper, CacheInvalidationBus cacheInvalidationBus,
+                                 @Value("${twitter.response-cache.max-bytes:33554432}") long maxBytes) {
+        this.objectMapper = objectMapper;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.maxBytes = maxBytes;
+        // counters for twice as many entries as fit at 512 bytes each, so candidates are counted too
+        this.sketch = new FrequencySketch((int) Math.min(1 << 22, Math.max(1024, maxBytes / 256)));
+        cacheInvalidationBus.addListener(invalidation -> invalidate(invalidation.getEntity(), invalidation.getId()));
+    }
+
+    /**
+     * The user's DTO from the cache, or as mapped by {@code mapper}.
+     */
+    public UserResponseDto user(User user, Function<User, UserResponseDto> mapper) {
+        if (user == null || !cacheable(user.getId())) {
+            return mapper.apply(user);
+        }
+        if (cacheInvalidationBus.isStale(CachedEntity.USER, user.getId(), user.getVersion())) {
+            return mapper.apply(user);
+        }
+        return get(new EntryKey(CachedEntity.USER, user.getId()), new long[] { user.getVersion() },
+                () -> mapper.apply(user));
+    }
+
+    /**
+     * The tweet's DTO from the cache, or as mapped by {@code mapper}.
+     */
+    public TweetResponseDto tweet(Tweet tweet, Function<Tweet, TweetResponseDto> mapper) {
+        if (tweet == null || !cacheable(tweet.getId())) {
+            return mapper.apply(tweet);
+        }
+        LongStream.Builder versions = LongStream.builder();
+        if (!collectVersions(tweet, versions)) {
+            return mapper.apply(tweet);
+        }
+        return get(new EntryKey(CachedEntity.TWEET, tweet.getId()), versions.build().toArray(),
+                () -> mapper.apply(tweet));
+    }
+
+    public void invalidate(CachedEntity entity, long id) {
+        lock.lock();
+        try {
+            Entry removed = entries.remove(new EntryKey(entity, id));
+            if (removed != null) {
+                bytes -= removed.weight();
+                invalidations.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public int getSize() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getBytes() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <D extends PreSerialized> D get(EntryKey key, long[] versions, Supplier<D> mapper) {
+        long hash = hash(key);
+        boolean replacing;
+        boolean candidate;
+        lock.lock();
+        try {
+            sketch.increment(hash);
+            Entry entry = entries.get(key);
+            if (entry != null && Arrays.equals(entry.versions(), versions)) {
+                hits.increment();
+                return (D) entry.dto();
+            }
+            replacing = entry != null;
+            // when full, a candidate that would lose against the first victim is not worth serializing
+            candidate = replacing || bytes < maxBytes || wins(hash);
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+        D dto = mapper.get();
+        if (dto == null) {
+            return null;
+        }
+        if (!candidate) {
+            rejected.increment();
+            return dto;
+        }
+        SerializedString json;
+        try {
+            json = new SerializedString(objectMapper.writeValueAsString(dto));
+        } catch (JsonProcessingException e) {
+            // not cacheable, but the response can still fail or succeed on its own
+            return dto;
+        }
+        int weight = json.asUnquotedUTF8().length;
+        if (weight > maxBytes) {
+            rejected.increment();
+            return dto;
+        }
+        lock.lock();
+        try {
+            Entry current = entries.get(key);
+            if (current != null) {
+                entries.remove(key);
+                bytes -= current.weight();
+            } else if (!replacing && !makeRoom(hash, weight)) {
+                rejected.increment();
+                return dto;
+            }
+            // set before the entry is published, so whoever finds the DTO in the cache sees its JSON
+            dto.setJson(json);
+            entries.put(key, new Entry(versions, dto, weight));
+            bytes += weight;
+            admitted.increment();
+            // an entry replaced by a newer version may have grown past the bound
+            makeRoom(hash, 0);
+        } finally {
+            lock.unlock();
+        }
+        return dto;
+    }
+
+    /**
+     * Whether the candidate is asked for more often than the least recently used entry.
+     */
+    private boolean wins(long candidate) {
+        Iterator<EntryKey> keys = entries.keySet().iterator();
+        return !keys.hasNext() || sketch.frequency(candidate) > sketch.frequency(hash(keys.next()));
+    }
+
+    /**
+     * Evicts least recently used entries, each of which must be asked for less often than the candidate, until
+     * {@code weight} more bytes fit; false, evicting nothing, when that is not possible.
+     */
+    private boolean makeRoom(long candidate, int weight) {
+        int frequency = sketch.frequency(candidate);
+        long free = maxBytes - bytes;
+        int victims = 0;
+        Iterator<Map.Entry<EntryKey, Entry>> lru = entries.entrySet().iterator();
+        while (free < weight) {
+            if (!lru.hasNext()) {
+                return false;
+            }
+            Map.Entry<EntryKey, Entry> victim = lru.next();
+            if (weight > 0 && sketch.frequency(hash(victim.getKey())) >= frequency) {
+                return false;
+            }
+            free += victim.getValue().weight();
+            victims++;
+        }
+        lru = entries.entrySet().iterator();
+        for (int i = 0; i < victims; i++) {
+            bytes -= lru.next().getValue().weight();
+            lru.remove();
+            evictions.increment();
+        }
+        return true;
+    }
+
+    /**
+     * Adds the versions of the tweet and of everything in its DTO, depth first; false when one of them is stale.
+     */
+    private boolean collectVersions(Tweet tweet, LongStream.Builder versions) {
+        if (cacheInvalidationBus.isStale(CachedEntity.TWEET, tweet.getId(), tweet.getVersion())) {
+            return false;
+        }
+        versions.add(tweet.getVersion());
+        User author = tweet.getAuthor();
+        if (author == null) {
+            versions.add(-1);
+        } else if (cacheInvalidationBus.isStale(CachedEntity.USER, author.getId(), author.getVersion())) {
+            return false;
+        } else {
+            versions.add(author.getVersion());
+        }
+        if (tweet.getInReplyTo() == null && tweet.getInReplyToId() != null
+                || tweet.getRepostOf() == null && tweet.getRepostOfId() != null) {
+            // embeds a tweet of another shard, whose version is not known here
+            return false;
+        }
+        for (Tweet embedded : new Tweet[] { tweet.getInReplyTo(), tweet.getRepostOf() }) {
+            if (embedded == null) {
+                versions.add(-1);
+            } else if (!collectVersions(embedded, versions)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean cacheable(Long id) {
+        return maxBytes > 0 && id != null && id > 0;
+    }
+
+    private static long hash(EntryKey key) {
+        long hash = key.id() * 0x9E3779B97F4A7C15L + key.entity().ordinal();
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        return hash ^ (hash >>> 33);
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.cooksys.twitter_api.cache;
+
+import java.io.IOException;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Writes a {@link PreSerialized} DTO that carries its JSON by copying that JSON into the output, so a page of cached
+ * tweets is assembled from their fragments instead of serialized field by field. Registered with the application's
+ * {@code ObjectMapper} by Spring Boot, which picks up every Jackson module bean.
+ * <p>
+ * The fragments are compact JSON written by that same mapper, so they are only copied into plain JSON output: CBOR,
+ * token buffers and pretty-printed output serialize the DTO as usual.
+ */
+@Component
+public class ResponseFragmentModule extends SimpleModule {
+
+    public ResponseFragmentModule() {
+        super("ResponseFragmentModule");
+        setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDescription,
+                                                      JsonSerializer<?> serializer) {
+                if (PreSerialized.class.isAssignableFrom(beanDescription.getBeanClass())) {
+                    return new FragmentSerializer(serializer);
+                }
+                return serializer;
+            }
+        });
+    }
+
+    private static class FragmentSerializer extends StdSerializer<Object>
+            implements ContextualSerializer, ResolvableSerializer {
+
+        private final JsonSerializer<Object> delegate;
+
+        @SuppressWarnings("unchecked")
+        FragmentSerializer(JsonSerializer<?> delegate) {
+            super(Object.class);
+            this.delegate = (JsonSerializer<Object>) delegate;
+        }
+
+        @Override
+        public void serialize(Object value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            SerializableString json = ((PreSerialized) value).getJson();
+            if (json != null && generator instanceof JsonGeneratorImpl && generator.getPrettyPrinter() == null) {
+                generator.writeRawValue(json);
+            } else {
+                delegate.serialize(value, generator, provider);
+            }
+        }
+
+        @Override
+        public void serializeWithType(Object value, JsonGenerator generator, SerializerProvider provider,
+                                      TypeSerializer typeSerializer) throws IOException {
+            delegate.serializeWithType(value, generator, provider, typeSerializer);
+        }
+
+        @Override
+        public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property)
+                throws JsonMappingException {
+            if (delegate instanceof ContextualSerializer contextual) {
+                return new FragmentSerializer(contextual.createContextual(provider, property));
+            }
+            return this;
+        }
+
+        @Override
+        public void resolve(SerializerProvider provider) throws JsonMappingException {
+            if (delegate instanceof ResolvableSerializer resolvable) {
+                resolvable.resolve(provider);
+            }
+        }
+
+        @Override
+        public boolean isEmpty(SerializerProvider provider, Object value) {
+            return delegate.isEmpty(provider, value);
+        }
+
+    }
+
+}
@@ -0,0 +1,196 @@
+package com.cooksys.twitter_api.config;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Writes response bodies as CBOR (RFC 8949) for clients sending {@code Accept: application/cbor}.
+ * <p>
+ * Values go through the application's {@link ObjectMapper} first, so the CBOR document has exactly the fields and
+ * values of the JSON one (the schema is published at {@code /schemas/twitter-api.cddl}); only the encoding differs.
+ * Integers, lengths and booleans take one to nine bytes instead of their decimal text, and nothing has to be quoted
+ * or escaped, which is where both the size and the parsing cost on the client side go down. Request bodies stay JSON.
+ */
+public class CborHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    public static final MediaType APPLICATION_CBOR = new MediaType("application", "cbor");
+
+    private static final int UNSIGNED = 0;
+    private static final int NEGATIVE = 1;
+    private static final int BYTES = 2;
+    private static final int TEXT = 3;
+    private static final int ARRAY = 4;
+    private static final int MAP = 5;
+    private static final int INDEFINITE = 31;
+    private static final int BREAK = 0xFF;
+    private static final int FALSE = 0xF4;
+    private static final int TRUE = 0xF5;
+    private static final int NULL = 0xF6;
+    private static final int FLOAT64 = 0xFB;
+
+    private final ObjectMapper objectMapper;
+
+    public CborHttpMessageConverter(ObjectMapper objectMapper) {
+        super(APPLICATION_CBOR);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return true;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("CBOR request bodies are not supported", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object value, HttpOutputMessage outputMessage) throws IOException {
+        encode(value, outputMessage.getBody());
+    }
+
+    /**
+     * Encodes the value as the CBOR counterpart of its JSON serialization. The value is serialized into a token buffer
+     * and replayed token by token, with objects and arrays written as indefinite-length items so no intermediate tree
+     * is needed.
+     */
+    public void encode(Object value, OutputStream out) throws IOException {
+        Writer writer = new Writer(out);
+        try (TokenBuffer tokens = new TokenBuffer(objectMapper, false)) {
+            objectMapper.writeValue(tokens, value);
+            try (JsonParser parser = tokens.asParser()) {
+                while (parser.nextToken() != null) {
+                    writer.write(parser);
+                }
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Buffers the encoded document so the underlying stream sees a few large writes.
+     */
+    private static final class Writer {
+
+        private final OutputStream out;
+        private final byte[] buffer = new byte[8192];
+        private int position;
+
+        Writer(OutputStream out) {
+            this.out = out;
+        }
+
+        void write(JsonParser parser) throws IOException {
+            switch (parser.currentToken()) {
+                case START_OBJECT -> put(MAP << 5 | INDEFINITE);
+                case START_ARRAY -> put(ARRAY << 5 | INDEFINITE);
+                case END_OBJECT, END_ARRAY -> put(BREAK);
+                case FIELD_NAME, VALUE_STRING -> text(parser.getText());
+                case VALUE_TRUE -> put(TRUE);
+                case VALUE_FALSE -> put(FALSE);
+                case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> number(parser);
+                case VALUE_EMBEDDED_OBJECT -> {
+                    if (parser.getEmbeddedObject() instanceof byte[] bytes) {
+                        header(BYTES, bytes.length);
+                        bytes(bytes);
+                    } else {
+                        text(parser.getText());
+                    }
+                }
+                default -> put(NULL);
+            }
+        }
+
+        private void number(JsonParser parser) throws IOException {
+            JsonParser.NumberType type = parser.getNumberType();
+            if (type == JsonParser.NumberType.INT || type == JsonParser.NumberType.LONG) {
+                long value = parser.getLongValue();
+                if (value >= 0) {
+                    header(UNSIGNED, value);
+                } else {
+                    header(NEGATIVE, -1 - value);
+                }
+            } else if (type == JsonParser.NumberType.BIG_INTEGER) {
+                text(parser.getText());
+            } else {
+                put(FLOAT64);
+                long bits = Double.doubleToLongBits(parser.getDoubleValue());
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    put((int) (bits >>> shift));
+                }
+            }
+        }
+
+        private void text(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            header(TEXT, bytes.length);
+            bytes(bytes);
+        }
+
+        private void header(int majorType, long argument) throws IOException {
+            int type = majorType << 5;
+            if (argument < 24) {
+                put(type | (int) argument);
+            } else if (argument <= 0xFF) {
+                put(type | 24);
+                put((int) argument);
+            } else if (argument <= 0xFFFF) {
+                put(type | 25);
+                put((int) (argument >>> 8));
+                put((int) argument);
+            } else if (argument <= 0xFFFFFFFFL) {
+                put(type | 26);
+                for (int shift = 24; shift >= 0; shift -= 8) {
+                    put((int) (argument >>> shift));
+                }
+            } else {
+                put(type | 27);
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    put((int) (argument >>> shift));
+                }
+            }
+        }
+
+        private void put(int b) throws IOException {
+            if (position == buffer.length) {
+                flush();
+            }
+            buffer[position++] = (byte) b;
+        }
+
+        private void bytes(byte[] bytes) throws IOException {
+            if (bytes.length > buffer.length - position) {
+                flush();
+                if (bytes.length > buffer.length) {
+                    out.write(bytes);
+                    return;
+                }
+            }
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void flush() throws IOException {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+}
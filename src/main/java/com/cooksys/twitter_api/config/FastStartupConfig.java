@@ -0,0 +1,50 @@
+package com.cooksys.twitter_api.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+
+import com.cooksys.twitter_api.controllers.HashtagController;
+import com.cooksys.twitter_api.controllers.TweetController;
+import com.cooksys.twitter_api.controllers.UserController;
+import com.cooksys.twitter_api.storage.EventLog;
+
+/**
+ * Settings for the {@code fast-startup} profile, which turns on lazy bean initialization (see
+ * application-fast-startup.properties).
+ * <p>
+ * Beans behind the high traffic endpoints are still created eagerly so lazy initialization only defers the rarely
+ * used ones. With {@code twitter.startup.exit-on-ready=true} the application shuts down as soon as it is ready, which
+ * is how the AppCDS training run in scripts/fast-startup.sh records the classes loaded during startup.
+ */
+@Configuration
+@Profile("fast-startup")
+public class FastStartupConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(FastStartupConfig.class);
+
+    @Value("${twitter.startup.exit-on-ready:false}")
+    private boolean exitOnReady;
+
+    @Bean
+    static LazyInitializationExcludeFilter hotPathBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(TweetController.class, UserController.class,
+                HashtagController.class, EventLog.class);
+    }
+
+    @EventListener
+    public void onReady(ApplicationReadyEvent event) {
+        if (exitOnReady) {
+            log.info("Training run finished, exiting");
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.cooksys.twitter_api.config;
+
+import java.io.IOException;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Gives a client read-your-writes consistency while reads are served by replicas. A successful write request answers
+ * with a cookie holding the time until which that client's reads go to the primary, which should cover the
+ * replication lag; reads carrying an unexpired cookie are pinned to the primary.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE = "twitter-primary-until";
+
+    private final long windowMillis;
+
+    public ReadYourWritesFilter(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (isRead(request)) {
+            if (primaryUntil(request) > System.currentTimeMillis()) {
+                ReplicaRoutingDataSource.pinToPrimary();
+            }
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                ReplicaRoutingDataSource.unpin();
+            }
+            return;
+        }
+        Cookie cookie = new Cookie(COOKIE, Long.toString(System.currentTimeMillis() + windowMillis));
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        cookie.setMaxAge((int) Math.max(1, windowMillis / 1000));
+        // set before the body is written, which would commit the response
+        response.addCookie(cookie);
+        filterChain.doFilter(request, response);
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        String method = request.getMethod();
+        return "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method);
+    }
+
+    private static long primaryUntil(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return 0;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.cooksys.twitter_api.config;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Read replica routing, on when {@code twitter.datasource.replica-urls} lists at least one replica. The primary is
+ * still configured with {@code spring.datasource.*}; replicas share its credentials unless
+ * {@code twitter.datasource.replica-username} / {@code replica-password} are set. Read-only service operations
+ * ({@code @Transactional(readOnly = true)}) read from the replicas, everything else, including Flyway and schema
+ * validation, uses the primary.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "twitter.datasource", name = "replica-urls")
+public class ReplicaDataSourceConfig {
+
+    @Value("${twitter.datasource.replica-urls}")
+    private List<String> replicaUrls;
+
+    @Value("${twitter.datasource.replica-username:${spring.datasource.username:}}")
+    private String replicaUsername;
+
+    @Value("${twitter.datasource.replica-password:${spring.datasource.password:}}")
+    private String replicaPassword;
+
+    @Value("${twitter.datasource.replica-validation-timeout:2}")
+    private int validationTimeoutSeconds;
+
+    @Value("${twitter.datasource.read-your-writes-window:5000}")
+    private long readYourWritesWindow;
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties) {
+        DataSource primary = properties.initializeDataSourceBuilder().build();
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            replicas.put("replica-" + i, DataSourceBuilder.create()
+                    .url(replicaUrls.get(i).trim())
+                    .username(replicaUsername)
+                    .password(replicaPassword)
+                    .build());
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, validationTimeoutSeconds);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter() {
+        return new FilterRegistrationBean<>(new ReadYourWritesFilter(readYourWritesWindow));
+    }
+
+}
@@ -0,0 +1,159 @@
+package com.cooksys.twitter_api.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends connections of read-only transactions to a healthy replica, round robin, and everything else to the primary.
+ * <p>
+ * The read-only flag is only known once the transaction has started, so this data source must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, which defers fetching the connection to
+ * the first statement. Replicas are checked periodically; a replica that fails a check, or fails to hand out a
+ * connection, is skipped until it passes a check again, and reads fall back to the primary while none is healthy.
+ * A thread can be pinned to the primary with {@link #pinToPrimary()} (see {@link ReadYourWritesFilter}) so a client
+ * reads its own writes before they have reached the replicas.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    static final String PRIMARY = "primary";
+
+    private static final ThreadLocal<Boolean> pinnedToPrimary = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas;
+    private final Set<String> healthy = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger next = new AtomicInteger();
+    private final int validationTimeoutSeconds;
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, int validationTimeoutSeconds) {
+        this.primary = primary;
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        healthy.addAll(replicas.keySet());
+    }
+
+    public static void pinToPrimary() {
+        pinnedToPrimary.set(Boolean.TRUE);
+    }
+
+    public static void unpin() {
+        pinnedToPrimary.remove();
+    }
+
+    /**
+     * Runs {@code operation} pinned to the primary, for reads in a read-only transaction that must not be served by a
+     * lagging replica. The connection is fetched on the first statement, so this has to be called before it. A pin the
+     * caller already holds is kept.
+     */
+    public static <T> T onPrimary(Supplier<T> operation) {
+        if (pinnedToPrimary.get() != null) {
+            return operation.get();
+        }
+        pinToPrimary();
+        try {
+            return operation.get();
+        } finally {
+            unpin();
+        }
+    }
+
+    public Map<String, DataSource> getReplicas() {
+        return Collections.unmodifiableMap(replicas);
+    }
+
+    public Set<String> getHealthyReplicas() {
+        return Collections.unmodifiableSet(healthy);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || pinnedToPrimary.get() != null) {
+            return PRIMARY;
+        }
+        List<String> candidates = new ArrayList<>(healthy);
+        if (candidates.isEmpty()) {
+            return PRIMARY;
+        }
+        return candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Object key = determineCurrentLookupKey();
+        if (PRIMARY.equals(key)) {
+            return primary.getConnection();
+        }
+        try {
+            return replicas.get(key).getConnection();
+        } catch (SQLException e) {
+            markDown((String) key, e);
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    @Scheduled(fixedDelayString = "${twitter.datasource.replica-health-interval:5000}")
+    public void checkReplicas() {
+        for (Map.Entry<String, DataSource> replica : replicas.entrySet()) {
+            try (Connection connection = replica.getValue().getConnection()) {
+                if (!connection.isValid(validationTimeoutSeconds)) {
+                    throw new SQLException("Connection validation failed");
+                }
+                if (healthy.add(replica.getKey())) {
+                    log.info("Replica {} is back, routing reads to it", replica.getKey());
+                }
+            } catch (SQLException | RuntimeException e) {
+                markDown(replica.getKey(), e);
+            }
+        }
+    }
+
+    /**
+     * Closes the connection pools of the primary and the replicas, which are not beans of their own.
+     */
+    public void close() throws Exception {
+        for (DataSource dataSource : replicas.values()) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+        if (primary instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private void markDown(String replica, Exception cause) {
+        if (healthy.remove(replica)) {
+            log.warn("Replica {} is unavailable, routing its reads elsewhere: {}", replica, cause.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.cooksys.twitter_api.config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.cooksys.twitter_api.sharding.ShardRoutingDataSource;
+import com.cooksys.twitter_api.sharding.ShardedIdGenerator;
+import com.cooksys.twitter_api.sharding.Shards;
+
+/**
+ * Hash sharding of users and their tweets, on when {@code twitter.sharding.shard-urls} lists at least one database
+ * besides the one configured with {@code spring.datasource.*}, which is shard 0. Extra shards share its credentials
+ * unless {@code twitter.sharding.username} / {@code password} are set. Every shard gets the full schema from the
+ * Flyway migrations and its own id sequences; see {@link com.cooksys.twitter_api.sharding.ShardMap} for placement.
+ * <p>
+ * The second-level and query caches are turned off while sharded: hashtag ids and cached query results are only
+ * meaningful on the shard they came from. Relationships are stored on the shard of the user who makes them, a follow
+ * with the follower, a like with the liking user, a mention, reply or repost with the tweet that makes it, and refer
+ * to the user or tweet on the other end by id alone, which is read on its own shard. Read replicas cannot be combined
+ * with sharding yet.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "twitter.sharding", name = "shard-urls")
+public class ShardingConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardingConfig.class);
+
+    @Value("${twitter.sharding.shard-urls}")
+    private List<String> shardUrls;
+
+    @Value("${twitter.sharding.username:${spring.datasource.username:}}")
+    private String username;
+
+    @Value("${twitter.sharding.password:${spring.datasource.password:}}")
+    private String password;
+
+    public ShardingConfig(@Value("${twitter.datasource.replica-urls:}") List<String> replicaUrls) {
+        if (!replicaUrls.isEmpty()) {
+            throw new IllegalStateException(
+                    "twitter.sharding.shard-urls and twitter.datasource.replica-urls cannot be used together");
+        }
+    }
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(DataSourceProperties properties) {
+        List<DataSource> shards = new ArrayList<>();
+        shards.add(properties.initializeDataSourceBuilder().build());
+        for (String url : shardUrls) {
+            shards.add(DataSourceBuilder.create()
+                    .url(url.trim())
+                    .username(username)
+                    .password(password)
+                    .build());
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    /**
+     * Shard 0 is migrated by the regular Flyway bean through the routing data source; this repeats the migrations, with
+     * the same configuration, on the other shards once all beans are up and before the startup loaders read them.
+     * Flyway is only on the runtime classpath, hence the reflection.
+     */
+    @Bean
+    public SmartInitializingSingleton shardMigrations(ApplicationContext context,
+                                                      ShardRoutingDataSource shardRoutingDataSource) {
+        return () -> {
+            Object flyway = context.getBean("flyway");
+            List<DataSource> shards = shardRoutingDataSource.getShards();
+            for (int shard = 1; shard < shards.size(); shard++) {
+                migrate(flyway, shards.get(shard));
+                log.info("Migrated shard {}", shard);
+            }
+        };
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer shardingHibernateProperties(Shards shards) {
+        return properties -> {
+            properties.put(ShardedIdGenerator.BUCKETS_SETTING, shards.getShardMap().getBuckets());
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, false);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, false);
+        };
+    }
+
+    private static void migrate(Object flyway, DataSource dataSource) {
+        try {
+            Object configuration = flyway.getClass().getMethod("getConfiguration").invoke(flyway);
+            Class<?> configurationType = Class.forName("org.flywaydb.core.api.configuration.Configuration");
+            Object builder = flyway.getClass().getMethod("configure").invoke(null);
+            builder = builder.getClass().getMethod("configuration", configurationType).invoke(builder, configuration);
+            builder = builder.getClass().getMethod("dataSource", DataSource.class).invoke(builder, dataSource);
+            Object shardFlyway = builder.getClass().getMethod("load").invoke(builder);
+            shardFlyway.getClass().getMethod("migrate").invoke(shardFlyway);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Migrating a shard failed", e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unsupported Flyway version", e);
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.cooksys.twitter_api.config;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.cooksys.twitter_api.dtos.TweetResponseDto;
+import com.cooksys.twitter_api.entities.Credentials;
+import com.cooksys.twitter_api.entities.Profile;
+import com.cooksys.twitter_api.entities.Tweet;
+import com.cooksys.twitter_api.entities.User;
+import com.cooksys.twitter_api.helpers.SortByPostedReverse;
+import com.cooksys.twitter_api.mappers.TweetMapper;
+import com.cooksys.twitter_api.mappers.UserMapper;
+import com.cooksys.twitter_api.metrics.StartupMetrics;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Runs the hot request paths (entity to DTO mapping, feed sorting and JSON serialization) on synthetic, never
+ * persisted entities before the application reports ready, so the first real requests hit compiled code instead of
+ * the interpreter. Enabled with {@code twitter.warmup.enabled=true}.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "twitter.warmup.enabled", havingValue = "true")
+public class StartupWarmup implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupWarmup.class);
+
+    private final TweetMapper tweetMapper;
+    private final UserMapper userMapper;
+    private final ObjectMapper objectMapper;
+    private final StartupMetrics startupMetrics;
+
+    @Value("${twitter.warmup.iterations:2000}")
+    private int iterations;
+
+    @Override
+    public void run(ApplicationArguments args) throws JsonProcessingException {
+        long start = System.currentTimeMillis();
+        List<Tweet> feed = syntheticFeed(50);
+        long bytes = 0;
+        for (int i = 0; i < iterations; i++) {
+            List<Tweet> page = new ArrayList<>(feed);
+            page.sort(new SortByPostedReverse());
+            List<TweetResponseDto> dtos = tweetMapper.entitiesToDtos(page);
+            bytes += objectMapper.writeValueAsBytes(dtos).length;
+            bytes += objectMapper.writeValueAsBytes(userMapper.entityToDto(page.get(0).getAuthor())).length;
+        }
+        long millis = System.currentTimeMillis() - start;
+        startupMetrics.recordPhase("jitWarmup", millis);
+        log.info("JIT warmup ran {} iterations ({} bytes serialized) in {} ms", iterations, bytes, millis);
+    }
+
+    private static List<Tweet> syntheticFeed(int size) {
+        List<User> authors = new ArrayList<>();
+        for (long i = 1; i <= 5; i++) {
+            Credentials credentials = new Credentials();
+            credentials.setUsername("warmup" + i);
+            Profile profile = new Profile();
+            profile.setEmail("warmup" + i + "@example.com");
+            profile.setFirstName("Warm");
+            profile.setLastName("Up");
+            User user = new User();
+            user.setId(-i);
+            user.setCredentials(credentials);
+            user.setProfile(profile);
+            user.setJoined(new Timestamp(0));
+            authors.add(user);
+        }
+        List<Tweet> feed = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < size; i++) {
+            Tweet tweet = new Tweet();
+            tweet.setId((long) -(i + 1));
+            tweet.setAuthor(authors.get(i % authors.size()));
+            tweet.setPosted(new Timestamp(now - i * 7919L % 100000));
+            tweet.setContent("warming up @warmup" + (i % 5 + 1) + " #jit " + i);
+            if (i % 3 == 1) {
+                tweet.setInReplyTo(feed.get(i - 1));
+            } else if (i % 3 == 2) {
+                tweet.setRepostOf(feed.get(i - 2));
+            }
+            feed.add(tweet);
+        }
+        return feed;
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.cooksys.twitter_api.config;
+
+import java.util.concurrent.ExecutorService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+/**
+ * Settings for the {@code virtual-threads} profile (see application-virtual-threads.properties), which needs Java 21.
+ * <p>
+ * Tomcat hands every request to a new virtual thread instead of its bounded worker pool, and Spring's application task
+ * executor ({@code @Async}) does the same, so a request blocked on a JDBC round trip no longer holds a platform thread.
+ * The number of requests talking to the database at once is then bounded by the connection pool alone, which is sized
+ * in the profile. The feed stream senders switch to virtual threads as well, see {@code twitter.threads.virtual}. The
+ * NDJSON streams keep their bounded executor (see {@link WebConfig}), with a larger limit to match the pool.
+ * <p>
+ * A virtual thread blocked inside a {@code synchronized} block, or waiting to enter one, pins its carrier thread, so
+ * a monitor held across file or database I/O takes carriers away from every other request. Code that can hold a lock
+ * across I/O (the event log and content store writers, the event log consumers, the index snapshots) therefore uses
+ * {@link java.util.concurrent.locks.ReentrantLock}; {@code synchronized} is left to short in-memory sections.
+ */
+@Configuration
+@Profile("virtual-threads")
+public class VirtualThreadConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    public VirtualThreadConfig() {
+        if (!VirtualThreads.isAvailable()) {
+            throw new IllegalStateException("The virtual-threads profile needs Java 21 or later, running on "
+                    + System.getProperty("java.version"));
+        }
+        log.info("Handling requests on virtual threads");
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandler() {
+        return protocolHandler -> protocolHandler.setExecutor(VirtualThreads.newThreadPerTaskExecutor("http"));
+    }
+
+    @Bean(name = { TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME, "taskExecutor" })
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("task");
+        return new TaskExecutorAdapter(executor);
+    }
+
+}
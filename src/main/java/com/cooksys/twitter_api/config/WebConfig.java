@@ -0,0 +1,73 @@
+package com.cooksys.twitter_api.config;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.cooksys.twitter_api.sharding.ShardRoutingInterceptor;
+import com.cooksys.twitter_api.sharding.Shards;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Registers the binary response encodings. They are added after the default converters, so JSON stays the answer
+ * for {@code Accept: *}{@code /*} and clients have to ask for {@code application/cbor} explicitly. With more than one
+ * shard, requests are routed to the shard owning the user or tweet they address.
+ * <p>
+ * The NDJSON streams under {@code /stream} are the only asynchronous handlers, and each holds its thread and a
+ * database connection until the whole result is written. They run on an executor of their own with
+ * {@code twitter.stream.max-concurrent} threads and room for {@code twitter.stream.queue-capacity} waiting streams,
+ * so they cannot take more connections than that from the pool; streams beyond those are refused with 503. The Flux
+ * endpoints under {@code /reactive}, in builds with the reactive profile, hold no thread while they wait on the
+ * database; only the writing of each element is handed to this executor.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ObjectMapper objectMapper;
+    private final Shards shards;
+
+    @Value("${twitter.stream.max-concurrent:4}")
+    private int maxConcurrentStreams;
+
+    @Value("${twitter.stream.queue-capacity:16}")
+    private int streamQueueCapacity;
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new CborHttpMessageConverter(objectMapper));
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor streamExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrentStreams);
+        executor.setMaxPoolSize(maxConcurrentStreams);
+        executor.setQueueCapacity(streamQueueCapacity);
+        executor.setThreadNamePrefix("stream-");
+        return executor;
+    }
+
+    // runs after Spring Boot's configurer, which would hand async requests to the unbounded application task executor
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(streamExecutor());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (shards.isSharded()) {
+            registry.addInterceptor(new ShardRoutingInterceptor(shards.getShardMap()));
+        }
+    }
+
+}
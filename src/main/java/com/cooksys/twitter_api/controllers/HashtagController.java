@@ -5,10 +5,17 @@ import java.util.List;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.cooksys.twitter_api.dtos.HashtagDto;
+import com.cooksys.twitter_api.dtos.HashtagStatsDto;
+import com.cooksys.twitter_api.dtos.NormalizedTweetListDto;
+import com.cooksys.twitter_api.dtos.ResourceVersionDto;
+import com.cooksys.twitter_api.dtos.SuggestionDto;
 import com.cooksys.twitter_api.dtos.TweetResponseDto;
+import com.cooksys.twitter_api.service.AutocompleteService;
 import com.cooksys.twitter_api.service.HashtagService;
 
 import lombok.RequiredArgsConstructor;
@@ -19,17 +26,43 @@ import lombok.RequiredArgsConstructor;
 public class HashtagController {
 	
 	private final HashtagService hashtagService;
+	private final AutocompleteService autocompleteService;
 	
 	@GetMapping
-	public List<HashtagDto> getAllHashtags(){
+	public List<HashtagDto> getAllHashtags(WebRequest request){
 		
+		ResourceVersionDto version = hashtagService.getAllHashtagsVersion();
+		if (request.checkNotModified(version.getEtag(), version.getLastModified())) {
+			return null;
+		}
 		return hashtagService.getAllHashtags();
 	}
 	
+	// only with a prefix, so a hashtag labelled "autocomplete" can still be fetched
+	@GetMapping(value = "/autocomplete", params = "prefix")
+	public List<SuggestionDto> autocomplete(@RequestParam String prefix, @RequestParam(defaultValue = "10") int limit){
+		
+		return autocompleteService.completeLabel(prefix, limit);
+	}
+	
 	@GetMapping("/{label}")
 	List<TweetResponseDto> getTweetsWithLabel(@PathVariable String label){
 		
 		return hashtagService.getTweetsWithLabel(label);
 	}
 	
+	@GetMapping(value = "/{label}", params = "view=normalized")
+	NormalizedTweetListDto getTweetsWithLabelNormalized(@PathVariable String label){
+		
+		return hashtagService.getTweetsWithLabelNormalized(label);
+	}
+	
+	@GetMapping("/{label}/stats")
+	HashtagStatsDto getHashtagStats(@PathVariable String label, @RequestParam(defaultValue = "hour") String granularity,
+			@RequestParam(required = false) Long from, @RequestParam(required = false) Long to,
+			@RequestParam(defaultValue = "10") int top){
+		
+		return hashtagService.getHashtagStats(label, granularity, from, to, top);
+	}
+	
 }
@@ -0,0 +1,120 @@
+package com.cooksys.twitter_api.controllers;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.cooksys.twitter_api.cache.BoundedRegionFactory;
+import com.cooksys.twitter_api.cache.CacheInvalidationBus;
+import com.cooksys.twitter_api.cache.ResponseFragmentCache;
+import com.cooksys.twitter_api.dtos.CacheRegionStatsDto;
+import com.cooksys.twitter_api.metrics.StartupMetrics;
+import com.cooksys.twitter_api.stream.FeedStreamHub;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/metrics")
+public class MetricsController {
+
+    private final StartupMetrics startupMetrics;
+    private final EntityManagerFactory entityManagerFactory;
+    private final FeedStreamHub feedStreamHub;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final ResponseFragmentCache responseFragmentCache;
+
+    /**
+     * GET metrics/startup
+     * <p>
+     * Time from JVM start to ready, and the duration of each recorded startup phase, in milliseconds.
+     */
+    @GetMapping("/startup")
+    public Map<String, Object> getStartupMetrics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("timeToReadyMillis", startupMetrics.getTimeToReadyMillis());
+        result.put("phases", startupMetrics.getPhases());
+        return result;
+    }
+
+    /**
+     * GET metrics/cache
+     * <p>
+     * Size, capacity and hit/miss/put/eviction counts of each second-level cache region. Empty when the second-level
+     * cache is off.
+     */
+    @GetMapping("/cache")
+    public List<CacheRegionStatsDto> getCacheMetrics() {
+        RegionFactory regionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getCache()
+                .getRegionFactory();
+        if (!(regionFactory instanceof BoundedRegionFactory boundedRegionFactory)) {
+            return List.of();
+        }
+        return boundedRegionFactory.getRegions().stream()
+                .sorted(Comparator.comparing(region -> region.getRegionName()))
+                .map(region -> new CacheRegionStatsDto(region.getRegionName(), region.getSize(),
+                        region.getMaxEntries(), region.getHits(), region.getMisses(), region.getPuts(),
+                        region.getEvictions()))
+                .toList();
+    }
+
+    /**
+     * GET metrics/feed-stream
+     * <p>
+     * Number of open feed streams, and of streams closed so far because the client fell behind.
+     */
+    @GetMapping("/feed-stream")
+    public Map<String, Object> getFeedStreamMetrics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("openStreams", feedStreamHub.getOpenStreams());
+        result.put("droppedStreams", feedStreamHub.getDroppedStreams());
+        return result;
+    }
+
+    /**
+     * GET metrics/cache-bus
+     * <p>
+     * This node's id on the cache invalidation bus, and the number of invalidations it published, applied and ignored
+     * as duplicates or out of date.
+     */
+    @GetMapping("/cache-bus")
+    public Map<String, Object> getCacheBusMetrics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("node", cacheInvalidationBus.getNode());
+        result.put("published", cacheInvalidationBus.getPublished());
+        result.put("applied", cacheInvalidationBus.getApplied());
+        result.put("ignored", cacheInvalidationBus.getIgnored());
+        return result;
+    }
+
+    /**
+     * GET metrics/response-cache
+     * <p>
+     * Entries and bytes of JSON held by the response cache and its limit, lookups that hit and missed, misses admitted
+     * and rejected, and entries evicted for room or removed because their entity changed.
+     */
+    @GetMapping("/response-cache")
+    public Map<String, Object> getResponseCacheMetrics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("entries", responseFragmentCache.getSize());
+        result.put("bytes", responseFragmentCache.getBytes());
+        result.put("maxBytes", responseFragmentCache.getMaxBytes());
+        result.put("hits", responseFragmentCache.getHits());
+        result.put("misses", responseFragmentCache.getMisses());
+        result.put("admitted", responseFragmentCache.getAdmitted());
+        result.put("rejected", responseFragmentCache.getRejected());
+        result.put("evictions", responseFragmentCache.getEvictions());
+        result.put("invalidations", responseFragmentCache.getInvalidations());
+        return result;
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.cooksys.twitter_api.controllers;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.cooksys.twitter_api.dtos.SearchResultDto;
+import com.cooksys.twitter_api.service.SearchService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/search")
+public class SearchController {
+
+    private final SearchService searchService;
+
+    @GetMapping("/tweets")
+    public SearchResultDto searchTweets(@RequestParam("q") String query,
+                                        @RequestParam(required = false) String sort,
+                                        @RequestParam(required = false) String cursor,
+                                        @RequestParam(defaultValue = "20") int limit) {
+        return searchService.searchTweets(query, sort, cursor, limit);
+    }
+
+}
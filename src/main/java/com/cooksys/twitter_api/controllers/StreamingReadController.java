@@ -0,0 +1,64 @@
+package com.cooksys.twitter_api.controllers;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.cooksys.twitter_api.service.StreamingReadService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/stream")
+public class StreamingReadController {
+
+    // set on the response rather than as "produces", so errors raised before streaming starts can still be sent as JSON
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final StreamingReadService streamingReadService;
+
+    @GetMapping("/users/@{username}/feed")
+    public ResponseEntity<StreamingResponseBody> streamFeed(@PathVariable String username) {
+        return ndjson(streamingReadService.streamFeed(username));
+    }
+
+    @GetMapping("/users/@{username}/tweets")
+    public ResponseEntity<StreamingResponseBody> streamUserTweets(@PathVariable String username) {
+        return ndjson(streamingReadService.streamUserTweets(username));
+    }
+
+    @GetMapping("/users/@{username}/mentions")
+    public ResponseEntity<StreamingResponseBody> streamMentions(@PathVariable String username) {
+        return ndjson(streamingReadService.streamMentions(username));
+    }
+
+    @GetMapping("/tweets")
+    public ResponseEntity<StreamingResponseBody> streamTweets() {
+        return ndjson(streamingReadService.streamTweets());
+    }
+
+    @GetMapping("/tweets/{id}")
+    public ResponseEntity<StreamingResponseBody> streamTweet(@PathVariable Long id) {
+        return ndjson(streamingReadService.streamTweet(id));
+    }
+
+    @GetMapping("/tags")
+    public ResponseEntity<StreamingResponseBody> streamTags() {
+        return ndjson(streamingReadService.streamTags());
+    }
+
+    @GetMapping("/tags/{label}")
+    public ResponseEntity<StreamingResponseBody> streamTweetsWithLabel(@PathVariable String label) {
+        return ndjson(streamingReadService.streamTweetsWithLabel(label));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> ndjson(StreamingResponseBody body) {
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+}
@@ -4,6 +4,7 @@ import com.cooksys.twitter_api.dtos.*;
 import com.cooksys.twitter_api.service.TweetService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -80,14 +81,28 @@ public class TweetController {
 
     }
 
+    @GetMapping(params = "ids")
+    public List<BatchItemDto<TweetResponseDto>> getTweetsByIds(@RequestParam List<Long> ids) {
+        return tweetService.getTweetsByIds(ids);
+    }
+
+    @GetMapping(params = "view=normalized")
+    public NormalizedTweetListDto getTweetsNormalized() {
+        return tweetService.getTweetsNormalized();
+    }
+
     @GetMapping("/{id}/replies")
     public List<TweetResponseDto> getReplies(@PathVariable Long id) {
         return tweetService.getReplies(id);
     }
 
     @GetMapping("/{id}")
-    public TweetResponseDto getTweet(@PathVariable Long id) {
+    public TweetResponseDto getTweet(@PathVariable Long id, WebRequest request) {
 
+        ResourceVersionDto version = tweetService.getTweetVersion(id);
+        if (request.checkNotModified(version.getEtag(), version.getLastModified())) {
+            return null;
+        }
 
         return tweetService.getTweet(id);
     }
@@ -1,13 +1,26 @@
 package com.cooksys.twitter_api.controllers;
 
+import com.cooksys.twitter_api.dtos.BatchItemDto;
 import com.cooksys.twitter_api.dtos.CredentialsDto;
+import com.cooksys.twitter_api.dtos.NormalizedTweetListDto;
+import com.cooksys.twitter_api.dtos.NotificationCountDto;
+import com.cooksys.twitter_api.dtos.NotificationPageDto;
+import com.cooksys.twitter_api.dtos.ResourceVersionDto;
+import com.cooksys.twitter_api.dtos.SuggestionDto;
+import com.cooksys.twitter_api.dtos.SyncDto;
 import com.cooksys.twitter_api.dtos.TweetResponseDto;
 import com.cooksys.twitter_api.dtos.UserRequestDto;
 import com.cooksys.twitter_api.dtos.UserResponseDto;
+import com.cooksys.twitter_api.service.AutocompleteService;
+import com.cooksys.twitter_api.service.FeedStreamService;
+import com.cooksys.twitter_api.service.NotificationService;
 import com.cooksys.twitter_api.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -17,6 +30,9 @@ import java.util.List;
 public class UserController {
 
     private final UserService userService;
+    private final AutocompleteService autocompleteService;
+    private final FeedStreamService feedStreamService;
+    private final NotificationService notificationService;
 
     @GetMapping
     @ResponseStatus(HttpStatus.OK)
@@ -24,6 +40,18 @@ public class UserController {
         return userService.getAllUsers();
     }
 
+    @GetMapping(params = "usernames")
+    @ResponseStatus(HttpStatus.OK)
+    public List<BatchItemDto<UserResponseDto>> getUsersByUsernames(@RequestParam List<String> usernames) {
+        return userService.getUsersByUsernames(usernames);
+    }
+
+    @GetMapping("autocomplete")
+    @ResponseStatus(HttpStatus.OK)
+    public List<SuggestionDto> autocomplete(@RequestParam String prefix, @RequestParam(defaultValue = "10") int limit) {
+        return autocompleteService.completeUsername(prefix, limit);
+    }
+
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public UserResponseDto createUser(@RequestBody UserRequestDto userRequestDto) {
@@ -33,7 +61,11 @@ public class UserController {
 
     @GetMapping("@{username}")
     @ResponseStatus(HttpStatus.OK)
-    public UserResponseDto getUser(@PathVariable String username) {
+    public UserResponseDto getUser(@PathVariable String username, WebRequest request) {
+        ResourceVersionDto version = userService.getUserVersion(username);
+        if (request.checkNotModified(version.getEtag(), version.getLastModified())) {
+            return null;
+        }
         return userService.getUser(username);
     }
 
@@ -67,18 +99,76 @@ public class UserController {
         return userService.getFeed(username);
     }
 
+    @GetMapping(value = "@{username}/feed", params = "view=normalized")
+    @ResponseStatus(HttpStatus.OK)
+    public NormalizedTweetListDto getFeedNormalized(@PathVariable String username) {
+        return userService.getFeedNormalized(username);
+    }
+
+    @GetMapping(value = "@{username}/feed", params = "since")
+    @ResponseStatus(HttpStatus.OK)
+    public SyncDto getFeedSince(@PathVariable String username, @RequestParam String since) {
+        return userService.getFeedSince(username, since);
+    }
+
+    @GetMapping(value = "@{username}/feed/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamFeed(@PathVariable String username,
+                                 @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return feedStreamService.streamFeed(username, lastEventId);
+    }
+
     @GetMapping("@{username}/tweets")
     @ResponseStatus(HttpStatus.OK)
     public List<TweetResponseDto> getTweets(@PathVariable String username) {
         return userService.getTweets(username);
     }
 
+    @GetMapping(value = "@{username}/tweets", params = "view=normalized")
+    @ResponseStatus(HttpStatus.OK)
+    public NormalizedTweetListDto getTweetsNormalized(@PathVariable String username) {
+        return userService.getTweetsNormalized(username);
+    }
+
     @GetMapping("@{username}/mentions")
     @ResponseStatus(HttpStatus.OK)
     public List<TweetResponseDto> getMentions(@PathVariable String username) {
         return userService.getMentions(username);
     }
 
+    @GetMapping(value = "@{username}/mentions", params = "view=normalized")
+    @ResponseStatus(HttpStatus.OK)
+    public NormalizedTweetListDto getMentionsNormalized(@PathVariable String username) {
+        return userService.getMentionsNormalized(username);
+    }
+
+    @GetMapping(value = "@{username}/mentions", params = "since")
+    @ResponseStatus(HttpStatus.OK)
+    public SyncDto getMentionsSince(@PathVariable String username, @RequestParam String since) {
+        return userService.getMentionsSince(username, since);
+    }
+
+    @GetMapping("@{username}/notifications")
+    @ResponseStatus(HttpStatus.OK)
+    public NotificationPageDto getNotifications(@PathVariable String username,
+                                                @RequestParam(required = false) Long before,
+                                                @RequestParam(defaultValue = "20") int limit) {
+        return notificationService.getNotifications(username, before, limit);
+    }
+
+    @GetMapping("@{username}/notifications/unread")
+    @ResponseStatus(HttpStatus.OK)
+    public NotificationCountDto getUnreadNotificationCount(@PathVariable String username) {
+        return notificationService.getUnreadCount(username);
+    }
+
+    @PostMapping("@{username}/notifications/read")
+    @ResponseStatus(HttpStatus.OK)
+    public NotificationCountDto markNotificationsRead(@PathVariable String username,
+                                                      @RequestParam(required = false) Long upTo,
+                                                      @RequestBody CredentialsDto credentialsDto) {
+        return notificationService.markRead(username, upTo, credentialsDto);
+    }
+
     @GetMapping("@{username}/followers")
     @ResponseStatus(HttpStatus.OK)
     public List<UserResponseDto> getFollowers(@PathVariable String username) {
@@ -4,6 +4,8 @@ package com.cooksys.twitter_api.controllers.advice;
 
 import com.cooksys.twitter_api.exceptions.NotFoundException;
 import org.springframework.http.HttpStatus;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
@@ -42,4 +44,21 @@ public class TwitterControllerAdvice {
 		return new ErrorDto(notAuthorizedException.getMessage());
 
 	}
+
+	@ResponseStatus(HttpStatus.CONFLICT)
+	@ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+	public ErrorDto handleOptimisticLockingFailure(HttpServletRequest request, ObjectOptimisticLockingFailureException optimisticLockingFailureException) {
+
+		return new ErrorDto("The resource was modified concurrently, please retry");
+
+	}
+
+	// the stream executor is full, see WebConfig
+	@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+	@ExceptionHandler(TaskRejectedException.class)
+	public ErrorDto handleTaskRejected(HttpServletRequest request, TaskRejectedException taskRejectedException) {
+
+		return new ErrorDto("Too many streams are open, please retry later");
+
+	}
 }
@@ -0,0 +1,22 @@
+package com.cooksys.twitter_api.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One entry of a multi-get response, in the position of the requested key. {@code value} is null and {@code found}
+ * false when the key does not resolve to an active resource.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class BatchItemDto<T> {
+
+	private String key;
+
+	private boolean found;
+
+	private T value;
+
+}
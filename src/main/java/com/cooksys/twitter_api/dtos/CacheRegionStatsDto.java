@@ -0,0 +1,26 @@
+package com.cooksys.twitter_api.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class CacheRegionStatsDto {
+
+	private String region;
+
+	private int size;
+
+	private int maxEntries;
+
+	private long hits;
+
+	private long misses;
+
+	private long puts;
+
+	private long evictions;
+
+}
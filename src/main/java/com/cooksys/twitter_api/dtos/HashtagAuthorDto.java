@@ -0,0 +1,20 @@
+package com.cooksys.twitter_api.dtos;
+
+import java.sql.Timestamp;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class HashtagAuthorDto {
+
+	private String username;
+
+	private long uses;
+
+	private Timestamp lastUsed;
+
+}
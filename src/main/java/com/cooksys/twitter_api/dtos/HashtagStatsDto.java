@@ -0,0 +1,30 @@
+package com.cooksys.twitter_api.dtos;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+@Data
+public class HashtagStatsDto {
+
+	private String label;
+
+	private String granularity;
+
+	private Timestamp from;
+
+	private Timestamp to;
+
+	private long uses;
+
+	// HyperLogLog estimate
+	private long uniqueAuthors;
+
+	private List<UsageBucketDto> series;
+
+	private List<HashtagAuthorDto> topAuthors;
+
+}
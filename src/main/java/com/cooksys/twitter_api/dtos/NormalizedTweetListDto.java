@@ -0,0 +1,25 @@
+package com.cooksys.twitter_api.dtos;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Opt-in ({@code ?view=normalized}) shape of the tweet list endpoints. {@code ids} keeps the order of the list, while
+ * every tweet it reaches (including replied-to and reposted tweets) and every author appears exactly once in
+ * {@code tweets} and {@code users}.
+ */
+@NoArgsConstructor
+@Data
+public class NormalizedTweetListDto {
+
+	private List<Long> ids;
+
+	private Map<Long, TweetRefDto> tweets = new LinkedHashMap<>();
+
+	private Map<String, UserResponseDto> users = new LinkedHashMap<>();
+
+}
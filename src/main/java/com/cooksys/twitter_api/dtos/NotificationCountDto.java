@@ -0,0 +1,14 @@
+package com.cooksys.twitter_api.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class NotificationCountDto {
+
+	private long unreadCount;
+
+}
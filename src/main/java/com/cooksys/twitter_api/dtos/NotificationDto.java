@@ -0,0 +1,32 @@
+package com.cooksys.twitter_api.dtos;
+
+import java.sql.Timestamp;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+@Data
+public class NotificationDto {
+
+	private Long id;
+
+	// MENTION, LIKE, REPOST, REPLY or FOLLOW
+	private String type;
+
+	private Long tweetId;
+
+	private Long sourceTweetId;
+
+	// the latest of the count users who did this
+	private String actor;
+
+	private int count;
+
+	private Timestamp firstAt;
+
+	private Timestamp lastAt;
+
+	private boolean unread;
+
+}
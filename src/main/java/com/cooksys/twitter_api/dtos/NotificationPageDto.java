@@ -0,0 +1,21 @@
+package com.cooksys.twitter_api.dtos;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class NotificationPageDto {
+
+	private List<NotificationDto> notifications;
+
+	private long unreadCount;
+
+	// pass as before= for the next page; null on the last one
+	private Long next;
+
+}
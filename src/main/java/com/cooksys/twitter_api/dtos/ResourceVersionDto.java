@@ -0,0 +1,19 @@
+package com.cooksys.twitter_api.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Strong validator (ETag) and last modification time, in epoch milliseconds or -1 if unknown, of a resource.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class ResourceVersionDto {
+
+	private String etag;
+
+	private long lastModified;
+
+}
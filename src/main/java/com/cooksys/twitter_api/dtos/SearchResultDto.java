@@ -0,0 +1,21 @@
+package com.cooksys.twitter_api.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class SearchResultDto {
+
+	private List<TweetResponseDto> tweets;
+
+	/**
+	 * Pass as {@code cursor} to get the next page; null on the last page.
+	 */
+	private String nextCursor;
+
+}
@@ -0,0 +1,19 @@
+package com.cooksys.twitter_api.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An autocomplete suggestion: a username ranked by follower count, or a hashtag label ranked by number of uses.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class SuggestionDto {
+
+	private String text;
+
+	private long score;
+
+}
@@ -0,0 +1,35 @@
+package com.cooksys.twitter_api.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class SyncDto {
+
+	/**
+	 * Tweets added since the token, newest first; the whole list when {@code reset} is set.
+	 */
+	private List<TweetResponseDto> tweets;
+
+	/**
+	 * Ids of tweets to drop: deleted, or whose author was deleted or left the list, since the token.
+	 */
+	private List<Long> deleted;
+
+	/**
+	 * Pass as {@code since} on the next sync.
+	 */
+	private String syncToken;
+
+	/**
+	 * True when {@code tweets} is the complete list and replaces what the client holds, because no token was given
+	 * or it was too old to compute a delta from.
+	 */
+	private boolean reset;
+
+}
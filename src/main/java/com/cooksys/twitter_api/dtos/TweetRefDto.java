@@ -0,0 +1,28 @@
+package com.cooksys.twitter_api.dtos;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+
+/**
+ * Flat tweet used by {@link NormalizedTweetListDto}: the author and the parent tweets are referenced by key instead of
+ * being embedded.
+ */
+@NoArgsConstructor
+@Data
+public class TweetRefDto {
+
+	private Long id;
+
+	private String author;
+
+	private Timestamp posted;
+
+	private String content;
+
+	private Long inReplyTo;
+
+	private Long repostOf;
+
+}
@@ -1,14 +1,19 @@
 package com.cooksys.twitter_api.dtos;
 
+import com.cooksys.twitter_api.cache.PreSerialized;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.SerializableString;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.sql.Timestamp;
 
 
 @NoArgsConstructor
 @Data
-public class TweetResponseDto {
+public class TweetResponseDto implements PreSerialized {
 
 	private Long id;
 
@@ -22,4 +27,10 @@ public class TweetResponseDto {
 
 	private TweetResponseDto repostOf;
 
+	// set when the DTO is cached, see ResponseFragmentCache
+	@JsonIgnore
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	private SerializableString json;
+
 }
@@ -0,0 +1,20 @@
+package com.cooksys.twitter_api.dtos;
+
+import java.sql.Timestamp;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class UsageBucketDto {
+
+	private Timestamp start;
+
+	private long uses;
+
+	private long uniqueAuthors;
+
+}
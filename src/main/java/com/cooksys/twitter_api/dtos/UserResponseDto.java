@@ -1,15 +1,20 @@
 package com.cooksys.twitter_api.dtos;
 
+import com.cooksys.twitter_api.cache.PreSerialized;
 import com.cooksys.twitter_api.entities.Profile;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.SerializableString;
 import jakarta.persistence.Embedded;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.sql.Timestamp;
 
 @NoArgsConstructor
 @Data
-public class UserResponseDto {
+public class UserResponseDto implements PreSerialized {
 
     private String username;
 
@@ -17,4 +22,10 @@ public class UserResponseDto {
 
     private Timestamp joined;
 
+    // set when the DTO is cached, see ResponseFragmentCache
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private SerializableString json;
+
 }
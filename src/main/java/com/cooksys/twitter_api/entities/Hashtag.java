@@ -1,15 +1,32 @@
 package com.cooksys.twitter_api.entities;
 
 import java.sql.Timestamp;
-import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import jakarta.persistence.*;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
+/**
+ * Equality is by the natural id, the lower-cased label.
+ */
 @Entity
 @NoArgsConstructor
-@Data
+@Getter
+@Setter
+@ToString
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NaturalIdCache
 public class Hashtag {
 
 	@Id
@@ -18,6 +35,10 @@ public class Hashtag {
 
 	private String label;
 
+	// lower-cased label; tags are matched case-insensitively and the first spelling used is kept for display
+	@NaturalId
+	private String labelKey;
+
 	private Timestamp firstUsed;
 
 	private Timestamp lastUsed;
@@ -25,7 +46,29 @@ public class Hashtag {
 	private boolean deleted;
 
 
+	@ToString.Exclude
 	@ManyToMany(mappedBy = "hashtagList")
-	private List<Tweet> tweetList;
+	private Set<Tweet> tweetList;
+
+	public static String keyOf(String label) {
+		return label.toLowerCase(Locale.ROOT);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		// proxies are subclasses, so compare through getters rather than classes and fields
+		if (!(o instanceof Hashtag other)) {
+			return false;
+		}
+		return getLabelKey() != null && getLabelKey().equals(other.getLabelKey());
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hashCode(getLabelKey());
+	}
 
 }
@@ -1,22 +1,40 @@
 package com.cooksys.twitter_api.entities;
 
 import jakarta.persistence.*;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.NotFound;
+import org.hibernate.annotations.NotFoundAction;
+import org.hibernate.annotations.OptimisticLock;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.annotations.UpdateTimestamp;
 
 
 import java.sql.Timestamp;
-import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
+/**
+ * Equality is by id, so tweets must be saved before they are put into hash-based collections.
+ */
 @Entity
 @NoArgsConstructor
-@Data
+@Getter
+@Setter
+@ToString
 public class Tweet {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "tweet_id")
+    @GenericGenerator(name = "tweet_id", strategy = "com.cooksys.twitter_api.sharding.ShardedIdGenerator", parameters = {
+            @Parameter(name = "sequence_name", value = "tweet_seq"),
+            @Parameter(name = "increment_size", value = "50") })
     private Long id;
 
+    @ToString.Exclude
     @ManyToOne
     @JoinColumn(name = "user_id")
     private User author;
@@ -27,20 +45,73 @@ public class Tweet {
 
     private String content;
 
+    // tags, likes and mentions are not part of a TweetResponseDto, so changing them does not bump the version
+    @Version
+    private long version;
+
+    @UpdateTimestamp
+    private Timestamp modified;
+
+    // the tweet replied to or reposted may live on another shard, where no row of this database has its id: the id
+    // columns are what is written, and the associations are read-only and null when the tweet is not on this shard
+    @Column(name = "in_reply_to_id")
+    private Long inReplyToId;
+
+    @Column(name = "repost_of_id")
+    private Long repostOfId;
+
+    @ToString.Exclude
     @ManyToOne
+    @JoinColumn(name = "in_reply_to_id", insertable = false, updatable = false)
+    @NotFound(action = NotFoundAction.IGNORE)
     private Tweet inReplyTo;
 
+    @ToString.Exclude
     @ManyToOne
+    @JoinColumn(name = "repost_of_id", insertable = false, updatable = false)
+    @NotFound(action = NotFoundAction.IGNORE)
     private Tweet repostOf;
 
+    @ToString.Exclude
     @ManyToMany
-    private List<Hashtag> hashtagList;
+    @OptimisticLock(excluded = true)
+    private Set<Hashtag> hashtagList;
 
+    @ToString.Exclude
     @ManyToMany(mappedBy = "likesTweetList")
-    private List<User> likesUserList;
+    @OptimisticLock(excluded = true)
+    private Set<User> likesUserList;
 
+    @ToString.Exclude
     @ManyToMany(mappedBy = "mentionsTweetList")
-    private List<User> mentionsUserlist;
-
+    @OptimisticLock(excluded = true)
+    private Set<User> mentionsUserlist;
+
+    public void setInReplyTo(Tweet inReplyTo) {
+        this.inReplyTo = inReplyTo;
+        inReplyToId = inReplyTo == null ? null : inReplyTo.getId();
+    }
+
+    public void setRepostOf(Tweet repostOf) {
+        this.repostOf = repostOf;
+        repostOfId = repostOf == null ? null : repostOf.getId();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        // proxies are subclasses, so compare through getters rather than classes and fields
+        if (!(o instanceof Tweet other)) {
+            return false;
+        }
+        return getId() != null && getId().equals(other.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(getId());
+    }
 
 }
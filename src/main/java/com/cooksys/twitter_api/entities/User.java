@@ -1,20 +1,39 @@
 package com.cooksys.twitter_api.entities;
 
 import jakarta.persistence.*;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.OptimisticLock;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.sql.Timestamp;
-import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
+/**
+ * Equality is by id, so users must be saved before they are put into hash-based collections.
+ */
 @Entity
 @NoArgsConstructor
-@Data
+@Getter
+@Setter
+@ToString
 @Table(name = "user_table")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class User {
 
 	@Id
-	@GeneratedValue
+	@GeneratedValue(generator = "user_id")
+	@GenericGenerator(name = "user_id", strategy = "com.cooksys.twitter_api.sharding.ShardedIdGenerator", parameters = {
+			@Parameter(name = "sequence_name", value = "user_table_seq"),
+			@Parameter(name = "increment_size", value = "50") })
 	private Long id;
 
 	@Embedded
@@ -27,19 +46,54 @@ public class User {
 
 	private Timestamp joined;
 
-	@OneToMany
-	private List<Tweet> tweets;
+	// changes to the collections below are not changes of the user: none of them is part of a UserResponseDto, and
+	// concurrent mentions, likes or follows involving the same user must not conflict
+	@Version
+	private long version;
 
+	@UpdateTimestamp
+	private Timestamp modified;
+
+	@ToString.Exclude
+	@OneToMany(mappedBy = "author")
+	@OptimisticLock(excluded = true)
+	private Set<Tweet> tweets;
+
+	@ToString.Exclude
 	@ManyToMany(mappedBy = "following")
-	private List<User> followers;
+	@OptimisticLock(excluded = true)
+	private Set<User> followers;
 
+	@ToString.Exclude
 	@ManyToMany
-	private List<User> following;
+	@OptimisticLock(excluded = true)
+	private Set<User> following;
 
+	@ToString.Exclude
 	@ManyToMany
-	private List<Tweet> likesTweetList;
+	@OptimisticLock(excluded = true)
+	private Set<Tweet> likesTweetList;
 
+	@ToString.Exclude
 	@ManyToMany
-	private List<Tweet> mentionsTweetList;
+	@OptimisticLock(excluded = true)
+	private Set<Tweet> mentionsTweetList;
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		// proxies are subclasses, so compare through getters rather than classes and fields
+		if (!(o instanceof User other)) {
+			return false;
+		}
+		return getId() != null && getId().equals(other.getId());
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hashCode(getId());
+	}
 
 }
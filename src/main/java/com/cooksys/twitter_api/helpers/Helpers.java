@@ -2,17 +2,21 @@ package com.cooksys.twitter_api.helpers;
 
 import java.sql.Timestamp;
 import java.util.*;
+import java.util.function.Function;
 import java.util.regex.*;
 
+import com.cooksys.twitter_api.dtos.BatchItemDto;
 import com.cooksys.twitter_api.dtos.CredentialsDto;
 import com.cooksys.twitter_api.dtos.ProfileDto;
 import com.cooksys.twitter_api.dtos.TweetRequestDto;
 import com.cooksys.twitter_api.entities.Hashtag;
 import com.cooksys.twitter_api.entities.Tweet;
 import com.cooksys.twitter_api.entities.User;
+import com.cooksys.twitter_api.indexes.HashtagDictionary;
 import com.cooksys.twitter_api.repositories.HashtagRepository;
 import com.cooksys.twitter_api.repositories.TweetRepository;
 import com.cooksys.twitter_api.repositories.UserRepository;
+import com.cooksys.twitter_api.sharding.Shards;
 
 public class Helpers {
 
@@ -45,65 +49,75 @@ public class Helpers {
     }
 
 
+    /**
+     * Lines batch-loaded entities up with the requested keys, keeping request order and duplicates and marking keys
+     * that did not load as not found.
+     */
+    public static <K, E, D> List<BatchItemDto<D>> inRequestOrder(List<K> keys, List<E> entities, Function<E, K> keyOf,
+                                                                 Function<E, D> toDto) {
+        Map<K, D> dtos = new HashMap<>();
+        for (E entity : entities) {
+            dtos.put(keyOf.apply(entity), toDto.apply(entity));
+        }
+        List<BatchItemDto<D>> result = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            D dto = dtos.get(key);
+            result.add(new BatchItemDto<>(String.valueOf(key), dto != null, dto));
+        }
+        return result;
+    }
+
     private static final Pattern mentionPattern = Pattern.compile("@[a-zA-Z0-9]+");
     private static final Pattern hashtagPattern = Pattern.compile("#[a-zA-Z0-9]+");
 
 
-    public static void parseAndSaveMentions(Tweet tweet, TweetRepository tweetRepository, UserRepository userRepository) {
-        //  repositories injected to update DB user_table table and the join table for user_mentions
-        String content = tweet.getContent();
+    /**
+     * The usernames following an @ in the content, each once.
+     */
+    public static Set<String> mentionedUsernames(String content) {
         Matcher matcher = mentionPattern.matcher(content);
         HashSet<String> mentions = new HashSet<>();
         while (matcher.find()) {
             mentions.add(content.substring(matcher.start()+1, matcher.end()));
         }
+        return mentions;
+    }
+
+    public static void parseAndSaveMentions(Tweet tweet, UserRepository userRepository, Shards shards) {
+        // the mentions are stored with the tweet, on its shard; the users mentioned are looked up on their own shards
+        Set<String> mentions = mentionedUsernames(tweet.getContent());
         if (mentions.size() > 0) {
-            HashSet<User> usersToSave = new HashSet<>();
-            for (String mention : mentions) {
-                Optional<User> optionalMentioned = userRepository.findByCredentialsUsernameAndDeletedFalse(mention);
-                optionalMentioned.ifPresent(user -> user.getMentionsTweetList().add(tweet));
+            List<Long> mentioned = new ArrayList<>();
+            shards.scatter(mentions, shards.getShardMap()::shardOfUsername,
+                    userRepository::findIdsByCredentialsUsernameInAndDeletedFalse).forEach(mentioned::addAll);
+            for (Long userId : mentioned) {
+                userRepository.insertMention(userId, tweet.getId());
             }
-            tweet.setMentionsUserlist(new ArrayList<>(usersToSave));
-            tweetRepository.saveAndFlush(tweet);
-            userRepository.saveAllAndFlush(usersToSave);
         }
     }
 
-    public static void parseAndSaveHashtags(Tweet tweet, TweetRepository tweetRepository, HashtagRepository hashtagRepository) {
+    public static void parseAndSaveHashtags(Tweet tweet, TweetRepository tweetRepository, HashtagRepository hashtagRepository,
+                                            HashtagDictionary hashtagDictionary) {
         // repositories injected to update DB tweet table, hashtag table, and the join table for tweet_hashtags
         String content = tweet.getContent();
         Matcher matcher = hashtagPattern.matcher(content);
-        HashSet<String> labels = new HashSet<>();
+        // tags are case-insensitive; the first spelling in the tweet is used if the tag is new
+        LinkedHashMap<String, String> labels = new LinkedHashMap<>();
         while (matcher.find()) {
-            labels.add(content.substring(matcher.start()+1, matcher.end()));
+            String label = content.substring(matcher.start()+1, matcher.end());
+            labels.putIfAbsent(Hashtag.keyOf(label), label);
         }
         if (labels.size() > 0) {
-            HashSet<Hashtag> hashtagsToSave = new HashSet<>();
-            for (String label : labels) {
-                Hashtag hashtag;
-                Optional<Hashtag> optionalHashtag = hashtagRepository.findByLabelAndDeletedFalse(label);
-                if (optionalHashtag.isPresent()) {
-                    // active Hashtag
-                    hashtag = optionalHashtag.get();
-                    // mutate tweetList
-                    hashtag.getTweetList().add(tweet);
-                } else {
-                    // new Hashtag
-                    hashtag = new Hashtag();
-                    hashtag.setLabel(label);
-                    hashtag.setFirstUsed(new Timestamp(System.currentTimeMillis()));
-                    // init tweetList with current tweet
-                    ArrayList<Tweet> newTweetList = new ArrayList<>();
-                    newTweetList.add(tweet);
-                    hashtag.setTweetList(newTweetList);
-                }
-                hashtag.setLastUsed(new Timestamp(System.currentTimeMillis()));
-                hashtagsToSave.add(hashtag);
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            HashSet<Hashtag> hashtags = new HashSet<>();
+            for (String label : labels.values()) {
+                // the dictionary creates missing hashtags, the row itself comes from the second-level cache
+                Hashtag hashtag = hashtagRepository.getReferenceById(hashtagDictionary.resolve(label));
+                hashtag.setDeleted(false);
+                hashtag.setLastUsed(now);
+                hashtags.add(hashtag);
             }
-
-            List<Hashtag> savedHashtagsList = hashtagRepository.saveAllAndFlush(hashtagsToSave);
-            tweet.setHashtagList(savedHashtagsList);
-            tweet.setHashtagList(new ArrayList<>(hashtagsToSave));
+            tweet.setHashtagList(hashtags);
             tweetRepository.saveAndFlush(tweet);
         }
     }
@@ -0,0 +1,134 @@
+package com.cooksys.twitter_api.indexes;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+
+import com.cooksys.twitter_api.storage.DomainEvent;
+
+/**
+ * Prefix suggestions for mentions and tags: active usernames ranked by follower count and hashtag labels ranked by
+ * the number of times they were used. Kept current from the event log, see {@link AutocompleteIndexLoader}.
+ */
+@Component
+public class AutocompleteIndex {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    public record Suggestion(String text, long score) {
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final RankedPrefixIndex usernames = new RankedPrefixIndex(MAX_SUGGESTIONS);
+    private final RankedPrefixIndex labels = new RankedPrefixIndex(MAX_SUGGESTIONS);
+    private final Map<Long, String> usernamesById = new HashMap<>();
+    private final Map<Long, Long> followerCounts = new HashMap<>();
+    private final Map<Long, Boolean> activeUsers = new HashMap<>();
+    private final Map<String, Long> labelUses = new HashMap<>();
+    private volatile long appliedSequence;
+
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    void setAppliedSequence(long appliedSequence) {
+        this.appliedSequence = appliedSequence;
+    }
+
+    public List<Suggestion> completeUsername(String prefix, int limit) {
+        return complete(usernames, prefix, limit);
+    }
+
+    public List<Suggestion> completeLabel(String prefix, int limit) {
+        return complete(labels, prefix, limit);
+    }
+
+    private List<Suggestion> complete(RankedPrefixIndex index, String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            return index.complete(prefix, limit).stream()
+                    .map(entry -> new Suggestion(entry.term(), entry.score()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void apply(DomainEvent event) {
+        lock.writeLock().lock();
+        try {
+            switch (event.getType()) {
+                case USER_CREATED, USER_REACTIVATED -> putUser(event.getSubjectId(), event.getPayload(),
+                        followerCounts.getOrDefault(event.getSubjectId(), 0L), true);
+                case USER_DELETED -> {
+                    activeUsers.put(event.getSubjectId(), false);
+                    String username = usernamesById.get(event.getSubjectId());
+                    if (username != null) {
+                        usernames.remove(username);
+                    }
+                }
+                case USER_FOLLOWED -> addFollowers(event.getSubjectId(), 1);
+                case USER_UNFOLLOWED -> addFollowers(event.getSubjectId(), -1);
+                case HASHTAG_USED -> putLabel(event.getPayload(), labelUses.getOrDefault(event.getPayload(), 0L) + 1);
+                default -> {
+                }
+            }
+            appliedSequence = event.getSequence();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void putUser(long userId, String username, long followers, boolean active) {
+        lock.writeLock().lock();
+        try {
+            usernamesById.put(userId, username);
+            followerCounts.put(userId, followers);
+            activeUsers.put(userId, active);
+            if (active) {
+                usernames.put(username, followers);
+            } else {
+                usernames.remove(username);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void putLabel(String label, long uses) {
+        lock.writeLock().lock();
+        try {
+            labelUses.put(label, uses);
+            labels.put(label, uses);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            usernamesById.keySet().forEach(id -> usernames.remove(usernamesById.get(id)));
+            labelUses.keySet().forEach(labels::remove);
+            usernamesById.clear();
+            followerCounts.clear();
+            activeUsers.clear();
+            labelUses.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addFollowers(long userId, long delta) {
+        long followers = Math.max(0, followerCounts.getOrDefault(userId, 0L) + delta);
+        followerCounts.put(userId, followers);
+        if (activeUsers.getOrDefault(userId, false)) {
+            usernames.put(usernamesById.get(userId), followers);
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.cooksys.twitter_api.indexes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cooksys.twitter_api.metrics.StartupMetrics;
+import com.cooksys.twitter_api.repositories.HashtagRepository;
+import com.cooksys.twitter_api.repositories.UserRepository;
+import com.cooksys.twitter_api.sharding.Shards;
+import com.cooksys.twitter_api.storage.DomainEvent;
+import com.cooksys.twitter_api.storage.EventLog;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Loads usernames with their follower counts and hashtag labels with their use counts into the
+ * {@link AutocompleteIndex} at startup, then keeps it current from the event log.
+ */
+@Component
+@RequiredArgsConstructor
+public class AutocompleteIndexLoader implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(AutocompleteIndexLoader.class);
+
+    private static final int REPLAY_BATCH = 1000;
+
+    private final AutocompleteIndex autocompleteIndex;
+    private final EventLog eventLog;
+    private final UserRepository userRepository;
+    private final HashtagRepository hashtagRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Shards shards;
+    private final StartupMetrics startupMetrics;
+    // serializes catching up with the log and applying new events
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.currentTimeMillis();
+        autocompleteIndex.clear();
+        long sequence = eventLog.getLastSequence();
+        List<UserRepository.UsernameView> users = new ArrayList<>();
+        // a follow is stored on the follower's shard, so a user's followers are counted on every shard
+        Map<Long, Long> followers = new HashMap<>();
+        shards.executeOnEach(transactionTemplate, status -> {
+            users.addAll(userRepository.findAllUsernames());
+            for (UserRepository.FollowerCountView count : userRepository.findAllFollowerCounts()) {
+                followers.merge(count.getId(), count.getFollowers(), Long::sum);
+            }
+            for (HashtagRepository.UseCountView hashtag : hashtagRepository.findAllUseCountsByDeletedFalse()) {
+                autocompleteIndex.putLabel(hashtag.getLabel(), hashtag.getUses());
+            }
+        });
+        for (UserRepository.UsernameView user : users) {
+            autocompleteIndex.putUser(user.getId(), user.getUsername(), followers.getOrDefault(user.getId(), 0L),
+                    !user.isDeleted());
+        }
+        autocompleteIndex.setAppliedSequence(sequence);
+        eventLog.subscribe(this::onEvent);
+        catchUp();
+        long millis = System.currentTimeMillis() - start;
+        startupMetrics.recordPhase("autocompleteIndex", millis);
+        log.info("Autocomplete index ready in {} ms", millis);
+    }
+
+    private void catchUp() {
+        lock.lock();
+        try {
+            List<DomainEvent> events;
+            do {
+                events = eventLog.read(autocompleteIndex.getAppliedSequence(), REPLAY_BATCH);
+                events.forEach(autocompleteIndex::apply);
+            } while (!events.isEmpty());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onEvent(DomainEvent event) {
+        lock.lock();
+        try {
+            long applied = autocompleteIndex.getAppliedSequence();
+            if (event.getSequence() == applied + 1) {
+                autocompleteIndex.apply(event);
+            } else if (event.getSequence() > applied + 1) {
+                catchUp();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.cooksys.twitter_api.indexes;
+
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cooksys.twitter_api.entities.Hashtag;
+import com.cooksys.twitter_api.metrics.StartupMetrics;
+import com.cooksys.twitter_api.repositories.HashtagRepository;
+import com.cooksys.twitter_api.sharding.ShardRoutingDataSource;
+import com.cooksys.twitter_api.sharding.Shards;
+
+/**
+ * Lock-free map from normalized (lower-cased) hashtag label to hashtag id, so resolving the tags of a new tweet is a
+ * hash lookup instead of a query per label.
+ * <p>
+ * Labels missing from the map go through a single insert-or-get path: the row is inserted in its own transaction and,
+ * if the unique constraint on {@code label_key} rejects it because another writer got there first, the winner's id is
+ * read back instead. Concurrent tweets introducing the same tag therefore always end up on one row. Because the insert
+ * commits on its own, a hashtag can outlive the tweet that introduced it if that tweet's transaction rolls back; it is
+ * then simply a tag with no tweets.
+ * <p>
+ * The map is filled from the hashtag table at startup; lookups before that just take the insert-or-get path. Each
+ * shard has its own hashtag rows, so when sharded there is one map per shard and lookups use the current one.
+ */
+@Component
+public class HashtagDictionary implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(HashtagDictionary.class);
+
+    private final HashtagRepository hashtagRepository;
+    private final TransactionTemplate readTemplate;
+    private final TransactionTemplate insertTemplate;
+    private final StartupMetrics startupMetrics;
+    private final Shards shards;
+
+    // indexed by shard
+    private final List<ConcurrentHashMap<String, Long>> ids;
+
+    public HashtagDictionary(HashtagRepository hashtagRepository, PlatformTransactionManager transactionManager,
+                             StartupMetrics startupMetrics, Shards shards) {
+        this.hashtagRepository = hashtagRepository;
+        this.startupMetrics = startupMetrics;
+        this.shards = shards;
+        ids = IntStream.range(0, shards.getShardMap().getShardCount())
+                .mapToObj(shard -> new ConcurrentHashMap<String, Long>())
+                .toList();
+        readTemplate = new TransactionTemplate(transactionManager);
+        readTemplate.setReadOnly(true);
+        insertTemplate = new TransactionTemplate(transactionManager);
+        insertTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.currentTimeMillis();
+        shards.executeOnEach(readTemplate, status -> {
+            for (HashtagRepository.LabelKeyView hashtag : hashtagRepository.findAllLabelKeys()) {
+                currentIds().putIfAbsent(hashtag.getLabelKey(), hashtag.getId());
+            }
+        });
+        long millis = System.currentTimeMillis() - start;
+        startupMetrics.recordPhase("hashtagDictionary", millis);
+        log.info("Hashtag dictionary loaded {} labels in {} ms", size(), millis);
+    }
+
+    /**
+     * Returns the id of the hashtag with the given label, ignoring case, creating the hashtag if there is none yet.
+     */
+    public long resolve(String label) {
+        String key = Hashtag.keyOf(label);
+        ConcurrentHashMap<String, Long> ids = currentIds();
+        Long id = ids.get(key);
+        if (id != null) {
+            return id;
+        }
+        id = insertOrGet(label, key);
+        Long raced = ids.putIfAbsent(key, id);
+        return raced == null ? id : raced;
+    }
+
+    public int size() {
+        return ids.stream().mapToInt(ConcurrentHashMap::size).sum();
+    }
+
+    private ConcurrentHashMap<String, Long> currentIds() {
+        return ids.get(ShardRoutingDataSource.currentShard());
+    }
+
+    private long insertOrGet(String label, String key) {
+        try {
+            return insertTemplate.execute(status -> hashtagRepository.findIdByLabelKey(key)
+                    .orElseGet(() -> insert(label, key)));
+        } catch (DataIntegrityViolationException e) {
+            // lost the race on uk_hashtag_label_key, the other writer's row is committed
+            Long id = insertTemplate.execute(status -> hashtagRepository.findIdByLabelKey(key).orElse(null));
+            if (id == null) {
+                throw e;
+            }
+            return id;
+        }
+    }
+
+    private Long insert(String label, String key) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        Hashtag hashtag = new Hashtag();
+        hashtag.setLabel(label);
+        hashtag.setLabelKey(key);
+        hashtag.setFirstUsed(now);
+        hashtag.setLastUsed(now);
+        hashtag.setTweetList(new HashSet<>());
+        return hashtagRepository.saveAndFlush(hashtag).getId();
+    }
+
+}
@@ -0,0 +1,134 @@
+package com.cooksys.twitter_api.indexes;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cooksys.twitter_api.cache.CacheInvalidationBus;
+import com.cooksys.twitter_api.cache.Invalidation;
+import com.cooksys.twitter_api.repositories.HashtagRepository;
+import com.cooksys.twitter_api.repositories.TweetRepository;
+import com.cooksys.twitter_api.repositories.UserRepository;
+import com.cooksys.twitter_api.sharding.Shards;
+import com.cooksys.twitter_api.storage.TweetContentStore;
+
+/**
+ * Folds changes committed on other nodes into this node's in-process indexes. The indexes follow this node's event
+ * log, which never sees those changes, so each invalidation another node broadcasts on the
+ * {@link CacheInvalidationBus} is answered by reading the entity back from the database:
+ * <ul>
+ * <li>a user: username and active state for the {@link SocialGraphIndex}, and the follower count, summed over the
+ * shards the followers live on, as well for the {@link AutocompleteIndex}</li>
+ * <li>the users a user follows: the follow edges, and the follower counts of everyone followed or unfollowed</li>
+ * <li>a tweet: its timeline entry and its {@link TweetSearchIndex} document, added or dropped</li>
+ * <li>a hashtag: its id and use count; hashtag ids are per shard, so when sharded the row of that id on every shard
+ * is read</li>
+ * </ul>
+ * The {@link HashtagDictionary} needs nothing: hashtag rows are never removed, and a label it does not know yet takes
+ * the insert-or-get path, which finds the other node's row.
+ */
+@Component
+public class IndexInvalidationListener {
+
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final SocialGraphIndex socialGraphIndex;
+    private final AutocompleteIndex autocompleteIndex;
+    private final TweetSearchIndex tweetSearchIndex;
+    private final UserRepository userRepository;
+    private final TweetRepository tweetRepository;
+    private final HashtagRepository hashtagRepository;
+    private final TweetContentStore tweetContentStore;
+    private final Shards shards;
+    private final TransactionTemplate readTemplate;
+
+    public IndexInvalidationListener(CacheInvalidationBus cacheInvalidationBus, SocialGraphIndex socialGraphIndex,
+                                     AutocompleteIndex autocompleteIndex, TweetSearchIndex tweetSearchIndex,
+                                     UserRepository userRepository, TweetRepository tweetRepository,
+                                     HashtagRepository hashtagRepository, TweetContentStore tweetContentStore,
+                                     Shards shards, PlatformTransactionManager transactionManager) {
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.socialGraphIndex = socialGraphIndex;
+        this.autocompleteIndex = autocompleteIndex;
+        this.tweetSearchIndex = tweetSearchIndex;
+        this.userRepository = userRepository;
+        this.tweetRepository = tweetRepository;
+        this.hashtagRepository = hashtagRepository;
+        this.tweetContentStore = tweetContentStore;
+        this.shards = shards;
+        readTemplate = new TransactionTemplate(transactionManager);
+        readTemplate.setReadOnly(true);
+        cacheInvalidationBus.addListener(this::onInvalidation);
+    }
+
+    void onInvalidation(Invalidation invalidation) {
+        if (cacheInvalidationBus.getNode().equals(invalidation.getNode())) {
+            // this node's own changes reach the indexes through its event log
+            return;
+        }
+        long id = invalidation.getId();
+        switch (invalidation.getEntity()) {
+            case USER -> refreshUser(id);
+            case FOLLOWING -> refreshFollowing(id);
+            case TWEET -> refreshTweet(id);
+            case HASHTAG -> refreshHashtag(id);
+        }
+    }
+
+    private void refreshUser(long userId) {
+        read(shards.getShardMap().shardOfUser(userId), () -> userRepository.findUsernameById(userId))
+                .ifPresent(user -> {
+                    // the user's followers are stored on their own shards
+                    long followers = shards.scatter(
+                            () -> readTemplate.execute(status -> userRepository.countFollowersById(userId)))
+                            .stream().mapToLong(Long::longValue).sum();
+                    socialGraphIndex.refreshUser(userId, user.getUsername(), user.isDeleted());
+                    autocompleteIndex.putUser(userId, user.getUsername(), followers, !user.isDeleted());
+                });
+    }
+
+    private void refreshFollowing(long followerId) {
+        List<Long> following = read(shards.getShardMap().shardOfUser(followerId),
+                () -> userRepository.findFollowingIdsById(followerId));
+        for (Long followedId : socialGraphIndex.refreshFollowing(followerId, new HashSet<>(following))) {
+            refreshUser(followedId);
+        }
+    }
+
+    private void refreshTweet(long tweetId) {
+        Optional<TweetRepository.IndexedView> found = read(shards.getShardMap().shardOfTweet(tweetId),
+                () -> tweetRepository.findIndexedById(tweetId));
+        if (found.isEmpty()) {
+            return;
+        }
+        TweetRepository.IndexedView tweet = found.get();
+        socialGraphIndex.refreshTweet(tweet.getAuthorId(), tweetId, tweet.isDeleted());
+        if (tweet.isDeleted()) {
+            tweetSearchIndex.remove(tweetId);
+            return;
+        }
+        String content = tweet.getContent() != null ? tweet.getContent() : tweetContentStore.read(tweetId);
+        if (content != null) {
+            tweetSearchIndex.add(tweetId, tweet.getPosted() == null ? 0 : tweet.getPosted().getTime(), content);
+        }
+    }
+
+    private void refreshHashtag(long hashtagId) {
+        for (Optional<HashtagRepository.UseCountView> hashtag : shards.scatter(
+                () -> readTemplate.execute(status -> hashtagRepository.findUseCountById(hashtagId)))) {
+            hashtag.ifPresent(found -> {
+                socialGraphIndex.refreshHashtag(found.getLabel(), hashtagId);
+                autocompleteIndex.putLabel(found.getLabel(), found.getUses());
+            });
+        }
+    }
+
+    private <T> T read(int shard, Supplier<T> query) {
+        return shards.onShard(shard, () -> readTemplate.execute(status -> query.get()));
+    }
+
+}
@@ -0,0 +1,186 @@
+package com.cooksys.twitter_api.indexes;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cooksys.twitter_api.cache.InvalidationTransport;
+import com.cooksys.twitter_api.entities.Hashtag;
+import com.cooksys.twitter_api.entities.Tweet;
+import com.cooksys.twitter_api.entities.User;
+import com.cooksys.twitter_api.metrics.StartupMetrics;
+import com.cooksys.twitter_api.repositories.HashtagRepository;
+import com.cooksys.twitter_api.repositories.TweetRepository;
+import com.cooksys.twitter_api.repositories.UserRepository;
+import com.cooksys.twitter_api.sharding.Shards;
+import com.cooksys.twitter_api.storage.DomainEvent;
+import com.cooksys.twitter_api.storage.EventLog;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Brings the {@link SocialGraphIndex} up at startup and keeps it current.
+ * <p>
+ * On boot the latest snapshot is loaded from disk (when snapshots are enabled) and only the events appended since the
+ * snapshot are replayed from the {@link EventLog}. Without a usable snapshot the index is bootstrapped from the
+ * database once. Afterwards the index follows the event log live and a fresh snapshot is written periodically and on
+ * shutdown. With a cache bus transport the index is always bootstrapped: changes other nodes made while this one was
+ * down are in neither the snapshot nor this node's event log.
+ */
+@Component
+@RequiredArgsConstructor
+public class IndexSnapshotter implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexSnapshotter.class);
+
+    private static final int REPLAY_BATCH = 1000;
+
+    private final SocialGraphIndex socialGraphIndex;
+    private final EventLog eventLog;
+    private final UserRepository userRepository;
+    private final TweetRepository tweetRepository;
+    private final HashtagRepository hashtagRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Shards shards;
+    private final StartupMetrics startupMetrics;
+    private final Optional<InvalidationTransport> invalidationTransport;
+    // serializes catching up with the log and applying new events
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @Value("${twitter.snapshot.enabled:false}")
+    private boolean enabled;
+
+    @Value("${twitter.snapshot.directory:data/snapshots}")
+    private String directory;
+
+    private volatile boolean ready;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.currentTimeMillis();
+        if (!enabled || invalidationTransport.isPresent() || !restore()) {
+            bootstrap();
+        }
+        long restored = socialGraphIndex.getAppliedSequence();
+        eventLog.subscribe(this::onEvent);
+        catchUp();
+        ready = true;
+        long millis = System.currentTimeMillis() - start;
+        startupMetrics.recordPhase("socialGraphIndex", millis);
+        log.info("Social graph index ready in {} ms, replayed {} events", millis,
+                socialGraphIndex.getAppliedSequence() - restored);
+    }
+
+    private boolean restore() {
+        Path snapshot = snapshotPath();
+        if (!Files.exists(snapshot)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+            socialGraphIndex.readSnapshot(in);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable index snapshot {}", snapshot, e);
+            return false;
+        }
+        if (socialGraphIndex.getAppliedSequence() > eventLog.getLastSequence()) {
+            log.warn("Index snapshot is ahead of the event log, rebuilding from the database");
+            return false;
+        }
+        return true;
+    }
+
+    private void bootstrap() {
+        socialGraphIndex.clear();
+        long sequence = eventLog.getLastSequence();
+        shards.executeOnEach(transactionTemplate, status -> {
+            for (User user : userRepository.findAll()) {
+                socialGraphIndex.putUser(user.getId(), user.getCredentials().getUsername());
+                if (user.isDeleted()) {
+                    socialGraphIndex.markDeleted(user.getId());
+                }
+            }
+            // by id: the followed user may live on another shard
+            for (UserRepository.FollowView follow : userRepository.findAllFollows()) {
+                socialGraphIndex.follow(follow.getFollowerId(), follow.getFollowingId());
+            }
+            for (Tweet tweet : tweetRepository.findAllByDeletedFalse()) {
+                socialGraphIndex.addTweet(tweet.getAuthor().getId(), tweet.getId());
+            }
+            for (Hashtag hashtag : hashtagRepository.findAllByDeletedFalse()) {
+                socialGraphIndex.putHashtag(hashtag.getLabel(), hashtag.getId());
+            }
+        });
+        socialGraphIndex.setAppliedSequence(sequence);
+    }
+
+    private void catchUp() {
+        lock.lock();
+        try {
+            List<DomainEvent> events;
+            do {
+                events = eventLog.read(socialGraphIndex.getAppliedSequence(), REPLAY_BATCH);
+                events.forEach(socialGraphIndex::apply);
+            } while (!events.isEmpty());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onEvent(DomainEvent event) {
+        lock.lock();
+        try {
+            long applied = socialGraphIndex.getAppliedSequence();
+            if (event.getSequence() == applied + 1) {
+                socialGraphIndex.apply(event);
+            } else if (event.getSequence() > applied + 1) {
+                catchUp();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${twitter.snapshot.interval:300000}", fixedDelayString = "${twitter.snapshot.interval:300000}")
+    public void snapshot() throws IOException {
+        if (!enabled || !ready) {
+            return;
+        }
+        Path snapshot = snapshotPath();
+        Files.createDirectories(snapshot.getParent());
+        Path tmp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            socialGraphIndex.writeSnapshot(out);
+        }
+        Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Wrote social graph index snapshot at sequence {}", socialGraphIndex.getAppliedSequence());
+    }
+
+    @PreDestroy
+    public void snapshotOnShutdown() throws IOException {
+        snapshot();
+    }
+
+    private Path snapshotPath() {
+        return Paths.get(directory, "social-graph.snapshot");
+    }
+
+}
@@ -0,0 +1,176 @@
+package com.cooksys.twitter_api.indexes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Case-insensitive prefix lookup of the highest scored terms.
+ * <p>
+ * A trie over the lower-cased terms whose children are kept in sorted parallel arrays. Every node caches the best
+ * {@code capacity} entries of its subtree, so a lookup is a walk down the prefix plus a copy of that node's list.
+ * Changing a term rebuilds the caches along its path only, bottom up, from the caches of the children.
+ * Not thread safe; {@link AutocompleteIndex} guards it.
+ */
+class RankedPrefixIndex {
+
+    record Entry(String term, long score) {
+    }
+
+    private static final Entry[] NONE = new Entry[0];
+
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        // terms ending here: usually one, several when they differ only in case
+        private Entry[] terminals = NONE;
+        private Entry[] best = NONE;
+
+        Node child(char key) {
+            int i = Arrays.binarySearch(keys, key);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node addChild(char key) {
+            int i = Arrays.binarySearch(keys, key);
+            if (i >= 0) {
+                return children[i];
+            }
+            int at = -i - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, at);
+            System.arraycopy(children, 0, newChildren, 0, at);
+            newKeys[at] = key;
+            newChildren[at] = new Node();
+            System.arraycopy(keys, at, newKeys, at + 1, keys.length - at);
+            System.arraycopy(children, at, newChildren, at + 1, children.length - at);
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[at];
+        }
+
+        void removeChild(char key) {
+            int at = Arrays.binarySearch(keys, key);
+            char[] newKeys = new char[keys.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, at);
+            System.arraycopy(children, 0, newChildren, 0, at);
+            System.arraycopy(keys, at + 1, newKeys, at, keys.length - at - 1);
+            System.arraycopy(children, at + 1, newChildren, at, children.length - at - 1);
+            keys = newKeys;
+            children = newChildren;
+        }
+
+        boolean isEmpty() {
+            return keys.length == 0 && terminals.length == 0;
+        }
+    }
+
+    private final int capacity;
+    private final Node root = new Node();
+    private int size;
+
+    RankedPrefixIndex(int capacity) {
+        this.capacity = capacity;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds the term or changes its score.
+     */
+    void put(String term, long score) {
+        String key = term.toLowerCase(Locale.ROOT);
+        Node[] path = new Node[key.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < key.length(); i++) {
+            path[i + 1] = path[i].addChild(key.charAt(i));
+        }
+        Node node = path[key.length()];
+        int existing = indexOf(node.terminals, term);
+        if (existing >= 0) {
+            node.terminals = node.terminals.clone();
+            node.terminals[existing] = new Entry(term, score);
+        } else {
+            node.terminals = Arrays.copyOf(node.terminals, node.terminals.length + 1);
+            node.terminals[node.terminals.length - 1] = new Entry(term, score);
+            size++;
+        }
+        for (int i = key.length(); i >= 0; i--) {
+            rebuild(path[i]);
+        }
+    }
+
+    void remove(String term) {
+        String key = term.toLowerCase(Locale.ROOT);
+        Node[] path = new Node[key.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < key.length(); i++) {
+            path[i + 1] = path[i].child(key.charAt(i));
+            if (path[i + 1] == null) {
+                return;
+            }
+        }
+        Node node = path[key.length()];
+        int existing = indexOf(node.terminals, term);
+        if (existing < 0) {
+            return;
+        }
+        Entry[] terminals = new Entry[node.terminals.length - 1];
+        System.arraycopy(node.terminals, 0, terminals, 0, existing);
+        System.arraycopy(node.terminals, existing + 1, terminals, existing, terminals.length - existing);
+        node.terminals = terminals;
+        size--;
+        for (int i = key.length(); i >= 0; i--) {
+            if (i > 0 && path[i].isEmpty()) {
+                path[i - 1].removeChild(key.charAt(i - 1));
+            } else {
+                rebuild(path[i]);
+            }
+        }
+    }
+
+    /**
+     * Up to {@code limit} (at most the capacity) terms starting with the prefix, ignoring case, highest score first
+     * and alphabetically among equal scores.
+     */
+    List<Entry> complete(String prefix, int limit) {
+        String key = prefix.toLowerCase(Locale.ROOT);
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        if (node == null) {
+            return List.of();
+        }
+        return List.of(node.best).subList(0, Math.min(limit, node.best.length));
+    }
+
+    private void rebuild(Node node) {
+        List<Entry> candidates = new ArrayList<>(Arrays.asList(node.terminals));
+        for (Node child : node.children) {
+            candidates.addAll(Arrays.asList(child.best));
+        }
+        candidates.sort(RankedPrefixIndex::compare);
+        node.best = candidates.subList(0, Math.min(capacity, candidates.size())).toArray(NONE);
+    }
+
+    private static int compare(Entry a, Entry b) {
+        int byScore = Long.compare(b.score(), a.score());
+        return byScore != 0 ? byScore : a.term().compareTo(b.term());
+    }
+
+    private static int indexOf(Entry[] entries, String term) {
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i].term().equals(term)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.cooksys.twitter_api.indexes;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cooksys.twitter_api.metrics.StartupMetrics;
+import com.cooksys.twitter_api.repositories.TweetRepository;
+import com.cooksys.twitter_api.sharding.Shards;
+import com.cooksys.twitter_api.storage.DomainEvent;
+import com.cooksys.twitter_api.storage.EventLog;
+import com.cooksys.twitter_api.storage.TweetContentStore;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Builds the {@link TweetSearchIndex} from the tweet contents at startup, then keeps it current from the event log:
+ * tweet and reply events carry their content, so search never has to go back to the tweet table.
+ */
+@Component
+@RequiredArgsConstructor
+public class SearchIndexLoader implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchIndexLoader.class);
+
+    private static final int REPLAY_BATCH = 1000;
+
+    private final TweetSearchIndex tweetSearchIndex;
+    private final EventLog eventLog;
+    private final TweetRepository tweetRepository;
+    private final TweetContentStore tweetContentStore;
+    private final TransactionTemplate transactionTemplate;
+    private final Shards shards;
+    private final StartupMetrics startupMetrics;
+    // serializes catching up with the log and applying new events
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.currentTimeMillis();
+        tweetSearchIndex.clear();
+        long sequence = eventLog.getLastSequence();
+        shards.executeOnEach(transactionTemplate, status -> {
+            for (TweetRepository.ContentView tweet : tweetRepository.findAllContentByDeletedFalse()) {
+                String content = tweet.getContent() != null ? tweet.getContent() : tweetContentStore.read(tweet.getId());
+                if (content != null) {
+                    tweetSearchIndex.add(tweet.getId(), tweet.getPosted() == null ? 0 : tweet.getPosted().getTime(),
+                            content);
+                }
+            }
+        });
+        tweetSearchIndex.setAppliedSequence(sequence);
+        eventLog.subscribe(this::onEvent);
+        catchUp();
+        long millis = System.currentTimeMillis() - start;
+        startupMetrics.recordPhase("tweetSearchIndex", millis);
+        log.info("Tweet search index ready in {} ms with {} tweets", millis, tweetSearchIndex.size());
+    }
+
+    private void catchUp() {
+        lock.lock();
+        try {
+            List<DomainEvent> events;
+            do {
+                events = eventLog.read(tweetSearchIndex.getAppliedSequence(), REPLAY_BATCH);
+                events.forEach(tweetSearchIndex::apply);
+            } while (!events.isEmpty());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onEvent(DomainEvent event) {
+        lock.lock();
+        try {
+            long applied = tweetSearchIndex.getAppliedSequence();
+            if (event.getSequence() == applied + 1) {
+                tweetSearchIndex.apply(event);
+            } else if (event.getSequence() > applied + 1) {
+                catchUp();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
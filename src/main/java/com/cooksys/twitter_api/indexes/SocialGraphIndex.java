@@ -0,0 +1,313 @@
+package com.cooksys.twitter_api.indexes;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.stereotype.Component;
+
+import com.cooksys.twitter_api.storage.DomainEvent;
+
+/**
+ * In-process view of the social graph kept up to date from the event log: username lookup, follow adjacency in both
+ * directions, the hashtag dictionary and per-author timelines of live tweet ids.
+ * <p>
+ * Every mutation goes through {@link #apply(DomainEvent)}; {@link #getAppliedSequence()} is the sequence of the last
+ * event folded in, which is also what a snapshot records so a restart only has to replay newer events.
+ */
+@Component
+public class SocialGraphIndex {
+
+    private static final int SNAPSHOT_MAGIC = 0x5347_4958;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final Map<String, Long> userIdsByUsername = new ConcurrentHashMap<>();
+    private final Map<Long, String> usernamesById = new ConcurrentHashMap<>();
+    private final Set<Long> deletedUsers = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Set<Long>> following = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> followers = new ConcurrentHashMap<>();
+    private final Map<String, Long> hashtagIdsByLabel = new ConcurrentHashMap<>();
+    private final Map<Long, NavigableSet<Long>> timelines = new ConcurrentHashMap<>();
+    private volatile long appliedSequence;
+    // serializes mutations, and mutations with snapshots
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    public Long findUserId(String username) {
+        Long id = userIdsByUsername.get(username);
+        return id == null || deletedUsers.contains(id) ? null : id;
+    }
+
+    public String findUsername(Long userId) {
+        return usernamesById.get(userId);
+    }
+
+    public boolean isActive(Long userId) {
+        return usernamesById.containsKey(userId) && !deletedUsers.contains(userId);
+    }
+
+    public Set<Long> getFollowing(Long userId) {
+        return Collections.unmodifiableSet(following.getOrDefault(userId, Set.of()));
+    }
+
+    public Set<Long> getFollowers(Long userId) {
+        return Collections.unmodifiableSet(followers.getOrDefault(userId, Set.of()));
+    }
+
+    public Long findHashtagId(String label) {
+        return hashtagIdsByLabel.get(label);
+    }
+
+    /**
+     * Live tweet ids authored by the user, newest first.
+     */
+    public NavigableSet<Long> getTimeline(Long userId) {
+        NavigableSet<Long> timeline = timelines.get(userId);
+        return timeline == null ? Collections.emptyNavigableSet() : Collections.unmodifiableNavigableSet(timeline.descendingSet());
+    }
+
+    public void apply(DomainEvent event) {
+        lock.lock();
+        try {
+            switch (event.getType()) {
+                case USER_CREATED, USER_REACTIVATED -> {
+                    putUser(event.getSubjectId(), event.getPayload());
+                    deletedUsers.remove(event.getSubjectId());
+                }
+                case USER_DELETED -> deletedUsers.add(event.getSubjectId());
+                case USER_FOLLOWED -> follow(event.getActorId(), event.getSubjectId());
+                case USER_UNFOLLOWED -> unfollow(event.getActorId(), event.getSubjectId());
+                case TWEET_CREATED, TWEET_REPLIED, TWEET_REPOSTED -> addTweet(event.getActorId(), event.getSubjectId());
+                case TWEET_DELETED -> removeTweet(event.getActorId(), event.getSubjectId());
+                case HASHTAG_USED -> putHashtag(event.getPayload(), event.getSubjectId());
+                default -> {
+                }
+            }
+            appliedSequence = event.getSequence();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // the mutators below are also used to bootstrap the index straight from the database
+
+    void putUser(long userId, String username) {
+        userIdsByUsername.put(username, userId);
+        usernamesById.put(userId, username);
+    }
+
+    void markDeleted(long userId) {
+        deletedUsers.add(userId);
+    }
+
+    void follow(long followerId, long followedId) {
+        following.computeIfAbsent(followerId, id -> ConcurrentHashMap.newKeySet()).add(followedId);
+        followers.computeIfAbsent(followedId, id -> ConcurrentHashMap.newKeySet()).add(followerId);
+    }
+
+    void unfollow(long followerId, long followedId) {
+        following.getOrDefault(followerId, Set.of()).remove(followedId);
+        followers.getOrDefault(followedId, Set.of()).remove(followerId);
+    }
+
+    void addTweet(long authorId, long tweetId) {
+        timelines.computeIfAbsent(authorId, id -> new ConcurrentSkipListSet<>()).add(tweetId);
+    }
+
+    void removeTweet(long authorId, long tweetId) {
+        NavigableSet<Long> timeline = timelines.get(authorId);
+        if (timeline != null) {
+            timeline.remove(tweetId);
+        }
+    }
+
+    void putHashtag(String label, long hashtagId) {
+        hashtagIdsByLabel.put(label, hashtagId);
+    }
+
+    // the refresh methods below fold in changes committed on other nodes, which this node's event log never sees
+
+    void refreshUser(long userId, String username, boolean deleted) {
+        lock.lock();
+        try {
+            putUser(userId, username);
+            if (deleted) {
+                deletedUsers.add(userId);
+            } else {
+                deletedUsers.remove(userId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the users the follower follows, returning those followed or unfollowed by the change.
+     */
+    Set<Long> refreshFollowing(long followerId, Set<Long> followedIds) {
+        lock.lock();
+        try {
+            Set<Long> current = Set.copyOf(following.getOrDefault(followerId, Set.of()));
+            Set<Long> changed = new HashSet<>();
+            for (Long followedId : current) {
+                if (!followedIds.contains(followedId)) {
+                    unfollow(followerId, followedId);
+                    changed.add(followedId);
+                }
+            }
+            for (Long followedId : followedIds) {
+                if (!current.contains(followedId)) {
+                    follow(followerId, followedId);
+                    changed.add(followedId);
+                }
+            }
+            return changed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void refreshTweet(long authorId, long tweetId, boolean deleted) {
+        lock.lock();
+        try {
+            if (deleted) {
+                removeTweet(authorId, tweetId);
+            } else {
+                addTweet(authorId, tweetId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void refreshHashtag(String label, long hashtagId) {
+        lock.lock();
+        try {
+            putHashtag(label, hashtagId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void setAppliedSequence(long sequence) {
+        lock.lock();
+        try {
+            appliedSequence = sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void clear() {
+        lock.lock();
+        try {
+            userIdsByUsername.clear();
+            usernamesById.clear();
+            deletedUsers.clear();
+            following.clear();
+            followers.clear();
+            hashtagIdsByLabel.clear();
+            timelines.clear();
+            appliedSequence = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes a compact binary image of the index. Ids are written as plain longs and adjacency/timelines as
+     * length-prefixed id lists; followers are derived from following on load.
+     */
+    public void writeSnapshot(DataOutputStream out) throws IOException {
+        lock.lock();
+        try {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(appliedSequence);
+            out.writeInt(usernamesById.size());
+            for (Map.Entry<Long, String> user : usernamesById.entrySet()) {
+                out.writeLong(user.getKey());
+                out.writeUTF(user.getValue());
+                out.writeBoolean(deletedUsers.contains(user.getKey()));
+            }
+            writeAdjacency(out, following);
+            writeAdjacency(out, timelines);
+            out.writeInt(hashtagIdsByLabel.size());
+            for (Map.Entry<String, Long> hashtag : hashtagIdsByLabel.entrySet()) {
+                out.writeUTF(hashtag.getKey());
+                out.writeLong(hashtag.getValue());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void writeAdjacency(DataOutputStream out, Map<Long, ? extends Set<Long>> adjacency) throws IOException {
+        out.writeInt(adjacency.size());
+        for (Map.Entry<Long, ? extends Set<Long>> entry : adjacency.entrySet()) {
+            Long[] ids = entry.getValue().toArray(new Long[0]);
+            out.writeLong(entry.getKey());
+            out.writeInt(ids.length);
+            for (Long id : ids) {
+                out.writeLong(id);
+            }
+        }
+    }
+
+    /**
+     * Replaces the content of the index with a snapshot written by {@link #writeSnapshot(DataOutputStream)}.
+     */
+    public void readSnapshot(DataInputStream in) throws IOException {
+        lock.lock();
+        try {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Not a social graph index snapshot");
+            }
+            clear();
+            long sequence = in.readLong();
+            int users = in.readInt();
+            for (int i = 0; i < users; i++) {
+                long id = in.readLong();
+                putUser(id, in.readUTF());
+                if (in.readBoolean()) {
+                    deletedUsers.add(id);
+                }
+            }
+            int followingCount = in.readInt();
+            for (int i = 0; i < followingCount; i++) {
+                long followerId = in.readLong();
+                int count = in.readInt();
+                for (int j = 0; j < count; j++) {
+                    follow(followerId, in.readLong());
+                }
+            }
+            int timelineCount = in.readInt();
+            for (int i = 0; i < timelineCount; i++) {
+                long authorId = in.readLong();
+                int count = in.readInt();
+                for (int j = 0; j < count; j++) {
+                    addTweet(authorId, in.readLong());
+                }
+            }
+            int hashtags = in.readInt();
+            for (int i = 0; i < hashtags; i++) {
+                putHashtag(in.readUTF(), in.readLong());
+            }
+            appliedSequence = sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
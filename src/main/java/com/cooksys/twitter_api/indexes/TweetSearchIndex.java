@@ -0,0 +1,294 @@
+package com.cooksys.twitter_api.indexes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.stereotype.Component;
+
+import com.cooksys.twitter_api.storage.DomainEvent;
+
+/**
+ * In-memory inverted index over tweet content for full-text search.
+ * <p>
+ * Content is split into lower-cased runs of letters and digits, so {@code #Java} and {@code @java} both index the term
+ * {@code java}. Every term maps to the tweets containing it and the positions it occurs at, which lets quoted phrases
+ * match only adjacent terms. A query matches tweets containing all of its terms and phrases; matches are ranked by
+ * BM25 or by recency. The index is fed tweet creations, replies and deletions from the event log, see
+ * {@link SearchIndexLoader}.
+ */
+@Component
+public class TweetSearchIndex {
+
+    public enum Order {
+        RELEVANCE, RECENT
+    }
+
+    /**
+     * A matching tweet. {@code score} is its BM25 score, also filled in when ordering by recency.
+     */
+    public record Hit(long tweetId, double score, long posted) {
+    }
+
+    /**
+     * What BM25 scores depend on besides the tweet itself: the number of indexed tweets, their total length and, for
+     * each distinct term of the query in order of appearance, the number of tweets containing it. These change as
+     * tweets are indexed, so a later page has to be scored with the statistics of the first one for its hits to
+     * continue the order of the earlier pages.
+     */
+    public record Statistics(int documentCount, long totalLength, int[] documentFrequencies) {
+    }
+
+    public record Results(List<Hit> hits, Statistics statistics) {
+    }
+
+    private record Document(long posted, int length, String[] terms) {
+    }
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MAX_TOKEN_LENGTH = 64;
+    private static final Pattern QUERY_PART = Pattern.compile("\"([^\"]*)\"?|(\\S+)");
+
+    private static final Comparator<Hit> BY_RELEVANCE = Comparator.comparingDouble(Hit::score).reversed()
+            .thenComparing(Comparator.comparingLong(Hit::tweetId).reversed());
+    private static final Comparator<Hit> BY_RECENCY = Comparator.comparingLong(Hit::posted).reversed()
+            .thenComparing(Comparator.comparingLong(Hit::tweetId).reversed());
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // term -> tweet id -> ascending positions of the term in the tweet
+    private final Map<String, Map<Long, int[]>> postings = new HashMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private long totalLength;
+    private volatile long appliedSequence;
+
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    void setAppliedSequence(long appliedSequence) {
+        this.appliedSequence = appliedSequence;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void apply(DomainEvent event) {
+        switch (event.getType()) {
+            case TWEET_CREATED, TWEET_REPLIED -> {
+                if (event.getPayload() != null) {
+                    add(event.getSubjectId(), event.getTimestamp(), event.getPayload());
+                }
+            }
+            case TWEET_DELETED -> remove(event.getSubjectId());
+            default -> {
+            }
+        }
+        appliedSequence = event.getSequence();
+    }
+
+    /**
+     * Indexes a tweet. Adding a tweet that is already indexed does nothing.
+     */
+    void add(long tweetId, long posted, String content) {
+        List<String> tokens = tokenize(content);
+        Map<String, List<Integer>> positions = new LinkedHashMap<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            positions.computeIfAbsent(tokens.get(i), term -> new ArrayList<>()).add(i);
+        }
+        lock.writeLock().lock();
+        try {
+            if (documents.containsKey(tweetId)) {
+                return;
+            }
+            for (Map.Entry<String, List<Integer>> term : positions.entrySet()) {
+                int[] termPositions = term.getValue().stream().mapToInt(Integer::intValue).toArray();
+                postings.computeIfAbsent(term.getKey(), key -> new HashMap<>()).put(tweetId, termPositions);
+            }
+            documents.put(tweetId, new Document(posted, tokens.size(), positions.keySet().toArray(new String[0])));
+            totalLength += tokens.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(long tweetId) {
+        lock.writeLock().lock();
+        try {
+            Document document = documents.remove(tweetId);
+            if (document == null) {
+                return;
+            }
+            for (String term : document.terms()) {
+                Map<Long, int[]> termPostings = postings.get(term);
+                termPostings.remove(tweetId);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+            totalLength -= document.length();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} matches of the query in the given order, starting after {@code after} (the last hit
+     * of the previous page, or null for the first page), with the statistics they were scored with. Scores are
+     * computed from {@code statistics} when given, which must be those returned for the first page of the same query.
+     */
+    public Results search(String query, Order order, Hit after, Statistics statistics, int limit) {
+        List<String[]> phrases = parse(query);
+        if (phrases.isEmpty()) {
+            return new Results(List.of(), statistics);
+        }
+        Comparator<Hit> comparator = order == Order.RECENT ? BY_RECENCY : BY_RELEVANCE;
+        // worst hit on top, so the queue keeps the best `limit` hits
+        PriorityQueue<Hit> best = new PriorityQueue<>(comparator.reversed());
+        lock.readLock().lock();
+        try {
+            // in order of appearance, the order of the statistics' document frequencies
+            Map<String, Map<Long, int[]>> termPostings = new LinkedHashMap<>();
+            Map<Long, int[]> rarest = null;
+            for (String[] phrase : phrases) {
+                for (String term : phrase) {
+                    Map<Long, int[]> docs = postings.get(term);
+                    if (docs == null) {
+                        return new Results(List.of(), statistics);
+                    }
+                    termPostings.put(term, docs);
+                    if (rarest == null || docs.size() < rarest.size()) {
+                        rarest = docs;
+                    }
+                }
+            }
+            if (statistics == null) {
+                statistics = new Statistics(documents.size(), totalLength,
+                        termPostings.values().stream().mapToInt(Map::size).toArray());
+            } else if (statistics.documentFrequencies().length != termPostings.size()) {
+                throw new IllegalArgumentException("The statistics are not those of this query");
+            }
+            for (Long tweetId : rarest.keySet()) {
+                if (!matches(tweetId, phrases, termPostings)) {
+                    continue;
+                }
+                Document document = documents.get(tweetId);
+                Hit hit = new Hit(tweetId, score(tweetId, document, termPostings, statistics), document.posted());
+                if (after != null && comparator.compare(hit, after) <= 0) {
+                    continue;
+                }
+                best.add(hit);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort(comparator);
+        return new Results(hits, statistics);
+    }
+
+    private static boolean matches(Long tweetId, List<String[]> phrases, Map<String, Map<Long, int[]>> termPostings) {
+        for (String[] phrase : phrases) {
+            int[] first = termPostings.get(phrase[0]).get(tweetId);
+            if (first == null) {
+                return false;
+            }
+            boolean found = phrase.length == 1;
+            for (int i = 1; i < phrase.length; i++) {
+                if (!termPostings.get(phrase[i]).containsKey(tweetId)) {
+                    return false;
+                }
+            }
+            for (int p = 0; p < first.length && !found; p++) {
+                found = true;
+                for (int i = 1; i < phrase.length && found; i++) {
+                    found = Arrays.binarySearch(termPostings.get(phrase[i]).get(tweetId), first[p] + i) >= 0;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static double score(Long tweetId, Document document, Map<String, Map<Long, int[]>> termPostings,
+                                Statistics statistics) {
+        double score = 0;
+        int documentCount = statistics.documentCount();
+        double averageLength = (double) statistics.totalLength() / documentCount;
+        int i = 0;
+        for (Map.Entry<String, Map<Long, int[]>> term : termPostings.entrySet()) {
+            int documentFrequency = statistics.documentFrequencies()[i++];
+            double idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+            int termFrequency = term.getValue().get(tweetId).length;
+            score += idf * termFrequency * (K1 + 1)
+                    / (termFrequency + K1 * (1 - B + B * document.length() / averageLength));
+        }
+        return score;
+    }
+
+    /**
+     * Splits a query into phrases: quoted text is one phrase, and so is every other whitespace-separated word (which
+     * may tokenize into several adjacent terms, as in {@code e-mail}).
+     */
+    static List<String[]> parse(String query) {
+        List<String[]> phrases = new ArrayList<>();
+        Matcher matcher = QUERY_PART.matcher(query);
+        while (matcher.find()) {
+            String part = matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+            List<String> terms = tokenize(part);
+            if (!terms.isEmpty()) {
+                phrases.add(terms.toArray(new String[0]));
+            }
+        }
+        return phrases;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (token.length() < MAX_TOKEN_LENGTH) {
+                    token.append(Character.toLowerCase(c));
+                }
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+}
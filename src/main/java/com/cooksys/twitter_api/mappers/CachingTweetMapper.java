@@ -0,0 +1,76 @@
+package com.cooksys.twitter_api.mappers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+
+import com.cooksys.twitter_api.cache.ResponseFragmentCache;
+import com.cooksys.twitter_api.dtos.TweetResponseDto;
+import com.cooksys.twitter_api.entities.Tweet;
+import com.cooksys.twitter_api.repositories.TweetRepository;
+import com.cooksys.twitter_api.sharding.Shards;
+
+/**
+ * Serves {@link TweetMapper#entityToDto} from the {@link ResponseFragmentCache}, also for each tweet of a list and
+ * for the tweets a tweet embeds. The DTOs it returns may be shared between requests and must not be modified.
+ */
+public abstract class CachingTweetMapper implements TweetMapper {
+
+	@Autowired
+	@Qualifier("delegate")
+	private TweetMapper delegate;
+
+	@Autowired
+	private ResponseFragmentCache responseFragmentCache;
+
+	@Autowired
+	private TweetRepository tweetRepository;
+
+	@Autowired
+	private Shards shards;
+
+	@Override
+	public TweetResponseDto entityToDto(Tweet entity) {
+		return responseFragmentCache.tweet(entity, this::map);
+	}
+
+	/**
+	 * Maps the tweet with the generated mapper and the tweets it replies to or reposts through this one, so each of
+	 * them is served from or stored in the cache on its own.
+	 */
+	private TweetResponseDto map(Tweet entity) {
+		if (entity == null) {
+			return null;
+		}
+		TweetResponseDto dto = delegate.entityToDto(entity);
+		dto.setInReplyTo(embedded(entity.getInReplyTo(), entity.getInReplyToId()));
+		dto.setRepostOf(embedded(entity.getRepostOf(), entity.getRepostOfId()));
+		return dto;
+	}
+
+	/**
+	 * An embedded tweet on another shard has no association to follow; it is read and mapped on its own shard.
+	 */
+	private TweetResponseDto embedded(Tweet tweet, Long id) {
+		if (tweet != null || id == null) {
+			return entityToDto(tweet);
+		}
+		return shards.readOn(shards.getShardMap().shardOfTweet(id),
+				() -> tweetRepository.findById(id).map(this::entityToDto).orElse(null));
+	}
+
+	@Override
+	public List<TweetResponseDto> entitiesToDtos(List<Tweet> entities) {
+		if (entities == null) {
+			return null;
+		}
+		List<TweetResponseDto> dtos = new ArrayList<>(entities.size());
+		for (Tweet entity : entities) {
+			dtos.add(entityToDto(entity));
+		}
+		return dtos;
+	}
+
+}
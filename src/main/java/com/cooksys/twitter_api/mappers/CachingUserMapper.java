@@ -0,0 +1,43 @@
+package com.cooksys.twitter_api.mappers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+
+import com.cooksys.twitter_api.cache.ResponseFragmentCache;
+import com.cooksys.twitter_api.dtos.UserResponseDto;
+import com.cooksys.twitter_api.entities.User;
+
+/**
+ * Serves {@link UserMapper#entityToDto} from the {@link ResponseFragmentCache}. The DTOs it returns may be shared
+ * between requests and must not be modified.
+ */
+public abstract class CachingUserMapper implements UserMapper {
+
+	@Autowired
+	@Qualifier("delegate")
+	private UserMapper delegate;
+
+	@Autowired
+	private ResponseFragmentCache responseFragmentCache;
+
+	@Override
+	public UserResponseDto entityToDto(User user) {
+		return responseFragmentCache.user(user, delegate::entityToDto);
+	}
+
+	@Override
+	public List<UserResponseDto> entitiesToDtos(List<User> userList) {
+		if (userList == null) {
+			return null;
+		}
+		List<UserResponseDto> dtos = new ArrayList<>(userList.size());
+		for (User user : userList) {
+			dtos.add(entityToDto(user));
+		}
+		return dtos;
+	}
+
+}
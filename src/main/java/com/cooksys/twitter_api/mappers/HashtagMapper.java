@@ -1,5 +1,6 @@
 package com.cooksys.twitter_api.mappers;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.mapstruct.Mapper;
@@ -13,5 +14,5 @@ public interface HashtagMapper {
 
     Hashtag dtoToEntity(HashtagDto hashtagDto);
     
-    List<HashtagDto> entitiesToDtos(List<Hashtag> entities);
+    List<HashtagDto> entitiesToDtos(Collection<Hashtag> entities);
 }
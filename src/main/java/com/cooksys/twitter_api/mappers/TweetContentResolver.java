@@ -0,0 +1,29 @@
+package com.cooksys.twitter_api.mappers;
+
+import org.mapstruct.Named;
+import org.springframework.stereotype.Component;
+
+import com.cooksys.twitter_api.entities.Tweet;
+import com.cooksys.twitter_api.storage.TweetContentStore;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Supplies {@link TweetMapper} with tweet bodies, reading them from the {@link TweetContentStore} for rows whose body
+ * was moved out of the tweet table by earlier versions of the store.
+ */
+@Component
+@RequiredArgsConstructor
+public class TweetContentResolver {
+
+    private final TweetContentStore tweetContentStore;
+
+    @Named("content")
+    public String content(Tweet tweet) {
+        if (tweet.getContent() != null || tweet.getId() == null) {
+            return tweet.getContent();
+        }
+        return tweetContentStore.read(tweet.getId());
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.cooksys.twitter_api.mappers;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.springframework.stereotype.Component;
+
+import com.cooksys.twitter_api.dtos.NormalizedTweetListDto;
+import com.cooksys.twitter_api.dtos.TweetRefDto;
+import com.cooksys.twitter_api.entities.Tweet;
+import com.cooksys.twitter_api.entities.User;
+import com.cooksys.twitter_api.repositories.TweetRepository;
+import com.cooksys.twitter_api.sharding.Shards;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Builds a {@link NormalizedTweetListDto} from a list of tweets, mapping each distinct tweet and author only once no
+ * matter how many times it is reached through the list or through reply/repost chains.
+ */
+@Component
+@RequiredArgsConstructor
+public class TweetListNormalizer {
+
+    private final TweetMapper tweetMapper;
+    private final UserMapper userMapper;
+    private final TweetRepository tweetRepository;
+    private final Shards shards;
+
+    public NormalizedTweetListDto normalize(List<Tweet> tweets) {
+        NormalizedTweetListDto result = new NormalizedTweetListDto();
+        List<Long> ids = new ArrayList<>(tweets.size());
+        for (Tweet tweet : tweets) {
+            ids.add(tweet.getId());
+            include(result, tweet);
+        }
+        includeOtherShards(result);
+        result.setIds(ids);
+        return result;
+    }
+
+    /**
+     * Combines lists normalized separately, e.g. one per shard, each ordered newest first, into one ordered newest
+     * first.
+     */
+    public NormalizedTweetListDto merge(List<NormalizedTweetListDto> parts) {
+        NormalizedTweetListDto result = new NormalizedTweetListDto();
+        List<Long> ids = new ArrayList<>();
+        for (NormalizedTweetListDto part : parts) {
+            ids.addAll(part.getIds());
+            result.getTweets().putAll(part.getTweets());
+            result.getUsers().putAll(part.getUsers());
+        }
+        ids.sort(Comparator.comparing((Long id) -> result.getTweets().get(id).getPosted()).reversed());
+        result.setIds(ids);
+        return result;
+    }
+
+    /**
+     * Replies and reposts of tweets on other shards reference them by id only; those tweets, and what they reference
+     * in turn, are read on their own shards until every referenced tweet is in the list.
+     */
+    private void includeOtherShards(NormalizedTweetListDto result) {
+        Set<Long> requested = new HashSet<>();
+        Map<Integer, List<Long>> missing = missing(result, requested);
+        while (!missing.isEmpty()) {
+            missing.forEach((shard, ids) -> shards.readOn(shard, () -> {
+                tweetRepository.findAllById(ids).forEach(tweet -> include(result, tweet));
+                return null;
+            }));
+            missing = missing(result, requested);
+        }
+    }
+
+    /**
+     * Referenced tweets not in the list and not requested before, by owning shard.
+     */
+    private Map<Integer, List<Long>> missing(NormalizedTweetListDto result, Set<Long> requested) {
+        Map<Integer, List<Long>> missing = new TreeMap<>();
+        for (TweetRefDto tweet : new ArrayList<>(result.getTweets().values())) {
+            for (Long id : new Long[] { tweet.getInReplyTo(), tweet.getRepostOf() }) {
+                if (id != null && !result.getTweets().containsKey(id) && requested.add(id)) {
+                    missing.computeIfAbsent(shards.getShardMap().shardOfTweet(id), shard -> new ArrayList<>()).add(id);
+                }
+            }
+        }
+        return missing;
+    }
+
+    private void include(NormalizedTweetListDto result, Tweet tweet) {
+        // walk reply/repost chains iteratively; a deep thread must not blow the stack
+        while (tweet != null && !result.getTweets().containsKey(tweet.getId())) {
+            result.getTweets().put(tweet.getId(), tweetMapper.entityToRefDto(tweet));
+            User author = tweet.getAuthor();
+            if (author != null) {
+                result.getUsers().computeIfAbsent(author.getCredentials().getUsername(),
+                        username -> userMapper.entityToDto(author));
+            }
+            if (tweet.getRepostOf() != null && tweet.getInReplyTo() != null) {
+                include(result, tweet.getRepostOf());
+            }
+            tweet = tweet.getInReplyTo() != null ? tweet.getInReplyTo() : tweet.getRepostOf();
+        }
+    }
+
+}
@@ -1,12 +1,16 @@
 package com.cooksys.twitter_api.mappers;
 
+import java.util.Collection;
 import java.util.List;
 
+import org.mapstruct.DecoratedWith;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.springframework.http.HttpStatus;
 
 import com.cooksys.twitter_api.dtos.ContextDto;
 import com.cooksys.twitter_api.dtos.TweetRequestDto;
+import com.cooksys.twitter_api.dtos.TweetRefDto;
 import com.cooksys.twitter_api.dtos.TweetResponseDto;
 import com.cooksys.twitter_api.dtos.UserResponseDto;
 import com.cooksys.twitter_api.entities.Tweet;
@@ -14,12 +18,24 @@ import com.cooksys.twitter_api.entities.User;
 
 
 
-@Mapper(componentModel = "spring", uses = { UserMapper.class })
+@Mapper(componentModel = "spring", uses = { UserMapper.class, TweetContentResolver.class })
+@DecoratedWith(CachingTweetMapper.class)
 public interface TweetMapper {
 
 	
+	  // nested tweets are filled in by CachingTweetMapper, which maps them through the fragment cache as well
+	  @Mapping(target = "content", source = "entity", qualifiedByName = "content")
+	  @Mapping(target = "inReplyTo", ignore = true)
+	  @Mapping(target = "repostOf", ignore = true)
+	  @Mapping(target = "json", ignore = true)
 	  TweetResponseDto entityToDto(Tweet entity);
 	  
+	  @Mapping(target = "content", source = "entity", qualifiedByName = "content")
+	  @Mapping(target = "author", source = "author.credentials.username")
+	  @Mapping(target = "inReplyTo", source = "inReplyToId")
+	  @Mapping(target = "repostOf", source = "repostOfId")
+	  TweetRefDto entityToRefDto(Tweet entity);
+
 	  Tweet dtoToEntity(TweetRequestDto tweetRequestDto);
 
 
@@ -29,7 +45,7 @@ public interface TweetMapper {
 	  
 	 // List<UserResponseDto> entitiesToUserDtos(List<User> users, HttpStatus ok);
 	  
-	  List<UserResponseDto> entitiesToUserDtos(List<User> users);
+	  List<UserResponseDto> entitiesToUserDtos(Collection<User> users);
 
 	  
 	 // ContextDto entitiesToContextDto(List<Tweet> tweet);
@@ -3,16 +3,19 @@ package com.cooksys.twitter_api.mappers;
 import com.cooksys.twitter_api.dtos.UserRequestDto;
 import com.cooksys.twitter_api.dtos.UserResponseDto;
 import com.cooksys.twitter_api.entities.User;
+import org.mapstruct.DecoratedWith;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
 import java.util.List;
 
 @Mapper(componentModel = "spring", uses = { ProfileMapper.class, CredentialsMapper.class })
+@DecoratedWith(CachingUserMapper.class)
 public interface UserMapper {
 
 	// TODO: Fix the error produced here
 	@Mapping(target = "username", source = "credentials.username")
+	@Mapping(target = "json", ignore = true)
 	UserResponseDto entityToDto(User user);
 
 	User dtoToEntity(UserRequestDto userRequestDto);
@@ -0,0 +1,43 @@
+package com.cooksys.twitter_api.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Startup timeline of the application: how long named startup phases took and the time from JVM start until the
+ * application reported ready.
+ */
+@Component
+public class StartupMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupMetrics.class);
+
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private volatile long timeToReadyMillis = -1;
+
+    public synchronized void recordPhase(String phase, long millis) {
+        phases.put(phase, millis);
+    }
+
+    public synchronized Map<String, Long> getPhases() {
+        return new LinkedHashMap<>(phases);
+    }
+
+    public long getTimeToReadyMillis() {
+        return timeToReadyMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        timeToReadyMillis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        log.info("Application ready {} ms after JVM start, phases {}", timeToReadyMillis, getPhases());
+    }
+
+}
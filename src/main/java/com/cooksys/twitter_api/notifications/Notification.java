@@ -0,0 +1,10 @@
+package com.cooksys.twitter_api.notifications;
+
+import java.sql.Timestamp;
+
+/**
+ * One row of a user's inbox: {@code eventCount} events collapsed into one, {@code actorId} being the latest actor.
+ */
+public record Notification(long id, long recipientId, NotificationType type, Long tweetId, Long sourceTweetId,
+                           long actorId, int eventCount, Timestamp firstAt, Timestamp lastAt) {
+}
@@ -0,0 +1,119 @@
+package com.cooksys.twitter_api.notifications;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Reads and updates the {@code notification} and {@code notification_inbox} tables of the current shard.
+ * <p>
+ * Whatever changes a user's notifications or unread count first locks their inbox row with
+ * {@link #lockInbox(long)}, inside a transaction, so the count always matches the rows above {@code lastReadId}.
+ */
+@Repository
+public class NotificationStore {
+
+    public record Inbox(long unreadCount, long lastReadId) {
+    }
+
+    private static final String COLUMNS =
+            "id, recipient_id, type, tweet_id, source_tweet_id, actor_id, event_count, first_at, last_at";
+
+    private static final RowMapper<Notification> NOTIFICATION = (row, number) -> new Notification(row.getLong("id"),
+            row.getLong("recipient_id"), NotificationType.valueOf(row.getString("type")),
+            row.getObject("tweet_id", Long.class), row.getObject("source_tweet_id", Long.class),
+            row.getLong("actor_id"), row.getInt("event_count"), row.getTimestamp("first_at"),
+            row.getTimestamp("last_at"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public NotificationStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * The user's newest notifications with an id below {@code beforeId} (all when null), newest first.
+     */
+    public List<Notification> findPage(long recipientId, Long beforeId, int limit) {
+        if (beforeId == null) {
+            return jdbcTemplate.query("select " + COLUMNS + " from notification where recipient_id = ?"
+                    + " order by id desc limit ?", NOTIFICATION, recipientId, limit);
+        }
+        return jdbcTemplate.query("select " + COLUMNS + " from notification where recipient_id = ? and id < ?"
+                + " order by id desc limit ?", NOTIFICATION, recipientId, beforeId, limit);
+    }
+
+    /**
+     * The latest notification of the given kind about the given tweet (or, for a null tweet, with none) that had an
+     * event at or after {@code since}.
+     */
+    public Optional<Notification> findOpen(long recipientId, NotificationType type, Long tweetId, Timestamp since) {
+        List<Notification> open = tweetId == null
+                ? jdbcTemplate.query("select " + COLUMNS + " from notification where recipient_id = ? and type = ?"
+                        + " and tweet_id is null and last_at >= ? order by id desc limit 1",
+                        NOTIFICATION, recipientId, type.name(), since)
+                : jdbcTemplate.query("select " + COLUMNS + " from notification where recipient_id = ? and type = ?"
+                        + " and tweet_id = ? and last_at >= ? order by id desc limit 1",
+                        NOTIFICATION, recipientId, type.name(), tweetId, since);
+        return open.stream().findFirst();
+    }
+
+    public void append(long recipientId, NotificationType type, Long tweetId, Long sourceTweetId, long actorId,
+                       int eventCount, Timestamp firstAt, Timestamp lastAt) {
+        jdbcTemplate.update("insert into notification (recipient_id, type, tweet_id, source_tweet_id, actor_id,"
+                        + " event_count, first_at, last_at) values (?, ?, ?, ?, ?, ?, ?, ?)",
+                recipientId, type.name(), tweetId, sourceTweetId, actorId, eventCount, firstAt, lastAt);
+    }
+
+    public void delete(long id) {
+        jdbcTemplate.update("delete from notification where id = ?", id);
+    }
+
+    public long findLatestId(long recipientId) {
+        Long latest = jdbcTemplate.queryForObject("select max(id) from notification where recipient_id = ?",
+                Long.class, recipientId);
+        return latest == null ? 0 : latest;
+    }
+
+    public long countAfter(long recipientId, long afterId) {
+        Long count = jdbcTemplate.queryForObject("select count(*) from notification where recipient_id = ? and id > ?",
+                Long.class, recipientId, afterId);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * The user's unread count and read position, without locking; an empty inbox for a user without one yet.
+     */
+    public Inbox findInbox(long userId) {
+        List<Inbox> inbox = jdbcTemplate.query(
+                "select unread_count, last_read_id from notification_inbox where user_id = ?",
+                (row, number) -> new Inbox(row.getLong("unread_count"), row.getLong("last_read_id")), userId);
+        return inbox.isEmpty() ? new Inbox(0, 0) : inbox.get(0);
+    }
+
+    /**
+     * Locks the user's inbox row until the end of the transaction, creating it if need be.
+     */
+    public Inbox lockInbox(long userId) {
+        List<Inbox> inbox = jdbcTemplate.query(
+                "select unread_count, last_read_id from notification_inbox where user_id = ? for update",
+                (row, number) -> new Inbox(row.getLong("unread_count"), row.getLong("last_read_id")), userId);
+        if (!inbox.isEmpty()) {
+            return inbox.get(0);
+        }
+        // a concurrent insert of the same row fails the transaction, which its caller retries
+        jdbcTemplate.update("insert into notification_inbox (user_id, unread_count, last_read_id) values (?, 0, 0)",
+                userId);
+        return new Inbox(0, 0);
+    }
+
+    public void updateInbox(long userId, Inbox inbox) {
+        jdbcTemplate.update("update notification_inbox set unread_count = ?, last_read_id = ? where user_id = ?",
+                inbox.unreadCount(), inbox.lastReadId(), userId);
+    }
+
+}
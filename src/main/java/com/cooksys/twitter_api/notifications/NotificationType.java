@@ -0,0 +1,31 @@
+package com.cooksys.twitter_api.notifications;
+
+/**
+ * What a notification is about. Names are stored in the {@code notification} table.
+ * <p>
+ * {@code tweetId} is the recipient's tweet that was liked, reposted or replied to, or the tweet mentioning the
+ * recipient; {@code sourceTweetId} is the latest repost or reply. Follows have neither.
+ */
+public enum NotificationType {
+
+    MENTION(false),
+    LIKE(true),
+    REPOST(true),
+    REPLY(true),
+    FOLLOW(true);
+
+    private final boolean collapsible;
+
+    NotificationType(boolean collapsible) {
+        this.collapsible = collapsible;
+    }
+
+    /**
+     * Whether repeated events of this type about the same tweet (or, for follows, the same recipient) are merged into
+     * one notification.
+     */
+    public boolean isCollapsible() {
+        return collapsible;
+    }
+
+}
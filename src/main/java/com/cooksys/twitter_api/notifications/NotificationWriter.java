@@ -0,0 +1,246 @@
+package com.cooksys.twitter_api.notifications;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cooksys.twitter_api.helpers.Helpers;
+import com.cooksys.twitter_api.indexes.SocialGraphIndex;
+import com.cooksys.twitter_api.repositories.TweetRepository;
+import com.cooksys.twitter_api.sharding.Shards;
+import com.cooksys.twitter_api.storage.DomainEvent;
+import com.cooksys.twitter_api.storage.EventLog;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Fills the notifications inboxes from the {@link EventLog}: mentions in new tweets and replies, likes, reposts,
+ * replies and follows, each for the user on the receiving end. Users are not notified of their own actions.
+ * <p>
+ * Each flush reads the events after this consumer's offset and collapses them in memory, so a burst of likes on a
+ * popular tweet becomes one row and one counter update however large it is. On the recipient's shard, a collapsible
+ * notification that already has an event within {@code collapse-window} is merged in: the old row is deleted and the
+ * merged one appended, which moves it to the top of the inbox. Every recipient's inbox row is locked (in recipient id
+ * order, so writers on different nodes cannot deadlock) while their rows and unread count change together.
+ * <p>
+ * Like {@code HashtagRollupWriter}, a failed flush is retried whole, so only a crash between the commit and the
+ * offset write, or a flush failing on one shard after committing on another, delivers notifications twice. The
+ * inboxes start empty; events from before the first start are not delivered.
+ */
+@Component
+public class NotificationWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationWriter.class);
+
+    private static final String CONSUMER = "notifications";
+    private static final int READ_BATCH = 5000;
+
+    @Value("${twitter.notifications.collapse-window:86400000}")
+    private long collapseWindow;
+
+    private record PendingKey(NotificationType type, Long tweetId, long sequence) {
+    }
+
+    /**
+     * Events of one batch that end up in one notification.
+     */
+    private static class Pending {
+
+        private final NotificationType type;
+        private final Long tweetId;
+        private Long sourceTweetId;
+        private long actorId;
+        private int eventCount;
+        private final long firstAt;
+        private long lastAt;
+
+        Pending(NotificationType type, Long tweetId, long firstAt) {
+            this.type = type;
+            this.tweetId = tweetId;
+            this.firstAt = firstAt;
+        }
+
+        void add(DomainEvent event, Long sourceTweetId) {
+            this.sourceTweetId = sourceTweetId;
+            this.actorId = event.getActorId();
+            this.eventCount++;
+            this.lastAt = event.getTimestamp();
+        }
+    }
+
+    private final EventLog eventLog;
+    private final NotificationStore notificationStore;
+    private final TweetRepository tweetRepository;
+    private final SocialGraphIndex socialGraphIndex;
+    private final Shards shards;
+    private final TransactionTemplate transactionTemplate;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public NotificationWriter(EventLog eventLog, NotificationStore notificationStore, TweetRepository tweetRepository,
+                              SocialGraphIndex socialGraphIndex, Shards shards,
+                              TransactionTemplate transactionTemplate) {
+        this.eventLog = eventLog;
+        this.notificationStore = notificationStore;
+        this.tweetRepository = tweetRepository;
+        this.socialGraphIndex = socialGraphIndex;
+        this.shards = shards;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!eventLog.hasOffset(CONSUMER)) {
+            eventLog.commitOffset(CONSUMER, eventLog.getLastSequence());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${twitter.notifications.flush-interval:1000}")
+    public void flush() {
+        lock.lock();
+        try {
+            List<DomainEvent> events;
+            do {
+                events = eventLog.poll(CONSUMER, READ_BATCH);
+                if (events.isEmpty()) {
+                    return;
+                }
+                apply(events);
+                eventLog.commitOffset(CONSUMER, events.get(events.size() - 1).getSequence());
+            } while (events.size() == READ_BATCH);
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Notification flush failed, retrying on the next one: {}", e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void apply(List<DomainEvent> events) {
+        Map<Long, Long> authors = authorsOfTargets(events);
+        // recipient -> collapse key -> pending notification, in the order the events came in
+        Map<Long, Map<PendingKey, Pending>> inboxes = new TreeMap<>();
+        for (DomainEvent event : events) {
+            switch (event.getType()) {
+                case TWEET_CREATED -> mentions(inboxes, event, null);
+                case TWEET_REPLIED -> {
+                    Long author = authors.get(event.getRelatedId());
+                    add(inboxes, author, NotificationType.REPLY, event.getRelatedId(), event, event.getSubjectId());
+                    mentions(inboxes, event, author);
+                }
+                case TWEET_REPOSTED -> add(inboxes, authors.get(event.getRelatedId()), NotificationType.REPOST,
+                        event.getRelatedId(), event, event.getSubjectId());
+                case TWEET_LIKED ->
+                        add(inboxes, event.getRelatedId(), NotificationType.LIKE, event.getSubjectId(), event, null);
+                case USER_FOLLOWED -> add(inboxes, event.getSubjectId(), NotificationType.FOLLOW, null, event, null);
+                default -> {
+                }
+            }
+        }
+        Map<Integer, List<Long>> recipientsByShard = new TreeMap<>();
+        for (Long recipient : inboxes.keySet()) {
+            recipientsByShard.computeIfAbsent(shards.getShardMap().shardOfUser(recipient), shard -> new ArrayList<>())
+                    .add(recipient);
+        }
+        recipientsByShard.forEach((shard, recipients) -> shards.onShard(shard, () -> {
+            transactionTemplate.executeWithoutResult(status -> recipients.forEach(
+                    recipient -> deliver(recipient, inboxes.get(recipient).values())));
+            return null;
+        }));
+    }
+
+    /**
+     * Authors of the tweets replied to or reposted in the batch, read from the shards owning the tweets.
+     */
+    private Map<Long, Long> authorsOfTargets(List<DomainEvent> events) {
+        Set<Long> targets = new HashSet<>();
+        for (DomainEvent event : events) {
+            switch (event.getType()) {
+                case TWEET_REPLIED, TWEET_REPOSTED -> targets.add(event.getRelatedId());
+                default -> {
+                }
+            }
+        }
+        Map<Long, Long> authors = new HashMap<>();
+        if (!targets.isEmpty()) {
+            shards.scatter(targets, shards.getShardMap()::shardOfTweet, tweetRepository::findAuthorsByIdIn)
+                    .forEach(views -> views.forEach(view -> authors.put(view.getId(), view.getAuthorId())));
+        }
+        return authors;
+    }
+
+    /**
+     * Mentions of active users in a new tweet's content, except of the author and of {@code repliedTo}, who is
+     * already told about the reply.
+     */
+    private void mentions(Map<Long, Map<PendingKey, Pending>> inboxes, DomainEvent event, Long repliedTo) {
+        if (event.getPayload() == null) {
+            return;
+        }
+        for (String username : Helpers.mentionedUsernames(event.getPayload())) {
+            Long mentioned = socialGraphIndex.findUserId(username);
+            if (mentioned != null && !mentioned.equals(repliedTo)) {
+                add(inboxes, mentioned, NotificationType.MENTION, event.getSubjectId(), event, null);
+            }
+        }
+    }
+
+    private void add(Map<Long, Map<PendingKey, Pending>> inboxes, Long recipient, NotificationType type,
+                     Long tweetId, DomainEvent event, Long sourceTweetId) {
+        if (recipient == null || recipient == event.getActorId() || !socialGraphIndex.isActive(recipient)) {
+            return;
+        }
+        // a key of its own for every event that does not collapse
+        PendingKey key = new PendingKey(type, tweetId, type.isCollapsible() ? 0 : event.getSequence());
+        inboxes.computeIfAbsent(recipient, r -> new LinkedHashMap<>())
+                .computeIfAbsent(key, k -> new Pending(type, tweetId, event.getTimestamp()))
+                .add(event, sourceTweetId);
+    }
+
+    private void deliver(long recipient, Iterable<Pending> pending) {
+        NotificationStore.Inbox inbox = notificationStore.lockInbox(recipient);
+        long unread = inbox.unreadCount();
+        Timestamp openSince = new Timestamp(System.currentTimeMillis() - collapseWindow);
+        List<Pending> ordered = new ArrayList<>();
+        pending.forEach(ordered::add);
+        // appended oldest first, so the ids follow the time of each notification's latest event
+        ordered.sort(Comparator.comparingLong(p -> p.lastAt));
+        for (Pending notification : ordered) {
+            int eventCount = notification.eventCount;
+            long firstAt = notification.firstAt;
+            if (notification.type.isCollapsible()) {
+                Optional<Notification> open = notificationStore.findOpen(recipient, notification.type,
+                        notification.tweetId, openSince);
+                if (open.isPresent()) {
+                    notificationStore.delete(open.get().id());
+                    eventCount += open.get().eventCount();
+                    firstAt = Math.min(firstAt, open.get().firstAt().getTime());
+                    if (open.get().id() > inbox.lastReadId()) {
+                        unread--;
+                    }
+                }
+            }
+            notificationStore.append(recipient, notification.type, notification.tweetId, notification.sourceTweetId,
+                    notification.actorId, eventCount, new Timestamp(firstAt), new Timestamp(notification.lastAt));
+            unread++;
+        }
+        notificationStore.updateInbox(recipient, new NotificationStore.Inbox(unread, inbox.lastReadId()));
+    }
+
+}
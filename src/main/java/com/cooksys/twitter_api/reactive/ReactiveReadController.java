@@ -0,0 +1,70 @@
+package com.cooksys.twitter_api.reactive;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.cooksys.twitter_api.dtos.HashtagDto;
+import com.cooksys.twitter_api.dtos.TweetResponseDto;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * The read endpoints of ReactiveReadService beside the servlet ones, on the same server. Spring MVC writes a Flux as
+ * newline-delimited JSON, one element at a time as the client takes them, unless the client only accepts
+ * {@code application/json}, which gets the whole list as an array. JSON is producible either way, so an error signalled
+ * before the first element is still sent as an ErrorDto with its status.
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/reactive")
+@ConditionalOnProperty(name = "twitter.reactive.enabled", havingValue = "true")
+public class ReactiveReadController {
+
+    private final ReactiveReadService reactiveReadService;
+
+    @GetMapping(value = "/users/@{username}/feed",
+            produces = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE })
+    public Flux<TweetResponseDto> getFeed(@PathVariable String username) {
+        return reactiveReadService.getFeed(username);
+    }
+
+    @GetMapping(value = "/users/@{username}/tweets",
+            produces = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE })
+    public Flux<TweetResponseDto> getUserTweets(@PathVariable String username) {
+        return reactiveReadService.getUserTweets(username);
+    }
+
+    @GetMapping(value = "/users/@{username}/mentions",
+            produces = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE })
+    public Flux<TweetResponseDto> getMentions(@PathVariable String username) {
+        return reactiveReadService.getMentions(username);
+    }
+
+    @GetMapping(value = "/tweets", produces = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE })
+    public Flux<TweetResponseDto> getTweets() {
+        return reactiveReadService.getTweets();
+    }
+
+    @GetMapping("/tweets/{id}")
+    public Mono<TweetResponseDto> getTweet(@PathVariable Long id) {
+        return reactiveReadService.getTweet(id);
+    }
+
+    @GetMapping(value = "/tags", produces = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE })
+    public Flux<HashtagDto> getTags() {
+        return reactiveReadService.getTags();
+    }
+
+    @GetMapping(value = "/tags/{label}",
+            produces = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE })
+    public Flux<TweetResponseDto> getTweetsWithLabel(@PathVariable String label) {
+        return reactiveReadService.getTweetsWithLabel(label);
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.cooksys.twitter_api.reactive;
+
+import com.cooksys.twitter_api.dtos.HashtagDto;
+import com.cooksys.twitter_api.dtos.TweetResponseDto;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking variants of the main read endpoints, read through R2DBC. Rows are fetched as the subscriber asks for
+ * them, so no thread waits on a query and a slow client holds back the next fetch instead of making the server
+ * buffer the result. The DTOs and their order are those of the servlet endpoints. A missing user, hashtag or tweet is
+ * signalled as a {@link com.cooksys.twitter_api.exceptions.NotFoundException} before any element.
+ */
+public interface ReactiveReadService {
+
+    /**
+     * GET reactive/users/@{username}/feed
+     * <p>
+     * The user's feed, as GET users/@{username}/feed.
+     */
+    Flux<TweetResponseDto> getFeed(String username);
+
+    /**
+     * GET reactive/users/@{username}/tweets
+     * <p>
+     * The user's tweets, as GET users/@{username}/tweets.
+     */
+    Flux<TweetResponseDto> getUserTweets(String username);
+
+    /**
+     * GET reactive/users/@{username}/mentions
+     * <p>
+     * The tweets mentioning the user, as GET users/@{username}/mentions.
+     */
+    Flux<TweetResponseDto> getMentions(String username);
+
+    /**
+     * GET reactive/tweets
+     * <p>
+     * All non-deleted tweets in reverse-chronological order.
+     */
+    Flux<TweetResponseDto> getTweets();
+
+    /**
+     * GET reactive/tweets/{id}
+     * <p>
+     * The non-deleted tweet with the given id.
+     */
+    Mono<TweetResponseDto> getTweet(Long id);
+
+    /**
+     * GET reactive/tags
+     * <p>
+     * All non-deleted hashtags.
+     */
+    Flux<HashtagDto> getTags();
+
+    /**
+     * GET reactive/tags/{label}
+     * <p>
+     * The tweets tagged with the given label, as GET tags/{label}.
+     */
+    Flux<TweetResponseDto> getTweetsWithLabel(String label);
+
+}
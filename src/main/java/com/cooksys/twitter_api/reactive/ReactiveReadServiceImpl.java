@@ -0,0 +1,196 @@
+package com.cooksys.twitter_api.reactive;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+
+import com.cooksys.twitter_api.dtos.HashtagDto;
+import com.cooksys.twitter_api.dtos.ProfileDto;
+import com.cooksys.twitter_api.dtos.TweetResponseDto;
+import com.cooksys.twitter_api.dtos.UserResponseDto;
+import com.cooksys.twitter_api.entities.Hashtag;
+import com.cooksys.twitter_api.exceptions.NotFoundException;
+import com.cooksys.twitter_api.sharding.Shards;
+import com.cooksys.twitter_api.storage.TweetContentStore;
+
+import io.r2dbc.spi.Readable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reads the one database of spring.r2dbc.url with plain SQL, so it cannot serve a sharded deployment. The queries
+ * are those of the {@code stream*} methods of TweetRepository and HashtagRepository; the tweets a tweet replies to or
+ * reposts are read by id as each row arrives, as CachingTweetMapper embeds them, but not through the fragment cache.
+ */
+@Service
+@ConditionalOnProperty(name = "twitter.reactive.enabled", havingValue = "true")
+public class ReactiveReadServiceImpl implements ReactiveReadService {
+
+    // rows fetched per round trip, as TweetRepository.STREAM_FETCH_SIZE
+    private static final int FETCH_SIZE = 256;
+
+    // rows whose embedded tweets are read at once; their order is kept
+    private static final int EMBED_CONCURRENCY = 16;
+
+    private static final String TWEET_COLUMNS = "select t.id, t.posted, t.content, t.in_reply_to_id, t.repost_of_id,"
+            + " u.username, u.first_name, u.last_name, u.email, u.phone, u.joined"
+            + " from tweet t join user_table u on u.id = t.user_id";
+
+    private record TweetRow(TweetResponseDto tweet, Long inReplyToId, Long repostOfId) {
+    }
+
+    private final DatabaseClient databaseClient;
+    private final TweetContentStore tweetContentStore;
+
+    public ReactiveReadServiceImpl(DatabaseClient databaseClient, TweetContentStore tweetContentStore, Shards shards) {
+        if (shards.isSharded()) {
+            throw new IllegalStateException("The reactive read API reads a single database and cannot run with shards");
+        }
+        this.databaseClient = databaseClient;
+        this.tweetContentStore = tweetContentStore;
+    }
+
+    @Override
+    public Flux<TweetResponseDto> getFeed(String username) {
+        return activeUserId(username).flatMapMany(userId -> tweets(databaseClient.sql(TWEET_COLUMNS
+                        + " where t.deleted = false and (t.user_id = :userId or t.user_id in"
+                        + " (select f.following_id from user_table_following f"
+                        + " join user_table a on a.id = f.following_id"
+                        + " where f.followers_id = :userId and a.deleted = false))"
+                        + " order by t.posted desc")
+                .bind("userId", userId)));
+    }
+
+    @Override
+    public Flux<TweetResponseDto> getUserTweets(String username) {
+        return activeUserId(username).flatMapMany(userId -> tweets(databaseClient.sql(TWEET_COLUMNS
+                        + " where t.deleted = false and t.user_id = :userId order by t.posted desc")
+                .bind("userId", userId)));
+    }
+
+    @Override
+    public Flux<TweetResponseDto> getMentions(String username) {
+        return activeUserId(username).flatMapMany(userId -> tweets(databaseClient.sql(TWEET_COLUMNS
+                        + " join user_table_mentions_tweet_list m on m.mentions_tweet_list_id = t.id"
+                        + " where m.mentions_userlist_id = :userId and t.deleted = false order by t.posted desc")
+                .bind("userId", userId)));
+    }
+
+    @Override
+    public Flux<TweetResponseDto> getTweets() {
+        return tweets(databaseClient.sql(TWEET_COLUMNS + " where t.deleted = false order by t.posted desc"));
+    }
+
+    @Override
+    public Mono<TweetResponseDto> getTweet(Long id) {
+        return databaseClient.sql(TWEET_COLUMNS + " where t.id = :id and t.deleted = false")
+                .bind("id", id)
+                .map(this::tweetRow)
+                .one()
+                .switchIfEmpty(Mono.error(() -> new NotFoundException("Tweet not found with id: " + id)))
+                .flatMap(this::withEmbedded);
+    }
+
+    @Override
+    public Flux<HashtagDto> getTags() {
+        return databaseClient.sql("select label, first_used, last_used from hashtag where deleted = false"
+                        + " order by label_key")
+                .filter(statement -> statement.fetchSize(FETCH_SIZE))
+                .map(row -> {
+                    HashtagDto hashtag = new HashtagDto();
+                    hashtag.setLabel(row.get("label", String.class));
+                    hashtag.setFirstUsed(timestamp(row, "first_used"));
+                    hashtag.setLastUsed(timestamp(row, "last_used"));
+                    return hashtag;
+                })
+                .all();
+    }
+
+    @Override
+    public Flux<TweetResponseDto> getTweetsWithLabel(String label) {
+        return databaseClient.sql("select id from hashtag where label_key = :labelKey and deleted = false")
+                .bind("labelKey", Hashtag.keyOf(label))
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .switchIfEmpty(Mono.error(
+                        () -> new NotFoundException("There are no tweets with the hashtag: " + label)))
+                .flatMapMany(hashtagId -> tweets(databaseClient.sql(TWEET_COLUMNS
+                                + " join tweet_hashtag_list h on h.tweet_list_id = t.id"
+                                + " where h.hashtag_list_id = :hashtagId and t.deleted = false order by t.posted desc")
+                        .bind("hashtagId", hashtagId)));
+    }
+
+    private Mono<Long> activeUserId(String username) {
+        return databaseClient.sql("select id from user_table where username = :username and deleted = false")
+                .bind("username", username)
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .switchIfEmpty(Mono.error(
+                        () -> new NotFoundException(String.format("User not found with username @%s", username))));
+    }
+
+    private Flux<TweetResponseDto> tweets(DatabaseClient.GenericExecuteSpec query) {
+        return query.filter(statement -> statement.fetchSize(FETCH_SIZE))
+                .map(this::tweetRow)
+                .all()
+                .flatMapSequential(this::withEmbedded, EMBED_CONCURRENCY);
+    }
+
+    /**
+     * Any tweet, deleted or not, as the tweet a reply or repost embeds; empty when there is no such row.
+     */
+    private Mono<TweetResponseDto> embedded(long id) {
+        return databaseClient.sql(TWEET_COLUMNS + " where t.id = :id")
+                .bind("id", id)
+                .map(this::tweetRow)
+                .one()
+                .flatMap(this::withEmbedded);
+    }
+
+    private Mono<TweetResponseDto> withEmbedded(TweetRow row) {
+        return Mono.zip(embeddedOrEmpty(row.inReplyToId()), embeddedOrEmpty(row.repostOfId()),
+                (inReplyTo, repostOf) -> {
+                    row.tweet().setInReplyTo(inReplyTo.orElse(null));
+                    row.tweet().setRepostOf(repostOf.orElse(null));
+                    return row.tweet();
+                });
+    }
+
+    private Mono<Optional<TweetResponseDto>> embeddedOrEmpty(Long id) {
+        if (id == null) {
+            return Mono.just(Optional.empty());
+        }
+        return embedded(id).map(Optional::of).defaultIfEmpty(Optional.empty());
+    }
+
+    private TweetRow tweetRow(Readable row) {
+        ProfileDto profile = new ProfileDto();
+        profile.setFirstName(row.get("first_name", String.class));
+        profile.setLastName(row.get("last_name", String.class));
+        profile.setEmail(row.get("email", String.class));
+        profile.setPhone(row.get("phone", String.class));
+        UserResponseDto author = new UserResponseDto();
+        author.setUsername(row.get("username", String.class));
+        author.setProfile(profile);
+        author.setJoined(timestamp(row, "joined"));
+
+        TweetResponseDto tweet = new TweetResponseDto();
+        tweet.setId(row.get("id", Long.class));
+        tweet.setAuthor(author);
+        tweet.setPosted(timestamp(row, "posted"));
+        String content = row.get("content", String.class);
+        // bodies moved out of the table by earlier versions of the content store, see TweetContentResolver
+        tweet.setContent(content != null ? content : tweetContentStore.read(tweet.getId()));
+        return new TweetRow(tweet, row.get("in_reply_to_id", Long.class), row.get("repost_of_id", Long.class));
+    }
+
+    private static Timestamp timestamp(Readable row, String column) {
+        LocalDateTime value = row.get(column, LocalDateTime.class);
+        return value == null ? null : Timestamp.valueOf(value);
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.cooksys.twitter_api.repositories;
+
+import java.util.Optional;
+
+import com.cooksys.twitter_api.entities.Hashtag;
+
+/**
+ * Lookups of hashtags by their natural id, the lower-cased label, which go through the second-level natural-id cache
+ * instead of a query. Labels are matched case-insensitively.
+ */
+public interface HashtagLabelRepository {
+
+	Optional<Hashtag> findByLabel(String label);
+
+}
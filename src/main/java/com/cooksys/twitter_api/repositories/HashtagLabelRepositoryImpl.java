@@ -0,0 +1,22 @@
+package com.cooksys.twitter_api.repositories;
+
+import java.util.Optional;
+
+import org.hibernate.Session;
+
+import com.cooksys.twitter_api.entities.Hashtag;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+class HashtagLabelRepositoryImpl implements HashtagLabelRepository {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public Optional<Hashtag> findByLabel(String label) {
+		return entityManager.unwrap(Session.class).bySimpleNaturalId(Hashtag.class).loadOptional(Hashtag.keyOf(label));
+	}
+
+}
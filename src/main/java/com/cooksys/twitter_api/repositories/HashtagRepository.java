@@ -1,22 +1,72 @@
 package com.cooksys.twitter_api.repositories;
 
+import java.sql.Timestamp;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import com.cooksys.twitter_api.entities.Hashtag;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
-public interface HashtagRepository extends JpaRepository<Hashtag, Long> {
+public interface HashtagRepository extends JpaRepository<Hashtag, Long>, HashtagLabelRepository {
 
-	Optional<Hashtag> findByLabelAndDeletedFalse(String label);
+	default Optional<Hashtag> findByLabelAndDeletedFalse(String label) {
+		return findByLabel(label).filter(hashtag -> !hashtag.isDeleted());
+	}
 
 	Optional<Hashtag> findByIdAndDeletedFalse(Long id);
 
 	List<Hashtag> findAllByDeletedFalse();
-	
-	Optional<Hashtag> findByLabel(String label);
+
+	@QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = TweetRepository.STREAM_FETCH_SIZE),
+			@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+	// by key, so the streams of several shards can be merged and the rows of one tag combined
+	@Query("select h from Hashtag h where h.deleted = false order by h.labelKey")
+	Stream<Hashtag> streamAll();
+
+	/**
+	 * Every change to the hashtag table either adds a row or moves lastUsed to now, so the row count and the latest
+	 * lastUsed together identify the state of the whole collection.
+	 */
+	@Query("select count(h) as count, max(h.lastUsed) as lastUsed from Hashtag h")
+	CollectionVersionView findCollectionVersion();
+
+	@Query("select h.id from Hashtag h where h.labelKey = :labelKey")
+	Optional<Long> findIdByLabelKey(String labelKey);
+
+	@Query("select h.labelKey as labelKey, h.id as id from Hashtag h")
+	List<LabelKeyView> findAllLabelKeys();
+
+	@Query("select h.label as label, size(h.tweetList) as uses from Hashtag h where h.deleted = false")
+	List<UseCountView> findAllUseCountsByDeletedFalse();
+
+	@Query("select h.label as label, size(h.tweetList) as uses from Hashtag h where h.id = :id and h.deleted = false")
+	Optional<UseCountView> findUseCountById(Long id);
+
+	interface LabelKeyView {
+		String getLabelKey();
+
+		Long getId();
+	}
+
+	interface UseCountView {
+		String getLabel();
+
+		long getUses();
+	}
+
+	interface CollectionVersionView {
+		long getCount();
+
+		Timestamp getLastUsed();
+	}
 
 }
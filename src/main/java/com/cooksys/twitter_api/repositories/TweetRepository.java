@@ -1,17 +1,276 @@
 package com.cooksys.twitter_api.repositories;
 
 import com.cooksys.twitter_api.entities.Tweet;
+import com.cooksys.twitter_api.entities.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TweetRepository extends JpaRepository<Tweet, Long> {
 
+    /**
+     * Rows per round trip for the stream* queries, which read through a database cursor while the caller consumes the
+     * stream. The stream must be closed inside the transaction.
+     */
+    String STREAM_FETCH_SIZE = "256";
+
     Optional<Tweet> findByIdAndDeletedFalse(Long id);
 
     List<Tweet> findAllByDeletedFalse();
 
+    /**
+     * Batch lookup for multi-get, fetching the authors and parent tweets a TweetResponseDto embeds in the same query.
+     */
+    @EntityGraph(attributePaths = { "author", "inReplyTo", "inReplyTo.author", "repostOf", "repostOf.author" })
+    List<Tweet> findAllByIdInAndDeletedFalse(Collection<Long> ids);
+
+    /**
+     * Live replies to any tweet of the given author. The inner join lets the database start from the author's tweets;
+     * the derived query would outer join and scan the replies.
+     */
+    @Query("select t from Tweet t join t.inReplyTo r where r.author = :author and t.deleted = false")
+    List<Tweet> findRepliesToAuthor(User author);
+
+    /**
+     * Live replies on this shard to any of the given tweets, which may live on other shards.
+     */
+    List<Tweet> findAllByInReplyToIdInAndDeletedFalse(Collection<Long> inReplyToIds);
+
+    List<Tweet> findAllByRepostOfIdAndDeletedFalse(Long repostOfId);
+
+    /**
+     * Live tweets of the given authors, with what a TweetResponseDto embeds.
+     */
+    @EntityGraph(attributePaths = { "author", "inReplyTo", "inReplyTo.author", "repostOf", "repostOf.author" })
+    @Query("select t from Tweet t where t.author.id in :authorIds and t.deleted = false")
+    List<Tweet> findAllByAuthorIdInAndDeletedFalse(Collection<Long> authorIds);
+
+    /**
+     * Live tweets stamped after {@code after}, oldest first; the feed streams follow new tweets with it.
+     */
+    @Query("select t.id as id, t.author.id as authorId, t.modified as modified from Tweet t"
+            + " where t.deleted = false and t.modified > :after order by t.modified, t.id")
+    List<StampView> findStampsModifiedAfter(Timestamp after, Pageable page);
+
+    /**
+     * {@link #findStampsModifiedAfter(Timestamp, Pageable)} for the given authors only.
+     */
+    @Query("select t.id as id, t.author.id as authorId, t.modified as modified from Tweet t"
+            + " where t.deleted = false and t.author.id in :authorIds and t.modified > :after"
+            + " order by t.modified, t.id")
+    List<StampView> findStampsByAuthorIdInModifiedAfter(Collection<Long> authorIds, Timestamp after, Pageable page);
+
+    /**
+     * Which tweet each tweet of this shard replies to, for putting reply chains together across shards.
+     */
+    @Query("select t.id as id, t.inReplyToId as inReplyToId from Tweet t")
+    List<ReplyView> findAllReplies();
+
+    /**
+     * Version counters of a tweet and its author, and the ids of the tweets it replies to or reposts, for the tweet and
+     * every tweet it embeds however deep, in one recursive query instead of loading the entity graph. Rows come in no
+     * particular order; embedded tweets that no longer exist have none.
+     */
+    @Query(nativeQuery = true, value = "with recursive chain (id) as ("
+            + " select t.id from tweet t where t.id = :id"
+            + " union select e.id from chain c join tweet t on t.id = c.id"
+            + " join tweet e on e.id = t.in_reply_to_id or e.id = t.repost_of_id)"
+            + " select t.id as \"id\", t.version as \"version\", t.deleted as \"deleted\","
+            + " coalesce(t.modified, t.posted) as \"modified\", a.version as \"authorVersion\","
+            + " a.modified as \"authorModified\", t.in_reply_to_id as \"inReplyToId\","
+            + " t.repost_of_id as \"repostOfId\""
+            + " from chain c join tweet t on t.id = c.id join user_table a on a.id = t.user_id")
+    List<VersionView> findVersionChainById(Long id);
+
+    /**
+     * Content of every live tweet without loading the entities, for building the search index. Content is null for
+     * tweets whose body was moved to the content store.
+     */
+    @Query("select t.id as id, t.posted as posted, t.content as content from Tweet t where t.deleted = false")
+    List<ContentView> findAllContentByDeletedFalse();
+
+    @Query("select t.id as id, t.author.id as authorId, t.posted as posted, t.content as content,"
+            + " t.deleted as deleted from Tweet t where t.id = :id")
+    Optional<IndexedView> findIndexedById(Long id);
+
+    @Query("select t.id from Tweet t where t.author.id in :authorIds")
+    List<Long> findIdsByAuthorIdIn(Collection<Long> authorIds);
+
+    @Query("select t.id from Tweet t where t.author.id in :authorIds and t.deleted = false")
+    List<Long> findIdsByAuthorIdInAndDeletedFalse(Collection<Long> authorIds);
+
+    /**
+     * Authors of the given tweets, deleted tweets included, without loading the entities.
+     */
+    @Query("select t.id as id, t.author.id as authorId from Tweet t where t.id in :ids")
+    List<AuthorView> findAuthorsByIdIn(Collection<Long> ids);
+
+    /**
+     * Live tweets mentioning the user, newest first, with what a TweetResponseDto embeds. Only finds the mentions of
+     * users on this shard; see {@link #findIdsMentioning(Long)}.
+     */
+    @EntityGraph(attributePaths = { "author", "inReplyTo", "inReplyTo.author", "repostOf", "repostOf.author" })
+    @Query("select t from Tweet t join t.mentionsUserlist u where t.deleted = false and u.id = :userId"
+            + " order by t.posted desc")
+    List<Tweet> findMentioning(Long userId);
+
+    // A tweet's mentions are stored with it, and the users mentioned may live on other shards, so the queries below
+    // read the join table by id rather than joining the user table.
+
+    /**
+     * Tweets of this shard mentioning the user, deleted tweets included.
+     */
+    @Query(nativeQuery = true, value = "select mentions_tweet_list_id from user_table_mentions_tweet_list"
+            + " where mentions_userlist_id = :userId")
+    List<Long> findIdsMentioning(Long userId);
+
+    /**
+     * Which of the given tweets mention the user, deleted tweets included.
+     */
+    @Query(nativeQuery = true, value = "select mentions_tweet_list_id from user_table_mentions_tweet_list"
+            + " where mentions_userlist_id = :userId and mentions_tweet_list_id in :ids")
+    List<Long> findIdsMentioningUser(Long userId, Collection<Long> ids);
+
+    @Query(nativeQuery = true, value = "select mentions_userlist_id from user_table_mentions_tweet_list"
+            + " where mentions_tweet_list_id = :id")
+    List<Long> findMentionedUserIdsById(Long id);
+
+    @EntityGraph(attributePaths = { "author", "inReplyTo", "repostOf" })
+    @QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+    @Query("select t from Tweet t where t.deleted = false and (t.author.id = :userId or t.author.id in"
+            + " (select f.id from User u join u.following f where u.id = :userId and f.deleted = false))"
+            + " order by t.posted desc")
+    Stream<Tweet> streamFeed(Long userId);
+
+    @EntityGraph(attributePaths = { "author", "inReplyTo", "repostOf" })
+    @QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+    @Query("select t from Tweet t where t.deleted = false and t.author.id = :userId order by t.posted desc")
+    Stream<Tweet> streamByAuthor(Long userId);
+
+    @EntityGraph(attributePaths = { "author", "inReplyTo", "repostOf" })
+    @QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+    @Query("select t from Tweet t join t.mentionsUserlist u where t.deleted = false and u.id = :userId"
+            + " order by t.posted desc")
+    Stream<Tweet> streamMentioning(Long userId);
+
+    /**
+     * {@link #streamMentioning(Long)} for users of any shard.
+     */
+    @QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+    @Query(nativeQuery = true, value = "select t.* from tweet t"
+            + " join user_table_mentions_tweet_list m on m.mentions_tweet_list_id = t.id"
+            + " where m.mentions_userlist_id = :userId and t.deleted = false order by t.posted desc")
+    Stream<Tweet> streamMentioningById(Long userId);
+
+    @EntityGraph(attributePaths = { "author", "inReplyTo", "repostOf" })
+    @QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+    @Query("select t from Tweet t where t.deleted = false and t.author.id in :authorIds order by t.posted desc")
+    Stream<Tweet> streamByAuthorIdIn(Collection<Long> authorIds);
+
+    @EntityGraph(attributePaths = { "author", "inReplyTo", "repostOf" })
+    @QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+    @Query("select t from Tweet t join t.hashtagList h where t.deleted = false and h.id = :hashtagId"
+            + " order by t.posted desc")
+    Stream<Tweet> streamTaggedWith(Long hashtagId);
+
+    @EntityGraph(attributePaths = { "author", "inReplyTo", "repostOf" })
+    @QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+    @Query("select t from Tweet t where t.deleted = false order by t.posted desc")
+    Stream<Tweet> streamAll();
+
+    interface ContentView {
+        Long getId();
+
+        Timestamp getPosted();
+
+        String getContent();
+    }
+
+    @Query("select t.id as id, t.deleted as deleted from Tweet t where t.author.id in :authorIds"
+            + " and t.modified > :since")
+    List<ChangeView> findChangesByAuthorIdIn(Collection<Long> authorIds, Timestamp since);
+
+    /**
+     * Tweets on this shard mentioning the user, created or deleted after {@code since}.
+     */
+    @Query(nativeQuery = true, value = "select t.id as id, t.deleted as deleted from tweet t"
+            + " join user_table_mentions_tweet_list m on m.mentions_tweet_list_id = t.id"
+            + " where m.mentions_userlist_id = :userId and t.modified > :since")
+    List<ChangeView> findChangesMentioning(Long userId, Timestamp since);
+
+    interface StampView {
+        long getId();
+
+        long getAuthorId();
+
+        Timestamp getModified();
+    }
+
+    interface ChangeView {
+        long getId();
+
+        boolean isDeleted();
+    }
+
+    interface IndexedView {
+        Long getId();
+
+        Long getAuthorId();
+
+        Timestamp getPosted();
+
+        String getContent();
+
+        boolean isDeleted();
+    }
+
+    interface ReplyView {
+        Long getId();
+
+        Long getInReplyToId();
+    }
+
+    interface AuthorView {
+        Long getId();
+
+        Long getAuthorId();
+    }
+
+    interface VersionView {
+        Long getId();
+
+        long getVersion();
+
+        boolean isDeleted();
+
+        Timestamp getModified();
+
+        long getAuthorVersion();
+
+        Timestamp getAuthorModified();
+
+        Long getInReplyToId();
+
+        Long getRepostOfId();
+    }
+
 }
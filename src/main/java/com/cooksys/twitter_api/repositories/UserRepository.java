@@ -1,24 +1,176 @@
 package com.cooksys.twitter_api.repositories;
 
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import com.cooksys.twitter_api.entities.User;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
+    /**
+     * Username lookups use the query cache: the username lives in the embedded credentials, so it cannot be the
+     * natural id. Cached results are invalidated by any write to the user table, soft deletes and reactivations
+     * included.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<User> findByCredentialsUsernameAndDeletedFalse(String username);
 
     List<User> findAllByDeletedFalse();
 
-    List<User> findAllByDeletedFalseAndIdIn(List<Long> ids);
-
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<User> findByCredentialsUsername(String username);
 
+    List<User> findAllByCredentialsUsernameInAndDeletedFalse(Collection<String> usernames);
+
     Optional<User> findByIdAndDeletedFalse(Long id);
 
+    @Query("select u.version as version, coalesce(u.modified, u.joined) as modified from User u"
+            + " where u.credentials.username = :username and u.deleted = false")
+    Optional<VersionView> findVersionByCredentialsUsernameAndDeletedFalse(String username);
+
+    List<User> findAllByDeletedFalseAndIdIn(Collection<Long> ids);
+
+    @Query("select u.id from User u where u.id in :ids and u.deleted = false")
+    List<Long> findIdsByIdInAndDeletedFalse(Collection<Long> ids);
+
+    @Query("select u.id from User u where u.credentials.username in :usernames and u.deleted = false")
+    List<Long> findIdsByCredentialsUsernameInAndDeletedFalse(Collection<String> usernames);
+
+    /**
+     * Every user of this shard, without loading the entities, for building the indexes.
+     */
+    @Query("select u.id as id, u.credentials.username as username, u.deleted as deleted from User u")
+    List<UsernameView> findAllUsernames();
+
+    @Query("select u.id as id, u.credentials.username as username, u.deleted as deleted from User u"
+            + " where u.id = :id")
+    Optional<UsernameView> findUsernameById(Long id);
+
+    // Follows, likes and mentions are stored with the user or tweet that makes them, on its shard, and the user or
+    // tweet on the other end may live on another one. The queries below read and write the join tables by id, since
+    // joining the other end's table would drop every row pointing to another shard. Writes name the table they touch,
+    // so Hibernate does not have to treat them as changing every cached entity.
+
+    /**
+     * Followers per user among the follows stored on this shard, that is made by its users.
+     */
+    @Query(nativeQuery = true, value = "select following_id as \"id\", count(*) as \"followers\""
+            + " from user_table_following group by following_id")
+    List<FollowerCountView> findAllFollowerCounts();
+
+    @Query(nativeQuery = true, value = "select count(*) from user_table_following where following_id = :id")
+    long countFollowersById(Long id);
+
+    @Query(nativeQuery = true, value = "select following_id from user_table_following where followers_id = :id")
+    List<Long> findFollowingIdsById(Long id);
+
+    @Query(nativeQuery = true, value = "select followers_id as \"followerId\", following_id as \"followingId\""
+            + " from user_table_following")
+    List<FollowView> findAllFollows();
+
+    @Query(nativeQuery = true, value = "select followers_id as \"followerId\", following_id as \"followingId\""
+            + " from user_table_following where followers_id in (:followerIds) and following_id in (:followingIds)")
+    List<FollowView> findFollowsAmong(Collection<Long> followerIds, Collection<Long> followingIds);
+
+    @Query(nativeQuery = true, value = "select count(*) > 0 from user_table_following"
+            + " where followers_id = :followerId and following_id = :followingId")
+    boolean existsFollow(Long followerId, Long followingId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "user_table_following"))
+    @Query(nativeQuery = true, value = "insert into user_table_following (followers_id, following_id)"
+            + " values (:followerId, :followingId)")
+    void insertFollow(Long followerId, Long followingId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "user_table_following"))
+    @Query(nativeQuery = true, value = "delete from user_table_following"
+            + " where followers_id = :followerId and following_id = :followingId")
+    void deleteFollow(Long followerId, Long followingId);
+
+    /**
+     * Active users of this shard following the given user, who may live on any shard.
+     */
+    @Query(nativeQuery = true, value = "select u.* from user_table u"
+            + " join user_table_following f on f.followers_id = u.id where f.following_id = :id and u.deleted = false")
+    List<User> findAllActiveFollowersById(Long id);
+
+    @Query(nativeQuery = true, value = "select count(*) > 0 from user_table_likes_tweet_list"
+            + " where likes_user_list_id = :userId and likes_tweet_list_id = :tweetId")
+    boolean existsLike(Long userId, Long tweetId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "user_table_likes_tweet_list"))
+    @Query(nativeQuery = true, value = "insert into user_table_likes_tweet_list"
+            + " (likes_user_list_id, likes_tweet_list_id) values (:userId, :tweetId)")
+    void insertLike(Long userId, Long tweetId);
+
+    /**
+     * Users of this shard liking the given tweet, which may live on any shard.
+     */
+    @Query(nativeQuery = true, value = "select u.* from user_table u join user_table_likes_tweet_list l"
+            + " on l.likes_user_list_id = u.id where l.likes_tweet_list_id = :tweetId")
+    List<User> findAllLikingTweet(Long tweetId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "user_table_mentions_tweet_list"))
+    @Query(nativeQuery = true, value = "insert into user_table_mentions_tweet_list"
+            + " (mentions_userlist_id, mentions_tweet_list_id) values (:userId, :tweetId)")
+    void insertMention(Long userId, Long tweetId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "user_table_following"))
+    @Query(nativeQuery = true, value = "update user_table set following_modified = :modified where id = :id")
+    void updateFollowingModified(Long id, Timestamp modified);
+
+    @Query(nativeQuery = true, value = "select following_modified from user_table where id = :id")
+    Timestamp findFollowingModifiedById(Long id);
+
+    @Query("select u.id as id, u.deleted as deleted from User u where u.id in :ids and u.modified > :since")
+    List<ChangeView> findChangesByIdIn(Collection<Long> ids, Timestamp since);
+
+    interface ChangeView {
+        long getId();
+
+        boolean isDeleted();
+    }
+
+    interface UsernameView {
+        long getId();
+
+        String getUsername();
+
+        boolean isDeleted();
+    }
+
+    interface FollowerCountView {
+        long getId();
+
+        long getFollowers();
+    }
+
+    interface FollowView {
+        long getFollowerId();
+
+        long getFollowingId();
+    }
+
+    interface VersionView {
+        long getVersion();
+
+        Timestamp getModified();
+    }
+
 }
@@ -0,0 +1,19 @@
+package com.cooksys.twitter_api.service;
+
+import java.util.List;
+
+import com.cooksys.twitter_api.dtos.SuggestionDto;
+
+public interface AutocompleteService {
+
+    /**
+     * GET users/autocomplete?prefix=
+     */
+    List<SuggestionDto> completeUsername(String prefix, int limit);
+
+    /**
+     * GET tags/autocomplete?prefix=
+     */
+    List<SuggestionDto> completeLabel(String prefix, int limit);
+
+}
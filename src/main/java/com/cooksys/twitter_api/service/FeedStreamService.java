@@ -0,0 +1,17 @@
+package com.cooksys.twitter_api.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface FeedStreamService {
+
+    /**
+     * GET users/@{username}/feed/stream
+     * <p>
+     * Server-Sent Events stream of the tweets, replies and reposts entering the user's feed, each pushed as a
+     * {@code tweet} event holding a Tweet once it is committed. Event ids can be sent back as {@code Last-Event-ID} to
+     * resume after a disconnect. If no active user with that username exists, an error should be sent in lieu of a
+     * response.
+     */
+    SseEmitter streamFeed(String username, String lastEventId);
+
+}
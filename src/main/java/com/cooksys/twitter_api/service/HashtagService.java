@@ -3,6 +3,9 @@ package com.cooksys.twitter_api.service;
 import java.util.List;
 
 import com.cooksys.twitter_api.dtos.HashtagDto;
+import com.cooksys.twitter_api.dtos.HashtagStatsDto;
+import com.cooksys.twitter_api.dtos.NormalizedTweetListDto;
+import com.cooksys.twitter_api.dtos.ResourceVersionDto;
 import com.cooksys.twitter_api.dtos.TweetResponseDto;
 
 public interface HashtagService {
@@ -20,6 +23,11 @@ public interface HashtagService {
 	 */
 	List<HashtagDto> getAllHashtags();
 
+	/**
+	 * ETag and Last-Modified of GET tags
+	 */
+	ResourceVersionDto getAllHashtagsVersion();
+
 	/**
 	 * GET tags/{label} endpoint #61
 	 * 
@@ -31,4 +39,21 @@ public interface HashtagService {
 	 */
 	List<TweetResponseDto> getTweetsWithLabel(String label);
 
+	/**
+	 * GET tags/{label}?view=normalized
+	 * 
+	 * Same tweets as {@link #getTweetsWithLabel(String)}, as ids plus de-duplicated tweets and users.
+	 */
+	NormalizedTweetListDto getTweetsWithLabelNormalized(String label);
+
+	/**
+	 * GET tags/{label}/stats
+	 * 
+	 * Uses of the hashtag per minute, hour or day bucket in {@code [from, to)} (epoch milliseconds; by default the
+	 * last 60 minutes, 48 hours or 30 days), estimated unique authors per bucket and over the range, and the users
+	 * who used the tag most. Read from the usage rollups only. Buckets older than their granularity's retention have
+	 * been folded into coarser ones and show up at the start of the requested bucket they fall in.
+	 */
+	HashtagStatsDto getHashtagStats(String label, String granularity, Long from, Long to, int top);
+
 }
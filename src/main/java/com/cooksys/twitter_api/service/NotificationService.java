@@ -0,0 +1,32 @@
+package com.cooksys.twitter_api.service;
+
+import com.cooksys.twitter_api.dtos.CredentialsDto;
+import com.cooksys.twitter_api.dtos.NotificationCountDto;
+import com.cooksys.twitter_api.dtos.NotificationPageDto;
+
+public interface NotificationService {
+
+    /**
+     * GET users/@{username}/notifications?before=&limit=
+     * <p>
+     * The user's notifications, newest first, at most {@code limit} per page: mentions, and likes, reposts and replies
+     * of their tweets and new followers, with repeats of the same thing collapsed into one notification counting
+     * them. Pass the page's {@code next} as {@code before} for the following page. If no active user with that
+     * username exists, an error should be sent in lieu of a response.
+     */
+    NotificationPageDto getNotifications(String username, Long before, int limit);
+
+    /**
+     * GET users/@{username}/notifications/unread
+     */
+    NotificationCountDto getUnreadCount(String username);
+
+    /**
+     * POST users/@{username}/notifications/read?upTo=
+     * <p>
+     * Marks the user's notifications up to and including the id {@code upTo} read, all of them when it is not given,
+     * and returns what is still unread. The credentials must be the user's own.
+     */
+    NotificationCountDto markRead(String username, Long upTo, CredentialsDto credentialsDto);
+
+}
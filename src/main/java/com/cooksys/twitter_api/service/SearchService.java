@@ -0,0 +1,15 @@
+package com.cooksys.twitter_api.service;
+
+import com.cooksys.twitter_api.dtos.SearchResultDto;
+
+public interface SearchService {
+
+    /**
+     * GET search/tweets?q=
+     * <p>
+     * Tweets containing every word of the query, with quoted phrases matching adjacent words only, ordered by
+     * relevance ({@code sort=relevance}, the default) or newest first ({@code sort=recent}). Paged by cursor.
+     */
+    SearchResultDto searchTweets(String query, String sort, String cursor, int limit);
+
+}
@@ -0,0 +1,62 @@
+package com.cooksys.twitter_api.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Streaming variants of the main read endpoints. Each writes newline-delimited JSON (one object per line, in the same
+ * order as the list endpoint) as rows come off a database cursor, instead of building the whole list first, and runs
+ * off the servlet request thread. Lookups that can fail are done before the response starts, so a missing user,
+ * hashtag or tweet is still reported as an error in lieu of a response.
+ */
+public interface StreamingReadService {
+
+    /**
+     * GET stream/users/@{username}/feed
+     * <p>
+     * The user's feed, as GET users/@{username}/feed, one Tweet per line.
+     */
+    StreamingResponseBody streamFeed(String username);
+
+    /**
+     * GET stream/users/@{username}/tweets
+     * <p>
+     * The user's tweets, as GET users/@{username}/tweets, one Tweet per line.
+     */
+    StreamingResponseBody streamUserTweets(String username);
+
+    /**
+     * GET stream/users/@{username}/mentions
+     * <p>
+     * The tweets mentioning the user, as GET users/@{username}/mentions, one Tweet per line.
+     */
+    StreamingResponseBody streamMentions(String username);
+
+    /**
+     * GET stream/tweets
+     * <p>
+     * All non-deleted tweets in reverse-chronological order, one Tweet per line.
+     */
+    StreamingResponseBody streamTweets();
+
+    /**
+     * GET stream/tweets/{id}
+     * <p>
+     * The tweet with the given id as a single line.
+     */
+    StreamingResponseBody streamTweet(Long id);
+
+    /**
+     * GET stream/tags
+     * <p>
+     * All non-deleted hashtags, one Hashtag per line.
+     */
+    StreamingResponseBody streamTags();
+
+    /**
+     * GET stream/tags/{label}
+     * <p>
+     * The tweets tagged with the given label, as GET tags/{label}, one Tweet per line.
+     */
+    StreamingResponseBody streamTweetsWithLabel(String label);
+
+}
@@ -22,6 +22,10 @@ public interface TweetService {
 	  void likeTweet(Long id, CredentialsDto credentialsDto);
 	  
 	  List<TweetResponseDto> getTweets();
+
+	  NormalizedTweetListDto getTweetsNormalized();
+
+	  List<BatchItemDto<TweetResponseDto>> getTweetsByIds(List<Long> ids);
 		  
 	  TweetResponseDto deleteTweet(Long id, CredentialsDto credentialsDto);	
 
@@ -30,6 +34,8 @@ public interface TweetService {
 	  TweetResponseDto getTweet(Long id);
 	  
 	  ContextDto getContext(Long id);
+
+	  ResourceVersionDto getTweetVersion(Long id);
 	  
 	  List<TweetResponseDto> getReplies(Long id);
 
@@ -12,6 +12,11 @@ public interface UserService {
      */
     UserResponseDto getUser(String username);
 
+    /**
+     * ETag and Last-Modified of GET users/@{username}
+     */
+    ResourceVersionDto getUserVersion(String username);
+
     /**
      * PATCH users/@{username}
      * #41
@@ -42,18 +47,46 @@ public interface UserService {
      */
     List<TweetResponseDto> getFeed(String username);
 
+    /**
+     * GET users/@{username}/feed?view=normalized
+     */
+    NormalizedTweetListDto getFeedNormalized(String username);
+
+    /**
+     * GET users/@{username}/feed?since=
+     * Changes to the feed since the sync token: tweets added, ids of tweets removed, and the token for the next sync.
+     * An empty token, or one too old to compute a delta from, gets the full feed with {@code reset} set.
+     */
+    SyncDto getFeedSince(String username, String since);
+
     /**
      * GET users/@{username}/tweets
      * #66
      */
     List<TweetResponseDto> getTweets(String username);
 
+    /**
+     * GET users/@{username}/tweets?view=normalized
+     */
+    NormalizedTweetListDto getTweetsNormalized(String username);
+
     /**
      * GET users/@{username}/mentions
      * #65
      */
     List<TweetResponseDto> getMentions(String username);
 
+    /**
+     * GET users/@{username}/mentions?view=normalized
+     */
+    NormalizedTweetListDto getMentionsNormalized(String username);
+
+    /**
+     * GET users/@{username}/mentions?since=
+     * Changes to the mentions since the sync token, as for the feed.
+     */
+    SyncDto getMentionsSince(String username, String since);
+
     /**
      * GET users/@{username}/followers
      * #64
@@ -72,6 +105,11 @@ public interface UserService {
      */
     List<UserResponseDto> getAllUsers();
 
+    /**
+     * GET users?usernames=
+     */
+    List<BatchItemDto<UserResponseDto>> getUsersByUsernames(List<String> usernames);
+
     /**
      * POST users
      * #43
@@ -0,0 +1,58 @@
+package com.cooksys.twitter_api.service.impl;
+
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+
+import com.cooksys.twitter_api.dtos.SuggestionDto;
+import com.cooksys.twitter_api.exceptions.BadRequestException;
+import com.cooksys.twitter_api.indexes.AutocompleteIndex;
+import com.cooksys.twitter_api.service.AutocompleteService;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Answers from the in-memory {@link AutocompleteIndex} only. Deliberately not transactional, so a suggestion never
+ * waits for a database connection.
+ */
+@Service
+@RequiredArgsConstructor
+public class AutocompleteServiceImpl implements AutocompleteService {
+
+    private final AutocompleteIndex autocompleteIndex;
+
+    /**
+     * GET users/autocomplete?prefix=
+     * Active usernames starting with the prefix, ignoring case, most followed first.
+     */
+    @Override
+    public List<SuggestionDto> completeUsername(String prefix, int limit) {
+        checkLimit(limit);
+        return autocompleteIndex.completeUsername(stripSigil(prefix, '@'), limit).stream()
+                .map(suggestion -> new SuggestionDto(suggestion.text(), suggestion.score()))
+                .toList();
+    }
+
+    /**
+     * GET tags/autocomplete?prefix=
+     * Hashtag labels starting with the prefix, ignoring case, most used first.
+     */
+    @Override
+    public List<SuggestionDto> completeLabel(String prefix, int limit) {
+        checkLimit(limit);
+        return autocompleteIndex.completeLabel(stripSigil(prefix, '#'), limit).stream()
+                .map(suggestion -> new SuggestionDto(suggestion.text(), suggestion.score()))
+                .toList();
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 1 || limit > AutocompleteIndex.MAX_SUGGESTIONS) {
+            throw new BadRequestException("limit must be between 1 and " + AutocompleteIndex.MAX_SUGGESTIONS);
+        }
+    }
+
+    private static String stripSigil(String prefix, char sigil) {
+        return !prefix.isEmpty() && prefix.charAt(0) == sigil ? prefix.substring(1) : prefix;
+    }
+
+}
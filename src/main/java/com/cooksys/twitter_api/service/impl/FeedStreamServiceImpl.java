@@ -0,0 +1,34 @@
+package com.cooksys.twitter_api.service.impl;
+
+import java.util.Optional;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.cooksys.twitter_api.entities.User;
+import com.cooksys.twitter_api.exceptions.NotFoundException;
+import com.cooksys.twitter_api.repositories.UserRepository;
+import com.cooksys.twitter_api.service.FeedStreamService;
+import com.cooksys.twitter_api.stream.FeedStreamHub;
+
+import lombok.RequiredArgsConstructor;
+
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class FeedStreamServiceImpl implements FeedStreamService {
+
+    private final UserRepository userRepository;
+    private final FeedStreamHub feedStreamHub;
+
+    @Override
+    public SseEmitter streamFeed(String username, String lastEventId) {
+        Optional<User> optionalUser = userRepository.findByCredentialsUsernameAndDeletedFalse(username);
+        if (optionalUser.isEmpty()) {
+            throw new NotFoundException(String.format("User not found with username @%s", username));
+        }
+        return feedStreamHub.subscribe(optionalUser.get().getId(), lastEventId);
+    }
+
+}
@@ -1,27 +1,47 @@
 package com.cooksys.twitter_api.service.impl;
 
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.cooksys.twitter_api.analytics.Granularity;
+import com.cooksys.twitter_api.analytics.HashtagRollupStore;
+import com.cooksys.twitter_api.analytics.HyperLogLog;
+import com.cooksys.twitter_api.dtos.HashtagAuthorDto;
 import com.cooksys.twitter_api.dtos.HashtagDto;
+import com.cooksys.twitter_api.dtos.HashtagStatsDto;
+import com.cooksys.twitter_api.dtos.NormalizedTweetListDto;
+import com.cooksys.twitter_api.dtos.ResourceVersionDto;
 import com.cooksys.twitter_api.dtos.TweetResponseDto;
+import com.cooksys.twitter_api.dtos.UsageBucketDto;
 import com.cooksys.twitter_api.entities.Hashtag;
 import com.cooksys.twitter_api.entities.Tweet;
+import com.cooksys.twitter_api.exceptions.BadRequestException;
 import com.cooksys.twitter_api.exceptions.NotFoundException;
+import com.cooksys.twitter_api.indexes.SocialGraphIndex;
 import com.cooksys.twitter_api.mappers.HashtagMapper;
+import com.cooksys.twitter_api.mappers.TweetListNormalizer;
 import com.cooksys.twitter_api.mappers.TweetMapper;
 import com.cooksys.twitter_api.repositories.HashtagRepository;
 import com.cooksys.twitter_api.repositories.TweetRepository;
 import com.cooksys.twitter_api.service.HashtagService;
+import com.cooksys.twitter_api.sharding.Shards;
 
 import lombok.RequiredArgsConstructor;
 
 @Service
 @RequiredArgsConstructor
+@Transactional(readOnly = true)
 public class HashtagServiceImpl implements HashtagService {
 	/**
 	 * TODO: add fields for repositories and mappers
@@ -30,8 +50,21 @@ public class HashtagServiceImpl implements HashtagService {
 	private final HashtagMapper hashtagMapper;
 	private final TweetRepository tweetRepository;
 	private final TweetMapper tweetMapper;
+	private final TweetListNormalizer tweetListNormalizer;
+	private final Shards shards;
+	private final HashtagRollupStore hashtagRollupStore;
+	private final SocialGraphIndex socialGraphIndex;
 
+	private static final int MAX_TOP_AUTHORS = 100;
 
+	@Value("${twitter.tag-stats.max-buckets:1000}")
+	private int maxStatsBuckets;
+
+	@Value("${twitter.tag-stats.minute-retention:172800000}")
+	private long minuteRetention;
+
+	@Value("${twitter.tag-stats.hour-retention:2592000000}")
+	private long hourRetention;
 
 
 	private static class SortReverseChronological implements Comparator<Tweet> {
@@ -52,10 +85,47 @@ public class HashtagServiceImpl implements HashtagService {
 	 */
 	@Override
 	public List<HashtagDto> getAllHashtags() {
+		if (shards.isSharded()) {
+			// every shard has its own row for a tag used on it; report each label once
+			Map<String, HashtagDto> byKey = new LinkedHashMap<>();
+			for (List<HashtagDto> hashtags : shards.scatter(() -> hashtagMapper.entitiesToDtos(hashtagRepository.findAll()))) {
+				for (HashtagDto hashtag : hashtags) {
+					byKey.merge(Hashtag.keyOf(hashtag.getLabel()), hashtag, HashtagServiceImpl::combine);
+				}
+			}
+			return new ArrayList<>(byKey.values());
+		}
 
 		return hashtagMapper.entitiesToDtos(hashtagRepository.findAll());
 	}
 
+	/**
+	 * GET tags conditional request support, from the size of the hashtag table and its latest lastUsed. Sharded, it
+	 * covers those of every shard, since a use on one shard changes the merged entry without moving the overall
+	 * latest lastUsed when another shard has a later one.
+	 */
+	@Override
+	public ResourceVersionDto getAllHashtagsVersion() {
+		if (shards.isSharded()) {
+			long count = 0;
+			long lastUsed = -1;
+			// FNV-1a over the per-shard counters, in shard order
+			long hash = 0xCBF29CE484222325L;
+			for (HashtagRepository.CollectionVersionView version : shards.scatter(hashtagRepository::findCollectionVersion)) {
+				long shardLastUsed = version.getLastUsed() == null ? -1 : version.getLastUsed().getTime();
+				count += version.getCount();
+				lastUsed = Math.max(lastUsed, shardLastUsed);
+				hash = (hash ^ version.getCount()) * 0x100000001B3L;
+				hash = (hash ^ shardLastUsed) * 0x100000001B3L;
+			}
+			return new ResourceVersionDto(String.format("\"tags%d.%d.%016x\"", count, lastUsed, hash), lastUsed);
+		}
+
+		HashtagRepository.CollectionVersionView version = hashtagRepository.findCollectionVersion();
+		long lastUsed = version.getLastUsed() == null ? -1 : version.getLastUsed().getTime();
+		return new ResourceVersionDto(String.format("\"tags%d.%d\"", version.getCount(), lastUsed), lastUsed);
+	}
+
 	/**
 	 * GET tags/{label} endpoint #61
 	 * 
@@ -70,6 +140,175 @@ public class HashtagServiceImpl implements HashtagService {
 	 */
 	@Override
 	public List<TweetResponseDto> getTweetsWithLabel(String label) {
+		if (shards.isSharded()) {
+			List<TweetResponseDto> tweets = shards.gather(
+					() -> shardTweetsWithLabel(label).map(tweetMapper::entitiesToDtos).orElse(null),
+					Comparator.comparing(TweetResponseDto::getPosted, Comparator.reverseOrder()));
+			if (tweets == null) {
+				throw new NotFoundException("There are no tweets with the hashtag: " + label);
+			}
+			return tweets;
+		}
+		return tweetMapper.entitiesToDtos(tweetsWithLabel(label));
+	}
+
+	@Override
+	public NormalizedTweetListDto getTweetsWithLabelNormalized(String label) {
+		if (shards.isSharded()) {
+			List<NormalizedTweetListDto> parts = shards.scatter(
+					() -> shardTweetsWithLabel(label).map(tweetListNormalizer::normalize).orElse(null));
+			if (parts.stream().allMatch(part -> part == null)) {
+				throw new NotFoundException("There are no tweets with the hashtag: " + label);
+			}
+			return tweetListNormalizer.merge(parts.stream().filter(part -> part != null).toList());
+		}
+		return tweetListNormalizer.normalize(tweetsWithLabel(label));
+	}
+
+	/**
+	 * GET tags/{label}/stats, from the usage rollups of every shard; their rows add up like those of a single table.
+	 */
+	@Override
+	public HashtagStatsDto getHashtagStats(String label, String granularity, Long from, Long to, int top) {
+		Granularity resolution = Granularity.parse(granularity);
+		if (resolution == null) {
+			throw new BadRequestException("Unknown granularity: " + granularity);
+		}
+		if (top < 0 || top > MAX_TOP_AUTHORS) {
+			throw new BadRequestException("top must be between 0 and " + MAX_TOP_AUTHORS);
+		}
+		long width = resolution.getMillis();
+		long now = System.currentTimeMillis();
+		long end;
+		long start;
+		long first;
+		long span;
+		try {
+			end = to != null ? to : Math.addExact(resolution.floor(now), width);
+			start = from != null ? from : Math.subtractExact(end, defaultBuckets(resolution) * width);
+			first = resolution.floor(start);
+			span = Math.addExact(Math.subtractExact(end, first), width - 1) / width;
+		} catch (ArithmeticException e) {
+			throw new BadRequestException("The range must lie within the representable times");
+		}
+		if (start >= end || span > maxStatsBuckets) {
+			throw new BadRequestException("The range must be non-empty and span at most " + maxStatsBuckets + " buckets");
+		}
+		if (first < retainedSince(resolution, now)) {
+			throw new BadRequestException("Usage that old is only kept in coarser buckets than "
+					+ resolution.name().toLowerCase(Locale.ROOT) + "s");
+		}
+
+		String labelKey = Hashtag.keyOf(label);
+		Timestamp fromTime = new Timestamp(start);
+		Timestamp toTime = new Timestamp(end);
+		List<HashtagRollupStore.UsageRow> usage = new ArrayList<>();
+		shards.scatter(() -> hashtagRollupStore.findUsage(labelKey, fromTime, toTime)).forEach(usage::addAll);
+		List<HashtagRollupStore.AuthorRow> authors = new ArrayList<>();
+		shards.scatter(() -> hashtagRollupStore.findTopAuthors(labelKey, top)).forEach(authors::addAll);
+		if (usage.isEmpty() && authors.isEmpty()
+				&& !shards.scatter(() -> hashtagRepository.findByLabelAndDeletedFalse(label).isPresent()).contains(true)) {
+			throw new NotFoundException("There are no tweets with the hashtag: " + label);
+		}
+
+		int buckets = (int) span;
+		long[] uses = new long[buckets];
+		HyperLogLog[] bucketAuthors = new HyperLogLog[buckets];
+		HyperLogLog rangeAuthors = new HyperLogLog();
+		long totalUses = 0;
+		for (HashtagRollupStore.UsageRow row : usage) {
+			int bucket = (int) ((resolution.floor(row.bucketStart().getTime()) - first) / width);
+			HyperLogLog sketch = HyperLogLog.fromBytes(row.authors());
+			uses[bucket] += row.uses();
+			if (bucketAuthors[bucket] == null) {
+				bucketAuthors[bucket] = sketch;
+			} else {
+				bucketAuthors[bucket].merge(sketch);
+			}
+			rangeAuthors.merge(sketch);
+			totalUses += row.uses();
+		}
+		List<UsageBucketDto> series = new ArrayList<>(buckets);
+		for (int bucket = 0; bucket < buckets; bucket++) {
+			series.add(new UsageBucketDto(new Timestamp(first + bucket * width), uses[bucket],
+					bucketAuthors[bucket] == null ? 0 : bucketAuthors[bucket].estimate()));
+		}
+
+		HashtagStatsDto stats = new HashtagStatsDto();
+		stats.setLabel(label);
+		stats.setGranularity(resolution.name().toLowerCase(Locale.ROOT));
+		stats.setFrom(fromTime);
+		stats.setTo(toTime);
+		stats.setUses(totalUses);
+		stats.setUniqueAuthors(rangeAuthors.estimate());
+		stats.setSeries(series);
+		stats.setTopAuthors(topAuthors(authors, top));
+		return stats;
+	}
+
+	/**
+	 * Start of the oldest usage still kept at the given granularity, as of now. HashtagRollupWriter folds older
+	 * buckets into coarser ones, which a finer series would show as a spike at the start of each.
+	 */
+	private long retainedSince(Granularity granularity, long now) {
+		return switch (granularity) {
+			case MINUTE -> Granularity.HOUR.floor(now - minuteRetention);
+			case HOUR -> Granularity.DAY.floor(now - hourRetention);
+			case DAY -> Long.MIN_VALUE;
+		};
+	}
+
+	private static long defaultBuckets(Granularity granularity) {
+		return switch (granularity) {
+			case MINUTE -> 60;
+			case HOUR -> 48;
+			case DAY -> 30;
+		};
+	}
+
+	/**
+	 * Each shard's top authors summed per author (an author's tag uses can sit on more than one shard), active users
+	 * only.
+	 */
+	private List<HashtagAuthorDto> topAuthors(List<HashtagRollupStore.AuthorRow> rows, int top) {
+		Map<Long, HashtagAuthorDto> byAuthor = new HashMap<>();
+		for (HashtagRollupStore.AuthorRow row : rows) {
+			if (!socialGraphIndex.isActive(row.authorId())) {
+				continue;
+			}
+			byAuthor.merge(row.authorId(),
+					new HashtagAuthorDto(socialGraphIndex.findUsername(row.authorId()), row.uses(), row.lastUsed()),
+					(a, b) -> new HashtagAuthorDto(a.getUsername(), a.getUses() + b.getUses(),
+							a.getLastUsed().after(b.getLastUsed()) ? a.getLastUsed() : b.getLastUsed()));
+		}
+		return byAuthor.values().stream()
+				.sorted(Comparator.comparingLong(HashtagAuthorDto::getUses).reversed()
+						.thenComparing(HashtagAuthorDto::getLastUsed, Comparator.reverseOrder()))
+				.limit(top)
+				.toList();
+	}
+
+	/**
+	 * The tagged tweets on the current shard, empty when the tag was never used there.
+	 */
+	private Optional<List<Tweet>> shardTweetsWithLabel(String label) {
+		if (hashtagRepository.findByLabelAndDeletedFalse(label).isEmpty()) {
+			return Optional.empty();
+		}
+		return Optional.of(tweetsWithLabel(label));
+	}
+
+	static HashtagDto combine(HashtagDto a, HashtagDto b) {
+		HashtagDto combined = new HashtagDto();
+		combined.setLabel(a.getLabel());
+		combined.setFirstUsed(b.getFirstUsed() == null
+				|| a.getFirstUsed() != null && a.getFirstUsed().before(b.getFirstUsed()) ? a.getFirstUsed() : b.getFirstUsed());
+		combined.setLastUsed(b.getLastUsed() == null
+				|| a.getLastUsed() != null && a.getLastUsed().after(b.getLastUsed()) ? a.getLastUsed() : b.getLastUsed());
+		return combined;
+	}
+
+	private List<Tweet> tweetsWithLabel(String label) {
 		Optional<Hashtag> optionalHashtag = hashtagRepository.findByLabelAndDeletedFalse(label);
 		
 		if (optionalHashtag.isEmpty()) {
@@ -78,13 +317,13 @@ public class HashtagServiceImpl implements HashtagService {
 		
 		ArrayList<Tweet> nondeletedTweets = new ArrayList<>();
 		
-		for (Tweet tweet : tweetRepository.findAllByDeletedFalse()) {
-				if (optionalHashtag.get().getTweetList().contains(tweet))
+		for (Tweet tweet : optionalHashtag.get().getTweetList()) {
+				if (!tweet.isDeleted())
 				nondeletedTweets.add(tweet);
 		}									
 		nondeletedTweets.sort(new SortReverseChronological());
 		
-		return tweetMapper.entitiesToDtos(nondeletedTweets);
+		return nondeletedTweets;
 	}
 
 }
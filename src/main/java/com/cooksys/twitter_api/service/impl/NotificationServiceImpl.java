@@ -0,0 +1,109 @@
+package com.cooksys.twitter_api.service.impl;
+
+import static com.cooksys.twitter_api.helpers.Helpers.credentialsAreCorrect;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.cooksys.twitter_api.dtos.CredentialsDto;
+import com.cooksys.twitter_api.dtos.NotificationCountDto;
+import com.cooksys.twitter_api.dtos.NotificationDto;
+import com.cooksys.twitter_api.dtos.NotificationPageDto;
+import com.cooksys.twitter_api.entities.User;
+import com.cooksys.twitter_api.exceptions.BadRequestException;
+import com.cooksys.twitter_api.exceptions.NotFoundException;
+import com.cooksys.twitter_api.indexes.SocialGraphIndex;
+import com.cooksys.twitter_api.notifications.Notification;
+import com.cooksys.twitter_api.notifications.NotificationStore;
+import com.cooksys.twitter_api.repositories.UserRepository;
+import com.cooksys.twitter_api.service.NotificationService;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Reads the inboxes NotificationWriter fills. Pages and counts come from the {@code notification} and
+ * {@code notification_inbox} tables alone; actors are named from the social graph index.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class NotificationServiceImpl implements NotificationService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final UserRepository userRepository;
+    private final NotificationStore notificationStore;
+    private final SocialGraphIndex socialGraphIndex;
+
+    @Override
+    public NotificationPageDto getNotifications(String username, Long before, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        long userId = activeUser(username).getId();
+        NotificationStore.Inbox inbox = notificationStore.findInbox(userId);
+        // one more than asked for tells whether there is a next page
+        List<Notification> rows = notificationStore.findPage(userId, before, limit + 1);
+        boolean more = rows.size() > limit;
+        if (more) {
+            rows = rows.subList(0, limit);
+        }
+        List<NotificationDto> notifications = new ArrayList<>(rows.size());
+        for (Notification notification : rows) {
+            // notifications about users since deleted are skipped, not removed; they come back on reactivation
+            if (socialGraphIndex.isActive(notification.actorId())) {
+                notifications.add(toDto(notification, inbox.lastReadId()));
+            }
+        }
+        Long next = more ? rows.get(rows.size() - 1).id() : null;
+        return new NotificationPageDto(notifications, inbox.unreadCount(), next);
+    }
+
+    @Override
+    public NotificationCountDto getUnreadCount(String username) {
+        return new NotificationCountDto(notificationStore.findInbox(activeUser(username).getId()).unreadCount());
+    }
+
+    @Transactional
+    @Override
+    public NotificationCountDto markRead(String username, Long upTo, CredentialsDto credentialsDto) {
+        User user = activeUser(username);
+        if (!credentialsAreCorrect(Optional.of(user), credentialsDto)) {
+            throw new BadRequestException("Credentials provided do not match the user");
+        }
+        NotificationStore.Inbox inbox = notificationStore.lockInbox(user.getId());
+        long lastReadId = upTo == null ? notificationStore.findLatestId(user.getId())
+                : Math.max(inbox.lastReadId(), upTo);
+        // the inbox lock keeps the writer out, so the count cannot go stale before it is stored
+        long unread = upTo == null ? 0 : notificationStore.countAfter(user.getId(), lastReadId);
+        notificationStore.updateInbox(user.getId(), new NotificationStore.Inbox(unread, lastReadId));
+        return new NotificationCountDto(unread);
+    }
+
+    private User activeUser(String username) {
+        Optional<User> optionalUser = userRepository.findByCredentialsUsernameAndDeletedFalse(username);
+        if (optionalUser.isEmpty()) {
+            throw new NotFoundException(String.format("User not found with username @%s", username));
+        }
+        return optionalUser.get();
+    }
+
+    private NotificationDto toDto(Notification notification, long lastReadId) {
+        NotificationDto dto = new NotificationDto();
+        dto.setId(notification.id());
+        dto.setType(notification.type().name());
+        dto.setTweetId(notification.tweetId());
+        dto.setSourceTweetId(notification.sourceTweetId());
+        dto.setActor(socialGraphIndex.findUsername(notification.actorId()));
+        dto.setCount(notification.eventCount());
+        dto.setFirstAt(notification.firstAt());
+        dto.setLastAt(notification.lastAt());
+        dto.setUnread(notification.id() > lastReadId);
+        return dto;
+    }
+
+}
@@ -0,0 +1,160 @@
+package com.cooksys.twitter_api.service.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.cooksys.twitter_api.dtos.SearchResultDto;
+import com.cooksys.twitter_api.dtos.TweetResponseDto;
+import com.cooksys.twitter_api.exceptions.BadRequestException;
+import com.cooksys.twitter_api.indexes.TweetSearchIndex;
+import com.cooksys.twitter_api.mappers.TweetMapper;
+import com.cooksys.twitter_api.repositories.TweetRepository;
+import com.cooksys.twitter_api.service.SearchService;
+import com.cooksys.twitter_api.sharding.Shards;
+
+import lombok.RequiredArgsConstructor;
+
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class SearchServiceImpl implements SearchService {
+
+    private static final int MAX_LIMIT = 100;
+
+    private final TweetSearchIndex tweetSearchIndex;
+    private final TweetRepository tweetRepository;
+    private final TweetMapper tweetMapper;
+    private final Shards shards;
+
+    /**
+     * GET search/tweets?q=
+     * The index yields the page of tweet ids; only those tweets are loaded, in one query. The cursor is the sort key of
+     * the last hit, and when sorting by relevance also the statistics the first page was scored with, so later pages
+     * are scored the same way and continue where the previous one ended while tweets are added. Tweets added since the
+     * first page appear on a later page if they rank after its last hit.
+     */
+    @Override
+    public SearchResultDto searchTweets(String query, String sort, String cursor, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new BadRequestException("A search query is required");
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        TweetSearchIndex.Order order = parseOrder(sort);
+        TweetSearchIndex.Hit after = null;
+        TweetSearchIndex.Statistics statistics = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] key = decodeCursor(cursor);
+            after = decodeHit(key);
+            statistics = order == TweetSearchIndex.Order.RELEVANCE ? decodeStatistics(key) : null;
+        }
+        // one extra hit tells whether there is a next page
+        TweetSearchIndex.Results results;
+        try {
+            results = tweetSearchIndex.search(query, order, after, statistics, limit + 1);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+        List<TweetSearchIndex.Hit> hits = results.hits();
+        boolean more = hits.size() > limit;
+        if (more) {
+            hits = hits.subList(0, limit);
+        }
+        List<Long> ids = hits.stream().map(TweetSearchIndex.Hit::tweetId).toList();
+        // mapped on each shard, inside its transaction
+        Map<Long, TweetResponseDto> tweets = shards.scatter(ids, shards.getShardMap()::shardOfTweet,
+                        shardIds -> tweetMapper.entitiesToDtos(tweetRepository.findAllByIdInAndDeletedFalse(shardIds)))
+                .stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toMap(TweetResponseDto::getId, Function.identity()));
+        List<TweetResponseDto> page = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            TweetResponseDto tweet = tweets.get(id);
+            if (tweet != null) {
+                page.add(tweet);
+            }
+        }
+        return new SearchResultDto(page, more ? encodeCursor(hits.get(hits.size() - 1),
+                order == TweetSearchIndex.Order.RELEVANCE ? results.statistics() : null) : null);
+    }
+
+    private static TweetSearchIndex.Order parseOrder(String sort) {
+        if (sort == null || sort.equalsIgnoreCase("relevance")) {
+            return TweetSearchIndex.Order.RELEVANCE;
+        }
+        if (sort.equalsIgnoreCase("recent")) {
+            return TweetSearchIndex.Order.RECENT;
+        }
+        throw new BadRequestException("sort must be relevance or recent");
+    }
+
+    private static String encodeCursor(TweetSearchIndex.Hit hit, TweetSearchIndex.Statistics statistics) {
+        StringBuilder key = new StringBuilder();
+        key.append(hit.tweetId()).append(':').append(Double.doubleToLongBits(hit.score())).append(':')
+                .append(hit.posted());
+        if (statistics != null) {
+            key.append(':').append(statistics.documentCount()).append(':').append(statistics.totalLength());
+            for (int documentFrequency : statistics.documentFrequencies()) {
+                key.append(':').append(documentFrequency);
+            }
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            if (key.length < 3) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            return key;
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    private static TweetSearchIndex.Hit decodeHit(String[] key) {
+        try {
+            return new TweetSearchIndex.Hit(Long.parseLong(key[0]), Double.longBitsToDouble(Long.parseLong(key[1])),
+                    Long.parseLong(key[2]));
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    /**
+     * The statistics of a relevance cursor, or null for a cursor without them.
+     */
+    private static TweetSearchIndex.Statistics decodeStatistics(String[] key) {
+        if (key.length == 3) {
+            return null;
+        }
+        try {
+            int documentCount = Integer.parseInt(key[3]);
+            long totalLength = Long.parseLong(key[4]);
+            int[] documentFrequencies = new int[key.length - 5];
+            for (int i = 0; i < documentFrequencies.length; i++) {
+                documentFrequencies[i] = Integer.parseInt(key[i + 5]);
+                if (documentFrequencies[i] < 1 || documentFrequencies[i] > documentCount) {
+                    throw new BadRequestException("Invalid cursor");
+                }
+            }
+            if (totalLength < 0) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            return new TweetSearchIndex.Statistics(documentCount, totalLength, documentFrequencies);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+}
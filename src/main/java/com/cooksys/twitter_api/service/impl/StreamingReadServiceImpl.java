@@ -0,0 +1,405 @@
+package com.cooksys.twitter_api.service.impl;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.cooksys.twitter_api.config.VirtualThreads;
+import com.cooksys.twitter_api.dtos.HashtagDto;
+import com.cooksys.twitter_api.dtos.TweetResponseDto;
+import com.cooksys.twitter_api.entities.Hashtag;
+import com.cooksys.twitter_api.entities.Tweet;
+import com.cooksys.twitter_api.entities.User;
+import com.cooksys.twitter_api.exceptions.NotFoundException;
+import com.cooksys.twitter_api.mappers.HashtagMapper;
+import com.cooksys.twitter_api.mappers.TweetMapper;
+import com.cooksys.twitter_api.repositories.HashtagRepository;
+import com.cooksys.twitter_api.repositories.TweetRepository;
+import com.cooksys.twitter_api.repositories.UserRepository;
+import com.cooksys.twitter_api.service.StreamingReadService;
+import com.cooksys.twitter_api.sharding.ShardRoutingDataSource;
+import com.cooksys.twitter_api.sharding.Shards;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * With several shards the streams of all tweets, of a feed, of mentions and of a tag's tweets, and of all tags, read
+ * every shard they span at once, one producer thread per shard, and the writer merges the rows as they come in.
+ */
+@Service
+public class StreamingReadServiceImpl implements StreamingReadService {
+
+    // rows written between flushes; the persistence context is cleared at the same point to keep memory flat
+    private static final int FLUSH_EVERY = 64;
+
+    // posted desc as the databases order it, the reposts, which have no posted time of their own, first as on Postgres
+    private static final Comparator<TweetResponseDto> POSTED_REVERSE = Comparator.comparing(
+            TweetResponseDto::getPosted, Comparator.nullsFirst(Comparator.reverseOrder()));
+
+    private static final Comparator<HashtagDto> LABEL_KEY =
+            Comparator.comparing(hashtag -> Hashtag.keyOf(hashtag.getLabel()));
+
+    // closes a shard's rows in a producer's queue
+    private static final Object END = new Object();
+
+    private record ShardQuery<E>(int shard, Supplier<Stream<E>> query) {
+    }
+
+    private record Head<D>(D row, int source) {
+    }
+
+    private final UserRepository userRepository;
+    private final TweetRepository tweetRepository;
+    private final HashtagRepository hashtagRepository;
+    private final TweetMapper tweetMapper;
+    private final HashtagMapper hashtagMapper;
+    private final ObjectMapper objectMapper;
+    private final Shards shards;
+    private final TransactionTemplate readOnly;
+    private final ExecutorService producers;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public StreamingReadServiceImpl(UserRepository userRepository, TweetRepository tweetRepository,
+                                    HashtagRepository hashtagRepository, TweetMapper tweetMapper,
+                                    HashtagMapper hashtagMapper, ObjectMapper objectMapper,
+                                    Shards shards, PlatformTransactionManager transactionManager,
+                                    @Value("${twitter.threads.virtual:false}") boolean virtualThreads) {
+        this.userRepository = userRepository;
+        this.tweetRepository = tweetRepository;
+        this.hashtagRepository = hashtagRepository;
+        this.tweetMapper = tweetMapper;
+        this.hashtagMapper = hashtagMapper;
+        this.objectMapper = objectMapper;
+        this.shards = shards;
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        if (!shards.isSharded()) {
+            producers = null;
+        } else if (virtualThreads) {
+            producers = VirtualThreads.newThreadPerTaskExecutor("stream-shard");
+        } else {
+            // one thread per shard of each running stream, which the stream executor already bounds
+            AtomicInteger count = new AtomicInteger();
+            producers = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "stream-shard-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (producers != null) {
+            producers.shutdownNow();
+        }
+    }
+
+    @Override
+    public StreamingResponseBody streamFeed(String username) {
+        long userId = activeUserId(username);
+        if (shards.isSharded()) {
+            // the user's follows are stored on the user's shard, each author's tweets on the author's
+            List<Long> following = readOnly.execute(status -> userRepository.findFollowingIdsById(userId));
+            Map<Integer, List<Long>> authorsByShard = new TreeMap<>();
+            List<Long> authors = new ArrayList<>(List.of(userId));
+            if (!following.isEmpty()) {
+                shards.scatter(following, shards.getShardMap()::shardOfUser,
+                        userRepository::findIdsByIdInAndDeletedFalse).forEach(authors::addAll);
+            }
+            for (Long author : authors) {
+                authorsByShard.computeIfAbsent(shards.getShardMap().shardOfUser(author), shard -> new ArrayList<>())
+                        .add(author);
+            }
+            List<ShardQuery<Tweet>> queries = new ArrayList<>();
+            authorsByShard.forEach((shard, ids) -> queries.add(
+                    new ShardQuery<>(shard, () -> tweetRepository.streamByAuthorIdIn(ids))));
+            return mergedLines(queries, tweetMapper::entityToDto, POSTED_REVERSE, null);
+        }
+        return lines(() -> tweetRepository.streamFeed(userId), tweetMapper::entityToDto);
+    }
+
+    @Override
+    public StreamingResponseBody streamUserTweets(String username) {
+        long userId = activeUserId(username);
+        return lines(() -> tweetRepository.streamByAuthor(userId), tweetMapper::entityToDto);
+    }
+
+    @Override
+    public StreamingResponseBody streamMentions(String username) {
+        long userId = activeUserId(username);
+        if (shards.isSharded()) {
+            // a mention is stored with the mentioning tweet, on the shard of its author
+            return mergedLines(onEveryShard(() -> tweetRepository.streamMentioningById(userId)),
+                    tweetMapper::entityToDto, POSTED_REVERSE, null);
+        }
+        return lines(() -> tweetRepository.streamMentioning(userId), tweetMapper::entityToDto);
+    }
+
+    @Override
+    public StreamingResponseBody streamTweets() {
+        if (shards.isSharded()) {
+            return mergedLines(onEveryShard(tweetRepository::streamAll), tweetMapper::entityToDto, POSTED_REVERSE,
+                    null);
+        }
+        return lines(tweetRepository::streamAll, tweetMapper::entityToDto);
+    }
+
+    @Override
+    public StreamingResponseBody streamTweet(Long id) {
+        byte[] line = readOnly.execute(status -> {
+            Optional<Tweet> optionalTweet = tweetRepository.findByIdAndDeletedFalse(id);
+            if (optionalTweet.isEmpty()) {
+                throw new NotFoundException("Tweet not found with id: " + id);
+            }
+            return toLine(tweetMapper.entityToDto(optionalTweet.get()));
+        });
+        return out -> out.write(line);
+    }
+
+    @Override
+    public StreamingResponseBody streamTags() {
+        if (shards.isSharded()) {
+            // a tag used on several shards has a row on each, combined as GET tags does
+            return mergedLines(onEveryShard(hashtagRepository::streamAll), hashtagMapper::entityToDto, LABEL_KEY,
+                    HashtagServiceImpl::combine);
+        }
+        return lines(hashtagRepository::streamAll, hashtagMapper::entityToDto);
+    }
+
+    @Override
+    public StreamingResponseBody streamTweetsWithLabel(String label) {
+        if (shards.isSharded()) {
+            // hashtag ids are per shard; the tag's tweets are read on each shard that has it
+            List<Optional<Long>> hashtagIds = shards.scatter(
+                    () -> hashtagRepository.findByLabelAndDeletedFalse(label).map(Hashtag::getId));
+            List<ShardQuery<Tweet>> queries = new ArrayList<>();
+            for (int shard = 0; shard < hashtagIds.size(); shard++) {
+                int owner = shard;
+                hashtagIds.get(shard).ifPresent(hashtagId -> queries.add(
+                        new ShardQuery<>(owner, () -> tweetRepository.streamTaggedWith(hashtagId))));
+            }
+            if (queries.isEmpty()) {
+                throw new NotFoundException("There are no tweets with the hashtag: " + label);
+            }
+            return mergedLines(queries, tweetMapper::entityToDto, POSTED_REVERSE, null);
+        }
+        Long hashtagId = readOnly.execute(status -> hashtagRepository.findByLabelAndDeletedFalse(label)
+                .map(Hashtag::getId)
+                .orElseThrow(() -> new NotFoundException("There are no tweets with the hashtag: " + label)));
+        return lines(() -> tweetRepository.streamTaggedWith(hashtagId), tweetMapper::entityToDto);
+    }
+
+    private long activeUserId(String username) {
+        Optional<User> optionalUser = readOnly.execute(
+                status -> userRepository.findByCredentialsUsernameAndDeletedFalse(username));
+        if (optionalUser.isEmpty()) {
+            throw new NotFoundException(String.format("User not found with username @%s", username));
+        }
+        return optionalUser.get().getId();
+    }
+
+    /**
+     * Writes each row as a JSON line while the cursor is open. A blocking write to a slow client holds the next fetch
+     * back, so at most one fetch of rows is in memory per stream however long the result is. The stream holds its
+     * thread and connection until the last row is written or the request times out; how many streams may run at once
+     * is bounded by the stream executor, see {@link com.cooksys.twitter_api.config.WebConfig}.
+     */
+    private <E, D> StreamingResponseBody lines(Supplier<Stream<E>> query, Function<E, D> mapper) {
+        // the body runs on another thread; keep the shard the request was routed to
+        int shard = ShardRoutingDataSource.currentShard();
+        return out -> {
+            try {
+                shards.onShard(shard, () -> readOnly.execute(status -> {
+                    try (Stream<E> rows = query.get()) {
+                        int written = 0;
+                        for (E row : (Iterable<E>) rows::iterator) {
+                            out.write(toLine(mapper.apply(row)));
+                            if (++written % FLUSH_EVERY == 0) {
+                                out.flush();
+                                entityManager.clear();
+                            }
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return null;
+                }));
+            } catch (UncheckedIOException e) {
+                // the client went away; the transaction has been rolled back and the cursor closed
+                throw e.getCause();
+            }
+        };
+    }
+
+    private <E> List<ShardQuery<E>> onEveryShard(Supplier<Stream<E>> query) {
+        List<ShardQuery<E>> queries = new ArrayList<>();
+        for (int shard = 0; shard < shards.getShardMap().getShardCount(); shard++) {
+            queries.add(new ShardQuery<>(shard, query));
+        }
+        return queries;
+    }
+
+    /**
+     * {@link #lines(Supplier, Function)} over several shards. Each shard's query runs on a producer thread of its own,
+     * with its cursor open in a read-only transaction on that shard, and hands its rows, already mapped, to the writer
+     * through a queue of one flush; the writer merges the heads of the queues by {@code order}, which every query
+     * sorts by, so a slow client still holds back every cursor. Adjacent rows that are equal by {@code order} are
+     * combined when {@code combine} is given. When the client goes away the producers are cancelled and their
+     * transactions rolled back.
+     */
+    private <E, D> StreamingResponseBody mergedLines(List<ShardQuery<E>> queries, Function<E, D> mapper,
+                                                     Comparator<? super D> order, BinaryOperator<D> combine) {
+        return out -> {
+            AtomicBoolean cancelled = new AtomicBoolean();
+            List<BlockingQueue<Object>> queues = new ArrayList<>();
+            List<Future<?>> running = new ArrayList<>();
+            try {
+                for (ShardQuery<E> query : queries) {
+                    BlockingQueue<Object> queue = new ArrayBlockingQueue<>(FLUSH_EVERY);
+                    queues.add(queue);
+                    running.add(producers.submit(() -> produce(query, mapper, queue, cancelled)));
+                }
+                PriorityQueue<Head<D>> heads = new PriorityQueue<>((a, b) -> order.compare(a.row(), b.row()));
+                for (int source = 0; source < queues.size(); source++) {
+                    Head<D> head = take(queues.get(source), source);
+                    if (head != null) {
+                        heads.add(head);
+                    }
+                }
+                D pending = null;
+                int written = 0;
+                while (!heads.isEmpty()) {
+                    Head<D> head = heads.poll();
+                    Head<D> next = take(queues.get(head.source()), head.source());
+                    if (next != null) {
+                        heads.add(next);
+                    }
+                    if (pending != null && combine != null && order.compare(pending, head.row()) == 0) {
+                        pending = combine.apply(pending, head.row());
+                        continue;
+                    }
+                    if (pending != null) {
+                        out.write(toLine(pending));
+                        if (++written % FLUSH_EVERY == 0) {
+                            out.flush();
+                        }
+                    }
+                    pending = head.row();
+                }
+                if (pending != null) {
+                    out.write(toLine(pending));
+                }
+            } finally {
+                cancelled.set(true);
+                running.forEach(producer -> producer.cancel(true));
+            }
+        };
+    }
+
+    private <E, D> void produce(ShardQuery<E> query, Function<E, D> mapper, BlockingQueue<Object> queue,
+                                AtomicBoolean cancelled) {
+        try {
+            boolean complete = shards.onShard(query.shard(), () -> readOnly.execute(status -> {
+                try (Stream<E> rows = query.query().get()) {
+                    int read = 0;
+                    for (E row : (Iterable<E>) rows::iterator) {
+                        if (!put(queue, mapper.apply(row), cancelled)) {
+                            return false;
+                        }
+                        if (++read % FLUSH_EVERY == 0) {
+                            entityManager.clear();
+                        }
+                    }
+                }
+                return true;
+            }));
+            if (complete) {
+                put(queue, END, cancelled);
+            }
+        } catch (RuntimeException e) {
+            put(queue, e, cancelled);
+        }
+    }
+
+    /**
+     * Waits for room in the queue until the stream is cancelled.
+     */
+    private static boolean put(BlockingQueue<Object> queue, Object item, AtomicBoolean cancelled) {
+        try {
+            while (!queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                if (cancelled.get()) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * The next row of a producer, or null once its shard has none left; a producer's failure is rethrown.
+     */
+    @SuppressWarnings("unchecked")
+    private static <D> Head<D> take(BlockingQueue<Object> queue, int source) throws IOException {
+        Object item;
+        try {
+            item = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading the shards");
+        }
+        if (item == END) {
+            return null;
+        }
+        if (item instanceof RuntimeException failure) {
+            throw failure;
+        }
+        return new Head<>((D) item, source);
+    }
+
+    private byte[] toLine(Object dto) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(dto);
+            byte[] line = new byte[json.length + 1];
+            System.arraycopy(json, 0, line, 0, json.length);
+            line[json.length] = '\n';
+            return line;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
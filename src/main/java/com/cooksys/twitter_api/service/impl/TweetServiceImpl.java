@@ -1,41 +1,73 @@
 package com.cooksys.twitter_api.service.impl;
 
+import com.cooksys.twitter_api.cache.CacheInvalidationBus;
+import com.cooksys.twitter_api.cache.CachedEntity;
 import com.cooksys.twitter_api.dtos.*;
+import com.cooksys.twitter_api.entities.Hashtag;
 import com.cooksys.twitter_api.entities.Tweet;
 import com.cooksys.twitter_api.entities.User;
 import com.cooksys.twitter_api.exceptions.BadRequestException;
 import com.cooksys.twitter_api.exceptions.NotFoundException;
 import com.cooksys.twitter_api.helpers.SortByPostedReverse;
+import com.cooksys.twitter_api.indexes.HashtagDictionary;
 import com.cooksys.twitter_api.helpers.SortBySizeReverse;
 import com.cooksys.twitter_api.mappers.HashtagMapper;
+import com.cooksys.twitter_api.mappers.TweetListNormalizer;
 import com.cooksys.twitter_api.mappers.TweetMapper;
 import com.cooksys.twitter_api.mappers.UserMapper;
 import com.cooksys.twitter_api.repositories.HashtagRepository;
 import com.cooksys.twitter_api.repositories.TweetRepository;
 import com.cooksys.twitter_api.repositories.UserRepository;
 import com.cooksys.twitter_api.service.TweetService;
+import com.cooksys.twitter_api.sharding.Shards;
+import com.cooksys.twitter_api.storage.EventLog;
+import com.cooksys.twitter_api.storage.EventType;
+import com.cooksys.twitter_api.storage.TweetContentStore;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Timestamp;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 import static com.cooksys.twitter_api.helpers.Helpers.*;
 
 
 @Service
 @RequiredArgsConstructor
+@Transactional
 public class TweetServiceImpl implements TweetService {
 
 
     private final UserRepository userRepository;
     private final TweetMapper tweetMapper;
+    private final TweetListNormalizer tweetListNormalizer;
     private final TweetRepository tweetRepository;
     private final UserMapper userMapper;
     private final HashtagRepository hashtagRepository;
     private final HashtagMapper hashtagMapper;
+    private final HashtagDictionary hashtagDictionary;
+    private final TweetContentStore tweetContentStore;
+    private final EventLog eventLog;
+    private final Shards shards;
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    @Value("${twitter.batch.max-size:100}")
+    private int maxBatchSize;
 
     /**
      * Creates a new simple tweet, with the author set to the user identified by the credentials in the request body.
@@ -68,6 +100,8 @@ public class TweetServiceImpl implements TweetService {
         if (!isValidTweetRequestDto(tweetRequestDto)) {
             throw new BadRequestException("Malformed tweet request");
         }
+        // the new tweet goes to its author's shard
+        shards.bindUsername(credentialsDto.getUsername());
 
         // Get the author user if it's active
         Optional<User> optionalAuthor = userRepository.findByCredentialsUsernameAndDeletedFalse(credentialsDto.getUsername());
@@ -83,47 +117,68 @@ public class TweetServiceImpl implements TweetService {
 
         Tweet tweet = tweetMapper.dtoToEntity(tweetRequestDto);
         tweet.setAuthor(optionalAuthor.get());
-        optionalAuthor.get().getTweets().add(tweet);
         tweet.setPosted(new Timestamp(System.currentTimeMillis()));
         Tweet savedTweet = tweetRepository.saveAndFlush(tweet);
-        parseAndSaveMentions(savedTweet, tweetRepository, userRepository); // inject dependencies
-        parseAndSaveHashtags(savedTweet, tweetRepository, hashtagRepository); // inject dependencies
+        parseAndSaveMentions(savedTweet, userRepository, shards); // inject dependencies
+        parseAndSaveHashtags(savedTweet, tweetRepository, hashtagRepository, hashtagDictionary); // inject dependencies
+        eventLog.append(EventType.TWEET_CREATED, optionalAuthor.get().getId(), savedTweet.getId(), 0,
+                savedTweet.getContent());
+        cacheInvalidationBus.publish(CachedEntity.TWEET, savedTweet.getId(), savedTweet.getVersion());
+        recordHashtagEvents(savedTweet);
+        tweetContentStore.store(savedTweet);
         return tweetMapper.entityToDto(savedTweet);
     }
 
+    private void recordHashtagEvents(Tweet tweet) {
+        if (tweet.getHashtagList() == null) {
+            return;
+        }
+        for (Hashtag hashtag : tweet.getHashtagList()) {
+            eventLog.append(EventType.HASHTAG_USED, tweet.getAuthor().getId(), hashtag.getId(), tweet.getId(),
+                    hashtag.getLabel());
+            cacheInvalidationBus.publish(CachedEntity.HASHTAG, hashtag.getId(), hashtag.getLastUsed().getTime());
+        }
+    }
+
 
     @Override
     public TweetResponseDto replyToTweet(Long id, TweetRequestDto tweetRequestDto) {
-        // step 1 - get tweetToBeRepliedTo by id
-
-        Optional<Tweet> tweetToBeRepliedTo = tweetRepository.findByIdAndDeletedFalse(id);
-
-        // step 2 - check if tweetRequestDto is null -> if so throw exception
+        // step 1 - check if tweetRequestDto is null -> if so throw exception
 
         if (tweetRequestDto == null) {
             throw new BadRequestException("Bad tweet request dto");
         }
+        CredentialsDto credentialsDto = tweetRequestDto.getCredentials();
+        // the reply goes to the replier's shard, the tweet replied to may live on another one
+        shards.bindUsername(credentialsDto == null ? null : credentialsDto.getUsername());
 
-        // step 3 - check if tweetToBeRepliedTo is deleted or doesn't exist and throw an error
+        // step 2 - check if tweetToBeRepliedTo is deleted or doesn't exist and throw an error
 
-        if (tweetToBeRepliedTo.isEmpty()) {
+        if (liveAuthorOf(id).isEmpty()) {
             throw new BadRequestException("Bad request");
         }
 
-        Optional<User> optionalUser = userRepository.findByCredentialsUsernameAndDeletedFalse(tweetRequestDto.getCredentials().getUsername());
+        Optional<User> optionalUser = userRepository.findByCredentialsUsernameAndDeletedFalse(credentialsDto.getUsername());
 
-        // step 4 - check if the given credentials match the credentials
-        if (!credentialsAreCorrect(optionalUser, tweetRequestDto.getCredentials())) {
+        // step 3 - check if the given credentials match the credentials
+        if (!credentialsAreCorrect(optionalUser, credentialsDto)) {
             throw new BadRequestException("BAD");
         }
 
         Tweet tweet = tweetMapper.dtoToEntity(tweetRequestDto);
-        tweet.setInReplyTo(tweetToBeRepliedTo.get());
+        tweet.setInReplyToId(id);
         tweet.setPosted(new Timestamp(System.currentTimeMillis()));
         tweet.setAuthor(optionalUser.get());
-        parseAndSaveHashtags(tweet, tweetRepository, hashtagRepository);
-        parseAndSaveMentions(tweet, tweetRepository, userRepository);
-        return tweetMapper.entityToDto(tweetRepository.saveAndFlush(tweet));
+        // saved first: the parsers put the tweet into id-hashed collections
+        Tweet savedTweet = tweetRepository.saveAndFlush(tweet);
+        parseAndSaveHashtags(savedTweet, tweetRepository, hashtagRepository, hashtagDictionary);
+        parseAndSaveMentions(savedTweet, userRepository, shards);
+        eventLog.append(EventType.TWEET_REPLIED, optionalUser.get().getId(), savedTweet.getId(), id,
+                savedTweet.getContent());
+        cacheInvalidationBus.publish(CachedEntity.TWEET, savedTweet.getId(), savedTweet.getVersion());
+        recordHashtagEvents(savedTweet);
+        tweetContentStore.store(savedTweet);
+        return tweetMapper.entityToDto(savedTweet);
     }
 
 
@@ -132,19 +187,32 @@ public class TweetServiceImpl implements TweetService {
         if (credentialsDto == null) {
             throw new BadRequestException("Bad Credentials DTO");
         }
+        // the repost goes to the reposter's shard, the tweet reposted may live on another one
+        shards.bindUsername(credentialsDto.getUsername());
         Optional<User> tweetAuthor = userRepository.findByCredentialsUsernameAndDeletedFalse(credentialsDto.getUsername());
         if (!credentialsAreCorrect(tweetAuthor, credentialsDto)) {
             throw new BadRequestException("Bad credentials or user is not active");
         }
 
-        Optional<Tweet> optionalTweet = tweetRepository.findByIdAndDeletedFalse(id);
-        if (optionalTweet.isEmpty()) {
+        if (liveAuthorOf(id).isEmpty()) {
             throw new NotFoundException("No tweet found");
         }
         Tweet tweet = new Tweet();
         tweet.setAuthor(tweetAuthor.get());
-        tweet.setRepostOf(optionalTweet.get());
-        return tweetMapper.entityToDto(tweetRepository.saveAndFlush(tweet));
+        tweet.setRepostOfId(id);
+        Tweet savedTweet = tweetRepository.saveAndFlush(tweet);
+        eventLog.append(EventType.TWEET_REPOSTED, tweetAuthor.get().getId(), savedTweet.getId(), id, null);
+        cacheInvalidationBus.publish(CachedEntity.TWEET, savedTweet.getId(), savedTweet.getVersion());
+        return tweetMapper.entityToDto(savedTweet);
+    }
+
+    /**
+     * The author of the tweet if it exists and is not deleted, read on the shard that owns the tweet. Replies, reposts
+     * and likes are stored on the acting user's shard, which is not necessarily that one.
+     */
+    private Optional<Long> liveAuthorOf(Long id) {
+        return shards.readOn(shards.getShardMap().shardOfTweet(id),
+                () -> tweetRepository.findByIdAndDeletedFalse(id).map(tweet -> tweet.getAuthor().getId()));
     }
 
     /**
@@ -156,6 +224,7 @@ public class TweetServiceImpl implements TweetService {
      * <p>
      * Response ['Hashtag']
      */
+    @Transactional(readOnly = true)
     @Override
     public List<HashtagDto> getTags(Long id) {
         Optional<Tweet> oT = tweetRepository.findByIdAndDeletedFalse(id);
@@ -166,57 +235,93 @@ public class TweetServiceImpl implements TweetService {
     }
 
 
+    /**
+     * Reposts are tweets of their authors, so they are looked for on every shard.
+     */
+    @Transactional(readOnly = true)
     @Override
     public List<TweetResponseDto> getReposts(Long id) {
         Optional<Tweet> optionalTweet = tweetRepository.findByIdAndDeletedFalse(id);
         if (optionalTweet.isEmpty()) {
             throw new NotFoundException("Tweet not found with id: " + id);
         }
-        List<Tweet> allTweets = tweetRepository.findAllByDeletedFalse();
-        ArrayList<Tweet> result = new ArrayList<>();
-
-
-        for (Tweet tweet : allTweets) {
-            if (tweet.getRepostOf() != null && tweet.getRepostOf().equals(optionalTweet.get())) {
-                result.add(tweet);
-            }
-        }
-        return tweetMapper.entitiesToDtos(result);
+        List<TweetResponseDto> reposts = new ArrayList<>();
+        // mapped on each shard, inside its transaction
+        shards.scatter(() -> tweetMapper.entitiesToDtos(tweetRepository.findAllByRepostOfIdAndDeletedFalse(id)))
+                .forEach(reposts::addAll);
+        return reposts;
     }
 
+    /**
+     * The mentions of a tweet are stored with it; the users mentioned are read on their own shards.
+     */
+    @Transactional(readOnly = true)
     @Override
     public List<UserResponseDto> getMentions(Long id) {
         Optional<Tweet> optionalTweet = tweetRepository.findByIdAndDeletedFalse(id);
         if (optionalTweet.isEmpty()) {
             throw new NotFoundException("Tweet not found with id: " + id);
         }
-        List<User> mentionsUserList = new ArrayList<>(optionalTweet.get().getMentionsUserlist());
-
-        ArrayList<User> del = new ArrayList<>();
-        for (User u : mentionsUserList) {
-            if (u.isDeleted()) {
-                del.add(u);
-            }
-        }
-        for (User u : del) {
-            mentionsUserList.remove(u);
+        List<Long> mentioned = tweetRepository.findMentionedUserIdsById(id);
+        List<UserResponseDto> users = new ArrayList<>();
+        if (!mentioned.isEmpty()) {
+            shards.scatter(mentioned, shards.getShardMap()::shardOfUser,
+                    ids -> userMapper.entitiesToDtos(userRepository.findAllByDeletedFalseAndIdIn(ids)))
+                    .forEach(users::addAll);
         }
-
-        return userMapper.entitiesToDtos(mentionsUserList);
+        return users;
     }
 
 
     //////////////////////////////////////////////////////////////////////////////////
 
 
+    @Transactional(readOnly = true)
     @Override
     public List<TweetResponseDto> getTweets() {
+        if (shards.isSharded()) {
+            return shards.gather(() -> tweetMapper.entitiesToDtos(allTweets()),
+                    Comparator.comparing(TweetResponseDto::getPosted, Comparator.reverseOrder()));
+        }
+        return tweetMapper.entitiesToDtos(allTweets());
 
-        List<Tweet> tweetList = tweetRepository.findAllByDeletedFalse();
+    }
 
-        tweetList.sort(new SortByPostedReverse());
-        return tweetMapper.entitiesToDtos(tweetList);
+    @Transactional(readOnly = true)
+    @Override
+    public NormalizedTweetListDto getTweetsNormalized() {
+        if (shards.isSharded()) {
+            return tweetListNormalizer.merge(shards.scatter(() -> tweetListNormalizer.normalize(allTweets())));
+        }
+        return tweetListNormalizer.normalize(allTweets());
+    }
 
+    /**
+     * GET tweets?ids=
+     * Resolves a batch of tweet ids with a single query. The response has one entry per requested id, in request
+     * order, with deleted and unknown tweets marked as not found.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public List<BatchItemDto<TweetResponseDto>> getTweetsByIds(List<Long> ids) {
+        if (ids.size() > maxBatchSize) {
+            throw new BadRequestException("At most " + maxBatchSize + " tweets can be requested at once");
+        }
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<TweetResponseDto> tweets = new ArrayList<>();
+        // mapped on each shard, inside its transaction
+        shards.scatter(new HashSet<>(ids), shards.getShardMap()::shardOfTweet,
+                shardIds -> tweetMapper.entitiesToDtos(tweetRepository.findAllByIdInAndDeletedFalse(shardIds)))
+                .forEach(tweets::addAll);
+        return inRequestOrder(ids, tweets, TweetResponseDto::getId, Function.identity());
+    }
+
+    private List<Tweet> allTweets() {
+        List<Tweet> tweetList = tweetRepository.findAllByDeletedFalse();
+        tweetList.sort(new SortByPostedReverse());
+        return tweetList;
     }
 
 
@@ -226,7 +331,8 @@ public class TweetServiceImpl implements TweetService {
         Optional<Tweet> tToDel = tweetRepository.findByIdAndDeletedFalse(id);
 
 
-        if (tToDel.isEmpty() || !credentialsDto.getUsername().equals(tToDel.get().getAuthor().getCredentials().getUsername())) {
+        // the author lives on the tweet's shard, so their credentials are checked there
+        if (tToDel.isEmpty() || !credentialsAreCorrect(Optional.of(tToDel.get().getAuthor()), credentialsDto)) {
 
 
             throw new NotFoundException("No tweet found with id: " + id);
@@ -237,11 +343,20 @@ public class TweetServiceImpl implements TweetService {
         tToDel.get().setDeleted(true);
 
 
-        return tweetMapper.entityToDto(tweetRepository.saveAndFlush(tToDel.get()));
+        Tweet deletedTweet = tweetRepository.saveAndFlush(tToDel.get());
+        TweetResponseDto deleted = tweetMapper.entityToDto(deletedTweet);
+        tweetContentStore.delete(id);
+        eventLog.append(EventType.TWEET_DELETED, tToDel.get().getAuthor().getId(), id);
+        cacheInvalidationBus.publish(CachedEntity.TWEET, id, deletedTweet.getVersion());
+        return deleted;
 
 
     }
 
+    /**
+     * Likes are stored with the liking user, so the likers are looked for on every shard.
+     */
+    @Transactional(readOnly = true)
     @Override
     public List<UserResponseDto> getLikes(Long id) {
 
@@ -256,11 +371,16 @@ public class TweetServiceImpl implements TweetService {
         }
 
 
-        return tweetMapper.entitiesToUserDtos(optionalTweet.get().getLikesUserList());
+        List<UserResponseDto> likers = new ArrayList<>();
+        // mapped on each shard, inside its transaction
+        shards.scatter(() -> tweetMapper.entitiesToUserDtos(userRepository.findAllLikingTweet(id)))
+                .forEach(likers::addAll);
+        return likers;
 
 
     }
 
+    @Transactional(readOnly = true)
     @Override
     public TweetResponseDto getTweet(Long id) {
 
@@ -280,6 +400,87 @@ public class TweetServiceImpl implements TweetService {
     }
 
 
+    /**
+     * GET tweets/{id} conditional request support. The ETag covers the version counters of everything the response
+     * embeds: the tweet, its author, and recursively the tweets it replies to or reposts with their authors. They are
+     * read in a single query without loading the tweet graph, so a 304 costs the same round trip however deep the
+     * thread.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public ResourceVersionDto getTweetVersion(Long id) {
+        Map<Long, TweetRepository.VersionView> chain = versionChain(id);
+        TweetRepository.VersionView tweet = chain.get(id);
+        if (tweet == null || tweet.isDeleted()) {
+            throw new NotFoundException("No tweet found with id: " + id);
+        }
+        List<Long> versions = new ArrayList<>();
+        long lastModified = collectVersions(tweet, chain, versions);
+        // FNV-1a over the counters, which keeps the ETag short however long the reply chain is
+        long hash = 0xCBF29CE484222325L;
+        for (long version : versions) {
+            hash = (hash ^ version) * 0x100000001B3L;
+        }
+        String etag = String.format("\"t%d.%d.%016x\"", tweet.getVersion(), versions.size(), hash);
+        return new ResourceVersionDto(etag, lastModified);
+    }
+
+    /**
+     * The version chain of the tweet, read on its shard, and the chains of the embedded tweets that live on other
+     * shards, which the recursive query cannot reach, read on theirs.
+     */
+    private Map<Long, TweetRepository.VersionView> versionChain(Long id) {
+        Map<Long, TweetRepository.VersionView> chain = new HashMap<>();
+        Set<Long> requested = new HashSet<>();
+        Deque<Long> missing = new ArrayDeque<>();
+        missing.add(id);
+        while (!missing.isEmpty()) {
+            Long next = missing.poll();
+            if (chain.containsKey(next) || !requested.add(next)) {
+                continue;
+            }
+            List<TweetRepository.VersionView> versions = shards.readOn(shards.getShardMap().shardOfTweet(next),
+                    () -> tweetRepository.findVersionChainById(next));
+            for (TweetRepository.VersionView version : versions) {
+                chain.put(version.getId(), version);
+            }
+            for (TweetRepository.VersionView version : versions) {
+                for (Long embeddedId : new Long[] { version.getInReplyToId(), version.getRepostOfId() }) {
+                    if (embeddedId != null && !chain.containsKey(embeddedId)) {
+                        missing.add(embeddedId);
+                    }
+                }
+            }
+        }
+        return chain;
+    }
+
+    /**
+     * Adds the versions of the tweet and of everything embedded in its DTO, in mapping order with -1 for a missing
+     * tweet, and returns the latest modification time among them.
+     */
+    private long collectVersions(TweetRepository.VersionView tweet, Map<Long, TweetRepository.VersionView> chain,
+            List<Long> versions) {
+        versions.add(tweet.getVersion());
+        versions.add(tweet.getAuthorVersion());
+        long lastModified = Stream.of(tweet.getModified(), tweet.getAuthorModified())
+                .filter(Objects::nonNull)
+                .mapToLong(Timestamp::getTime)
+                .max()
+                .orElse(-1);
+        for (Long embeddedId : new Long[] { tweet.getInReplyToId(), tweet.getRepostOfId() }) {
+            TweetRepository.VersionView embedded = embeddedId == null ? null : chain.get(embeddedId);
+            if (embedded == null) {
+                versions.add(-1L);
+            } else {
+                lastModified = Math.max(lastModified, collectVersions(embedded, chain, versions));
+            }
+        }
+        return lastModified;
+    }
+
+
+    @Transactional(readOnly = true)
     @Override
     public ContextDto getContext(Long id) {
         Optional<Tweet> optionalTweet = tweetRepository.findByIdAndDeletedFalse(id);
@@ -288,6 +489,9 @@ public class TweetServiceImpl implements TweetService {
         }
         ContextDto result = new ContextDto();
         result.setTarget(tweetMapper.entityToDto(optionalTweet.get()));
+        if (shards.isSharded()) {
+            return contextAcrossShards(optionalTweet.get(), result);
+        }
         List<Tweet> allTweets = tweetRepository.findAll();
         ArrayList<ArrayList<Tweet>> unsortedContexts = new ArrayList<>();
         for (Tweet _tweet : allTweets) {
@@ -328,26 +532,70 @@ public class TweetServiceImpl implements TweetService {
     }
 
 
+    /**
+     * {@link #getContext(Long)} with replies on any shard: the longest reply chain through the target is put together
+     * from the reply links of every shard, and its tweets are read on their own shards.
+     */
+    private ContextDto contextAcrossShards(Tweet target, ContextDto result) {
+        Map<Long, Long> inReplyTo = new HashMap<>();
+        shards.scatter(tweetRepository::findAllReplies)
+                .forEach(replies -> replies.forEach(reply -> inReplyTo.put(reply.getId(), reply.getInReplyToId())));
+        List<Long> longest = List.of();
+        for (Long id : inReplyTo.keySet()) {
+            List<Long> chain = new ArrayList<>();
+            for (Long link = id; link != null; link = inReplyTo.get(link)) {
+                chain.add(link);
+            }
+            if (chain.size() > longest.size() && chain.contains(target.getId())) {
+                longest = chain;
+            }
+        }
+        List<Long> others = longest.stream().filter(id -> !id.equals(target.getId())).toList();
+        List<TweetResponseDto> tweets = new ArrayList<>();
+        if (!others.isEmpty()) {
+            // mapped on each shard, inside its transaction
+            shards.scatter(others, shards.getShardMap()::shardOfTweet,
+                    ids -> tweetMapper.entitiesToDtos(tweetRepository.findAllByIdInAndDeletedFalse(ids)))
+                    .forEach(tweets::addAll);
+        }
+        // a repost in the chain has no posted time of its own
+        Comparator<TweetResponseDto> postedReverse = Comparator.comparing(TweetResponseDto::getPosted,
+                Comparator.nullsLast(Comparator.reverseOrder()));
+        Predicate<TweetResponseDto> isAfter = tweet -> tweet.getPosted() != null && target.getPosted() != null
+                && tweet.getPosted().after(target.getPosted());
+        result.setAfter(tweets.stream().filter(isAfter).sorted(postedReverse).toList());
+        result.setBefore(tweets.stream().filter(isAfter.negate()).sorted(postedReverse).toList());
+        return result;
+    }
+
+
+    @Transactional(readOnly = true)
     @Override
     public List<TweetResponseDto> getReplies(Long id) {
         Optional<User> optionalUser = userRepository.findByIdAndDeletedFalse(id);
-        List<Tweet> allTweets = tweetRepository.findAllByDeletedFalse();
         if (optionalUser.isEmpty()) {
             throw new BadRequestException("bad user id");
         }
-
-        ArrayList<Tweet> result = new ArrayList<>();
-        for (Tweet tweet : allTweets) {
-            if (tweet.getInReplyTo() != null && tweet.getInReplyTo().getAuthor() == optionalUser.get()) {
-                result.add(tweet);
+        if (shards.isSharded()) {
+            // replies are tweets of their authors, on any shard
+            List<Long> tweetIds = tweetRepository.findIdsByAuthorIdIn(List.of(id));
+            List<TweetResponseDto> replies = new ArrayList<>();
+            if (!tweetIds.isEmpty()) {
+                shards.scatter(() -> tweetMapper.entitiesToDtos(
+                        tweetRepository.findAllByInReplyToIdInAndDeletedFalse(tweetIds))).forEach(replies::addAll);
             }
+            return replies;
         }
-        return tweetMapper.entitiesToDtos(result);
+        return tweetMapper.entitiesToDtos(tweetRepository.findRepliesToAuthor(optionalUser.get()));
     }
 
+    /**
+     * The like is stored with the liker, on their shard; the tweet liked may live on another one.
+     */
     @Override
     public void likeTweet(Long id, CredentialsDto credentialsDto) {
 
+        shards.bindUsername(credentialsDto.getUsername());
         Optional<User> liker = userRepository.findByCredentialsUsernameAndDeletedFalse(credentialsDto.getUsername());
 
         if (liker.isEmpty() || !credentialsAreCorrect(liker, credentialsDto)) {
@@ -356,9 +604,9 @@ public class TweetServiceImpl implements TweetService {
         }
 
 
-        Optional<Tweet> toBeLiked = tweetRepository.findByIdAndDeletedFalse(id);
+        Optional<Long> author = liveAuthorOf(id);
 
-        if (toBeLiked.isEmpty() || toBeLiked.get().isDeleted()) {
+        if (author.isEmpty()) {
 
 
             throw new NotFoundException("No tweet found with id: " + id);
@@ -366,20 +614,10 @@ public class TweetServiceImpl implements TweetService {
         }
 
 
-        if (!toBeLiked.get().getLikesUserList().contains(liker.get())) {
-
-            toBeLiked.get().getLikesUserList().add(liker.get());
-            tweetRepository.saveAndFlush(toBeLiked.get());
-
-
-        }
-
-
-        if (!liker.get().getLikesTweetList().contains(toBeLiked.get())) {
-
-            liker.get().getLikesTweetList().add(toBeLiked.get());
+        if (!userRepository.existsLike(liker.get().getId(), id)) {
 
-            userRepository.saveAndFlush(liker.get());
+            userRepository.insertLike(liker.get().getId(), id);
+            eventLog.append(EventType.TWEET_LIKED, liker.get().getId(), id, author.get(), null);
 
 
         }
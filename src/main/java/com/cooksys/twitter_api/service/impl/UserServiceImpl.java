@@ -1,5 +1,8 @@
 package com.cooksys.twitter_api.service.impl;
 
+import com.cooksys.twitter_api.cache.CacheInvalidationBus;
+import com.cooksys.twitter_api.cache.CachedEntity;
+import com.cooksys.twitter_api.config.ReplicaRoutingDataSource;
 import com.cooksys.twitter_api.dtos.*;
 import com.cooksys.twitter_api.entities.Credentials;
 import com.cooksys.twitter_api.entities.Profile;
@@ -10,29 +13,59 @@ import com.cooksys.twitter_api.exceptions.NotFoundException;
 import com.cooksys.twitter_api.helpers.SortByPostedReverse;
 import com.cooksys.twitter_api.mappers.CredentialsMapper;
 import com.cooksys.twitter_api.mappers.ProfileMapper;
+import com.cooksys.twitter_api.mappers.TweetListNormalizer;
 import com.cooksys.twitter_api.mappers.TweetMapper;
 import com.cooksys.twitter_api.mappers.UserMapper;
+import com.cooksys.twitter_api.repositories.TweetRepository;
 import com.cooksys.twitter_api.repositories.UserRepository;
 import com.cooksys.twitter_api.service.UserService;
+import com.cooksys.twitter_api.sharding.Shards;
+import com.cooksys.twitter_api.storage.EventLog;
+import com.cooksys.twitter_api.storage.EventType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import static com.cooksys.twitter_api.helpers.Helpers.*;
 
 @Service
 @RequiredArgsConstructor
+@Transactional
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
+    private final TweetRepository tweetRepository;
     private final UserMapper userMapper;
     private final TweetMapper tweetMapper;
+    private final TweetListNormalizer tweetListNormalizer;
     private final ProfileMapper profileMapper;
     private final CredentialsMapper credentialsMapper;
+    private final EventLog eventLog;
+    private final Shards shards;
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    @Value("${twitter.batch.max-size:100}")
+    private int maxBatchSize;
+
+    @Value("${twitter.sync.lag:5000}")
+    private long syncLag;
+
+    @Value("${twitter.sync.max-token-age:2592000000}")
+    private long maxTokenAge;
 
 
     /**
@@ -41,6 +74,7 @@ public class UserServiceImpl implements UserService {
      * of a response.
      * #42
      */
+    @Transactional(readOnly = true)
     @Override
     public UserResponseDto getUser(String username) {
         Optional<User> optionalUser = userRepository.findByCredentialsUsernameAndDeletedFalse(username);
@@ -50,6 +84,22 @@ public class UserServiceImpl implements UserService {
         return userMapper.entityToDto(optionalUser.get());
     }
 
+    /**
+     * GET users/@{username} conditional request support, from the user's version counter.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public ResourceVersionDto getUserVersion(String username) {
+        Optional<UserRepository.VersionView> optionalVersion =
+                userRepository.findVersionByCredentialsUsernameAndDeletedFalse(username);
+        if (optionalVersion.isEmpty()) {
+            throw new NotFoundException(String.format("User not found with username @%s", username));
+        }
+        UserRepository.VersionView version = optionalVersion.get();
+        return new ResourceVersionDto(String.format("\"u%d\"", version.getVersion()),
+                version.getModified() == null ? -1 : version.getModified().getTime());
+    }
+
     /**
      * PATCH users/@{username}
      * Updates the profile of a user with the given username. If no such user exists, the user is deleted, or the
@@ -91,7 +141,10 @@ public class UserServiceImpl implements UserService {
             optionalUser.get().getProfile().setLastName(profileDto.getLastName());
         }
         //todo: UNIMPORTANT, but it'd be best practice to guard DB from a no-change saveAndFlush;
-        return userMapper.entityToDto(userRepository.saveAndFlush(optionalUser.get()));
+        User savedUser = userRepository.saveAndFlush(optionalUser.get());
+        eventLog.append(EventType.USER_UPDATED, savedUser.getId(), savedUser.getId(), 0, username);
+        cacheInvalidationBus.publish(CachedEntity.USER, savedUser.getId(), savedUser.getVersion());
+        return userMapper.entityToDto(savedUser);
     }
 
 
@@ -111,7 +164,9 @@ public class UserServiceImpl implements UserService {
             throw new BadRequestException("Credentials provided do not match an active user in the database");
         }
         optionalUser.get().setDeleted(true);
-        userRepository.saveAndFlush(optionalUser.get());
+        User deletedUser = userRepository.saveAndFlush(optionalUser.get());
+        eventLog.append(EventType.USER_DELETED, optionalUser.get().getId(), optionalUser.get().getId(), 0, username);
+        cacheInvalidationBus.publish(CachedEntity.USER, deletedUser.getId(), deletedUser.getVersion());
         return userMapper.entityToDto(optionalUser.get());
     }
 
@@ -126,21 +181,23 @@ public class UserServiceImpl implements UserService {
      */
     @Override
     public void followUser(String username, CredentialsDto credentialsDto) {
-        Optional<User> optionalUserToFollow = userRepository.findByCredentialsUsernameAndDeletedFalse(username);
+        // the follow is stored with the follower
+        shards.bindUsername(credentialsDto.getUsername());
         Optional<User> optionalUser = userRepository.findByCredentialsUsernameAndDeletedFalse(credentialsDto.getUsername());
         if (optionalUser.isEmpty() || !credentialsAreCorrect(optionalUser, credentialsDto)) {
             throw new BadRequestException("Credentials provided do not match an active user in the database");
         }
+        Optional<Long> optionalUserToFollow = activeUserId(username);
         if (optionalUserToFollow.isEmpty()) {
             throw new BadRequestException("No such followable user exists");
         }
-        if (optionalUser.get().getFollowing().contains(optionalUserToFollow.get())) {
+        if (userRepository.existsFollow(optionalUser.get().getId(), optionalUserToFollow.get())) {
             throw new BadRequestException(String.format("Already following @%s", username));
         }
-        ArrayList<User> followingList = new ArrayList<>(optionalUser.get().getFollowing());
-        followingList.add(optionalUserToFollow.get());
-        optionalUser.get().setFollowing(followingList);
-        userRepository.saveAndFlush(optionalUser.get());
+        userRepository.insertFollow(optionalUser.get().getId(), optionalUserToFollow.get());
+        userRepository.updateFollowingModified(optionalUser.get().getId(), new Timestamp(System.currentTimeMillis()));
+        eventLog.append(EventType.USER_FOLLOWED, optionalUser.get().getId(), optionalUserToFollow.get());
+        cacheInvalidationBus.publish(CachedEntity.FOLLOWING, optionalUser.get().getId(), System.currentTimeMillis());
     }
 
 
@@ -154,21 +211,30 @@ public class UserServiceImpl implements UserService {
      */
     @Override
     public void unfollowUser(String username, CredentialsDto credentialsDto) {
-        Optional<User> optionalUserToUnfollow = userRepository.findByCredentialsUsernameAndDeletedFalse(username);
+        shards.bindUsername(credentialsDto.getUsername());
         Optional<User> optionalUser = userRepository.findByCredentialsUsernameAndDeletedFalse(credentialsDto.getUsername());
         if (optionalUser.isEmpty() || !credentialsAreCorrect(optionalUser, credentialsDto)) {
             throw new BadRequestException("Credentials provided do not match an active user in the database");
         }
+        Optional<Long> optionalUserToUnfollow = activeUserId(username);
         if (optionalUserToUnfollow.isEmpty()) {
             throw new BadRequestException("No such followable user exists");
         }
-        if (!optionalUser.get().getFollowing().contains(optionalUserToUnfollow.get())) {
-            throw new BadRequestException(String.format("Not following @%s", optionalUserToUnfollow.get().getCredentials().getUsername()));
+        if (!userRepository.existsFollow(optionalUser.get().getId(), optionalUserToUnfollow.get())) {
+            throw new BadRequestException(String.format("Not following @%s", username));
         }
-        ArrayList<User> followingList = new ArrayList<>(optionalUser.get().getFollowing());
-        followingList.remove(optionalUserToUnfollow.get());
-        optionalUser.get().setFollowing(followingList);
-        userRepository.saveAndFlush(optionalUser.get());
+        userRepository.deleteFollow(optionalUser.get().getId(), optionalUserToUnfollow.get());
+        userRepository.updateFollowingModified(optionalUser.get().getId(), new Timestamp(System.currentTimeMillis()));
+        eventLog.append(EventType.USER_UNFOLLOWED, optionalUser.get().getId(), optionalUserToUnfollow.get());
+        cacheInvalidationBus.publish(CachedEntity.FOLLOWING, optionalUser.get().getId(), System.currentTimeMillis());
+    }
+
+    /**
+     * The id of the active user with the given username, read on that user's shard.
+     */
+    private Optional<Long> activeUserId(String username) {
+        return shards.readOn(shards.getShardMap().shardOfUsername(username),
+                () -> userRepository.findByCredentialsUsernameAndDeletedFalse(username).map(User::getId));
     }
 
     /**
@@ -179,8 +245,69 @@ public class UserServiceImpl implements UserService {
      * never created), an error should be sent in lieu of a response.
      * #67
      */
+    @Transactional(readOnly = true)
     @Override
     public List<TweetResponseDto> getFeed(String username) {
+        if (shards.isSharded()) {
+            return shards.gather(feedAuthorIds(username), shards.getShardMap()::shardOfUser,
+                    ids -> tweetMapper.entitiesToDtos(liveTweetsOfByPostedReverse(ids)),
+                    Comparator.comparing(TweetResponseDto::getPosted, Comparator.reverseOrder()));
+        }
+        return tweetMapper.entitiesToDtos(feedOf(username));
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public NormalizedTweetListDto getFeedNormalized(String username) {
+        if (shards.isSharded()) {
+            return tweetListNormalizer.merge(shards.scatter(feedAuthorIds(username),
+                    shards.getShardMap()::shardOfUser,
+                    ids -> tweetListNormalizer.normalize(liveTweetsOfByPostedReverse(ids))));
+        }
+        return tweetListNormalizer.normalize(feedOf(username));
+    }
+
+    /**
+     * With several shards the followed authors' tweets live on their own shards, so the feed is put together from the
+     * shards: the user's follows are read on the user's shard, and the tweets of the user and of each active followed
+     * user on the shard of their author.
+     */
+    private List<Long> feedAuthorIds(String username) {
+        Optional<User> optionalUser = userRepository.findByCredentialsUsernameAndDeletedFalse(username);
+        if (optionalUser.isEmpty()) {
+            throw new NotFoundException(String.format("User not found with username @%s", username));
+        }
+        Long userId = optionalUser.get().getId();
+        List<Long> authors = new ArrayList<>(activeAmong(userRepository.findFollowingIdsById(userId)));
+        authors.add(userId);
+        return authors;
+    }
+
+    /**
+     * The active users among the given ones, each checked on its own shard.
+     */
+    private Set<Long> activeAmong(List<Long> userIds) {
+        HashSet<Long> active = new HashSet<>();
+        if (!userIds.isEmpty()) {
+            shards.scatter(userIds, shards.getShardMap()::shardOfUser, userRepository::findIdsByIdInAndDeletedFalse)
+                    .forEach(active::addAll);
+        }
+        return active;
+    }
+
+    private List<Tweet> liveTweetsOfByPostedReverse(List<Long> authorIds) {
+        List<Tweet> tweets = tweetRepository.findAllByAuthorIdInAndDeletedFalse(authorIds);
+        tweets.sort(new SortByPostedReverse());
+        return tweets;
+    }
+
+    private List<Tweet> liveTweetsByPostedReverse(List<Long> ids) {
+        List<Tweet> tweets = tweetRepository.findAllByIdInAndDeletedFalse(ids);
+        tweets.sort(new SortByPostedReverse());
+        return tweets;
+    }
+
+    private List<Tweet> feedOf(String username) {
         Optional<User> optionalUser = userRepository.findByCredentialsUsernameAndDeletedFalse(username);
         if (optionalUser.isEmpty()) {
             throw new NotFoundException(String.format("User not found with username @%s", username));
@@ -193,11 +320,71 @@ public class UserServiceImpl implements UserService {
         List<User> users = userRepository.findAllByDeletedFalseAndIdIn(idsList);
         users.add(optionalUser.get());
         for (User user : users) {
-            feed.addAll(user.getTweets());
+            for (Tweet tweet : user.getTweets()) {
+                if (!tweet.isDeleted()) {
+                    feed.add(tweet);
+                }
+            }
         }
         //TODO: Check sort order
         feed.sort(new SortByPostedReverse());
-        return tweetMapper.entitiesToDtos(feed);
+        return feed;
+    }
+
+    /**
+     * GET users/@{username}/feed?since=
+     * A sync token is a watermark of the tweet and user modified times, which every node and shard share through the
+     * database. The delta is whatever changed after it: tweets posted or deleted by the user or by active followed
+     * users, and, for followed authors deleted or reactivated, all of their tweets dropped or added at once. Follows
+     * leave no rows behind once undone, so a follow or unfollow after the token gets the full feed.
+     */
+    // on the primary: a lagging replica could miss changes the token already covers
+    @Transactional(readOnly = true)
+    @Override
+    public SyncDto getFeedSince(String username, String since) {
+        return ReplicaRoutingDataSource.onPrimary(() -> feedSince(username, since));
+    }
+
+    private SyncDto feedSince(String username, String since) {
+        // taken first, so a change racing with this sync is sent again next time rather than lost
+        long now = System.currentTimeMillis();
+        Optional<User> optionalUser = userRepository.findByCredentialsUsernameAndDeletedFalse(username);
+        if (optionalUser.isEmpty()) {
+            throw new NotFoundException(String.format("User not found with username @%s", username));
+        }
+        User user = optionalUser.get();
+        Timestamp changedAfter = changedAfter(decodeSyncToken(since), now);
+        Timestamp followingModified = userRepository.findFollowingModifiedById(user.getId());
+        if (changedAfter == null || followingModified != null && followingModified.after(changedAfter)) {
+            return new SyncDto(getFeed(username), new ArrayList<>(), encodeSyncToken(now), true);
+        }
+        // followed users may live on other shards
+        List<Long> following = userRepository.findFollowingIdsById(user.getId());
+        HashSet<Long> authors = new HashSet<>(activeAmong(following));
+        authors.add(user.getId());
+        HashSet<Long> added = new HashSet<>();
+        HashSet<Long> deleted = new HashSet<>();
+        List<Long> joined = new ArrayList<>();
+        List<Long> left = new ArrayList<>();
+        if (!following.isEmpty()) {
+            shards.scatter(following, shards.getShardMap()::shardOfUser,
+                    ids -> userRepository.findChangesByIdIn(ids, changedAfter)).forEach(changes -> changes.forEach(
+                            change -> (change.isDeleted() ? left : joined).add(change.getId())));
+        }
+        // each author's tweets live on the author's shard
+        shards.scatter(authors, shards.getShardMap()::shardOfUser,
+                ids -> tweetRepository.findChangesByAuthorIdIn(ids, changedAfter)).forEach(changes -> changes.forEach(
+                        change -> (change.isDeleted() ? deleted : added).add(change.getId())));
+        if (!joined.isEmpty()) {
+            shards.scatter(joined, shards.getShardMap()::shardOfUser,
+                    tweetRepository::findIdsByAuthorIdInAndDeletedFalse).forEach(added::addAll);
+        }
+        if (!left.isEmpty()) {
+            shards.scatter(left, shards.getShardMap()::shardOfUser, tweetRepository::findIdsByAuthorIdIn)
+                    .forEach(deleted::addAll);
+        }
+        added.removeAll(deleted);
+        return delta(added, deleted, now, tweet -> authors.contains(tweet.getAuthor().getId()));
     }
 
     /**
@@ -207,8 +394,19 @@ public class UserServiceImpl implements UserService {
      * username exists (deleted or never created), an error should be sent in lieu of a response.
      * #66
      */
+    @Transactional(readOnly = true)
     @Override
     public List<TweetResponseDto> getTweets(String username) {
+        return tweetMapper.entitiesToDtos(tweetsOf(username));
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public NormalizedTweetListDto getTweetsNormalized(String username) {
+        return tweetListNormalizer.normalize(tweetsOf(username));
+    }
+
+    private List<Tweet> tweetsOf(String username) {
         Optional<User> optionalUser = userRepository.findByCredentialsUsernameAndDeletedFalse(username);
         if (optionalUser.isEmpty()) {
             throw new NotFoundException(String.format("No active user found with username @%s", username));
@@ -220,7 +418,7 @@ public class UserServiceImpl implements UserService {
                 }
         }
         result.sort(new SortByPostedReverse());
-        return tweetMapper.entitiesToDtos(result);
+        return result;
     }
 
 
@@ -233,42 +431,144 @@ public class UserServiceImpl implements UserService {
      * content following a @.
      * #65
      */
+    @Transactional(readOnly = true)
     @Override
     public List<TweetResponseDto> getMentions(String username) {
+        if (shards.isSharded()) {
+            return shards.gather(mentioningTweetIds(username), shards.getShardMap()::shardOfTweet,
+                    ids -> tweetMapper.entitiesToDtos(liveTweetsByPostedReverse(ids)),
+                    Comparator.comparing(TweetResponseDto::getPosted, Comparator.reverseOrder()));
+        }
+        return tweetMapper.entitiesToDtos(mentionsOf(username));
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public NormalizedTweetListDto getMentionsNormalized(String username) {
+        if (shards.isSharded()) {
+            return tweetListNormalizer.merge(shards.scatter(mentioningTweetIds(username),
+                    shards.getShardMap()::shardOfTweet,
+                    ids -> tweetListNormalizer.normalize(liveTweetsByPostedReverse(ids))));
+        }
+        return tweetListNormalizer.normalize(mentionsOf(username));
+    }
+
+    /**
+     * With several shards a mention is stored with the mentioning tweet, on its author's shard, so the ids of the
+     * tweets mentioning the user are collected from every shard.
+     */
+    private List<Long> mentioningTweetIds(String username) {
         Optional<User> optionalUser = userRepository.findByCredentialsUsernameAndDeletedFalse(username);
         if (optionalUser.isEmpty()) {
             throw new NotFoundException(String.format("User not found with username @%s", username));
         }
-        ArrayList<Tweet> res = new ArrayList<>();
-        for (Tweet tweet : optionalUser.get().getMentionsTweetList()) {
-            if (!tweet.isDeleted()) {
-                res.add(tweet);
-            }
+        Long userId = optionalUser.get().getId();
+        return shards.scatter(() -> tweetRepository.findIdsMentioning(userId)).stream()
+                .flatMap(List::stream)
+                .toList();
+    }
+
+    private List<Tweet> mentionsOf(String username) {
+        Optional<User> optionalUser = userRepository.findByCredentialsUsernameAndDeletedFalse(username);
+        if (optionalUser.isEmpty()) {
+            throw new NotFoundException(String.format("User not found with username @%s", username));
         }
-        //TODO: Check sort order
-        res.sort(new SortByPostedReverse());
-        return tweetMapper.entitiesToDtos(res);
+        // filtered and ordered by the database instead of loading every mention ever made
+        return tweetRepository.findMentioning(optionalUser.get().getId());
     }
 
 
+    /**
+     * GET users/@{username}/mentions?since=
+     * The mentions of a tweet are stored with it, so the tweets mentioning the user that were posted or deleted after
+     * the token's watermark are found through the mentions join table of every shard.
+     */
+    // on the primary: a lagging replica could miss changes the token already covers
+    @Transactional(readOnly = true)
+    @Override
+    public SyncDto getMentionsSince(String username, String since) {
+        return ReplicaRoutingDataSource.onPrimary(() -> mentionsSince(username, since));
+    }
+
+    private SyncDto mentionsSince(String username, String since) {
+        long now = System.currentTimeMillis();
+        Optional<User> optionalUser = userRepository.findByCredentialsUsernameAndDeletedFalse(username);
+        if (optionalUser.isEmpty()) {
+            throw new NotFoundException(String.format("User not found with username @%s", username));
+        }
+        Timestamp changedAfter = changedAfter(decodeSyncToken(since), now);
+        if (changedAfter == null) {
+            return new SyncDto(getMentions(username), new ArrayList<>(), encodeSyncToken(now), true);
+        }
+        Long userId = optionalUser.get().getId();
+        HashSet<Long> added = new HashSet<>();
+        HashSet<Long> deleted = new HashSet<>();
+        shards.scatter(() -> tweetRepository.findChangesMentioning(userId, changedAfter))
+                .forEach(changes -> changes.forEach(
+                        change -> (change.isDeleted() ? deleted : added).add(change.getId())));
+        return delta(added, deleted, now, tweet -> true);
+    }
+
+    private SyncDto delta(Set<Long> added, Set<Long> deleted, long token, Predicate<Tweet> inList) {
+        List<TweetResponseDto> tweets = new ArrayList<>();
+        if (!added.isEmpty()) {
+            // mapped on each shard, inside its transaction
+            tweets = shards.gather(added, shards.getShardMap()::shardOfTweet,
+                    ids -> tweetMapper.entitiesToDtos(liveTweetsByPostedReverse(ids).stream().filter(inList).toList()),
+                    Comparator.comparing(TweetResponseDto::getPosted, Comparator.reverseOrder()));
+        }
+        ArrayList<Long> deletedIds = new ArrayList<>(deleted);
+        Collections.sort(deletedIds);
+        return new SyncDto(tweets, deletedIds, encodeSyncToken(token), false);
+    }
+
+    /**
+     * The modified time a delta starts from: the token's, less the lag window, which covers transactions that
+     * committed after a later sync had already read, and clock skew between the nodes stamping the rows. Changes in
+     * the window are sent again, which clients apply idempotently. Null when there is no token, or it is too old to be
+     * worth a delta, or it is ahead of this node's clock by more than the window.
+     */
+    private Timestamp changedAfter(Long token, long now) {
+        if (token == null || token < now - maxTokenAge || token > now + syncLag) {
+            return null;
+        }
+        return new Timestamp(token - syncLag);
+    }
+
+    private static String encodeSyncToken(long watermark) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(watermark).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Long decodeSyncToken(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid sync token");
+        }
+    }
+
     /**
      * GET users/@{username}/followers
      * Retrieves the followers of the user with the given username. Only active users should be included in the
      * response. If no active user with the given username exists, an error should be sent in lieu of a response.
      * #64
      */
+    @Transactional(readOnly = true)
     @Override
     public List<UserResponseDto> getFollowers(String username) {
         Optional<User> optionalUser = userRepository.findByCredentialsUsernameAndDeletedFalse(username);
         if (optionalUser.isEmpty()) {
             throw new NotFoundException(String.format("User not found with username @%s", username));
         }
+        Long userId = optionalUser.get().getId();
+        // each follow is stored with the follower, on the follower's shard; mapped there, inside its transaction
         ArrayList<UserResponseDto> result = new ArrayList<>();
-        for (User user : optionalUser.get().getFollowers()) {
-            if (!user.isDeleted()) {
-                result.add(userMapper.entityToDto(user));
-            }
-        }
+        shards.scatter(() -> userMapper.entitiesToDtos(userRepository.findAllActiveFollowersById(userId)))
+                .forEach(result::addAll);
         return result;
     }
 
@@ -278,34 +578,61 @@ public class UserServiceImpl implements UserService {
      * response. If no active user with the given username exists, an error should be sent in lieu of a response.
      * #63
      */
+    @Transactional(readOnly = true)
     @Override
     public List<UserResponseDto> getFollowing(String username) {
         Optional<User> optionalUser = userRepository.findByCredentialsUsernameAndDeletedFalse(username);
         if (optionalUser.isEmpty()) {
             throw new NotFoundException(String.format("User not found with username @%s", username));
         }
-        ArrayList<User> deleted = new ArrayList<>();
-        for (User user : optionalUser.get().getFollowing()) {
-            if (user.isDeleted()) {
-                deleted.add(user);
-            }
-        }
-        optionalUser.get().getFollowing().removeAll(deleted);
+        List<Long> followingIds = userRepository.findFollowingIdsById(optionalUser.get().getId());
         ArrayList<UserResponseDto> result = new ArrayList<>();
-        for (User user : optionalUser.get().getFollowing()) {
-            result.add(userMapper.entityToDto(user));
+        if (!followingIds.isEmpty()) {
+            // the followed users may live on other shards; mapped on each, inside its transaction
+            shards.scatter(followingIds, shards.getShardMap()::shardOfUser,
+                    ids -> userMapper.entitiesToDtos(userRepository.findAllByDeletedFalseAndIdIn(ids)))
+                    .forEach(result::addAll);
         }
         return result;
     }
 
 
+    /**
+     * GET users?usernames=
+     * Resolves a batch of usernames with a single query. The response has one entry per requested username, in request
+     * order, with deleted and unknown users marked as not found.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public List<BatchItemDto<UserResponseDto>> getUsersByUsernames(List<String> usernames) {
+        if (usernames.size() > maxBatchSize) {
+            throw new BadRequestException("At most " + maxBatchSize + " users can be requested at once");
+        }
+        if (usernames.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<UserResponseDto> users = new ArrayList<>();
+        // mapped on each shard, inside its transaction
+        shards.scatter(new HashSet<>(usernames), shards.getShardMap()::shardOfUsername,
+                shardUsernames -> userMapper.entitiesToDtos(
+                        userRepository.findAllByCredentialsUsernameInAndDeletedFalse(shardUsernames)))
+                .forEach(users::addAll);
+        return inRequestOrder(usernames, users, UserResponseDto::getUsername, Function.identity());
+    }
+
     /**
      * GET users
      * Retrieves all active (non-deleted) users as an array.
      * #44
      */
+    @Transactional(readOnly = true)
     @Override
     public List<UserResponseDto> getAllUsers() {
+        if (shards.isSharded()) {
+            return shards.scatter(() -> userMapper.entitiesToDtos(userRepository.findAllByDeletedFalse())).stream()
+                    .flatMap(List::stream)
+                    .toList();
+        }
         List<User> usersList = userRepository.findAllByDeletedFalse();
         //Todo: This could be done cleaner with entitiesToDtos if we can get that mapper method to work.
         ArrayList<UserResponseDto> result = new ArrayList<>();
@@ -331,6 +658,7 @@ public class UserServiceImpl implements UserService {
         if (!isValidCredentialsDto(credentialsDto) || !isValidProfileDto(profileDto)) {
             throw new BadRequestException("Required field(s) missing");
         }
+        shards.bindUsername(credentialsDto.getUsername());
         Optional<User> optionalUser = userRepository.findByCredentialsUsername(credentialsDto.getUsername());
         if (optionalUser.isPresent()) {
             if (!credentialsAreCorrect(optionalUser, credentialsDto)) {
@@ -340,7 +668,11 @@ public class UserServiceImpl implements UserService {
                 throw new BadRequestException("Username taken");
             }
             optionalUser.get().setDeleted(false);
-            return userMapper.entityToDto(userRepository.saveAndFlush(optionalUser.get()));
+            User reactivatedUser = userRepository.saveAndFlush(optionalUser.get());
+            eventLog.append(EventType.USER_REACTIVATED, reactivatedUser.getId(), reactivatedUser.getId(), 0,
+                    credentialsDto.getUsername());
+            cacheInvalidationBus.publish(CachedEntity.USER, reactivatedUser.getId(), reactivatedUser.getVersion());
+            return userMapper.entityToDto(reactivatedUser);
         }
         Credentials credentials = credentialsMapper.dtoToEntity(credentialsDto);
         Profile profile = profileMapper.dtoToEntity(profileDto);
@@ -350,7 +682,11 @@ public class UserServiceImpl implements UserService {
         user.setCredentials(credentials);
         user.setProfile(profile);
         user.setJoined(new Timestamp(System.currentTimeMillis()));
-        return userMapper.entityToDto(userRepository.saveAndFlush(user));
+        User savedUser = userRepository.saveAndFlush(user);
+        eventLog.append(EventType.USER_CREATED, savedUser.getId(), savedUser.getId(), 0, credentialsDto.getUsername());
+        // other nodes may have cached that the username resolves to no one
+        cacheInvalidationBus.publish(CachedEntity.USER, savedUser.getId(), savedUser.getVersion());
+        return userMapper.entityToDto(savedUser);
     }
 
 }
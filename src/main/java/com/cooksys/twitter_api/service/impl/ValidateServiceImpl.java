@@ -3,6 +3,7 @@ package com.cooksys.twitter_api.service.impl;
 import java.util.Optional;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.cooksys.twitter_api.entities.Hashtag;
 import com.cooksys.twitter_api.entities.User;
@@ -14,6 +15,7 @@ import lombok.RequiredArgsConstructor;
 
 @Service
 @RequiredArgsConstructor
+@Transactional(readOnly = true)
 public class ValidateServiceImpl implements ValidateService {
 
     private final HashtagRepository hashtagRepository;
@@ -0,0 +1,115 @@
+package com.cooksys.twitter_api.sharding;
+
+import java.util.Arrays;
+
+/**
+ * Placement of users, and the tweets they author, on shards.
+ * <p>
+ * Users are spread over a fixed number of virtual buckets by a hash of their username, taken when the user is created.
+ * The bucket becomes part of every id allocated for the user and for their tweets ({@code id % buckets}, see
+ * {@link ShardedIdGenerator}), so a user id, a tweet id and a username each lead to the owning bucket without a
+ * lookup. Buckets are assigned to shards by {@code twitter.sharding.bucket-map}, a list of
+ * {@code first-last:shard} ranges; buckets it leaves out go to {@code bucket % shards}. Moving a range of buckets to
+ * another shard is a change to that map plus copying the rows; ids never change.
+ */
+public class ShardMap {
+
+    private final int shardCount;
+    private final int[] bucketToShard;
+
+    public ShardMap(int shardCount, int buckets, String bucketMap) {
+        if (shardCount < 1 || buckets < shardCount) {
+            throw new IllegalArgumentException(
+                    "Sharding needs at least one shard and at least as many buckets as shards, got " + shardCount
+                            + " shards and " + buckets + " buckets");
+        }
+        this.shardCount = shardCount;
+        bucketToShard = new int[buckets];
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            bucketToShard[bucket] = bucket % shardCount;
+        }
+        if (bucketMap != null && !bucketMap.isBlank()) {
+            for (String entry : bucketMap.split(",")) {
+                assign(entry.trim());
+            }
+        }
+    }
+
+    public static ShardMap single() {
+        return new ShardMap(1, 1, null);
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public int getBuckets() {
+        return bucketToShard.length;
+    }
+
+    public int shardOfBucket(int bucket) {
+        return bucketToShard[bucket];
+    }
+
+    public int shardOfUser(long userId) {
+        return shardOfBucket(bucketOfId(userId, bucketToShard.length));
+    }
+
+    public int shardOfTweet(long tweetId) {
+        return shardOfBucket(bucketOfId(tweetId, bucketToShard.length));
+    }
+
+    public int shardOfUsername(String username) {
+        return shardOfBucket(bucketOfUsername(username, bucketToShard.length));
+    }
+
+    /**
+     * The number of buckets each shard owns, indexed by shard.
+     */
+    public int[] getBucketCounts() {
+        int[] counts = new int[shardCount];
+        Arrays.stream(bucketToShard).forEach(shard -> counts[shard]++);
+        return counts;
+    }
+
+    static int bucketOfId(long id, int buckets) {
+        return (int) Math.floorMod(id, (long) buckets);
+    }
+
+    /**
+     * The bucket of a username: a polynomial hash of its characters, spread by MurmurHash3's 64-bit finalizer so that
+     * similar usernames land in unrelated buckets. Placement depends on it, so it must never change.
+     */
+    static int bucketOfUsername(String username, int buckets) {
+        long hash = 0;
+        for (int i = 0; i < username.length(); i++) {
+            hash = 31 * hash + username.charAt(i);
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) Math.floorMod(hash, (long) buckets);
+    }
+
+    private void assign(String entry) {
+        int colon = entry.lastIndexOf(':');
+        int dash = entry.indexOf('-');
+        try {
+            int shard = Integer.parseInt(entry.substring(colon + 1).trim());
+            int first = Integer.parseInt(entry.substring(0, dash < 0 || dash > colon ? colon : dash).trim());
+            int last = dash < 0 || dash > colon ? first : Integer.parseInt(entry.substring(dash + 1, colon).trim());
+            if (colon < 0 || shard < 0 || shard >= shardCount || first < 0 || last < first
+                    || last >= bucketToShard.length) {
+                throw new IllegalArgumentException();
+            }
+            Arrays.fill(bucketToShard, first, last + 1, shard);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid twitter.sharding.bucket-map entry '" + entry + "', expected "
+                    + "first-last:shard with buckets below " + bucketToShard.length + " and shards below "
+                    + shardCount);
+        }
+    }
+
+}
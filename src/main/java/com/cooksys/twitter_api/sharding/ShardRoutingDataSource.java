@@ -0,0 +1,76 @@
+package com.cooksys.twitter_api.sharding;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Hands out connections to the shard bound to the current thread, shard 0 when none is bound.
+ * <p>
+ * Like {@link com.cooksys.twitter_api.config.ReplicaRoutingDataSource} this has to sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the connection is only fetched at the
+ * first statement, so a service can bind the shard of the user it works on after its transaction has started. A
+ * transaction stays on the shard its first statement went to.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final ThreadLocal<Integer> boundShard = new ThreadLocal<>();
+
+    private final List<DataSource> shards;
+
+    public ShardRoutingDataSource(List<DataSource> shards) {
+        this.shards = List.copyOf(shards);
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            targets.put(i, shards.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(0));
+    }
+
+    public static void bind(int shard) {
+        boundShard.set(shard);
+    }
+
+    public static void unbind() {
+        boundShard.remove();
+    }
+
+    public static int currentShard() {
+        Integer shard = boundShard.get();
+        return shard == null ? 0 : shard;
+    }
+
+    public List<DataSource> getShards() {
+        return Collections.unmodifiableList(shards);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return currentShard();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    /**
+     * Closes the connection pools of the shards, which are not beans of their own.
+     */
+    public void close() throws Exception {
+        for (DataSource dataSource : shards) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+}
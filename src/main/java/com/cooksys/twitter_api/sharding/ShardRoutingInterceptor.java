@@ -0,0 +1,59 @@
+package com.cooksys.twitter_api.sharding;
+
+import java.util.Map;
+
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Binds requests addressed to a user ({@code @{username}} in the path) or to a tweet ({@code tweets/{id}}) to the
+ * shard that owns it, and unbinds every request when it completes. Services handling requests keyed by something in
+ * the body, like the credentials of a new tweet's author, bind through {@link Shards#bindUsername(String)}.
+ */
+public class ShardRoutingInterceptor implements AsyncHandlerInterceptor {
+
+    private final ShardMap shardMap;
+
+    public ShardRoutingInterceptor(ShardMap shardMap) {
+        this.shardMap = shardMap;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables == null) {
+            return true;
+        }
+        String username = variables.get("username");
+        String id = variables.get("id");
+        if (username != null) {
+            ShardRoutingDataSource.bind(shardMap.shardOfUsername(username));
+        } else if (id != null && request.getRequestURI().contains("/tweets/")) {
+            try {
+                ShardRoutingDataSource.bind(shardMap.shardOfTweet(Long.parseLong(id)));
+            } catch (NumberFormatException e) {
+                // not a tweet id; the handler rejects it
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        ShardRoutingDataSource.unbind();
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        // the request continues on another thread and comes back through preHandle for the async dispatch
+        ShardRoutingDataSource.unbind();
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.cooksys.twitter_api.sharding;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.Optimizer;
+import org.hibernate.id.enhanced.OptimizerFactory;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import com.cooksys.twitter_api.entities.Tweet;
+import com.cooksys.twitter_api.entities.User;
+
+/**
+ * Sequence-based ids for users and tweets that carry the owner's bucket: {@code id = sequence * buckets + bucket},
+ * where a user's bucket comes from their username and a tweet takes its author's. See {@link ShardMap}.
+ * <p>
+ * Every shard has its own sequences, and a bucket lives on exactly one shard, so ids stay unique without any
+ * coordination between shards. Values are pooled per shard: a block fetched from one shard's sequence is never used
+ * for rows going to another. With a single bucket (sharding off) the ids are the plain sequence values, as with
+ * {@code @GeneratedValue}.
+ */
+public class ShardedIdGenerator extends SequenceStyleGenerator {
+
+    public static final String BUCKETS_SETTING = "twitter.sharding.buckets";
+
+    private int buckets;
+    private String optimizerStrategy;
+    private int incrementSize;
+    private int initialValue;
+    private final Map<Integer, Optimizer> optimizers = new ConcurrentHashMap<>();
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        super.configure(type, params, serviceRegistry);
+        Map<String, Object> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+        buckets = ConfigurationHelper.getInt(BUCKETS_SETTING, settings, 1);
+        incrementSize = getOptimizer().getIncrementSize();
+        optimizerStrategy = determineOptimizationStrategy(params, incrementSize);
+        initialValue = determineInitialValue(params);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        if (buckets == 1) {
+            return super.generate(session, object);
+        }
+        Optimizer optimizer = optimizers.computeIfAbsent(ShardRoutingDataSource.currentShard(),
+                shard -> OptimizerFactory.buildOptimizer(optimizerStrategy, Long.class, incrementSize, initialValue));
+        long sequence = ((Number) optimizer.generate(getDatabaseStructure().buildCallback(session))).longValue();
+        return sequence * buckets + bucketOf(object);
+    }
+
+    private int bucketOf(Object entity) {
+        if (entity instanceof User user) {
+            return ShardMap.bucketOfUsername(user.getCredentials().getUsername(), buckets);
+        }
+        if (entity instanceof Tweet tweet) {
+            return ShardMap.bucketOfId(tweet.getAuthor().getId(), buckets);
+        }
+        throw new HibernateException("No shard key for " + entity.getClass().getName());
+    }
+
+}
@@ -0,0 +1,257 @@
+package com.cooksys.twitter_api.sharding;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cooksys.twitter_api.config.VirtualThreads;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs work on the shard that owns a user or tweet, or on all shards at once.
+ * <p>
+ * Reads spanning shards scatter: the query runs on every shard (or only on the shards owning the requested keys) in
+ * parallel, each in a read-only transaction of its own on a worker thread, and the per-shard results, already sorted,
+ * are merged into one list. With a single shard (sharding off) everything runs directly in the caller's transaction,
+ * so none of this changes behaviour.
+ */
+@Component
+public class Shards {
+
+    private final ShardMap shardMap;
+    private final TransactionTemplate readOnly;
+    private final TransactionTemplate readOnlyOnOtherShard;
+    private final ExecutorService workers;
+
+    public Shards(@Value("${twitter.sharding.shard-urls:}") List<String> shardUrls,
+                  @Value("${twitter.sharding.buckets:1024}") int buckets,
+                  @Value("${twitter.sharding.bucket-map:}") String bucketMap,
+                  @Value("${twitter.sharding.scatter-threads:8}") int scatterThreads,
+                  @Value("${twitter.threads.virtual:false}") boolean virtualThreads,
+                  PlatformTransactionManager transactionManager) {
+        shardMap = shardUrls.isEmpty() ? ShardMap.single() : new ShardMap(shardUrls.size() + 1, buckets, bucketMap);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readOnlyOnOtherShard = new TransactionTemplate(transactionManager);
+        readOnlyOnOtherShard.setReadOnly(true);
+        readOnlyOnOtherShard.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        if (!isSharded()) {
+            workers = null;
+        } else if (virtualThreads) {
+            workers = VirtualThreads.newThreadPerTaskExecutor("shard-scatter");
+        } else {
+            AtomicInteger count = new AtomicInteger();
+            workers = Executors.newFixedThreadPool(scatterThreads, runnable -> {
+                Thread thread = new Thread(runnable, "shard-scatter-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    public boolean isSharded() {
+        return shardMap.getShardCount() > 1;
+    }
+
+    public ShardMap getShardMap() {
+        return shardMap;
+    }
+
+    /**
+     * Routes the rest of the current request to the shard owning the given username. Has to be called before the
+     * transaction's first statement; {@link ShardRoutingInterceptor} unbinds at the end of the request.
+     */
+    public void bindUsername(String username) {
+        if (isSharded() && username != null) {
+            ShardRoutingDataSource.bind(shardMap.shardOfUsername(username));
+        }
+    }
+
+    /**
+     * Runs the work on the given shard on the current thread, restoring the previous binding afterwards.
+     */
+    public <T> T onShard(int shard, Supplier<T> work) {
+        int previous = ShardRoutingDataSource.currentShard();
+        ShardRoutingDataSource.bind(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == 0) {
+                ShardRoutingDataSource.unbind();
+            } else {
+                ShardRoutingDataSource.bind(previous);
+            }
+        }
+    }
+
+    /**
+     * Runs the query on the given shard on the current thread, for reading a user or tweet the request is not bound
+     * to, such as the tweet a reply on the replier's shard answers. On the shard the caller is bound to it runs in the
+     * caller's transaction; on another one in a read-only transaction of its own, which suspends the caller's until it
+     * returns, so whatever it loads is detached and has to be mapped or reduced to ids inside the query.
+     */
+    public <T> T readOn(int shard, Supplier<T> query) {
+        if (shard == ShardRoutingDataSource.currentShard()) {
+            return query.get();
+        }
+        return onShard(shard, () -> readOnlyOnOtherShard.execute(status -> query.get()));
+    }
+
+    /**
+     * Runs the action in a transaction of the given template on each shard in turn, for loaders reading everything.
+     */
+    public void executeOnEach(TransactionTemplate template, Consumer<TransactionStatus> action) {
+        for (int shard = 0; shard < shardMap.getShardCount(); shard++) {
+            onShard(shard, () -> {
+                template.executeWithoutResult(action);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Runs the query on every shard and returns the results in shard order.
+     */
+    public <T> List<T> scatter(Supplier<T> query) {
+        if (!isSharded()) {
+            return List.of(query.get());
+        }
+        List<Future<T>> futures = new ArrayList<>(shardMap.getShardCount());
+        for (int shard = 0; shard < shardMap.getShardCount(); shard++) {
+            futures.add(submit(shard, query));
+        }
+        return await(futures);
+    }
+
+    /**
+     * Runs the query on every shard and merges the per-shard lists, each sorted by {@code order}, into one. Shards
+     * answering {@code null} are left out; the result is {@code null} when every shard did.
+     */
+    public <T> List<T> gather(Supplier<List<T>> query, Comparator<? super T> order) {
+        return merge(scatter(query), order);
+    }
+
+    /**
+     * Splits the keys by owning shard and runs the query for each shard's keys on that shard only, returning the
+     * results of the shards that owned any key.
+     */
+    public <K, R> List<R> scatter(Collection<K> keys, ToIntFunction<K> shardOf, Function<List<K>, R> query) {
+        if (!isSharded()) {
+            return List.of(query.apply(new ArrayList<>(keys)));
+        }
+        List<List<K>> keysByShard = new ArrayList<>(shardMap.getShardCount());
+        for (int shard = 0; shard < shardMap.getShardCount(); shard++) {
+            keysByShard.add(new ArrayList<>());
+        }
+        keys.forEach(key -> keysByShard.get(shardOf.applyAsInt(key)).add(key));
+        List<Future<R>> futures = new ArrayList<>();
+        for (int shard = 0; shard < keysByShard.size(); shard++) {
+            List<K> shardKeys = keysByShard.get(shard);
+            if (!shardKeys.isEmpty()) {
+                futures.add(submit(shard, () -> query.apply(shardKeys)));
+            }
+        }
+        return await(futures);
+    }
+
+    /**
+     * {@link #scatter(Collection, ToIntFunction, Function)} with the per-shard lists, each sorted by {@code order},
+     * merged into one.
+     */
+    public <K, T> List<T> gather(Collection<K> keys, ToIntFunction<K> shardOf, Function<List<K>, List<T>> query,
+                                 Comparator<? super T> order) {
+        List<T> merged = merge(scatter(keys, shardOf, query), order);
+        return merged == null ? new ArrayList<>() : merged;
+    }
+
+    private <T> Future<T> submit(int shard, Supplier<T> query) {
+        return workers.submit(() -> {
+            ShardRoutingDataSource.bind(shard);
+            try {
+                return readOnly.execute(status -> query.get());
+            } finally {
+                ShardRoutingDataSource.unbind();
+            }
+        });
+    }
+
+    private static <T> List<T> await(List<Future<T>> futures) {
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the shards", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Shard query failed", e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * K-way merge of sorted lists.
+     */
+    private static <T> List<T> merge(List<List<T>> lists, Comparator<? super T> order) {
+        List<List<T>> present = lists.stream().filter(list -> list != null).toList();
+        if (present.isEmpty()) {
+            return null;
+        }
+        if (present.size() == 1) {
+            return new ArrayList<>(present.get(0));
+        }
+        // each entry is {list index, position in that list}
+        PriorityQueue<int[]> heads = new PriorityQueue<>(
+                (a, b) -> order.compare(present.get(a[0]).get(a[1]), present.get(b[0]).get(b[1])));
+        int size = 0;
+        for (int i = 0; i < present.size(); i++) {
+            size += present.get(i).size();
+            if (!present.get(i).isEmpty()) {
+                heads.add(new int[] { i, 0 });
+            }
+        }
+        List<T> merged = new ArrayList<>(size);
+        while (!heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<T> list = present.get(head[0]);
+            merged.add(list.get(head[1]));
+            if (++head[1] < list.size()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.cooksys.twitter_api.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Location of a tweet body inside the content log: the segment it lives in, the byte offset of the UTF-8 payload
+ * inside that segment and the payload length.
+ */
+@AllArgsConstructor
+@Getter
+@ToString
+public class ContentAddress {
+
+    private final int segment;
+
+    private final int offset;
+
+    private final int length;
+
+}
@@ -0,0 +1,142 @@
+package com.cooksys.twitter_api.storage;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * One fixed-size, memory-mapped file of the tweet content log.
+ * <p>
+ * Records are appended back to back. Every record starts with a one byte type, the tweet id and the payload length:
+ * <pre>
+ * [type:1][tweetId:8][length:4][payload:length]
+ * </pre>
+ * A {@link #CONTENT} record carries the UTF-8 tweet body, a {@link #TOMBSTONE} record has no payload and marks the
+ * tweet as deleted. The file is pre-sized and zero filled, so a zero type byte marks the end of the written data.
+ * <p>
+ * Appends are not thread safe and are serialized by {@link TweetContentStore}. Reads only use absolute buffer access
+ * and may run concurrently with appends.
+ */
+public class ContentSegment {
+
+    static final byte END = 0;
+    static final byte CONTENT = 1;
+    static final byte TOMBSTONE = 2;
+
+    static final int HEADER_SIZE = 1 + 8 + 4;
+
+    private final int id;
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private int position;
+
+    private ContentSegment(int id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+        this.id = id;
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    public static ContentSegment open(Path path, int id, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        int size = (int) Math.max(channel.size(), capacity);
+        ContentSegment segment = new ContentSegment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        segment.position = segment.findEnd();
+        return segment;
+    }
+
+    private int findEnd() {
+        int pos = 0;
+        while (pos + HEADER_SIZE <= buffer.capacity() && buffer.get(pos) != END) {
+            pos += HEADER_SIZE + Math.max(buffer.getInt(pos + 9), 0);
+        }
+        return pos;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public boolean hasRoomFor(int payloadLength) {
+        // keep room for a trailing END marker header
+        return position + HEADER_SIZE + payloadLength + 1 <= buffer.capacity();
+    }
+
+    /**
+     * Appends a content record and returns the address of its payload.
+     */
+    public ContentAddress append(long tweetId, byte[] payload) {
+        int start = position;
+        buffer.put(start + HEADER_SIZE, payload);
+        buffer.putLong(start + 1, tweetId);
+        buffer.putInt(start + 9, payload.length);
+        // the type byte is written last so a torn write is never read back as a record
+        buffer.put(start, CONTENT);
+        position = start + HEADER_SIZE + payload.length;
+        return new ContentAddress(id, start + HEADER_SIZE, payload.length);
+    }
+
+    public void appendTombstone(long tweetId) {
+        int start = position;
+        buffer.putLong(start + 1, tweetId);
+        buffer.putInt(start + 9, 0);
+        buffer.put(start, TOMBSTONE);
+        position = start + HEADER_SIZE;
+    }
+
+    /**
+     * Decodes the payload at the given address straight out of the mapped pages.
+     */
+    public String read(ContentAddress address) {
+        byte[] bytes = new byte[address.getLength()];
+        copy(address, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public void copy(ContentAddress address, byte[] destination) {
+        buffer.get(address.getOffset(), destination);
+    }
+
+    /**
+     * Walks every record of the segment in append order.
+     */
+    public void scan(Consumer<Record> consumer) {
+        int pos = 0;
+        while (pos < position) {
+            byte type = buffer.get(pos);
+            long tweetId = buffer.getLong(pos + 1);
+            int length = buffer.getInt(pos + 9);
+            consumer.accept(new Record(type, tweetId, new ContentAddress(id, pos + HEADER_SIZE, length)));
+            pos += HEADER_SIZE + length;
+        }
+    }
+
+    public void force() {
+        buffer.force();
+    }
+
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    public void delete() throws IOException {
+        channel.close();
+        Files.deleteIfExists(path);
+    }
+
+    public record Record(byte type, long tweetId, ContentAddress address) {
+    }
+
+}
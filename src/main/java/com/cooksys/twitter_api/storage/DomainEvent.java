@@ -0,0 +1,30 @@
+package com.cooksys.twitter_api.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * One entry of the {@link EventLog}. See {@link EventType} for what the id fields refer to; unused ids are 0 and an
+ * unused payload is null.
+ */
+@AllArgsConstructor
+@Getter
+@ToString
+public class DomainEvent {
+
+    private final long sequence;
+
+    private final long timestamp;
+
+    private final EventType type;
+
+    private final long actorId;
+
+    private final long subjectId;
+
+    private final long relatedId;
+
+    private final String payload;
+
+}
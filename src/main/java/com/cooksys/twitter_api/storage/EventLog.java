@@ -0,0 +1,378 @@
+package com.cooksys.twitter_api.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Append-only, sequence-numbered log of domain mutations (tweets, likes, follows, user lifecycle).
+ * <p>
+ * Events are written to segment files named after the sequence number of their first event. Each record is
+ * <pre>
+ * [bodyLength:4][sequence:8][timestamp:8][type:1][actorId:8][subjectId:8][relatedId:8][payloadLength:4][payload][crc32:4]
+ * </pre>
+ * A torn record at the tail of the last segment is truncated on startup.
+ * <p>
+ * Consumers keep their own position with {@link #getOffset(String)} / {@link #commitOffset(String, long)} and pull
+ * events with {@link #read(long, int)} or {@link #poll(String, int)}, so derived indexes can be rebuilt from scratch or
+ * caught up incrementally. In-process listeners registered with {@link #subscribe(Consumer)} are called in sequence
+ * order once events are appended, outside the append lock: a listener reading the log from disk must not hold up
+ * every other committing request.
+ * <p>
+ * Inside a transaction the append is deferred until after commit, so rolled back mutations never reach the log.
+ */
+@Component
+public class EventLog {
+
+    private static final Logger log = LoggerFactory.getLogger(EventLog.class);
+
+    private static final int FIXED_BODY_SIZE = 8 + 8 + 1 + 8 + 8 + 8 + 4;
+    private static final int SPARSE_INDEX_INTERVAL = 1024;
+
+    @Value("${twitter.event-log.directory:data/events}")
+    private String directory;
+
+    @Value("${twitter.event-log.segment-size:16777216}")
+    private long segmentSize;
+
+    @Value("${twitter.event-log.fsync:false}")
+    private boolean fsync;
+
+    // first sequence of a segment -> segment file
+    private final ConcurrentSkipListMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+    // every SPARSE_INDEX_INTERVAL-th sequence -> where its record starts
+    private final ConcurrentSkipListMap<Long, long[]> sparseIndex = new ConcurrentSkipListMap<>();
+    private final List<Consumer<DomainEvent>> listeners = new CopyOnWriteArrayList<>();
+    // serializes appends
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // appended events not yet handed to the listeners, in sequence order
+    private final Queue<DomainEvent> undelivered = new ConcurrentLinkedQueue<>();
+    // held by the appending thread currently handing events to the listeners
+    private final ReentrantLock deliveryLock = new ReentrantLock();
+    private FileChannel active;
+    private long activeBase;
+    private volatile long activeSize;
+    private volatile long lastSequence;
+
+    @PostConstruct
+    public void open() throws IOException {
+        Path dir = Paths.get(directory);
+        Files.createDirectories(dir.resolve("offsets"));
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(p -> p.getFileName().toString().endsWith(".log"))
+                    .forEach(p -> segments.put(Long.parseLong(p.getFileName().toString().replace(".log", "")), p));
+        }
+        for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+            long validSize = scan(segment.getKey(), segment.getValue(), 0, Long.MAX_VALUE, Integer.MAX_VALUE, 0,
+                    event -> lastSequence = event.getSequence());
+            if (segment.getKey().equals(segments.lastKey())) {
+                try (FileChannel channel = FileChannel.open(segment.getValue(), StandardOpenOption.WRITE)) {
+                    channel.truncate(validSize);
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            roll(1);
+        } else {
+            activeBase = segments.lastKey();
+            active = FileChannel.open(segments.lastEntry().getValue(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            activeSize = active.size();
+        }
+        log.info("Event log opened at sequence {} with {} segments", lastSequence, segments.size());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            active.force(true);
+            active.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void subscribe(Consumer<DomainEvent> listener) {
+        listeners.add(listener);
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Records a mutation. When called inside a transaction the event is appended once the transaction commits.
+     */
+    public void append(EventType type, long actorId, long subjectId, long relatedId, String payload) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    write(type, actorId, subjectId, relatedId, payload);
+                }
+            });
+        } else {
+            write(type, actorId, subjectId, relatedId, payload);
+        }
+    }
+
+    public void append(EventType type, long actorId, long subjectId) {
+        append(type, actorId, subjectId, 0, null);
+    }
+
+    private void write(EventType type, long actorId, long subjectId, long relatedId, String payload) {
+        writeLock.lock();
+        try {
+            undelivered.add(writeLocked(type, actorId, subjectId, relatedId, payload));
+        } finally {
+            writeLock.unlock();
+        }
+        deliver();
+    }
+
+    /**
+     * Hands the appended events to the listeners. One appending thread at a time delivers, in sequence order; the
+     * others leave their events to it, and it checks for more after letting go so none is left behind.
+     */
+    private void deliver() {
+        while (!undelivered.isEmpty() && deliveryLock.tryLock()) {
+            try {
+                DomainEvent event;
+                while ((event = undelivered.poll()) != null) {
+                    for (Consumer<DomainEvent> listener : listeners) {
+                        try {
+                            listener.accept(event);
+                        } catch (RuntimeException e) {
+                            log.warn("Event listener failed on {}", event, e);
+                        }
+                    }
+                }
+            } finally {
+                deliveryLock.unlock();
+            }
+        }
+    }
+
+    private DomainEvent writeLocked(EventType type, long actorId, long subjectId, long relatedId, String payload) {
+        DomainEvent event = new DomainEvent(lastSequence + 1, System.currentTimeMillis(), type, actorId, subjectId,
+                relatedId, payload);
+        ByteBuffer record = encode(event);
+        try {
+            if (activeSize > 0 && activeSize + record.remaining() > segmentSize) {
+                active.force(true);
+                active.close();
+                roll(event.getSequence());
+            }
+            if (event.getSequence() % SPARSE_INDEX_INTERVAL == 0) {
+                sparseIndex.put(event.getSequence(), new long[] { activeBase, activeSize });
+            }
+            long written = record.remaining();
+            while (record.hasRemaining()) {
+                active.write(record);
+            }
+            if (fsync) {
+                active.force(false);
+            }
+            activeSize += written;
+            lastSequence = event.getSequence();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return event;
+    }
+
+    private void roll(long baseSequence) throws IOException {
+        Path path = Paths.get(directory, String.format("%020d.log", baseSequence));
+        active = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        activeBase = baseSequence;
+        activeSize = active.size();
+        segments.put(baseSequence, path);
+    }
+
+    /**
+     * Returns up to {@code max} events with a sequence greater than {@code afterSequence}, in sequence order.
+     */
+    public List<DomainEvent> read(long afterSequence, int max) {
+        List<DomainEvent> events = new ArrayList<>();
+        if (afterSequence >= lastSequence || max <= 0) {
+            return events;
+        }
+        Map.Entry<Long, long[]> hint = sparseIndex.floorEntry(afterSequence + 1);
+        Long base = segments.floorKey(afterSequence + 1);
+        long position = 0;
+        if (hint != null && base != null && hint.getValue()[0] == base) {
+            position = hint.getValue()[1];
+        }
+        long limit = lastSequence;
+        try {
+            for (Map.Entry<Long, Path> segment : segments.tailMap(base == null ? 0L : base).entrySet()) {
+                int remaining = max - events.size();
+                if (remaining <= 0) {
+                    break;
+                }
+                scan(segment.getKey(), segment.getValue(), afterSequence, limit, remaining, position, events::add);
+                position = 0;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return events;
+    }
+
+    public long getOffset(String consumer) {
+        Path path = offsetPath(consumer);
+        try {
+            return Files.exists(path) ? Long.parseLong(Files.readString(path).trim()) : 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Whether the consumer ever committed an offset, as opposed to {@link #getOffset(String)} being 0 because it never
+     * did.
+     */
+    public boolean hasOffset(String consumer) {
+        return Files.exists(offsetPath(consumer));
+    }
+
+    public void commitOffset(String consumer, long sequence) {
+        Path path = offsetPath(consumer);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.writeString(tmp, Long.toString(sequence));
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the next events after the consumer's committed offset. The offset is not advanced; call
+     * {@link #commitOffset(String, long)} once the events have been applied.
+     */
+    public List<DomainEvent> poll(String consumer, int max) {
+        return read(getOffset(consumer), max);
+    }
+
+    private Path offsetPath(String consumer) {
+        if (!consumer.matches("[a-zA-Z0-9_-]+")) {
+            throw new IllegalArgumentException("Invalid consumer name: " + consumer);
+        }
+        return Paths.get(directory, "offsets", consumer + ".offset");
+    }
+
+    /**
+     * Decodes records of a segment starting at the given position and hands those after {@code afterSequence} to the
+     * consumer, stopping at the first torn or corrupt record, after {@code max} events or past {@code maxSequence}.
+     * Returns the size of the valid prefix read.
+     */
+    private long scan(long base, Path path, long afterSequence, long maxSequence, int max, long position,
+                      Consumer<DomainEvent> consumer) throws IOException {
+        int count = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(4);
+            while (position + 4 <= size && count < max) {
+                header.clear();
+                channel.read(header, position);
+                int bodyLength = header.getInt(0);
+                if (bodyLength < FIXED_BODY_SIZE || position + 4 + bodyLength + 4 > size) {
+                    break;
+                }
+                ByteBuffer body = ByteBuffer.allocate(bodyLength + 4);
+                int read;
+                do {
+                    read = channel.read(body, position + 4 + body.position());
+                } while (read > 0 && body.hasRemaining());
+                body.flip();
+                CRC32 crc = new CRC32();
+                crc.update(body.array(), 0, bodyLength);
+                if ((int) crc.getValue() != body.getInt(bodyLength)) {
+                    break;
+                }
+                DomainEvent event = decode(body);
+                if (event.getSequence() > maxSequence) {
+                    break;
+                }
+                if (event.getSequence() % SPARSE_INDEX_INTERVAL == 0) {
+                    sparseIndex.putIfAbsent(event.getSequence(), new long[] { base, position });
+                }
+                if (event.getSequence() > afterSequence) {
+                    consumer.accept(event);
+                    count++;
+                }
+                position += 4 + bodyLength + 4;
+            }
+        }
+        return position;
+    }
+
+    private static ByteBuffer encode(DomainEvent event) {
+        byte[] payload = event.getPayload() == null ? null : event.getPayload().getBytes(StandardCharsets.UTF_8);
+        int bodyLength = FIXED_BODY_SIZE + (payload == null ? 0 : payload.length);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + bodyLength + 4);
+        buffer.putInt(bodyLength)
+                .putLong(event.getSequence())
+                .putLong(event.getTimestamp())
+                .put(event.getType().getCode())
+                .putLong(event.getActorId())
+                .putLong(event.getSubjectId())
+                .putLong(event.getRelatedId())
+                .putInt(payload == null ? -1 : payload.length);
+        if (payload != null) {
+            buffer.put(payload);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 4, bodyLength);
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    private static DomainEvent decode(ByteBuffer body) {
+        long sequence = body.getLong();
+        long timestamp = body.getLong();
+        EventType type = EventType.fromCode(body.get());
+        long actorId = body.getLong();
+        long subjectId = body.getLong();
+        long relatedId = body.getLong();
+        int payloadLength = body.getInt();
+        String payload = null;
+        if (payloadLength >= 0) {
+            byte[] bytes = new byte[payloadLength];
+            body.get(bytes);
+            payload = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new DomainEvent(sequence, timestamp, type, actorId, subjectId, relatedId, payload);
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.cooksys.twitter_api.storage;
+
+/**
+ * Kinds of mutation recorded in the {@link EventLog}. Codes are written to disk and must never be reused.
+ * <p>
+ * The meaning of {@code actorId}, {@code subjectId}, {@code relatedId} and {@code payload} for each type:
+ * <ul>
+ * <li>USER_CREATED, USER_REACTIVATED, USER_UPDATED, USER_DELETED: the user, the user, -, username</li>
+ * <li>USER_FOLLOWED, USER_UNFOLLOWED: follower, followed user, -, -</li>
+ * <li>TWEET_CREATED: author, tweet, -, content</li>
+ * <li>TWEET_REPLIED: author, reply, tweet replied to, content</li>
+ * <li>TWEET_REPOSTED: author, repost, reposted tweet, -</li>
+ * <li>TWEET_LIKED: liker, tweet, tweet author, -</li>
+ * <li>TWEET_DELETED: author, tweet, -, -</li>
+ * <li>HASHTAG_USED: author, hashtag, tweet, label</li>
+ * </ul>
+ */
+public enum EventType {
+
+    USER_CREATED(1),
+    USER_REACTIVATED(2),
+    USER_UPDATED(3),
+    USER_DELETED(4),
+    USER_FOLLOWED(5),
+    USER_UNFOLLOWED(6),
+    TWEET_CREATED(10),
+    TWEET_REPLIED(11),
+    TWEET_REPOSTED(12),
+    TWEET_LIKED(13),
+    TWEET_DELETED(14),
+    HASHTAG_USED(20);
+
+    private final byte code;
+
+    EventType(int code) {
+        this.code = (byte) code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public static EventType fromCode(byte code) {
+        for (EventType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown event type code " + code);
+    }
+
+}
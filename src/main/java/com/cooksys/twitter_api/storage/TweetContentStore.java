@@ -0,0 +1,306 @@
+package com.cooksys.twitter_api.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.cooksys.twitter_api.entities.Tweet;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Optional append-only store for tweet bodies, kept as a node-local read cache in front of the tweet table.
+ * <p>
+ * When enabled, the body of every committed tweet is also appended to memory-mapped {@link ContentSegment} files,
+ * addressed by (segment, offset, length); the tweet id to address index is rebuilt from the segments on startup. A
+ * bounded LRU cache of decoded strings sits in front of the mapped pages for hot tweets. The {@code content} column
+ * stays the source of truth and is read first: the segments are neither forced before the row commits nor shared
+ * between nodes, so they may lack a body after a crash or on another node. Only rows written while the store moved
+ * bodies out of the table, which have no content, depend on it.
+ * <p>
+ * Deleting a tweet appends a tombstone. Sealed segments whose live data drops below the configured ratio are compacted
+ * by copying the remaining live records into the active segment and deleting the old file.
+ */
+@Component
+public class TweetContentStore {
+
+    private static final Logger log = LoggerFactory.getLogger(TweetContentStore.class);
+
+    @Value("${twitter.content-store.enabled:false}")
+    private boolean enabled;
+
+    @Value("${twitter.content-store.directory:data/content}")
+    private String directory;
+
+    @Value("${twitter.content-store.segment-size:67108864}")
+    private int segmentSize;
+
+    @Value("${twitter.content-store.cache-size:10000}")
+    private int cacheSize;
+
+    @Value("${twitter.content-store.compaction-live-ratio:0.5}")
+    private double compactionLiveRatio;
+
+    private final ConcurrentSkipListMap<Integer, ContentSegment> segments = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<Long, ContentAddress> index = new ConcurrentHashMap<>();
+    // tweet id -> segment holding the dead record, kept until that segment is compacted away
+    private final Map<Long, Integer> tombstones = new HashMap<>();
+    private Map<Long, String> cache;
+    private ContentSegment active;
+    // guards appends, tombstones and compaction
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                return size() > cacheSize;
+            }
+        });
+        Path dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path path : files.filter(p -> p.getFileName().toString().endsWith(".seg")).sorted().toList()) {
+                int id = Integer.parseInt(path.getFileName().toString().replace(".seg", ""));
+                segments.put(id, ContentSegment.open(path, id, segmentSize));
+            }
+        }
+        for (ContentSegment segment : segments.values()) {
+            segment.scan(this::replay);
+        }
+        active = segments.isEmpty() ? roll() : segments.lastEntry().getValue();
+        log.info("Tweet content store opened with {} segments and {} live tweets", segments.size(), index.size());
+    }
+
+    private void replay(ContentSegment.Record record) {
+        if (record.type() == ContentSegment.CONTENT) {
+            index.put(record.tweetId(), record.address());
+        } else {
+            ContentAddress dead = index.remove(record.tweetId());
+            if (dead != null) {
+                tombstones.put(record.tweetId(), dead.getSegment());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            for (ContentSegment segment : segments.values()) {
+                segment.close();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Caches the body of a freshly saved tweet once its transaction commits, or right away outside of one. The row
+     * keeps its content, so a rollback leaves nothing to undo.
+     */
+    public void store(Tweet tweet) {
+        if (!enabled || tweet.getContent() == null) {
+            return;
+        }
+        long tweetId = tweet.getId();
+        String content = tweet.getContent();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    append(tweetId, content);
+                }
+            });
+        } else {
+            append(tweetId, content);
+        }
+    }
+
+    public ContentAddress append(long tweetId, String content) {
+        writeLock.lock();
+        try {
+            ContentAddress address = write(tweetId, content.getBytes(StandardCharsets.UTF_8));
+            cache.put(tweetId, content);
+            return address;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private ContentAddress write(long tweetId, byte[] payload) {
+        ensureRoom(payload.length);
+        ContentAddress address = active.append(tweetId, payload);
+        index.put(tweetId, address);
+        return address;
+    }
+
+    private void ensureRoom(int payloadLength) {
+        if (!active.hasRoomFor(payloadLength)) {
+            active.force();
+            active = roll();
+            if (!active.hasRoomFor(payloadLength)) {
+                throw new IllegalArgumentException("Tweet content larger than a content segment");
+            }
+        }
+    }
+
+    /**
+     * Returns the body of the given tweet, or null if the store holds none.
+     */
+    public String read(long tweetId) {
+        if (!enabled) {
+            return null;
+        }
+        String cached = cache.get(tweetId);
+        if (cached != null) {
+            return cached;
+        }
+        ContentAddress address = index.get(tweetId);
+        ContentSegment segment = address == null ? null : segments.get(address.getSegment());
+        if (segment == null) {
+            // the record may have just been moved by a compaction
+            address = index.get(tweetId);
+            segment = address == null ? null : segments.get(address.getSegment());
+            if (segment == null) {
+                return null;
+            }
+        }
+        String content = segment.read(address);
+        cache.put(tweetId, content);
+        return content;
+    }
+
+    /**
+     * Drops the body of a deleted tweet. Inside a transaction the tombstone is written once the transaction commits.
+     */
+    public void delete(long tweetId) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    writeTombstone(tweetId);
+                }
+            });
+        } else {
+            writeTombstone(tweetId);
+        }
+    }
+
+    private void writeTombstone(long tweetId) {
+        writeLock.lock();
+        try {
+            ContentAddress address = index.remove(tweetId);
+            cache.remove(tweetId);
+            if (address == null) {
+                return;
+            }
+            ensureRoom(0);
+            active.appendTombstone(tweetId);
+            tombstones.put(tweetId, address.getSegment());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Rewrites sealed segments whose live payload fell below the configured ratio, dropping deleted tweets.
+     */
+    @Scheduled(fixedDelayString = "${twitter.content-store.compaction-interval:600000}")
+    public void compact() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            compactSegments();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void compactSegments() throws IOException {
+        for (ContentSegment segment : new ArrayList<>(segments.headMap(active.getId()).values())) {
+            List<ContentSegment.Record> live = new ArrayList<>();
+            List<Long> keptTombstones = new ArrayList<>();
+            long[] liveBytes = {0};
+            segment.scan(record -> {
+                if (record.type() == ContentSegment.CONTENT) {
+                    ContentAddress current = index.get(record.tweetId());
+                    if (current != null && current.getSegment() == segment.getId()
+                            && current.getOffset() == record.address().getOffset()) {
+                        live.add(record);
+                        liveBytes[0] += ContentSegment.HEADER_SIZE + record.address().getLength();
+                    }
+                } else {
+                    Integer deadIn = tombstones.get(record.tweetId());
+                    if (deadIn != null && deadIn != segment.getId() && segments.containsKey(deadIn)) {
+                        keptTombstones.add(record.tweetId());
+                    }
+                }
+            });
+            if (liveBytes[0] >= compactionLiveRatio * segment.getPosition()) {
+                continue;
+            }
+            for (ContentSegment.Record record : live) {
+                byte[] payload = new byte[record.address().getLength()];
+                segment.copy(record.address(), payload);
+                write(record.tweetId(), payload);
+            }
+            for (Long tweetId : keptTombstones) {
+                ensureRoom(0);
+                active.appendTombstone(tweetId);
+            }
+            active.force();
+            segments.remove(segment.getId());
+            tombstones.values().removeIf(deadIn -> deadIn == segment.getId());
+            segment.delete();
+            log.info("Compacted content segment {} keeping {} live tweets", segment.getId(), live.size());
+        }
+    }
+
+    private ContentSegment roll() {
+        int id = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+        try {
+            ContentSegment segment = ContentSegment.open(Paths.get(directory, String.format("%010d.seg", id)), id, segmentSize);
+            segments.put(id, segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,476 @@
+package com.cooksys.twitter_api.stream;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.cooksys.twitter_api.config.VirtualThreads;
+import com.cooksys.twitter_api.dtos.TweetResponseDto;
+import com.cooksys.twitter_api.entities.Tweet;
+import com.cooksys.twitter_api.exceptions.BadRequestException;
+import com.cooksys.twitter_api.mappers.TweetMapper;
+import com.cooksys.twitter_api.repositories.TweetRepository;
+import com.cooksys.twitter_api.repositories.UserRepository;
+import com.cooksys.twitter_api.sharding.Shards;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Pushes new tweets, replies and reposts to open home feed streams as Server-Sent Events.
+ * <p>
+ * The hub follows the tweet table, which every node writes and reads, so a stream sees the tweets posted through any
+ * node. A single dispatcher thread polls each shard for the tweets stamped since the last poll, in (modified, id)
+ * order, works out which open streams belong to their authors or to followers of their authors from the follows in
+ * the database, loads each tweet once and puts it into those streams' bounded buffers. A small pool of sender threads
+ * drains the buffers onto the connections. A stream whose buffer is full is closed rather than allowed to hold events
+ * back or grow without bound; the client reconnects and resumes. Tweets are stamped before they commit, so each poll
+ * re-reads the last {@code poll-overlap} milliseconds and skips the tweets it already dispatched.
+ * <p>
+ * Event ids are (modified, id) cursors. A client reconnecting with {@code Last-Event-ID} is first sent the feed
+ * tweets after its cursor, read back from the database (follows are taken as they are now, not as they were then).
+ * If it missed more than a buffer's worth, it gets a {@code reset} event instead and should reload the feed with
+ * {@code GET users/@{username}/feed}. Subscriptions wait for the dispatcher in a bounded queue; when it is full, new
+ * streams are refused.
+ */
+@Component
+public class FeedStreamHub {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedStreamHub.class);
+
+    private static final int POLL_BATCH = 1000;
+
+    private static final Comparator<Cursor> ORDER = Comparator.comparingLong(Cursor::modified)
+            .thenComparingLong(Cursor::id);
+
+    /**
+     * Position in the tweet table: a tweet's modified time and id, or for {@code open} and {@code reset} events the
+     * position the stream starts from. Sent as {@code modified.id}.
+     */
+    record Cursor(long modified, long id) {
+
+        static Cursor parse(String eventId) {
+            int dot = eventId.indexOf('.');
+            try {
+                return new Cursor(Long.parseLong(eventId.substring(0, dot)),
+                        Long.parseLong(eventId.substring(dot + 1)));
+            } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                throw new BadRequestException("Invalid Last-Event-ID");
+            }
+        }
+
+        @Override
+        public String toString() {
+            return modified + "." + id;
+        }
+
+    }
+
+    private record Stamp(Cursor cursor, long authorId) {
+    }
+
+    @Value("${twitter.feed-stream.buffer-size:256}")
+    private int bufferSize;
+
+    @Value("${twitter.feed-stream.timeout:1800000}")
+    private long timeout;
+
+    @Value("${twitter.feed-stream.sender-threads:4}")
+    private int senderThreads;
+
+    @Value("${twitter.feed-stream.dispatch-queue:1024}")
+    private int dispatchQueue;
+
+    @Value("${twitter.feed-stream.poll-overlap:5000}")
+    private long pollOverlap;
+
+    @Value("${twitter.threads.virtual:false}")
+    private boolean virtualThreads;
+
+    private final UserRepository userRepository;
+    private final TweetRepository tweetRepository;
+    private final TweetMapper tweetMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Shards shards;
+
+    // user id -> that user's open feed streams
+    private final Map<Long, Set<FeedSubscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicBoolean pollQueued = new AtomicBoolean();
+    private ExecutorService dispatcher;
+    private ExecutorService senders;
+    // only touched on the dispatcher thread: the newest tweet dispatched, and the tweets dispatched within the overlap
+    private Cursor position;
+    private final Map<Long, Long> recent = new LinkedHashMap<>();
+
+    public FeedStreamHub(UserRepository userRepository, TweetRepository tweetRepository, TweetMapper tweetMapper,
+                         TransactionTemplate transactionTemplate, Shards shards) {
+        this.userRepository = userRepository;
+        this.tweetRepository = tweetRepository;
+        this.tweetMapper = tweetMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.shards = shards;
+    }
+
+    @PostConstruct
+    public void start() {
+        dispatcher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(dispatchQueue),
+                daemon("feed-stream-dispatcher"));
+        // a send blocks while the client's socket buffer is full, which only costs a virtual thread nothing
+        senders = virtualThreads ? VirtualThreads.newThreadPerTaskExecutor("feed-stream-sender")
+                : Executors.newFixedThreadPool(senderThreads, daemon("feed-stream-sender"));
+        position = new Cursor(System.currentTimeMillis(), 0);
+    }
+
+    @PreDestroy
+    public void stop() {
+        dispatcher.shutdownNow();
+        senders.shutdownNow();
+        subscriptions.values().forEach(streams -> streams.forEach(this::complete));
+    }
+
+    /**
+     * Opens a feed stream for the given user, replaying what was missed since {@code lastEventId} when it is given.
+     */
+    public SseEmitter subscribe(long userId, String lastEventId) {
+        return subscribe(userId, lastEventId, new SseEmitter(timeout));
+    }
+
+    SseEmitter subscribe(long userId, String lastEventId, SseEmitter emitter) {
+        Cursor after = lastEventId == null || lastEventId.isEmpty() ? null : Cursor.parse(lastEventId);
+        FeedSubscription subscription = new FeedSubscription(userId, emitter, bufferSize);
+        emitter.onCompletion(() -> remove(subscription));
+        emitter.onTimeout(() -> remove(subscription));
+        emitter.onError(e -> remove(subscription));
+        try {
+            // on the dispatcher thread, so no tweet can slip in between the replay and the live events
+            dispatcher.execute(() -> open(subscription, after));
+        } catch (RejectedExecutionException e) {
+            throw new TaskRejectedException("Feed stream dispatcher queue is full", e);
+        }
+        return emitter;
+    }
+
+    public int getOpenStreams() {
+        return open.get();
+    }
+
+    public long getDroppedStreams() {
+        return dropped.get();
+    }
+
+    /**
+     * Comment lines keep idle connections open through proxies and surface clients that went away.
+     */
+    @Scheduled(fixedDelayString = "${twitter.feed-stream.heartbeat-interval:15000}")
+    public void heartbeat() {
+        for (Set<FeedSubscription> streams : subscriptions.values()) {
+            for (FeedSubscription subscription : streams) {
+                deliver(subscription, SseEmitter.event().comment("heartbeat"));
+            }
+        }
+    }
+
+    /**
+     * Queues a poll of the tweet table on the dispatcher, unless one is already waiting there.
+     */
+    @Scheduled(fixedDelayString = "${twitter.feed-stream.poll-interval:500}")
+    public void poll() {
+        if (!pollQueued.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            dispatcher.execute(() -> {
+                pollQueued.set(false);
+                dispatchNew();
+            });
+        } catch (RejectedExecutionException e) {
+            // the queue is full of subscriptions; the next poll catches up
+            pollQueued.set(false);
+        }
+    }
+
+    private void open(FeedSubscription subscription, Cursor after) {
+        subscriptions.compute(subscription.getUserId(), (id, streams) -> {
+            Set<FeedSubscription> result = streams == null ? ConcurrentHashMap.newKeySet() : streams;
+            result.add(subscription);
+            return result;
+        });
+        open.incrementAndGet();
+        if (subscription.isClosed()) {
+            // the client went away before the stream was registered
+            unregister(subscription);
+            return;
+        }
+        if (after == null || ORDER.compare(after, position) >= 0) {
+            deliver(subscription, SseEmitter.event().id(position.toString()).name("open").data(""));
+        } else {
+            try {
+                replay(subscription, after);
+            } catch (DataAccessException e) {
+                log.warn("Feed stream replay failed: {}", e.getMessage());
+                deliver(subscription, SseEmitter.event().id(position.toString()).name("reset").data(""));
+            }
+        }
+    }
+
+    private void replay(FeedSubscription subscription, Cursor after) {
+        long userId = subscription.getUserId();
+        Set<Long> authors = new HashSet<>(shards.readOn(shards.getShardMap().shardOfUser(userId),
+                () -> userRepository.findFollowingIdsById(userId)));
+        authors.add(userId);
+        Timestamp from = new Timestamp(after.modified() - 1);
+        List<Stamp> missed = new ArrayList<>();
+        boolean tooMany = false;
+        // each author's tweets live on the author's shard; one more than a buffer's worth tells a reset
+        for (List<Stamp> shardStamps : shards.scatter(authors, shards.getShardMap()::shardOfUser,
+                ids -> stamps(tweetRepository.findStampsByAuthorIdInModifiedAfter(ids, from,
+                        PageRequest.of(0, bufferSize + 1))))) {
+            missed.addAll(shardStamps);
+            tooMany |= shardStamps.size() > bufferSize;
+        }
+        missed.removeIf(stamp -> ORDER.compare(stamp.cursor(), after) <= 0
+                || ORDER.compare(stamp.cursor(), position) > 0);
+        if (tooMany || missed.size() > bufferSize) {
+            deliver(subscription, SseEmitter.event().id(position.toString()).name("reset").data(""));
+            return;
+        }
+        missed.sort(Comparator.comparing(Stamp::cursor, ORDER));
+        Map<Long, TweetResponseDto> tweets = load(missed.stream().map(stamp -> stamp.cursor().id()).toList());
+        for (Stamp stamp : missed) {
+            TweetResponseDto tweet = tweets.get(stamp.cursor().id());
+            if (tweet != null) {
+                deliver(subscription, tweetEvent(stamp.cursor(), tweet));
+            }
+        }
+    }
+
+    private void dispatchNew() {
+        Timestamp from = new Timestamp(position.modified() - pollOverlap);
+        List<List<Stamp>> perShard;
+        try {
+            perShard = onEveryShard(() -> stamps(tweetRepository.findStampsModifiedAfter(from,
+                    PageRequest.of(0, POLL_BATCH))));
+        } catch (DataAccessException e) {
+            // keep the position; the next poll retries
+            log.warn("Feed stream poll failed: {}", e.getMessage());
+            return;
+        }
+        // a shard with a full batch may have more; nothing past the end of its batch is final yet
+        Cursor upTo = null;
+        List<Stamp> stamps = new ArrayList<>();
+        for (List<Stamp> shardStamps : perShard) {
+            stamps.addAll(shardStamps);
+            if (shardStamps.size() == POLL_BATCH) {
+                Cursor last = shardStamps.get(shardStamps.size() - 1).cursor();
+                upTo = upTo == null || ORDER.compare(last, upTo) < 0 ? last : upTo;
+            }
+        }
+        Cursor limit = upTo;
+        stamps.removeIf(stamp -> recent.containsKey(stamp.cursor().id())
+                || limit != null && ORDER.compare(stamp.cursor(), limit) > 0);
+        stamps.sort(Comparator.comparing(Stamp::cursor, ORDER));
+        if (!stamps.isEmpty()) {
+            dispatch(stamps);
+        }
+        for (Stamp stamp : stamps) {
+            recent.put(stamp.cursor().id(), stamp.cursor().modified());
+            if (ORDER.compare(stamp.cursor(), position) > 0) {
+                position = stamp.cursor();
+            }
+        }
+        recent.values().removeIf(modified -> modified < position.modified() - pollOverlap);
+    }
+
+    private void dispatch(List<Stamp> stamps) {
+        Set<Long> authors = stamps.stream().map(Stamp::authorId).collect(Collectors.toSet());
+        Map<Long, List<FeedSubscription>> recipients = recipientsOf(authors);
+        if (recipients.isEmpty()) {
+            return;
+        }
+        List<Long> ids = stamps.stream().filter(stamp -> recipients.containsKey(stamp.authorId()))
+                .map(stamp -> stamp.cursor().id()).toList();
+        Map<Long, TweetResponseDto> tweets;
+        try {
+            tweets = load(ids);
+        } catch (DataAccessException e) {
+            log.warn("Feed stream tweets could not be loaded: {}", e.getMessage());
+            return;
+        }
+        for (Stamp stamp : stamps) {
+            TweetResponseDto tweet = tweets.get(stamp.cursor().id());
+            if (tweet == null) {
+                continue;
+            }
+            for (FeedSubscription subscription : recipients.getOrDefault(stamp.authorId(), List.of())) {
+                deliver(subscription, tweetEvent(stamp.cursor(), tweet));
+            }
+        }
+    }
+
+    /**
+     * The open streams each author's tweets go to: the author's own and those of the author's followers. Follows are
+     * stored with the follower, so they are looked up on the shards of the users with open streams.
+     */
+    private Map<Long, List<FeedSubscription>> recipientsOf(Set<Long> authors) {
+        Map<Long, List<FeedSubscription>> recipients = new HashMap<>();
+        Set<Long> subscribers = new HashSet<>(subscriptions.keySet());
+        if (subscribers.isEmpty()) {
+            return recipients;
+        }
+        for (Long author : authors) {
+            if (subscribers.contains(author)) {
+                recipients.computeIfAbsent(author, id -> new ArrayList<>())
+                        .addAll(subscriptions.getOrDefault(author, Set.of()));
+            }
+        }
+        shards.scatter(subscribers, shards.getShardMap()::shardOfUser,
+                ids -> userRepository.findFollowsAmong(ids, authors)).forEach(follows -> follows.forEach(follow ->
+                        recipients.computeIfAbsent(follow.getFollowingId(), id -> new ArrayList<>())
+                                .addAll(subscriptions.getOrDefault(follow.getFollowerId(), Set.of()))));
+        return recipients;
+    }
+
+    private static List<Stamp> stamps(List<TweetRepository.StampView> views) {
+        return views.stream()
+                .map(view -> new Stamp(new Cursor(view.getModified().getTime(), view.getId()), view.getAuthorId()))
+                .toList();
+    }
+
+    private <T> List<T> onEveryShard(Supplier<T> query) {
+        if (shards.isSharded()) {
+            return shards.scatter(query);
+        }
+        T result = transactionTemplate.execute(status -> query.get());
+        return List.of(result);
+    }
+
+    /**
+     * Loads live tweets by id from the primary; a replica may not have a just-committed tweet yet. Sharded, each
+     * shard's tweets are loaded from that shard, which has no replicas.
+     */
+    private Map<Long, TweetResponseDto> load(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        if (shards.isSharded()) {
+            Map<Long, TweetResponseDto> tweets = new HashMap<>();
+            shards.scatter(ids, shards.getShardMap()::shardOfTweet, this::loadLive).forEach(tweets::putAll);
+            return tweets;
+        }
+        return transactionTemplate.execute(status -> loadLive(ids));
+    }
+
+    private Map<Long, TweetResponseDto> loadLive(List<Long> ids) {
+        return tweetRepository.findAllByIdInAndDeletedFalse(ids).stream()
+                .collect(Collectors.toMap(Tweet::getId, tweetMapper::entityToDto));
+    }
+
+    private static SseEmitter.SseEventBuilder tweetEvent(Cursor cursor, TweetResponseDto tweet) {
+        return SseEmitter.event()
+                .id(cursor.toString())
+                .name("tweet")
+                .data(tweet, MediaType.APPLICATION_JSON);
+    }
+
+    private void deliver(FeedSubscription subscription, SseEmitter.SseEventBuilder event) {
+        if (!subscription.offer(event)) {
+            if (!subscription.isClosed()) {
+                dropped.incrementAndGet();
+                log.debug("Dropping slow feed stream of user {}", subscription.getUserId());
+                complete(subscription);
+            }
+            return;
+        }
+        if (subscription.startDraining()) {
+            senders.execute(() -> drain(subscription));
+        }
+    }
+
+    private void drain(FeedSubscription subscription) {
+        while (true) {
+            SseEmitter.SseEventBuilder event = subscription.poll();
+            if (event == null) {
+                subscription.stopDraining();
+                // an event offered after the poll but before stopDraining would otherwise wait for the next one
+                if (subscription.isEmpty() || !subscription.startDraining()) {
+                    return;
+                }
+                continue;
+            }
+            try {
+                subscription.getEmitter().send(event);
+            } catch (IOException | IllegalStateException e) {
+                remove(subscription);
+                return;
+            }
+        }
+    }
+
+    private void complete(FeedSubscription subscription) {
+        remove(subscription);
+        try {
+            subscription.getEmitter().complete();
+        } catch (IllegalStateException e) {
+            // already completed
+        }
+    }
+
+    private void remove(FeedSubscription subscription) {
+        if (subscription.close()) {
+            unregister(subscription);
+        }
+    }
+
+    private void unregister(FeedSubscription subscription) {
+        subscriptions.computeIfPresent(subscription.getUserId(), (id, streams) -> {
+            if (streams.remove(subscription)) {
+                open.decrementAndGet();
+            }
+            return streams.isEmpty() ? null : streams;
+        });
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.cooksys.twitter_api.stream;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * One open feed stream: the emitter plus the bounded buffer of events waiting to be written to it. At most one sender
+ * thread drains the buffer at a time.
+ */
+class FeedSubscription {
+
+    private final long userId;
+    private final SseEmitter emitter;
+    private final ArrayBlockingQueue<SseEmitter.SseEventBuilder> buffer;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    FeedSubscription(long userId, SseEmitter emitter, int bufferSize) {
+        this.userId = userId;
+        this.emitter = emitter;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+    }
+
+    long getUserId() {
+        return userId;
+    }
+
+    SseEmitter getEmitter() {
+        return emitter;
+    }
+
+    /**
+     * Buffers an event; false when the buffer is full, i.e. the client is not keeping up.
+     */
+    boolean offer(SseEmitter.SseEventBuilder event) {
+        return !closed.get() && buffer.offer(event);
+    }
+
+    SseEmitter.SseEventBuilder poll() {
+        return buffer.poll();
+    }
+
+    boolean isEmpty() {
+        return buffer.isEmpty();
+    }
+
+    boolean startDraining() {
+        return draining.compareAndSet(false, true);
+    }
+
+    void stopDraining() {
+        draining.set(false);
+    }
+
+    /**
+     * Marks the subscription closed; true only for the first call.
+     */
+    boolean close() {
+        buffer.clear();
+        return closed.compareAndSet(false, true);
+    }
+
+    boolean isClosed() {
+        return closed.get();
+    }
+
+}
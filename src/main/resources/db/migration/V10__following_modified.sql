@@ -0,0 +1,5 @@
+-- When the user last followed or unfollowed someone, for the sync tokens of GET users/@{username}/feed?since=, which
+-- are modified-time watermarks: the follow rows themselves are deleted on unfollow and carry no time. Kept out of the
+-- entity so a follow does not change the user's version.
+
+alter table user_table add column following_modified timestamp(6);
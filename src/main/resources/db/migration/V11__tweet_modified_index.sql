@@ -0,0 +1,4 @@
+-- The feed streams follow new tweets by modified time, which every node stamps and every node can read, see
+-- FeedStreamHub.
+
+create index idx_tweet_modified on tweet (modified);
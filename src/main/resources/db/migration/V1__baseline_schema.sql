@@ -0,0 +1,79 @@
+-- Baseline schema, equivalent to what Hibernate generated with ddl-auto=create-drop
+
+create sequence hashtag_seq start with 1 increment by 50;
+create sequence tweet_seq start with 1 increment by 50;
+create sequence user_table_seq start with 1 increment by 50;
+
+create table user_table (
+    id bigint not null,
+    username varchar(255),
+    password varchar(255),
+    first_name varchar(255),
+    last_name varchar(255),
+    email varchar(255),
+    phone varchar(255),
+    deleted boolean not null,
+    joined timestamp(6),
+    primary key (id)
+);
+
+create table tweet (
+    id bigint not null,
+    user_id bigint,
+    posted timestamp(6),
+    deleted boolean not null,
+    content varchar(255),
+    in_reply_to_id bigint,
+    repost_of_id bigint,
+    primary key (id)
+);
+
+create table hashtag (
+    id bigint not null,
+    label varchar(255),
+    first_used timestamp(6),
+    last_used timestamp(6),
+    deleted boolean not null,
+    primary key (id)
+);
+
+create table user_table_tweets (
+    user_id bigint not null,
+    tweets_id bigint not null
+);
+
+create table user_table_following (
+    followers_id bigint not null,
+    following_id bigint not null
+);
+
+create table user_table_likes_tweet_list (
+    likes_user_list_id bigint not null,
+    likes_tweet_list_id bigint not null
+);
+
+create table user_table_mentions_tweet_list (
+    mentions_userlist_id bigint not null,
+    mentions_tweet_list_id bigint not null
+);
+
+create table tweet_hashtag_list (
+    tweet_list_id bigint not null,
+    hashtag_list_id bigint not null
+);
+
+alter table user_table_tweets add constraint uk_user_table_tweets_tweets_id unique (tweets_id);
+
+alter table tweet add constraint fk_tweet_user foreign key (user_id) references user_table;
+alter table tweet add constraint fk_tweet_in_reply_to foreign key (in_reply_to_id) references tweet;
+alter table tweet add constraint fk_tweet_repost_of foreign key (repost_of_id) references tweet;
+alter table user_table_tweets add constraint fk_user_table_tweets_tweet foreign key (tweets_id) references tweet;
+alter table user_table_tweets add constraint fk_user_table_tweets_user foreign key (user_id) references user_table;
+alter table user_table_following add constraint fk_following_following foreign key (following_id) references user_table;
+alter table user_table_following add constraint fk_following_followers foreign key (followers_id) references user_table;
+alter table user_table_likes_tweet_list add constraint fk_likes_tweet foreign key (likes_tweet_list_id) references tweet;
+alter table user_table_likes_tweet_list add constraint fk_likes_user foreign key (likes_user_list_id) references user_table;
+alter table user_table_mentions_tweet_list add constraint fk_mentions_tweet foreign key (mentions_tweet_list_id) references tweet;
+alter table user_table_mentions_tweet_list add constraint fk_mentions_user foreign key (mentions_userlist_id) references user_table;
+alter table tweet_hashtag_list add constraint fk_tweet_hashtag_list_hashtag foreign key (hashtag_list_id) references hashtag;
+alter table tweet_hashtag_list add constraint fk_tweet_hashtag_list_tweet foreign key (tweet_list_id) references tweet;
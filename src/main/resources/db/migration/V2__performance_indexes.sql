@@ -0,0 +1,31 @@
+-- Indexes and constraints backing the lookups every service method filters on
+
+-- findByCredentialsUsername*, usernameAvailable/usernameExists
+alter table user_table add constraint uk_user_table_username unique (username);
+
+-- findByLabel*, hashtagExists
+alter table hashtag add constraint uk_hashtag_label unique (label);
+
+-- tweets by author, newest first (feed, user tweets)
+create index idx_tweet_user_posted on tweet (user_id, posted);
+
+-- replies and reposts of a tweet (getContext, getReplies, getReposts)
+create index idx_tweet_in_reply_to on tweet (in_reply_to_id);
+create index idx_tweet_repost_of on tweet (repost_of_id);
+
+-- many-to-many join tables: composite primary key for one direction, secondary index for the other
+alter table user_table_following add constraint pk_user_table_following primary key (followers_id, following_id);
+create index idx_following_following on user_table_following (following_id);
+
+alter table user_table_likes_tweet_list add constraint pk_user_table_likes_tweet_list
+    primary key (likes_user_list_id, likes_tweet_list_id);
+create index idx_likes_tweet on user_table_likes_tweet_list (likes_tweet_list_id);
+
+alter table user_table_mentions_tweet_list add constraint pk_user_table_mentions_tweet_list
+    primary key (mentions_userlist_id, mentions_tweet_list_id);
+create index idx_mentions_tweet on user_table_mentions_tweet_list (mentions_tweet_list_id);
+
+alter table tweet_hashtag_list add constraint pk_tweet_hashtag_list primary key (tweet_list_id, hashtag_list_id);
+create index idx_tweet_hashtag_list_hashtag on tweet_hashtag_list (hashtag_list_id);
+
+alter table user_table_tweets add constraint pk_user_table_tweets primary key (user_id, tweets_id);
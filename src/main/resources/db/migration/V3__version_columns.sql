@@ -0,0 +1,7 @@
+-- Optimistic lock counters and modification timestamps backing ETag / Last-Modified on single-resource reads.
+
+alter table user_table add column version bigint default 0 not null;
+alter table user_table add column modified timestamp(6);
+
+alter table tweet add column version bigint default 0 not null;
+alter table tweet add column modified timestamp(6);
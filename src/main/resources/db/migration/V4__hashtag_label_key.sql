@@ -0,0 +1,30 @@
+-- Case-insensitive hashtag identity: label_key is the lower-cased label and is unique, so concurrent inserts of the
+-- same tag (in any case) collapse onto one row.
+
+alter table hashtag add column label_key varchar(255);
+update hashtag set label_key = lower(label);
+
+-- hashtags that only differed in case are merged into the oldest row; first drop join rows that would collide
+delete from tweet_hashtag_list t
+where exists (select 1
+              from tweet_hashtag_list t2
+              join hashtag h2 on h2.id = t2.hashtag_list_id
+              join hashtag h on h.id = t.hashtag_list_id
+              where t2.tweet_list_id = t.tweet_list_id
+                and t2.hashtag_list_id < t.hashtag_list_id
+                and h2.label_key = h.label_key);
+
+update tweet_hashtag_list
+set hashtag_list_id = (select min(c.id)
+                       from hashtag c
+                       join hashtag h on c.label_key = h.label_key
+                       where h.id = tweet_hashtag_list.hashtag_list_id);
+
+update hashtag
+set first_used = (select min(d.first_used) from hashtag d where d.label_key = hashtag.label_key),
+    last_used = (select max(d.last_used) from hashtag d where d.label_key = hashtag.label_key);
+
+delete from hashtag where id <> (select min(c.id) from hashtag c where c.label_key = hashtag.label_key);
+
+alter table hashtag alter column label_key set not null;
+alter table hashtag add constraint uk_hashtag_label_key unique (label_key);
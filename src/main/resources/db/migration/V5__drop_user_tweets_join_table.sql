@@ -0,0 +1,4 @@
+-- User.tweets is now the inverse side of Tweet.author (tweet.user_id), so the separate join table, which only ever
+-- recorded simple tweets and not replies or reposts, is no longer used.
+
+drop table user_table_tweets;
@@ -0,0 +1,13 @@
+-- Outbox read by every node's DatabaseInvalidationTransport; rows are pruned once all nodes have had time to poll them.
+
+create table cache_invalidation (
+    id bigint generated by default as identity,
+    entity varchar(16) not null,
+    entity_id bigint not null,
+    version bigint not null,
+    node varchar(64) not null,
+    created timestamp(6) default current_timestamp not null,
+    primary key (id)
+);
+
+create index idx_cache_invalidation_created on cache_invalidation (created);
@@ -0,0 +1,49 @@
+-- Pre-aggregated hashtag usage read by GET tags/{label}/stats, kept up to date by HashtagRollupWriter.
+
+-- uses per tag and time bucket; authors is a HyperLogLog sketch of the distinct authors in the bucket (null when
+-- unknown). Minute buckets are folded into hour buckets and hour buckets into day buckets as they age.
+create table hashtag_usage_rollup (
+    label_key varchar(255) not null,
+    granularity varchar(8) not null,
+    bucket_start timestamp(6) not null,
+    uses bigint not null,
+    authors bytea,
+    primary key (label_key, granularity, bucket_start)
+);
+
+create index idx_hashtag_usage_rollup_start on hashtag_usage_rollup (granularity, bucket_start);
+
+-- uses per tag and author, for the top authors of a tag
+create table hashtag_author_rollup (
+    label_key varchar(255) not null,
+    author_id bigint not null,
+    uses bigint not null,
+    last_used timestamp(6) not null,
+    primary key (label_key, author_id)
+);
+
+create index idx_hashtag_author_rollup_uses on hashtag_author_rollup (label_key, uses);
+
+-- history from before the rollups existed, at day resolution and without author sketches; the writer starts at the
+-- end of the event log, so nothing here is counted twice. posted holds the application's local time, which is also
+-- the session's, so days are cut in UTC like the writer's buckets, whatever the server time zone
+insert into hashtag_usage_rollup (label_key, granularity, bucket_start, uses, authors)
+select h.label_key, 'DAY',
+    cast(date_trunc('day', cast(t.posted as timestamp with time zone) at time zone 'UTC') at time zone 'UTC'
+    as timestamp),
+    count(*), null
+from tweet_hashtag_list th
+join hashtag h on h.id = th.hashtag_list_id
+join tweet t on t.id = th.tweet_list_id
+where t.posted is not null
+group by h.label_key,
+    cast(date_trunc('day', cast(t.posted as timestamp with time zone) at time zone 'UTC') at time zone 'UTC'
+    as timestamp);
+
+insert into hashtag_author_rollup (label_key, author_id, uses, last_used)
+select h.label_key, t.user_id, count(*), max(t.posted)
+from tweet_hashtag_list th
+join hashtag h on h.id = th.hashtag_list_id
+join tweet t on t.id = th.tweet_list_id
+where t.posted is not null and t.user_id is not null
+group by h.label_key, t.user_id;
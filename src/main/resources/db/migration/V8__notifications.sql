@@ -0,0 +1,29 @@
+-- Notifications inbox, written by NotificationWriter on the recipient's shard.
+
+-- one row per notification, newest last by id; repeated likes, reposts, replies and follows of the same thing are
+-- collapsed into one row (event_count, latest actor_id) that is re-appended when it grows
+create table notification (
+    id bigint generated by default as identity,
+    recipient_id bigint not null,
+    type varchar(16) not null,
+    tweet_id bigint,
+    source_tweet_id bigint,
+    actor_id bigint not null,
+    event_count integer not null,
+    first_at timestamp(6) not null,
+    last_at timestamp(6) not null,
+    primary key (id)
+);
+
+-- inbox pages, newest first
+create index idx_notification_recipient_id on notification (recipient_id, id);
+-- the open notification a new event collapses into
+create index idx_notification_collapse on notification (recipient_id, type, tweet_id);
+
+-- unread_count is the number of the user's notifications with an id above last_read_id
+create table notification_inbox (
+    user_id bigint not null,
+    unread_count bigint not null,
+    last_read_id bigint not null,
+    primary key (user_id)
+);
@@ -0,0 +1,10 @@
+-- Relationships are stored with the user who makes them, on that user's shard: a follow with the follower, a like with
+-- the liking user, a mention with the mentioning tweet, and a reply or repost is a tweet of its author. The user or
+-- tweet on the other end may live on another shard, so these columns can no longer reference a row of this database.
+-- The ids stay indexed by V2; nothing hard-deletes users or tweets, so no edge is left dangling by a delete.
+
+alter table user_table_following drop constraint fk_following_following;
+alter table user_table_likes_tweet_list drop constraint fk_likes_tweet;
+alter table user_table_mentions_tweet_list drop constraint fk_mentions_user;
+alter table tweet drop constraint fk_tweet_in_reply_to;
+alter table tweet drop constraint fk_tweet_repost_of;
@@ -0,0 +1,40 @@
+package com.cooksys.twitter_api;
+
+import com.cooksys.twitter_api.dtos.CredentialsDto;
+import com.cooksys.twitter_api.dtos.ProfileDto;
+import com.cooksys.twitter_api.dtos.TweetRequestDto;
+import com.cooksys.twitter_api.dtos.UserRequestDto;
+
+/**
+ * Request bodies shared by the integration tests. Every test user has the password "password" and an email made
+ * from their username.
+ */
+public final class TestFixtures {
+
+    private TestFixtures() {
+    }
+
+    public static CredentialsDto credentials(String username) {
+        CredentialsDto credentials = new CredentialsDto();
+        credentials.setUsername(username);
+        credentials.setPassword("password");
+        return credentials;
+    }
+
+    public static UserRequestDto newUser(String username) {
+        ProfileDto profile = new ProfileDto();
+        profile.setEmail(username + "@example.com");
+        UserRequestDto userRequestDto = new UserRequestDto();
+        userRequestDto.setCredentials(credentials(username));
+        userRequestDto.setProfile(profile);
+        return userRequestDto;
+    }
+
+    public static TweetRequestDto newTweet(String username, String content) {
+        TweetRequestDto tweetRequestDto = new TweetRequestDto();
+        tweetRequestDto.setContent(content);
+        tweetRequestDto.setCredentials(credentials(username));
+        return tweetRequestDto;
+    }
+
+}
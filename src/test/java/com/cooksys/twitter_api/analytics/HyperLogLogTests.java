@@ -0,0 +1,43 @@
+package com.cooksys.twitter_api.analytics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+class HyperLogLogTests {
+
+    @Test
+    void estimatesWithinAFewPercent() {
+        for (int count : new int[] { 10, 1000, 100_000 }) {
+            HyperLogLog sketch = new HyperLogLog();
+            for (long id = 1; id <= count; id++) {
+                sketch.add(id);
+                // duplicates must not count
+                sketch.add(id);
+            }
+            assertThat((double) sketch.estimate()).isCloseTo(count, within(count * 0.1));
+        }
+    }
+
+    @Test
+    void mergeIsTheSketchOfTheUnion() {
+        HyperLogLog a = new HyperLogLog();
+        HyperLogLog b = new HyperLogLog();
+        HyperLogLog union = new HyperLogLog();
+        for (long id = 0; id < 6000; id++) {
+            (id < 4000 ? a : b).add(id);
+            if (id >= 2000 && id < 4000) {
+                b.add(id);
+            }
+            union.add(id);
+        }
+
+        a.merge(b);
+
+        assertThat(a).isEqualTo(union);
+        assertThat(HyperLogLog.fromBytes(a.toBytes())).isEqualTo(union);
+        assertThat(HyperLogLog.fromBytes(null).isEmpty()).isTrue();
+    }
+
+}
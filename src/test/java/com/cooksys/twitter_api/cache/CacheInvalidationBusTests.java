@@ -0,0 +1,65 @@
+package com.cooksys.twitter_api.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+
+import com.cooksys.twitter_api.entities.User;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Two nodes joined by the in-JVM transport.
+ */
+class CacheInvalidationBusTests {
+
+    private final EntityManagerFactory publisherFactory = entityManagerFactory();
+    private final EntityManagerFactory receiverFactory = entityManagerFactory();
+    private final CacheInvalidationBus publisher = new CacheInvalidationBus(
+            Optional.of(new InMemoryInvalidationTransport("bus-tests")), publisherFactory, 100);
+    private final CacheInvalidationBus receiver = new CacheInvalidationBus(
+            Optional.of(new InMemoryInvalidationTransport("bus-tests")), receiverFactory, 100);
+
+    private static EntityManagerFactory entityManagerFactory() {
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class, RETURNS_DEEP_STUBS);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(mock(SessionFactory.class, RETURNS_DEEP_STUBS));
+        return entityManagerFactory;
+    }
+
+    @Test
+    void otherNodesEvictButThePublisherDoesNot() {
+        List<Invalidation> received = new ArrayList<>();
+        receiver.addListener(received::add);
+
+        publisher.publish(CachedEntity.USER, 7, 3);
+
+        assertThat(received).extracting(Invalidation::getId).containsExactly(7L);
+        verify(receiverFactory.getCache()).evict(User.class, 7L);
+        verify(publisherFactory.getCache(), never()).evict(User.class, 7L);
+    }
+
+    @Test
+    void duplicateAndOvertakenVersionsAreIgnored() {
+        receiver.receive(new Invalidation(CachedEntity.USER, 8, 5, publisher.getNode()));
+        receiver.receive(new Invalidation(CachedEntity.USER, 8, 4, publisher.getNode()));
+        receiver.receive(new Invalidation(CachedEntity.USER, 8, 5, publisher.getNode()));
+
+        verify(receiverFactory.getCache(), times(1)).evict(User.class, 8L);
+        assertThat(receiver.getIgnored()).isEqualTo(2);
+        assertThat(receiver.isStale(CachedEntity.USER, 8, 4)).isTrue();
+        assertThat(receiver.isStale(CachedEntity.USER, 8, 5)).isFalse();
+        assertThat(receiver.isStale(CachedEntity.TWEET, 8, 0)).isFalse();
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.cooksys.twitter_api.cache;
+
+import static com.cooksys.twitter_api.TestFixtures.credentials;
+import static com.cooksys.twitter_api.TestFixtures.newUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.cooksys.twitter_api.entities.User;
+import com.cooksys.twitter_api.repositories.UserRepository;
+import com.cooksys.twitter_api.service.UserService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Username lookups are cached, misses included, so every change of who a username resolves to has to invalidate
+ * them: a cached "no such user" must not outlive the user's creation, nor a cached user their deletion.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:query-cache;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "twitter.event-log.directory=target/test-data/query-cache/${random.uuid}/events",
+        "twitter.content-store.directory=target/test-data/query-cache/content",
+        "twitter.snapshot.enabled=false" })
+class QueryCacheTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private BoundedStorageAccess region(String name) {
+        BoundedRegionFactory regionFactory = (BoundedRegionFactory) entityManagerFactory
+                .unwrap(SessionFactoryImplementor.class).getCache().getRegionFactory();
+        return regionFactory.getRegions().stream()
+                .filter(region -> region.getRegionName().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @Test
+    void cachedLookupsFollowCreateDeleteAndReactivate() {
+        BoundedStorageAccess queryResults = region(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME);
+        assertThat(userRepository.findByCredentialsUsernameAndDeletedFalse("cachedcarol")).isEmpty();
+        assertThat(userRepository.findByCredentialsUsername("cachedcarol")).isEmpty();
+        long hits = queryResults.getHits();
+        assertThat(userRepository.findByCredentialsUsernameAndDeletedFalse("cachedcarol")).isEmpty();
+        assertThat(userRepository.findByCredentialsUsername("cachedcarol")).isEmpty();
+        // both misses were answered from the cache
+        assertThat(queryResults.getHits()).isEqualTo(hits + 2);
+
+        userService.createUser(newUser("cachedcarol"));
+        assertThat(userRepository.findByCredentialsUsernameAndDeletedFalse("cachedcarol")).isPresent();
+        assertThat(userRepository.findByCredentialsUsername("cachedcarol")).isPresent();
+        assertThat(userService.getUser("cachedcarol").getUsername()).isEqualTo("cachedcarol");
+
+        userService.deleteUser("cachedcarol", credentials("cachedcarol"));
+        assertThat(userRepository.findByCredentialsUsernameAndDeletedFalse("cachedcarol")).isEmpty();
+        assertThat(userRepository.findByCredentialsUsername("cachedcarol").map(User::isDeleted)).contains(true);
+
+        userService.createUser(newUser("cachedcarol"));
+        assertThat(userRepository.findByCredentialsUsernameAndDeletedFalse("cachedcarol").map(User::isDeleted))
+                .contains(false);
+        assertThat(userService.getUser("cachedcarol").getUsername()).isEqualTo("cachedcarol");
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.cooksys.twitter_api.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.cooksys.twitter_api.dtos.TweetResponseDto;
+import com.cooksys.twitter_api.entities.Credentials;
+import com.cooksys.twitter_api.entities.Tweet;
+import com.cooksys.twitter_api.entities.User;
+import com.cooksys.twitter_api.mappers.TweetMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The application's tweet mapper has to serve tweets, and the tweets they embed, from the cache, and the fragments it
+ * splices into a response have to read exactly like the DTOs serialized field by field. Each test maps entities of
+ * its own ids, never persisted, so the tests do not see each other's entries.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:response-fragments;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "twitter.event-log.directory=target/test-data/response-fragments/${random.uuid}/events",
+        "twitter.content-store.directory=target/test-data/response-fragments/content",
+        "twitter.snapshot.enabled=false",
+        "twitter.response-cache.max-bytes=8000" })
+class ResponseFragmentCacheTests {
+
+    @Autowired
+    private TweetMapper tweetMapper;
+
+    @Autowired
+    private ResponseFragmentCache responseFragmentCache;
+
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private static User user(long id) {
+        Credentials credentials = new Credentials();
+        credentials.setUsername("fragments" + id);
+        User user = new User();
+        user.setId(id);
+        user.setCredentials(credentials);
+        user.setJoined(new Timestamp(0));
+        return user;
+    }
+
+    private static Tweet tweet(long id, User author, String content) {
+        Tweet tweet = new Tweet();
+        tweet.setId(id);
+        tweet.setAuthor(author);
+        tweet.setPosted(new Timestamp(id));
+        tweet.setContent(content);
+        return tweet;
+    }
+
+    @Test
+    void nestedTweetsAreServedFromTheCache() throws Exception {
+        User author = user(1);
+        List<Tweet> tweets = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            Tweet tweet = tweet(id, author, "hello \"#" + id + "\" é");
+            tweet.setInReplyTo(tweets.isEmpty() ? null : tweets.get(0));
+            tweets.add(tweet);
+        }
+
+        List<TweetResponseDto> page = tweetMapper.entitiesToDtos(tweets);
+
+        assertThat(page).allSatisfy(dto -> assertThat(dto.getJson()).isNotNull());
+        assertThat(page.subList(1, page.size()))
+                .allSatisfy(dto -> assertThat(dto.getInReplyTo()).isSameAs(page.get(0)));
+        // pretty-printed output serializes every DTO field by field
+        String spliced = objectMapper.writeValueAsString(page);
+        String plain = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(page);
+        assertThat(objectMapper.readTree(spliced)).isEqualTo(objectMapper.readTree(plain));
+    }
+
+    @Test
+    void newVersionsAndInvalidationsMissTheCache() {
+        User author = user(2);
+        Tweet tweet = tweet(100, author, "hello");
+        Tweet reply = tweet(101, author, "hello back");
+        reply.setInReplyTo(tweet);
+        TweetResponseDto first = tweetMapper.entityToDto(reply);
+        assertThat(tweetMapper.entityToDto(reply)).isSameAs(first);
+
+        tweet.setVersion(1);
+        TweetResponseDto second = tweetMapper.entityToDto(reply);
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getInReplyTo()).isNotSameAs(first.getInReplyTo());
+
+        long invalidations = responseFragmentCache.getInvalidations();
+        cacheInvalidationBus.publish(CachedEntity.TWEET, 101, 1);
+        assertThat(responseFragmentCache.getInvalidations()).isEqualTo(invalidations + 1);
+        assertThat(tweetMapper.entityToDto(reply).getJson()).isNull();
+    }
+
+    @Test
+    void oneOffReadsDoNotEvictHotEntries() {
+        User author = user(3);
+        List<Tweet> hot = new ArrayList<>();
+        for (long id = 1000; id < 1020; id++) {
+            hot.add(tweet(id, author, "hot"));
+        }
+        for (int round = 0; round < 5; round++) {
+            tweetMapper.entitiesToDtos(hot);
+        }
+        for (long id = 10_000; id < 12_000; id++) {
+            tweetMapper.entityToDto(tweet(id, author, "cold"));
+        }
+
+        long misses = responseFragmentCache.getMisses();
+        tweetMapper.entitiesToDtos(hot);
+        assertThat(responseFragmentCache.getMisses()).isEqualTo(misses);
+        assertThat(responseFragmentCache.getBytes()).isLessThanOrEqualTo(8000);
+
+        // leaves room for the other tests' entries
+        for (long id = 1000; id < 12_000; id++) {
+            responseFragmentCache.invalidate(CachedEntity.TWEET, id);
+        }
+    }
+
+}
@@ -0,0 +1,191 @@
+package com.cooksys.twitter_api.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.cooksys.twitter_api.dtos.NotificationDto;
+import com.cooksys.twitter_api.dtos.NotificationPageDto;
+import com.cooksys.twitter_api.dtos.ProfileDto;
+import com.cooksys.twitter_api.dtos.TweetResponseDto;
+import com.cooksys.twitter_api.dtos.UserResponseDto;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * The CBOR document must decode to exactly the JSON one. Scalars are checked against the examples of RFC 8949
+ * appendix A, documents by decoding them with the minimal decoder below and comparing with the parsed JSON.
+ */
+class CborHttpMessageConverterTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CborHttpMessageConverter converter = new CborHttpMessageConverter(objectMapper);
+
+    private byte[] encode(Object value) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        converter.encode(value, out);
+        return out.toByteArray();
+    }
+
+    private String hex(Object value) throws IOException {
+        return HexFormat.of().formatHex(encode(value));
+    }
+
+    private JsonNode roundTrip(Object value) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(encode(value));
+        JsonNode decoded = decode(in);
+        assertThat(in.hasRemaining()).isFalse();
+        return decoded;
+    }
+
+    private JsonNode json(Object value) throws IOException {
+        return objectMapper.readTree(objectMapper.writeValueAsString(value));
+    }
+
+    private static TweetResponseDto tweet(long id, String content) {
+        ProfileDto profile = new ProfileDto();
+        profile.setFirstName("Zoë");
+        profile.setEmail("user" + id + "@example.com");
+        UserResponseDto author = new UserResponseDto();
+        author.setUsername("user" + id);
+        author.setProfile(profile);
+        author.setJoined(new Timestamp(1_600_000_000_000L + id));
+        TweetResponseDto tweet = new TweetResponseDto();
+        tweet.setId(id);
+        tweet.setAuthor(author);
+        tweet.setPosted(new Timestamp(1_700_000_000_000L + id));
+        tweet.setContent(content);
+        return tweet;
+    }
+
+    @Test
+    void scalarsMatchTheRfcExamples() throws Exception {
+        assertThat(hex(0)).isEqualTo("00");
+        assertThat(hex(23)).isEqualTo("17");
+        assertThat(hex(24)).isEqualTo("1818");
+        assertThat(hex(100)).isEqualTo("1864");
+        assertThat(hex(1000)).isEqualTo("1903e8");
+        assertThat(hex(1000000)).isEqualTo("1a000f4240");
+        assertThat(hex(1000000000000L)).isEqualTo("1b000000e8d4a51000");
+        assertThat(hex(-1)).isEqualTo("20");
+        assertThat(hex(-1000)).isEqualTo("3903e7");
+        assertThat(hex(Long.MIN_VALUE)).isEqualTo("3b7fffffffffffffff");
+        assertThat(hex(1.1)).isEqualTo("fb3ff199999999999a");
+        assertThat(hex("")).isEqualTo("60");
+        assertThat(hex("a")).isEqualTo("6161");
+        assertThat(hex("ü")).isEqualTo("62c3bc");
+        assertThat(hex(false)).isEqualTo("f4");
+        assertThat(hex(true)).isEqualTo("f5");
+        assertThat(hex(null)).isEqualTo("f6");
+    }
+
+    @Test
+    void documentsDecodeToTheirJson() throws Exception {
+        TweetResponseDto original = tweet(1, "hello \"#world\" é 😀");
+        TweetResponseDto reply = tweet(2, "");
+        reply.setInReplyTo(original);
+        TweetResponseDto repost = tweet(3, null);
+        repost.setRepostOf(reply);
+        repost.setAuthor(null);
+
+        NotificationDto notification = new NotificationDto();
+        notification.setId(Long.MAX_VALUE);
+        notification.setType("LIKE");
+        notification.setTweetId(1L);
+        notification.setCount(300);
+        notification.setUnread(true);
+        NotificationPageDto page = new NotificationPageDto();
+        page.setNotifications(List.of(notification));
+        page.setUnreadCount(70_000);
+
+        assertThat(roundTrip(repost)).isEqualTo(json(repost));
+        assertThat(roundTrip(List.of(original, reply, repost))).isEqualTo(json(List.of(original, reply, repost)));
+        assertThat(roundTrip(page)).isEqualTo(json(page));
+        assertThat(roundTrip(List.of())).isEqualTo(json(List.of()));
+    }
+
+    @Test
+    void documentsLargerThanTheBufferDecodeToTheirJson() throws Exception {
+        List<TweetResponseDto> tweets = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            tweets.add(tweet(id, "tweet number " + id));
+        }
+        // longer than the whole write buffer, so it bypasses it
+        tweets.add(tweet(501, "x".repeat(20_000)));
+
+        assertThat(roundTrip(tweets)).isEqualTo(json(tweets));
+    }
+
+    /**
+     * Decodes the subset of CBOR the converter writes, with integers as int nodes where they fit like the JSON parser
+     * does.
+     */
+    private static JsonNode decode(ByteBuffer in) {
+        JsonNodeFactory nodes = JsonNodeFactory.instance;
+        int initial = in.get() & 0xFF;
+        int majorType = initial >>> 5;
+        int info = initial & 31;
+        switch (initial) {
+            case 0xF4:
+                return nodes.booleanNode(false);
+            case 0xF5:
+                return nodes.booleanNode(true);
+            case 0xF6:
+                return nodes.nullNode();
+            case 0xFB:
+                return nodes.numberNode(in.getDouble());
+            default:
+                break;
+        }
+        if (info == 31) {
+            if (majorType == 4) {
+                ArrayNode array = nodes.arrayNode();
+                while (in.get(in.position()) != (byte) 0xFF) {
+                    array.add(decode(in));
+                }
+                in.get();
+                return array;
+            }
+            assertThat(majorType).isEqualTo(5);
+            ObjectNode object = nodes.objectNode();
+            while (in.get(in.position()) != (byte) 0xFF) {
+                object.set(decode(in).textValue(), decode(in));
+            }
+            in.get();
+            return object;
+        }
+        long argument = switch (info) {
+            case 24 -> in.get() & 0xFFL;
+            case 25 -> in.getShort() & 0xFFFFL;
+            case 26 -> in.getInt() & 0xFFFFFFFFL;
+            case 27 -> in.getLong();
+            default -> info;
+        };
+        switch (majorType) {
+            case 0, 1: {
+                long value = majorType == 0 ? argument : -1 - argument;
+                return value == (int) value ? nodes.numberNode((int) value) : nodes.numberNode(value);
+            }
+            case 3: {
+                byte[] text = new byte[(int) argument];
+                in.get(text);
+                return nodes.textNode(new String(text, StandardCharsets.UTF_8));
+            }
+            default:
+                throw new AssertionError("unexpected initial byte " + initial);
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.cooksys.twitter_api.config;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-loop load against a running instance: a number of concurrent clients alternate posting a tweet and reading
+ * a feed, each waiting for its response before sending the next request. Prints throughput and latency percentiles
+ * so the platform-thread and virtual-thread modes can be compared. Not a unit test; run it with
+ * scripts/load-benchmark.sh.
+ */
+public class LoadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int users = Math.min(clients, 50);
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        for (int i = 0; i < users; i++) {
+            send(http, post(baseUrl + "/users", "{\"credentials\":" + credentials(run, i)
+                    + ",\"profile\":{\"email\":\"load" + i + "@example.com\"}}"));
+        }
+        for (int i = 0; i < users; i++) {
+            for (int j = 1; j <= 5; j++) {
+                send(http, post(baseUrl + "/users/@" + username(run, (i + j) % users) + "/follow",
+                        credentials(run, i)));
+            }
+        }
+
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(1, seconds / 5));
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(seconds);
+        long[][] latencies = new long[clients][];
+        int[] counts = new int[clients];
+        long[] errors = new long[clients];
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            pool.execute(() -> {
+                long[] samples = new long[1024];
+                int count = 0;
+                for (int n = 0; System.nanoTime() < end; n++) {
+                    int user = ThreadLocalRandom.current().nextInt(users);
+                    HttpRequest request = n % 2 == 0
+                            ? post(baseUrl + "/tweets", "{\"content\":\"load test #bench tweet " + n + " from @"
+                                    + username(run, (user + 1) % users) + "\",\"credentials\":" + credentials(run, user) + "}")
+                            : HttpRequest.newBuilder(URI.create(baseUrl + "/users/@" + username(run, user) + "/feed"))
+                                    .GET().build();
+                    long start = System.nanoTime();
+                    int status = send(http, request);
+                    long elapsed = System.nanoTime() - start;
+                    if (status >= 400 || status < 0) {
+                        errors[client]++;
+                    } else if (start > warmupEnd) {
+                        if (count == samples.length) {
+                            samples = Arrays.copyOf(samples, count * 2);
+                        }
+                        samples[count++] = elapsed;
+                    }
+                }
+                latencies[client] = samples;
+                counts[client] = count;
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(seconds + 120L, TimeUnit.SECONDS);
+
+        int total = Arrays.stream(counts).sum();
+        long[] all = new long[total];
+        int offset = 0;
+        for (int c = 0; c < clients; c++) {
+            if (counts[c] > 0) {
+                System.arraycopy(latencies[c], 0, all, offset, counts[c]);
+                offset += counts[c];
+            }
+        }
+        Arrays.sort(all);
+        long failed = Arrays.stream(errors).sum();
+        System.out.printf("clients=%d requests=%d errors=%d throughput=%.0f req/s p50=%.1f ms p99=%.1f ms max=%.1f ms%n",
+                clients, total, failed, (double) total / seconds, percentile(all, 0.50), percentile(all, 0.99),
+                all.length == 0 ? 0 : all[all.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1e6;
+    }
+
+    private static String username(String run, int i) {
+        return "load" + run + "u" + i;
+    }
+
+    private static String credentials(String run, int i) {
+        return "{\"username\":\"" + username(run, i) + "\",\"password\":\"secret\"}";
+    }
+
+    private static HttpRequest post(String url, String json) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private static int send(HttpClient http, HttpRequest request) {
+        try {
+            return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+}
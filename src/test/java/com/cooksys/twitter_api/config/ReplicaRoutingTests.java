@@ -0,0 +1,93 @@
+package com.cooksys.twitter_api.config;
+
+import static com.cooksys.twitter_api.TestFixtures.newUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import com.cooksys.twitter_api.dtos.UserResponseDto;
+import com.cooksys.twitter_api.service.UserService;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Routing against two embedded databases that do not replicate: the replica only has the schema, so whether a read
+ * sees a freshly created user tells which database served it.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicaRoutingTests.PRIMARY_URL,
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "twitter.datasource.replica-urls=" + ReplicaRoutingTests.REPLICA_URL,
+        "twitter.event-log.directory=target/test-data/routing/events",
+        "twitter.content-store.directory=target/test-data/routing/content",
+        "twitter.snapshot.enabled=false" })
+class ReplicaRoutingTests {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @BeforeAll
+    static void createReplicaSchema() {
+        Flyway.configure().dataSource(REPLICA_URL, "sa", "").load().migrate();
+    }
+
+    @AfterEach
+    void unpin() {
+        ReplicaRoutingDataSource.unpin();
+    }
+
+    private List<String> allUsernames() {
+        return userService.getAllUsers().stream().map(UserResponseDto::getUsername).toList();
+    }
+
+    @Test
+    void readOnlyOperationsAreServedByTheReplica() {
+        userService.createUser(newUser("routingalice"));
+
+        assertThat(allUsernames()).doesNotContain("routingalice");
+    }
+
+    @Test
+    void pinnedReadsSeeTheirOwnWrites() {
+        userService.createUser(newUser("routingbob"));
+        ReplicaRoutingDataSource.pinToPrimary();
+
+        assertThat(allUsernames()).contains("routingbob");
+    }
+
+    @Test
+    void syncReadsAreServedByThePrimary() {
+        userService.createUser(newUser("routingdave"));
+
+        assertThat(userService.getFeedSince("routingdave", null).isReset()).isTrue();
+        assertThat(userService.getMentionsSince("routingdave", null).isReset()).isTrue();
+        // the pin ends with the sync
+        assertThat(allUsernames()).doesNotContain("routingdave");
+    }
+
+    @Test
+    @DirtiesContext
+    void readsFallBackToThePrimaryWithoutAHealthyReplica() {
+        userService.createUser(newUser("routingcarol"));
+        ((HikariDataSource) replicaRoutingDataSource.getReplicas().get("replica-0")).close();
+        replicaRoutingDataSource.checkReplicas();
+
+        assertThat(replicaRoutingDataSource.getHealthyReplicas()).isEmpty();
+        assertThat(allUsernames()).contains("routingcarol");
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.cooksys.twitter_api.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.cooksys.twitter_api.dtos.ProfileDto;
+import com.cooksys.twitter_api.dtos.TweetResponseDto;
+import com.cooksys.twitter_api.dtos.UserResponseDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Compares payload size and serialization throughput of a feed page encoded as JSON and as CBOR. Not a unit test;
+ * run it with scripts/serialization-benchmark.sh.
+ */
+public class SerializationBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int pageSize = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        ObjectMapper objectMapper = new ObjectMapper().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        CborHttpMessageConverter cbor = new CborHttpMessageConverter(objectMapper);
+        List<TweetResponseDto> page = feedPage(pageSize);
+
+        byte[] json = objectMapper.writeValueAsBytes(page);
+        ByteArrayOutputStream cborOut = new ByteArrayOutputStream();
+        cbor.encode(page, cborOut);
+        System.out.printf("payload for %d tweets: json=%d bytes, cbor=%d bytes (%.1f%%)%n", pageSize, json.length,
+                cborOut.size(), 100.0 * cborOut.size() / json.length);
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            long bytes = 0;
+            for (int i = 0; i < iterations; i++) {
+                bytes += objectMapper.writeValueAsBytes(page).length;
+            }
+            report("json", start, iterations, bytes);
+
+            start = System.nanoTime();
+            bytes = 0;
+            for (int i = 0; i < iterations; i++) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(cborOut.size());
+                cbor.encode(page, out);
+                bytes += out.size();
+            }
+            report("cbor", start, iterations, bytes);
+        }
+    }
+
+    private static void report(String format, long start, int iterations, long bytes) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s: %.0f pages/s, %.1f MB/s%n", format, iterations / seconds, bytes / seconds / 1e6);
+    }
+
+    private static List<TweetResponseDto> feedPage(int size) {
+        List<UserResponseDto> authors = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ProfileDto profile = new ProfileDto();
+            profile.setFirstName("First" + i);
+            profile.setLastName("Last" + i);
+            profile.setEmail("user" + i + "@example.com");
+            profile.setPhone("555-010" + i);
+            UserResponseDto author = new UserResponseDto();
+            author.setUsername("user" + i);
+            author.setProfile(profile);
+            author.setJoined(new Timestamp(1_600_000_000_000L + i));
+            authors.add(author);
+        }
+        List<TweetResponseDto> page = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            TweetResponseDto tweet = new TweetResponseDto();
+            tweet.setId(100_000L + i);
+            tweet.setAuthor(authors.get(i % authors.size()));
+            tweet.setPosted(new Timestamp(1_700_000_000_000L - i * 60_000L));
+            tweet.setContent("Tweet number " + i + " about #performance with @user" + (i + 1) % authors.size());
+            if (i > 0 && i % 3 == 0) {
+                tweet.setInReplyTo(page.get(i - 1));
+            }
+            page.add(tweet);
+        }
+        return page;
+    }
+
+}
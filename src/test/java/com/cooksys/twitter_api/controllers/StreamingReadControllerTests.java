@@ -0,0 +1,145 @@
+package com.cooksys.twitter_api.controllers;
+
+import static com.cooksys.twitter_api.TestFixtures.newTweet;
+import static com.cooksys.twitter_api.TestFixtures.newUser;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.cooksys.twitter_api.dtos.TweetResponseDto;
+import com.cooksys.twitter_api.service.TweetService;
+import com.cooksys.twitter_api.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The NDJSON streams under /stream through MockMvc: the body is written by the stream executor after the handler
+ * returns, so each request is dispatched again once the stream is done.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:streaming-reads;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "twitter.event-log.directory=target/test-data/streaming-reads/${random.uuid}/events",
+        "twitter.content-store.directory=target/test-data/streaming-reads/content",
+        "twitter.snapshot.enabled=false" })
+@AutoConfigureMockMvc
+class StreamingReadControllerTests {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StreamingReadController streamingReadController;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TweetService tweetService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private List<TweetResponseDto> tweets(String body) throws IOException {
+        List<TweetResponseDto> tweets = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            tweets.add(objectMapper.readValue(line, TweetResponseDto.class));
+        }
+        return tweets;
+    }
+
+    private String stream(String path) throws Exception {
+        MvcResult started = mockMvc.perform(get(path)).andExpect(request().asyncStarted()).andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(NDJSON))
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    @Test
+    void tweetsAreWrittenOneJsonObjectPerLine() throws Exception {
+        userService.createUser(newUser("ndjsonwriter"));
+        TweetResponseDto first = tweetService.createTweet(newTweet("ndjsonwriter", "first line"));
+        // a later posted time, so the order of the lines is certain
+        Thread.sleep(2);
+        TweetResponseDto second = tweetService.createTweet(newTweet("ndjsonwriter", "second line\nwith a newline"));
+
+        String body = stream("/stream/users/@ndjsonwriter/tweets");
+
+        // a newline inside a tweet is escaped by the JSON, so it never splits a line
+        assertThat(body).endsWith("\n").doesNotContain("\n\n");
+        assertThat(tweets(body)).extracting(TweetResponseDto::getId).containsExactly(second.getId(), first.getId());
+        assertThat(tweets(body)).extracting(TweetResponseDto::getContent)
+                .containsExactly("second line\nwith a newline", "first line");
+    }
+
+    @Test
+    void aSingleTweetIsOneLine() throws Exception {
+        userService.createUser(newUser("ndjsonsingle"));
+        TweetResponseDto tweet = tweetService.createTweet(newTweet("ndjsonsingle", "alone"));
+
+        String body = stream("/stream/tweets/" + tweet.getId());
+
+        assertThat(tweets(body)).extracting(TweetResponseDto::getId).containsExactly(tweet.getId());
+    }
+
+    @Test
+    void missingUsersAreNotFoundBeforeTheBodyStarts() throws Exception {
+        mockMvc.perform(get("/stream/users/@ndjsonnobody/feed"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.message").value("User not found with username @ndjsonnobody"));
+        mockMvc.perform(get("/stream/tweets/0"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/stream/tags/ndjsonnotag"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void aClientLeavingEarlyEndsTheStream() throws Exception {
+        userService.createUser(newUser("ndjsonleaver"));
+        for (int i = 0; i < 3; i++) {
+            tweetService.createTweet(newTweet("ndjsonleaver", "unread " + i));
+        }
+        StreamingResponseBody body = streamingReadController.streamUserTweets("ndjsonleaver").getBody();
+        OutputStream disconnected = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        IOException failure = assertThrows(IOException.class, () -> body.writeTo(disconnected));
+
+        // the write failure is what reaches the container, and the cursor's transaction is over
+        assertThat(failure).hasMessage("Broken pipe");
+        assertThat(TransactionSynchronizationManager.isActualTransactionActive()).isFalse();
+        assertThat(tweets(stream("/stream/users/@ndjsonleaver/tweets"))).hasSize(3);
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.cooksys.twitter_api.entities;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import lombok.Data;
+
+/**
+ * Compares the membership checks the services do on relationship collections (already liked? already following?)
+ * with the old field-wise {@code @Data} equality over lists against id equality over lists and over sets. Not a unit
+ * test; run it with scripts/membership-benchmark.sh.
+ */
+public class MembershipBenchmark {
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+        LegacyUser legacyAuthor = legacyUser(0, size);
+        List<LegacyTweet> legacyLikes = new ArrayList<>();
+        User author = new User();
+        author.setId(0L);
+        List<Tweet> likesList = new ArrayList<>();
+        Set<Tweet> likesSet = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            LegacyTweet legacy = new LegacyTweet();
+            legacy.setId((long) i);
+            legacy.setAuthor(legacyAuthor);
+            legacy.setPosted(new Timestamp(1_700_000_000_000L));
+            legacy.setContent("Same content about #performance");
+            legacyLikes.add(legacy);
+            Tweet tweet = new Tweet();
+            tweet.setId((long) i);
+            tweet.setAuthor(author);
+            tweet.setContent(legacy.getContent());
+            likesList.add(tweet);
+            likesSet.add(tweet);
+        }
+        // the liked tweet is the last one, loaded as a different instance (as a proxy or another session would be)
+        LegacyTweet legacyTarget = new LegacyTweet();
+        legacyTarget.setId((long) size - 1);
+        legacyTarget.setAuthor(legacyUser(0, size));
+        legacyTarget.setPosted(new Timestamp(1_700_000_000_000L));
+        legacyTarget.setContent("Same content about #performance");
+        Tweet target = new Tweet();
+        target.setId((long) size - 1);
+
+        // following check on a hash set: the old hashCode walked the whole following list of the user
+        Set<LegacyUser> legacyFollowing = new HashSet<>(List.of(legacyAuthor));
+        LegacyUser legacyFollowed = legacyUser(0, size);
+        Set<User> following = new HashSet<>(List.of(author));
+        User followed = new User();
+        followed.setId(0L);
+
+        for (int round = 0; round < 3; round++) {
+            report("likes, field-wise equality, list", iterations, i -> legacyLikes.contains(legacyTarget));
+            report("likes, id equality, list", iterations, i -> likesList.contains(target));
+            report("likes, id equality, set", iterations, i -> likesSet.contains(target));
+            report("following, field-wise hashCode, set", iterations, i -> legacyFollowing.contains(legacyFollowed));
+            report("following, id hashCode, set", iterations, i -> following.contains(followed));
+        }
+    }
+
+    private static void report(String name, int iterations, Predicate<Integer> check) {
+        int found = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            if (check.test(i)) {
+                found++;
+            }
+        }
+        double nanos = (double) (System.nanoTime() - start) / iterations;
+        System.out.printf("%-36s %12.0f ns/check (%d found)%n", name, nanos, found);
+    }
+
+    private static LegacyUser legacyUser(long id, int following) {
+        LegacyUser user = new LegacyUser();
+        user.setId(id);
+        user.setUsername("user" + id);
+        user.setEmail("user" + id + "@example.com");
+        user.setJoined(new Timestamp(1_600_000_000_000L));
+        List<LegacyUser> followed = new ArrayList<>();
+        for (int i = 1; i <= following; i++) {
+            LegacyUser other = new LegacyUser();
+            other.setId(id + i);
+            other.setUsername("user" + (id + i));
+            other.setEmail("user" + (id + i) + "@example.com");
+            other.setJoined(user.getJoined());
+            other.setFollowing(new ArrayList<>());
+            followed.add(other);
+        }
+        user.setFollowing(followed);
+        return user;
+    }
+
+    // the shape entities had with @Data: equality compares every field, associations included
+
+    @Data
+    static class LegacyUser {
+        private Long id;
+        private String username;
+        private String email;
+        private Timestamp joined;
+        private List<LegacyUser> following;
+    }
+
+    @Data
+    static class LegacyTweet {
+        private Long id;
+        private LegacyUser author;
+        private Timestamp posted;
+        private String content;
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.cooksys.twitter_api.indexes;
+
+import static com.cooksys.twitter_api.TestFixtures.newTweet;
+import static com.cooksys.twitter_api.TestFixtures.newUser;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.cooksys.twitter_api.cache.CacheInvalidationBus;
+import com.cooksys.twitter_api.cache.CachedEntity;
+import com.cooksys.twitter_api.cache.InMemoryInvalidationTransport;
+import com.cooksys.twitter_api.dtos.TweetResponseDto;
+import com.cooksys.twitter_api.service.TweetService;
+import com.cooksys.twitter_api.service.UserService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Changes another node commits go straight to the shared database and reach this node only as invalidations; the
+ * other node is a bare bus on the same in-JVM channel, and its changes are made with SQL.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:index-invalidations;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "twitter.event-log.directory=target/test-data/index-invalidations/${random.uuid}/events",
+        "twitter.content-store.directory=target/test-data/index-invalidations/content",
+        "twitter.snapshot.enabled=false",
+        "twitter.cache-bus.transport=in-memory",
+        "twitter.cache-bus.channel=index-invalidations" })
+class IndexInvalidationListenerTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TweetService tweetService;
+
+    @Autowired
+    private SocialGraphIndex socialGraphIndex;
+
+    @Autowired
+    private AutocompleteIndex autocompleteIndex;
+
+    @Autowired
+    private TweetSearchIndex tweetSearchIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final CacheInvalidationBus otherNode = new CacheInvalidationBus(
+            Optional.of(new InMemoryInvalidationTransport("index-invalidations")), entityManagerFactory(), 100);
+
+    private static EntityManagerFactory entityManagerFactory() {
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class, RETURNS_DEEP_STUBS);
+        when(entityManagerFactory.unwrap(SessionFactory.class))
+                .thenReturn(mock(SessionFactory.class, RETURNS_DEEP_STUBS));
+        return entityManagerFactory;
+    }
+
+    private long userId(String username) {
+        return jdbcTemplate.queryForObject("select id from user_table where username = ?", Long.class, username);
+    }
+
+    @Test
+    void usersDeletedElsewhereLeaveTheIndexes() {
+        userService.createUser(newUser("remotegone"));
+        long id = userId("remotegone");
+        assertThat(autocompleteIndex.completeUsername("remotegone", 10)).isNotEmpty();
+
+        jdbcTemplate.update("update user_table set deleted = true, version = version + 1 where id = ?", id);
+        otherNode.publish(CachedEntity.USER, id, jdbcTemplate.queryForObject(
+                "select version from user_table where id = ?", Long.class, id));
+
+        assertThat(socialGraphIndex.isActive(id)).isFalse();
+        assertThat(socialGraphIndex.findUserId("remotegone")).isNull();
+        assertThat(autocompleteIndex.completeUsername("remotegone", 10)).isEmpty();
+    }
+
+    @Test
+    void followsMadeElsewhereReachTheGraphAndTheFollowerCounts() {
+        userService.createUser(newUser("remotefan"));
+        userService.createUser(newUser("remotestar"));
+        long fan = userId("remotefan");
+        long star = userId("remotestar");
+
+        jdbcTemplate.update("insert into user_table_following (followers_id, following_id) values (?, ?)", fan, star);
+        otherNode.publish(CachedEntity.FOLLOWING, fan, System.currentTimeMillis());
+
+        assertThat(socialGraphIndex.getFollowing(fan)).containsExactly(star);
+        assertThat(socialGraphIndex.getFollowers(star)).containsExactly(fan);
+        assertThat(autocompleteIndex.completeUsername("remotestar", 10))
+                .containsExactly(new AutocompleteIndex.Suggestion("remotestar", 1));
+    }
+
+    @Test
+    void tweetsDeletedElsewhereAreNoLongerFound() {
+        userService.createUser(newUser("remotewriter"));
+        TweetResponseDto tweet = tweetService.createTweet(newTweet("remotewriter", "xylophonic remote words"));
+        assertThat(tweetSearchIndex.search("xylophonic", TweetSearchIndex.Order.RECENT, null, null, 10).hits())
+                .extracting(TweetSearchIndex.Hit::tweetId).containsExactly(tweet.getId());
+
+        jdbcTemplate.update("update tweet set deleted = true, version = version + 1 where id = ?", tweet.getId());
+        otherNode.publish(CachedEntity.TWEET, tweet.getId(), 1);
+
+        assertThat(tweetSearchIndex.search("xylophonic", TweetSearchIndex.Order.RECENT, null, null, 10).hits())
+                .isEmpty();
+        assertThat(socialGraphIndex.getTimeline(userId("remotewriter"))).doesNotContain(tweet.getId());
+    }
+
+}
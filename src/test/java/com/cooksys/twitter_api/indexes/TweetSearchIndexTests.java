@@ -0,0 +1,46 @@
+package com.cooksys.twitter_api.indexes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TweetSearchIndexTests {
+
+    private static List<Long> ids(TweetSearchIndex.Results results) {
+        return results.hits().stream().map(TweetSearchIndex.Hit::tweetId).toList();
+    }
+
+    @Test
+    void relevancePagesContinueWhileTweetsAreIndexed() {
+        TweetSearchIndex index = new TweetSearchIndex();
+        index.add(1, 1, "java");
+        index.add(2, 2, "java is a language");
+        index.add(3, 3, "java is a language and an island too");
+        TweetSearchIndex.Results first = index.search("java", TweetSearchIndex.Order.RELEVANCE, null, null, 1);
+        assertThat(ids(first)).containsExactly(1L);
+
+        // longer tweets and more of them raise every score of the next page over that of the first page's last hit
+        for (long id = 100; id < 200; id++) {
+            index.add(id, id, "a much longer tweet about something else entirely, going on and on and on");
+        }
+        TweetSearchIndex.Results next = index.search("java", TweetSearchIndex.Order.RELEVANCE,
+                first.hits().get(0), first.statistics(), 10);
+
+        assertThat(ids(next)).containsExactly(2L, 3L);
+    }
+
+    @Test
+    void phrasesMatchAdjacentTermsOnly() {
+        TweetSearchIndex index = new TweetSearchIndex();
+        index.add(1, 1, "Hello, World!");
+        index.add(2, 2, "world, hello");
+
+        assertThat(ids(index.search("\"hello world\"", TweetSearchIndex.Order.RECENT, null, null, 10)))
+                .containsExactly(1L);
+        assertThat(ids(index.search("hello world", TweetSearchIndex.Order.RECENT, null, null, 10)))
+                .containsExactly(2L, 1L);
+    }
+
+}
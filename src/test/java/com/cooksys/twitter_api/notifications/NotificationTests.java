@@ -0,0 +1,87 @@
+package com.cooksys.twitter_api.notifications;
+
+import static com.cooksys.twitter_api.TestFixtures.credentials;
+import static com.cooksys.twitter_api.TestFixtures.newTweet;
+import static com.cooksys.twitter_api.TestFixtures.newUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.cooksys.twitter_api.dtos.NotificationDto;
+import com.cooksys.twitter_api.dtos.NotificationPageDto;
+import com.cooksys.twitter_api.dtos.TweetResponseDto;
+import com.cooksys.twitter_api.service.NotificationService;
+import com.cooksys.twitter_api.service.TweetService;
+import com.cooksys.twitter_api.service.UserService;
+
+/**
+ * Likes, follows, replies and mentions have to reach the right inboxes, collapsed and counted as unread.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:notifications;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "twitter.event-log.directory=target/test-data/notifications/${random.uuid}/events",
+        "twitter.content-store.directory=target/test-data/notifications/content",
+        "twitter.snapshot.enabled=false",
+        "twitter.notifications.flush-interval=3600000" })
+class NotificationTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TweetService tweetService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private NotificationWriter notificationWriter;
+
+    private void createUser(String username) {
+        userService.createUser(newUser(username));
+    }
+
+    @Test
+    void eventsAreDeliveredCollapsedAndCounted() {
+        List.of("nalice", "nbob", "ncarol", "ndave").forEach(this::createUser);
+        TweetResponseDto hello = tweetService.createTweet(newTweet("nalice", "hello @ncarol"));
+        tweetService.likeTweet(hello.getId(), credentials("nbob"));
+        tweetService.likeTweet(hello.getId(), credentials("ncarol"));
+        tweetService.likeTweet(hello.getId(), credentials("nalice"));
+        userService.followUser("nalice", credentials("nbob"));
+        tweetService.replyToTweet(hello.getId(), newTweet("ncarol", "@nalice thanks"));
+        notificationWriter.flush();
+
+        NotificationPageDto alice = notificationService.getNotifications("nalice", null, 20);
+        assertThat(alice.getNotifications()).extracting(NotificationDto::getType)
+                .containsExactly("REPLY", "FOLLOW", "LIKE");
+        NotificationDto likes = alice.getNotifications().get(2);
+        assertThat(likes.getCount()).isEqualTo(2);
+        assertThat(likes.getActor()).isEqualTo("ncarol");
+        assertThat(likes.getTweetId()).isEqualTo(hello.getId());
+        assertThat(alice.getUnreadCount()).isEqualTo(3);
+        assertThat(notificationService.getNotifications("ncarol", null, 20).getNotifications())
+                .extracting(NotificationDto::getType).containsExactly("MENTION");
+
+        assertThat(notificationService.markRead("nalice", null, credentials("nalice")).getUnreadCount()).isZero();
+
+        tweetService.likeTweet(hello.getId(), credentials("ndave"));
+        notificationWriter.flush();
+
+        NotificationPageDto first = notificationService.getNotifications("nalice", null, 1);
+        assertThat(first.getUnreadCount()).isEqualTo(1);
+        assertThat(first.getNotifications().get(0).getType()).isEqualTo("LIKE");
+        assertThat(first.getNotifications().get(0).getCount()).isEqualTo(3);
+        assertThat(first.getNotifications().get(0).isUnread()).isTrue();
+        NotificationPageDto rest = notificationService.getNotifications("nalice", first.getNext(), 20);
+        assertThat(rest.getNotifications()).extracting(NotificationDto::getType).containsExactly("REPLY", "FOLLOW");
+        assertThat(rest.getNext()).isNull();
+    }
+
+}
@@ -0,0 +1,153 @@
+package com.cooksys.twitter_api.reactive;
+
+import static com.cooksys.twitter_api.TestFixtures.credentials;
+import static com.cooksys.twitter_api.TestFixtures.newTweet;
+import static com.cooksys.twitter_api.TestFixtures.newUser;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.cooksys.twitter_api.dtos.TweetResponseDto;
+import com.cooksys.twitter_api.service.TweetService;
+import com.cooksys.twitter_api.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The reactive endpoints read the H2 database the services write through JPA, over R2DBC; each answer is compared
+ * with the servlet one it mirrors. Only built with the reactive profile.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reactive-reads;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactive-reads;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password=",
+        "twitter.event-log.directory=target/test-data/reactive-reads/${random.uuid}/events",
+        "twitter.content-store.directory=target/test-data/reactive-reads/content",
+        "twitter.snapshot.enabled=false",
+        "twitter.reactive.enabled=true" })
+@AutoConfigureMockMvc
+class ReactiveReadControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TweetService tweetService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private List<TweetResponseDto> lines(String path) throws Exception {
+        MvcResult started = mockMvc.perform(get(path)).andExpect(request().asyncStarted()).andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        List<TweetResponseDto> tweets = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            tweets.add(objectMapper.readValue(line, TweetResponseDto.class));
+        }
+        return tweets;
+    }
+
+    private static void nextMillisecond() throws InterruptedException {
+        Thread.sleep(2);
+    }
+
+    @Test
+    void theFeedMatchesTheServletFeed() throws Exception {
+        userService.createUser(newUser("reactivereader"));
+        userService.createUser(newUser("reactivewriter"));
+        userService.followUser("reactivewriter", credentials("reactivereader"));
+        TweetResponseDto original = tweetService.createTweet(newTweet("reactivewriter", "read #reactively"));
+        nextMillisecond();
+        tweetService.replyToTweet(original.getId(), newTweet("reactivereader", "replied"));
+        nextMillisecond();
+        tweetService.repostTweet(original.getId(), credentials("reactivereader"));
+
+        List<TweetResponseDto> feed = lines("/reactive/users/@reactivereader/feed");
+
+        // timestamps go through JSON as milliseconds, so the tweets are compared by what they are and embed
+        List<TweetResponseDto> servletFeed = userService.getFeed("reactivereader");
+        assertThat(feed).extracting(TweetResponseDto::getId)
+                .containsExactlyInAnyOrderElementsOf(servletFeed.stream().map(TweetResponseDto::getId).toList());
+        assertThat(feed).extracting(ReactiveReadControllerTests::embeddedId)
+                .containsExactlyInAnyOrderElementsOf(servletFeed.stream().map(ReactiveReadControllerTests::embeddedId)
+                        .toList());
+        assertThat(lines("/reactive/tags/REACTIVELY")).extracting(TweetResponseDto::getId)
+                .containsExactly(original.getId());
+    }
+
+    @Test
+    void clientsAcceptingOnlyJsonGetAnArray() throws Exception {
+        userService.createUser(newUser("reactivearray"));
+        TweetResponseDto tweet = tweetService.createTweet(newTweet("reactivearray", "in an array"));
+
+        MvcResult started = mockMvc.perform(get("/reactive/users/@reactivearray/tweets")
+                .accept(MediaType.APPLICATION_JSON)).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0].id").value(tweet.getId()));
+    }
+
+    @Test
+    void missingUsersAndTweetsAreNotFound() throws Exception {
+        MvcResult started = mockMvc.perform(get("/reactive/users/@reactivenobody/feed"))
+                .andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("User not found with username @reactivenobody"));
+
+        started = mockMvc.perform(get("/reactive/tweets/0")).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void aTweetEmbedsWhatItReposts() throws Exception {
+        userService.createUser(newUser("reactiveposter"));
+        TweetResponseDto original = tweetService.createTweet(newTweet("reactiveposter", "reposted"));
+        TweetResponseDto repost = tweetService.repostTweet(original.getId(), credentials("reactiveposter"));
+
+        MvcResult started = mockMvc.perform(get("/reactive/tweets/" + repost.getId()))
+                .andExpect(request().asyncStarted()).andReturn();
+        String body = mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        TweetResponseDto tweet = read(body);
+        assertThat(tweet.getRepostOf().getId()).isEqualTo(original.getId());
+        assertThat(tweet.getRepostOf().getContent()).isEqualTo("reposted");
+        assertThat(tweet.getAuthor().getUsername()).isEqualTo("reactiveposter");
+    }
+
+    private static Long embeddedId(TweetResponseDto tweet) {
+        TweetResponseDto embedded = tweet.getInReplyTo() != null ? tweet.getInReplyTo() : tweet.getRepostOf();
+        return embedded == null ? null : embedded.getId();
+    }
+
+    private TweetResponseDto read(String json) throws IOException {
+        return objectMapper.readValue(json, TweetResponseDto.class);
+    }
+
+}
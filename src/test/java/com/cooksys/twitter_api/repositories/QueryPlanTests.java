@@ -0,0 +1,228 @@
+package com.cooksys.twitter_api.repositories;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.hibernate.Hibernate;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.cooksys.twitter_api.entities.Credentials;
+import com.cooksys.twitter_api.entities.Profile;
+import com.cooksys.twitter_api.entities.Tweet;
+import com.cooksys.twitter_api.entities.User;
+
+/**
+ * Applies the Flyway migrations to an embedded H2 database (Hibernate validates the entities against the result) and
+ * checks that the SQL Hibernate generates for the repository lookups is answered from the V2 indexes.
+ * <p>
+ * The foreign keys of V1 are dropped first: H2 indexes the columns of a foreign key on its own, which would answer
+ * most of these lookups with or without V2, while Postgres does not.
+ */
+@DataJpaTest
+class QueryPlanTests {
+
+    private static final String[][] FOREIGN_KEYS = {
+            { "tweet", "fk_tweet_user" },
+            { "tweet", "fk_tweet_in_reply_to" },
+            { "tweet", "fk_tweet_repost_of" },
+            { "user_table_following", "fk_following_following" },
+            { "user_table_following", "fk_following_followers" },
+            { "user_table_likes_tweet_list", "fk_likes_tweet" },
+            { "user_table_likes_tweet_list", "fk_likes_user" },
+            { "user_table_mentions_tweet_list", "fk_mentions_tweet" },
+            { "user_table_mentions_tweet_list", "fk_mentions_user" },
+            { "tweet_hashtag_list", "fk_tweet_hashtag_list_hashtag" },
+            { "tweet_hashtag_list", "fk_tweet_hashtag_list_tweet" } };
+
+    /**
+     * Every statement Hibernate prepares, as it prepares it.
+     */
+    static class CapturedStatements implements StatementInspector {
+
+        private final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+
+    }
+
+    @TestConfiguration
+    static class CaptureConfiguration {
+
+        @Bean
+        CapturedStatements capturedStatements() {
+            return new CapturedStatements();
+        }
+
+        @Bean
+        HibernatePropertiesCustomizer statementInspectorCustomizer(CapturedStatements capturedStatements) {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, capturedStatements);
+        }
+
+    }
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private CapturedStatements capturedStatements;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TweetRepository tweetRepository;
+
+    @Autowired
+    private HashtagRepository hashtagRepository;
+
+    private User user;
+
+    private Tweet tweet;
+
+    @BeforeEach
+    void dropForeignKeys() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (String[] foreignKey : FOREIGN_KEYS) {
+            jdbcTemplate.execute("alter table " + foreignKey[0] + " drop constraint if exists " + foreignKey[1]);
+        }
+
+        Credentials credentials = new Credentials();
+        credentials.setUsername("planner");
+        credentials.setPassword("password");
+        Profile profile = new Profile();
+        profile.setEmail("planner@example.com");
+        user = new User();
+        user.setCredentials(credentials);
+        user.setProfile(profile);
+        user.setJoined(new Timestamp(System.currentTimeMillis()));
+        entityManager.persist(user);
+        tweet = new Tweet();
+        tweet.setAuthor(user);
+        tweet.setPosted(new Timestamp(System.currentTimeMillis()));
+        tweet.setContent("planned");
+        entityManager.persist(tweet);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /**
+     * Plans of the statements the lookup has Hibernate run, one after the other.
+     */
+    private String plansOf(Runnable lookup) {
+        capturedStatements.statements.clear();
+        lookup.run();
+        assertThat(capturedStatements.statements).isNotEmpty();
+        return capturedStatements.statements.stream().map(this::explain).collect(Collectors.joining("\n"));
+    }
+
+    private String explain(String sql) {
+        return new JdbcTemplate(dataSource).execute("EXPLAIN " + sql, (PreparedStatement statement) -> {
+            ParameterMetaData parameters = statement.getParameterMetaData();
+            for (int parameter = 1; parameter <= parameters.getParameterCount(); parameter++) {
+                statement.setObject(parameter, sampleValue(parameters.getParameterType(parameter)));
+            }
+            try (var resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getString(1);
+            }
+        });
+    }
+
+    private static Object sampleValue(int sqlType) {
+        return switch (sqlType) {
+            case Types.CHAR, Types.VARCHAR, Types.LONGVARCHAR -> "planner";
+            case Types.BOOLEAN, Types.BIT -> false;
+            case Types.TIMESTAMP, Types.TIMESTAMP_WITH_TIMEZONE -> new Timestamp(0);
+            default -> 1L;
+        };
+    }
+
+    @Test
+    void findByCredentialsUsernameUsesUniqueUsernameIndex() {
+        assertThat(plansOf(() -> userRepository.findByCredentialsUsernameAndDeletedFalse("nobody")))
+                .contains("UK_USER_TABLE_USERNAME")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    void findByLabelUsesUniqueLabelKeyIndex() {
+        assertThat(plansOf(() -> hashtagRepository.findByLabel("nothing")))
+                .contains("UK_HASHTAG_LABEL_KEY")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    void tweetsByAuthorUseTheAuthorPostedIndex() {
+        assertThat(plansOf(() -> {
+            try (Stream<Tweet> tweets = tweetRepository.streamByAuthor(user.getId())) {
+                tweets.count();
+            }
+        })).contains("IDX_TWEET_USER_POSTED");
+    }
+
+    @Test
+    void repliesAndRepostsUseTheirIndexes() {
+        User author = userRepository.findById(user.getId()).orElseThrow();
+
+        assertThat(plansOf(() -> tweetRepository.findRepliesToAuthor(author)))
+                .contains("IDX_TWEET_IN_REPLY_TO");
+        assertThat(plansOf(() -> tweetRepository.findAllByInReplyToIdInAndDeletedFalse(List.of(tweet.getId()))))
+                .contains("IDX_TWEET_IN_REPLY_TO");
+        assertThat(plansOf(() -> tweetRepository.findAllByRepostOfIdAndDeletedFalse(tweet.getId())))
+                .contains("IDX_TWEET_REPOST_OF");
+    }
+
+    @Test
+    void followersAreReadThroughTheFollowingIndex() {
+        User followed = userRepository.findById(user.getId()).orElseThrow();
+
+        assertThat(plansOf(() -> Hibernate.initialize(followed.getFollowers()))).contains("IDX_FOLLOWING_FOLLOWING");
+        assertThat(plansOf(() -> userRepository.findAllActiveFollowersById(user.getId())))
+                .contains("IDX_FOLLOWING_FOLLOWING");
+    }
+
+    @Test
+    void likesAndMentionsOfATweetUseTheirIndexes() {
+        Tweet liked = tweetRepository.findById(tweet.getId()).orElseThrow();
+
+        assertThat(plansOf(() -> Hibernate.initialize(liked.getLikesUserList()))).contains("IDX_LIKES_TWEET");
+        assertThat(plansOf(() -> Hibernate.initialize(liked.getMentionsUserlist()))).contains("IDX_MENTIONS_TWEET");
+    }
+
+    @Test
+    void tweetsByHashtagUseTheHashtagIndex() {
+        assertThat(plansOf(() -> {
+            try (Stream<Tweet> tweets = tweetRepository.streamTaggedWith(1L)) {
+                tweets.count();
+            }
+        })).contains("IDX_TWEET_HASHTAG_LIST_HASHTAG");
+    }
+
+}
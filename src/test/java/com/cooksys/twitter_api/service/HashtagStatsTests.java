@@ -0,0 +1,65 @@
+package com.cooksys.twitter_api.service;
+
+import static com.cooksys.twitter_api.TestFixtures.newTweet;
+import static com.cooksys.twitter_api.TestFixtures.newUser;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.cooksys.twitter_api.dtos.HashtagStatsDto;
+import com.cooksys.twitter_api.exceptions.BadRequestException;
+
+/**
+ * Ranges of GET tags/{label}/stats are checked before any bucket is allocated, and a series is never finer than the
+ * usage kept for its range.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:hashtag-stats;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "twitter.event-log.directory=target/test-data/hashtag-stats/${random.uuid}/events",
+        "twitter.content-store.directory=target/test-data/hashtag-stats/content",
+        "twitter.snapshot.enabled=false" })
+class HashtagStatsTests {
+
+    private static final long DAY = 86_400_000L;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TweetService tweetService;
+
+    @Autowired
+    private HashtagService hashtagService;
+
+    @Test
+    void rangesBeyondTheRepresentableTimesAreBadRequests() {
+        assertThatThrownBy(() -> hashtagService.getHashtagStats("statsrange", "day", null, Long.MAX_VALUE, 0))
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> hashtagService.getHashtagStats("statsrange", "minute", Long.MIN_VALUE, 0L, 0))
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> hashtagService.getHashtagStats("statsrange", "hour", 0L, Long.MAX_VALUE, 0))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void compactedRangesAreOnlyServedAtTheirOwnGranularity() {
+        userService.createUser(newUser("statsauthor"));
+        tweetService.createTweet(newTweet("statsauthor", "#statscoarse"));
+        long now = System.currentTimeMillis();
+        long weekAgo = now - 7 * DAY;
+
+        assertThatThrownBy(() -> hashtagService.getHashtagStats("statscoarse", "minute", weekAgo, weekAgo + 60_000L, 0))
+                .isInstanceOf(BadRequestException.class);
+        long monthsAgo = now - 40 * DAY;
+        assertThatThrownBy(() -> hashtagService.getHashtagStats("statscoarse", "hour", monthsAgo, monthsAgo + DAY, 0))
+                .isInstanceOf(BadRequestException.class);
+        HashtagStatsDto stats = hashtagService.getHashtagStats("statscoarse", "day", weekAgo, now + DAY, 0);
+        assertThat(stats.getSeries()).hasSizeBetween(8, 9);
+    }
+
+}
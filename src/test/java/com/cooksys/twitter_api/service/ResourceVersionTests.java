@@ -0,0 +1,91 @@
+package com.cooksys.twitter_api.service;
+
+import static com.cooksys.twitter_api.TestFixtures.credentials;
+import static com.cooksys.twitter_api.TestFixtures.newTweet;
+import static com.cooksys.twitter_api.TestFixtures.newUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.cooksys.twitter_api.dtos.ProfileDto;
+import com.cooksys.twitter_api.dtos.TweetResponseDto;
+import com.cooksys.twitter_api.dtos.UserRequestDto;
+
+/**
+ * ETags of users and tweets must change exactly when their response does: with any change of something embedded,
+ * however deep, and not with follows, likes and mentions, which are not part of it.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:resource-versions;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "twitter.event-log.directory=target/test-data/resource-versions/${random.uuid}/events",
+        "twitter.content-store.directory=target/test-data/resource-versions/content",
+        "twitter.snapshot.enabled=false" })
+class ResourceVersionTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TweetService tweetService;
+
+    @Test
+    void followsLikesAndMentionsLeaveTheUserVersionAlone() throws Exception {
+        userService.createUser(newUser("etagalice"));
+        userService.createUser(newUser("etagbob"));
+        String userEtag = userService.getUserVersion("etagalice").getEtag();
+        TweetResponseDto tweet = tweetService.createTweet(newTweet("etagalice", "hello"));
+        String tweetEtag = tweetService.getTweetVersion(tweet.getId()).getEtag();
+
+        userService.followUser("etagbob", credentials("etagalice"));
+        tweetService.likeTweet(tweet.getId(), credentials("etagalice"));
+        // concurrent mentions of the same user must not trip the optimistic lock
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<TweetResponseDto>> mentions = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                Callable<TweetResponseDto> mention = () -> tweetService.createTweet(
+                        newTweet("etagbob", "hi @etagalice"));
+                mentions.add(executor.submit(mention));
+            }
+            for (Future<TweetResponseDto> mention : mentions) {
+                mention.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(userService.getUserVersion("etagalice").getEtag()).isEqualTo(userEtag);
+        assertThat(tweetService.getTweetVersion(tweet.getId()).getEtag()).isEqualTo(tweetEtag);
+    }
+
+    @Test
+    void tweetVersionsCoverEveryLevelOfTheReplyChain() {
+        userService.createUser(newUser("etagcarol"));
+        userService.createUser(newUser("etagdave"));
+        TweetResponseDto root = tweetService.createTweet(newTweet("etagcarol", "root"));
+        TweetResponseDto reply = tweetService.replyToTweet(root.getId(), newTweet("etagdave", "reply"));
+        TweetResponseDto replyToReply = tweetService.replyToTweet(reply.getId(), newTweet("etagdave", "again"));
+        String etag = tweetService.getTweetVersion(replyToReply.getId()).getEtag();
+
+        ProfileDto profile = new ProfileDto();
+        profile.setEmail("carol@example.com");
+        profile.setFirstName("Carol");
+        UserRequestDto update = newUser("etagcarol");
+        update.setProfile(profile);
+        userService.updateUserProfile("etagcarol", update);
+
+        assertThat(tweetService.getTweetVersion(replyToReply.getId()).getEtag()).isNotEqualTo(etag);
+    }
+
+}
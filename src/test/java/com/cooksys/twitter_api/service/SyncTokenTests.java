@@ -0,0 +1,97 @@
+package com.cooksys.twitter_api.service;
+
+import static com.cooksys.twitter_api.TestFixtures.credentials;
+import static com.cooksys.twitter_api.TestFixtures.newTweet;
+import static com.cooksys.twitter_api.TestFixtures.newUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.cooksys.twitter_api.dtos.SyncDto;
+import com.cooksys.twitter_api.dtos.TweetResponseDto;
+
+/**
+ * Sync tokens are watermarks over the database, so the deltas come from the rows themselves; the lag window is off
+ * and each step waits out the millisecond its token was taken in.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sync-tokens;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "twitter.event-log.directory=target/test-data/sync-tokens/${random.uuid}/events",
+        "twitter.content-store.directory=target/test-data/sync-tokens/content",
+        "twitter.snapshot.enabled=false",
+        "twitter.sync.lag=0" })
+class SyncTokenTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TweetService tweetService;
+
+    private static void nextMillisecond() throws InterruptedException {
+        Thread.sleep(2);
+    }
+
+    @Test
+    void feedDeltasFollowTweetsAndAuthors() throws InterruptedException {
+        userService.createUser(newUser("syncreader"));
+        userService.createUser(newUser("syncwriter"));
+        userService.followUser("syncwriter", credentials("syncreader"));
+        nextMillisecond();
+        SyncDto full = userService.getFeedSince("syncreader", null);
+        assertThat(full.isReset()).isTrue();
+        nextMillisecond();
+
+        TweetResponseDto kept = tweetService.createTweet(newTweet("syncwriter", "kept"));
+        TweetResponseDto dropped = tweetService.createTweet(newTweet("syncwriter", "dropped"));
+        tweetService.deleteTweet(dropped.getId(), credentials("syncwriter"));
+        nextMillisecond();
+        SyncDto delta = userService.getFeedSince("syncreader", full.getSyncToken());
+
+        assertThat(delta.isReset()).isFalse();
+        assertThat(delta.getTweets()).extracting(TweetResponseDto::getId).containsExactly(kept.getId());
+        assertThat(delta.getDeleted()).containsExactly(dropped.getId());
+
+        nextMillisecond();
+        userService.deleteUser("syncwriter", credentials("syncwriter"));
+        nextMillisecond();
+        SyncDto authorGone = userService.getFeedSince("syncreader", delta.getSyncToken());
+        assertThat(authorGone.getTweets()).isEmpty();
+        assertThat(authorGone.getDeleted()).contains(kept.getId());
+    }
+
+    @Test
+    void followsAfterTheTokenResetTheFeed() throws InterruptedException {
+        userService.createUser(newUser("syncfan"));
+        userService.createUser(newUser("syncstar"));
+        SyncDto full = userService.getFeedSince("syncfan", null);
+        nextMillisecond();
+
+        userService.followUser("syncstar", credentials("syncfan"));
+        nextMillisecond();
+
+        assertThat(userService.getFeedSince("syncfan", full.getSyncToken()).isReset()).isTrue();
+    }
+
+    @Test
+    void mentionDeltasComeFromTheMentionRows() throws InterruptedException {
+        userService.createUser(newUser("syncnamed"));
+        userService.createUser(newUser("syncnamer"));
+        SyncDto full = userService.getMentionsSince("syncnamed", null);
+        nextMillisecond();
+
+        TweetResponseDto mention = tweetService.createTweet(newTweet("syncnamer", "hello @syncnamed"));
+        tweetService.createTweet(newTweet("syncnamer", "hello nobody"));
+        nextMillisecond();
+        SyncDto delta = userService.getMentionsSince("syncnamed", full.getSyncToken());
+
+        assertThat(delta.isReset()).isFalse();
+        assertThat(delta.getTweets()).extracting(TweetResponseDto::getId).containsExactly(mention.getId());
+        assertThat(delta.getDeleted()).isEmpty();
+    }
+
+}
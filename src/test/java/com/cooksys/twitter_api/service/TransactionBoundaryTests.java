@@ -0,0 +1,53 @@
+package com.cooksys.twitter_api.service;
+
+import static com.cooksys.twitter_api.TestFixtures.credentials;
+import static com.cooksys.twitter_api.TestFixtures.newUser;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.hibernate.LazyInitializationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.cooksys.twitter_api.dtos.UserResponseDto;
+import com.cooksys.twitter_api.entities.User;
+import com.cooksys.twitter_api.repositories.UserRepository;
+
+/**
+ * Service operations run as explicit units of work with open-session-in-view off: everything a response needs is
+ * loaded inside the service call, and touching a lazy association afterwards fails instead of issuing stray SQL.
+ */
+@SpringBootTest(properties = {
+        "twitter.event-log.directory=target/test-data/events",
+        "twitter.content-store.directory=target/test-data/content",
+        "twitter.snapshot.enabled=false" })
+@AutoConfigureTestDatabase
+class TransactionBoundaryTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void lazyAssociationsFailFastOutsideAUnitOfWork() {
+        userService.createUser(newUser("lazyalice"));
+        User user = userRepository.findByCredentialsUsername("lazyalice").orElseThrow();
+
+        assertThrows(LazyInitializationException.class, () -> user.getFollowing().size());
+    }
+
+    @Test
+    void serviceOperationsLoadAssociationsInsideTheirUnitOfWork() {
+        userService.createUser(newUser("txbob"));
+        userService.createUser(newUser("txcarol"));
+        userService.followUser("txcarol", credentials("txbob"));
+
+        assertThat(userService.getFollowing("txbob")).extracting(UserResponseDto::getUsername).containsExactly("txcarol");
+        assertThat(userService.getFollowers("txcarol")).extracting(UserResponseDto::getUsername).containsExactly("txbob");
+    }
+
+}
@@ -0,0 +1,201 @@
+package com.cooksys.twitter_api.sharding;
+
+import static com.cooksys.twitter_api.TestFixtures.credentials;
+import static com.cooksys.twitter_api.TestFixtures.newTweet;
+import static com.cooksys.twitter_api.TestFixtures.newUser;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.cooksys.twitter_api.dtos.TweetResponseDto;
+import com.cooksys.twitter_api.dtos.UserResponseDto;
+import com.cooksys.twitter_api.service.HashtagService;
+import com.cooksys.twitter_api.service.TweetService;
+import com.cooksys.twitter_api.service.UserService;
+
+/**
+ * Three embedded databases as shards: rows have to land on the shard owning their user, the tag page and the tweet
+ * list have to come back merged from all of them, and users on different shards have to be able to interact.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:shard-0;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "twitter.sharding.shard-urls=jdbc:h2:mem:shard-1;DB_CLOSE_DELAY=-1,jdbc:h2:mem:shard-2;DB_CLOSE_DELAY=-1",
+        "twitter.sharding.buckets=16",
+        "twitter.event-log.directory=target/test-data/sharding/events",
+        "twitter.content-store.directory=target/test-data/sharding/content",
+        "twitter.snapshot.enabled=false" })
+class ShardingTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TweetService tweetService;
+
+    @Autowired
+    private HashtagService hashtagService;
+
+    @Autowired
+    private Shards shards;
+
+    @Autowired
+    private ShardRoutingDataSource shardRoutingDataSource;
+
+    @AfterEach
+    void unbind() {
+        ShardRoutingDataSource.unbind();
+    }
+
+    private UserResponseDto createUser(String username) {
+        return userService.createUser(newUser(username));
+    }
+
+    private TweetResponseDto tweet(String username, String content) {
+        return tweetService.createTweet(newTweet(username, content));
+    }
+
+    /**
+     * One username per shard, so every test spans all of them.
+     */
+    private List<String> usernamesOnEachShard(String prefix) {
+        ShardMap shardMap = shards.getShardMap();
+        List<String> usernames = new ArrayList<>();
+        for (int shard = 0; shard < shardMap.getShardCount(); shard++) {
+            for (int i = 0; ; i++) {
+                String candidate = prefix + i;
+                if (shardMap.shardOfUsername(candidate) == shard) {
+                    usernames.add(candidate);
+                    break;
+                }
+            }
+        }
+        return usernames;
+    }
+
+    private JdbcTemplate onShard(int shard) {
+        return new JdbcTemplate(shardRoutingDataSource.getShards().get(shard));
+    }
+
+    @Test
+    void usersAndTheirTweetsAreStoredOnTheOwningShard() {
+        ShardMap shardMap = shards.getShardMap();
+        for (String username : usernamesOnEachShard("placed")) {
+            createUser(username);
+            long tweetId = tweet(username, "placed by " + username).getId();
+            int shard = shardMap.shardOfUsername(username);
+
+            long userId = onShard(shard).queryForObject("select id from user_table where username = ?", Long.class,
+                    username);
+            assertThat(shardMap.shardOfUser(userId)).isEqualTo(shard);
+            assertThat(shardMap.shardOfTweet(tweetId)).isEqualTo(shard);
+            for (int other = 0; other < shardMap.getShardCount(); other++) {
+                assertThat(onShard(other).queryForObject("select count(*) from user_table where username = ?",
+                        Long.class, username)).isEqualTo(other == shard ? 1 : 0);
+                assertThat(onShard(other).queryForObject("select count(*) from tweet where id = ?", Long.class,
+                        tweetId)).isEqualTo(other == shard ? 1 : 0);
+            }
+        }
+    }
+
+    @Test
+    void tagPagesAreGatheredFromAllShardsNewestFirst() {
+        List<String> usernames = usernamesOnEachShard("tagger");
+        List<Long> posted = new ArrayList<>();
+        for (String username : usernames) {
+            createUser(username);
+            posted.add(tweet(username, "sharded #gathered").getId());
+        }
+
+        List<Long> ids = hashtagService.getTweetsWithLabel("gathered").stream().map(TweetResponseDto::getId).toList();
+
+        assertThat(ids).containsExactlyInAnyOrderElementsOf(posted);
+        assertThat(hashtagService.getTweetsWithLabel("gathered"))
+                .isSortedAccordingTo((a, b) -> b.getPosted().compareTo(a.getPosted()));
+        assertThat(hashtagService.getAllHashtags()).filteredOn(hashtag -> hashtag.getLabel().equals("gathered"))
+                .hasSize(1);
+        assertThat(tweetService.getTweets()).extracting(TweetResponseDto::getId).containsAll(posted);
+    }
+
+    @Test
+    void batchReadsAreGatheredFromAllShards() {
+        List<String> usernames = usernamesOnEachShard("batched");
+        List<Long> posted = new ArrayList<>();
+        for (String username : usernames) {
+            createUser(username);
+            posted.add(tweet(username, "batched by " + username).getId());
+        }
+        String etag = hashtagService.getAllHashtagsVersion().getEtag();
+        tweet(usernames.get(1), "shard-crossing #versioned");
+
+        assertThat(tweetService.getTweetsByIds(posted)).extracting(item -> item.getValue().getId())
+                .containsExactlyElementsOf(posted);
+        assertThat(userService.getUsersByUsernames(usernames)).extracting(item -> item.getValue().getUsername())
+                .containsExactlyElementsOf(usernames);
+        assertThat(hashtagService.getAllHashtagsVersion().getEtag()).isNotEqualTo(etag);
+    }
+
+    @Test
+    void usersInteractAcrossShards() {
+        ShardMap shardMap = shards.getShardMap();
+        List<String> usernames = usernamesOnEachShard("social");
+        usernames.forEach(this::createUser);
+        String author = usernames.get(0);
+        String fan = usernames.get(1);
+        TweetResponseDto original = tweet(author, "across the shards");
+
+        tweetService.likeTweet(original.getId(), credentials(fan));
+        userService.followUser(author, credentials(fan));
+        TweetResponseDto reply = tweetService.replyToTweet(original.getId(), newTweet(fan, "answered @" + author));
+        TweetResponseDto repost = tweetService.repostTweet(original.getId(), credentials(usernames.get(2)));
+
+        assertThat(shardMap.shardOfTweet(reply.getId())).isEqualTo(shardMap.shardOfUsername(fan));
+        assertThat(reply.getInReplyTo().getId()).isEqualTo(original.getId());
+        assertThat(repost.getRepostOf().getId()).isEqualTo(original.getId());
+        ShardRoutingDataSource.bind(shardMap.shardOfTweet(original.getId()));
+        assertThat(tweetService.getLikes(original.getId())).extracting(UserResponseDto::getUsername)
+                .containsExactly(fan);
+        assertThat(tweetService.getReposts(original.getId())).extracting(TweetResponseDto::getId)
+                .containsExactly(repost.getId());
+        ShardRoutingDataSource.bind(shardMap.shardOfUsername(author));
+        assertThat(userService.getFollowers(author)).extracting(UserResponseDto::getUsername).containsExactly(fan);
+        assertThat(userService.getMentions(author)).extracting(TweetResponseDto::getId)
+                .containsExactly(reply.getId());
+        ShardRoutingDataSource.bind(shardMap.shardOfUsername(fan));
+        assertThat(tweetService.getContext(reply.getId()).getBefore()).extracting(TweetResponseDto::getId)
+                .containsExactly(original.getId());
+        assertThat(userService.getFollowing(fan)).extracting(UserResponseDto::getUsername).containsExactly(author);
+        assertThat(userService.getFeed(fan)).extracting(TweetResponseDto::getId)
+                .containsExactlyInAnyOrder(original.getId(), reply.getId());
+        assertThatThrownBy(() -> userService.followUser(author, credentials(fan)))
+                .hasMessageContaining("Already following");
+    }
+
+    @Test
+    void unknownTagsAreNotFoundOnAnyShard() {
+        assertThatThrownBy(() -> hashtagService.getTweetsWithLabel("neverused"))
+                .hasMessageContaining("neverused");
+    }
+
+    @Test
+    void bucketMapRangesOverrideTheDefaultPlacement() {
+        ShardMap shardMap = new ShardMap(3, 12, "0-5:2, 11:1");
+
+        assertThat(shardMap.shardOfBucket(0)).isEqualTo(2);
+        assertThat(shardMap.shardOfBucket(5)).isEqualTo(2);
+        assertThat(shardMap.shardOfBucket(6)).isEqualTo(0);
+        assertThat(shardMap.shardOfBucket(11)).isEqualTo(1);
+        assertThat(shardMap.getBucketCounts()).containsExactly(2, 3, 7);
+        assertThatThrownBy(() -> new ShardMap(3, 12, "0-5:3")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
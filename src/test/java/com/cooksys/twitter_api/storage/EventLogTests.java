@@ -0,0 +1,55 @@
+package com.cooksys.twitter_api.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class EventLogTests {
+
+    @TempDir
+    Path directory;
+
+    private EventLog open() throws IOException {
+        EventLog eventLog = new EventLog();
+        ReflectionTestUtils.setField(eventLog, "directory", directory.toString());
+        ReflectionTestUtils.setField(eventLog, "segmentSize", 1L << 20);
+        eventLog.open();
+        return eventLog;
+    }
+
+    @Test
+    void listenersDoNotHoldUpOtherAppends() throws Exception {
+        EventLog eventLog = open();
+        List<Long> delivered = new CopyOnWriteArrayList<>();
+        AtomicBoolean blocked = new AtomicBoolean();
+        eventLog.subscribe(event -> {
+            delivered.add(event.getSequence());
+            if (event.getSequence() == 1) {
+                Thread appender = new Thread(() -> eventLog.append(EventType.USER_FOLLOWED, 1, 2));
+                appender.start();
+                try {
+                    appender.join(5000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                blocked.set(appender.isAlive());
+            }
+        });
+
+        eventLog.append(EventType.USER_CREATED, 1, 1);
+
+        assertThat(blocked.get()).isFalse();
+        // the other thread's event is delivered after this one's, by this thread
+        assertThat(delivered).containsExactly(1L, 2L);
+        eventLog.close();
+    }
+
+}
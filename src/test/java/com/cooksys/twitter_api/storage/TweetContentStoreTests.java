@@ -0,0 +1,90 @@
+package com.cooksys.twitter_api.storage;
+
+import static com.cooksys.twitter_api.TestFixtures.credentials;
+import static com.cooksys.twitter_api.TestFixtures.newTweet;
+import static com.cooksys.twitter_api.TestFixtures.newUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cooksys.twitter_api.dtos.TweetResponseDto;
+import com.cooksys.twitter_api.entities.Tweet;
+import com.cooksys.twitter_api.service.TweetService;
+import com.cooksys.twitter_api.service.UserService;
+
+/**
+ * With the content store on, tweet rows keep their body and the store caches it once the row commits; rows whose body
+ * was moved out of the table have to get it from the store, nested tweets of a response included. The response cache
+ * is off so that every read maps afresh.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:content-store;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "twitter.event-log.directory=target/test-data/content-store/${random.uuid}/events",
+        "twitter.content-store.enabled=true",
+        "twitter.content-store.directory=target/test-data/content-store/${random.uuid}/content",
+        "twitter.response-cache.max-bytes=0",
+        "twitter.snapshot.enabled=false" })
+class TweetContentStoreTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TweetService tweetService;
+
+    @Autowired
+    private TweetContentStore tweetContentStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void bodiesStayInTheTweetTableAndAreCachedOnCommit() {
+        userService.createUser(newUser("storecarol"));
+        TweetResponseDto tweet = tweetService.createTweet(newTweet("storecarol", "kept in the row"));
+
+        assertThat(jdbcTemplate.queryForObject("select content from tweet where id = ?", String.class,
+                tweet.getId())).isEqualTo("kept in the row");
+        assertThat(tweetContentStore.read(tweet.getId())).isEqualTo("kept in the row");
+    }
+
+    @Test
+    void nestedTweetsOfRowsWithoutContentAreReadFromTheStore() {
+        userService.createUser(newUser("storealice"));
+        userService.createUser(newUser("storebob"));
+        TweetResponseDto original = tweetService.createTweet(newTweet("storealice", "stored elsewhere"));
+        TweetResponseDto reply = tweetService.replyToTweet(original.getId(), newTweet("storebob", "a stored reply"));
+        TweetResponseDto repost = tweetService.repostTweet(reply.getId(), credentials("storealice"));
+        // as left by the store when it moved bodies out of the table
+        jdbcTemplate.update("update tweet set content = null where id in (?, ?)", original.getId(), reply.getId());
+
+        assertThat(tweetService.getTweet(reply.getId()).getInReplyTo().getContent()).isEqualTo("stored elsewhere");
+        TweetResponseDto reposted = tweetService.getTweet(repost.getId()).getRepostOf();
+        assertThat(reposted.getContent()).isEqualTo("a stored reply");
+        assertThat(reposted.getInReplyTo().getContent()).isEqualTo("stored elsewhere");
+    }
+
+    @Test
+    void bodiesOfRolledBackTweetsAreNotCached() {
+        Tweet tweet = new Tweet();
+        tweet.setId(Long.MAX_VALUE - 1);
+        tweet.setContent("never committed");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            tweetContentStore.store(tweet);
+            status.setRollbackOnly();
+        });
+
+        assertThat(tweetContentStore.read(Long.MAX_VALUE - 1)).isNull();
+    }
+
+}
@@ -0,0 +1,200 @@
+package com.cooksys.twitter_api.stream;
+
+import static com.cooksys.twitter_api.TestFixtures.credentials;
+import static com.cooksys.twitter_api.TestFixtures.newTweet;
+import static com.cooksys.twitter_api.TestFixtures.newUser;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.cooksys.twitter_api.dtos.TweetResponseDto;
+import com.cooksys.twitter_api.exceptions.BadRequestException;
+import com.cooksys.twitter_api.service.TweetService;
+import com.cooksys.twitter_api.service.UserService;
+
+/**
+ * The hub reads new tweets back from the database, so these tests post through the services and wait for the polls;
+ * the emitters record what the sender threads hand them instead of writing to a connection.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:feed-stream;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "twitter.event-log.directory=target/test-data/feed-stream/${random.uuid}/events",
+        "twitter.content-store.directory=target/test-data/feed-stream/content",
+        "twitter.snapshot.enabled=false",
+        "twitter.feed-stream.buffer-size=2",
+        "twitter.feed-stream.poll-interval=50" })
+class FeedStreamHubTests {
+
+    private static final long WAIT = 10_000;
+
+    @Autowired
+    private FeedStreamHub feedStreamHub;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TweetService tweetService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    record Event(String id, String name, Long tweetId) {
+    }
+
+    /**
+     * Records each event it is sent; with a latch, the first send waits for it, like a client that stopped reading.
+     */
+    static class RecordingEmitter extends SseEmitter {
+
+        private final List<Event> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch stalled;
+
+        RecordingEmitter(CountDownLatch stalled) {
+            super(0L);
+            this.stalled = stalled;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (stalled != null) {
+                try {
+                    stalled.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            String id = null;
+            String name = null;
+            Long tweetId = null;
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof TweetResponseDto tweet) {
+                    tweetId = tweet.getId();
+                    continue;
+                }
+                for (String line : part.getData().toString().split("\n")) {
+                    if (line.startsWith("id:")) {
+                        id = line.substring(3);
+                    } else if (line.startsWith("event:")) {
+                        name = line.substring(6);
+                    }
+                }
+            }
+            events.add(new Event(id, name, tweetId));
+        }
+
+        List<Event> tweets() {
+            return events.stream().filter(event -> "tweet".equals(event.name())).toList();
+        }
+
+    }
+
+    private long createUser(String username) {
+        userService.createUser(newUser(username));
+        return jdbcTemplate.queryForObject("select id from user_table where username = ?", Long.class, username);
+    }
+
+    private void await(RecordingEmitter emitter, Predicate<RecordingEmitter> done) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT;
+        while (!done.test(emitter)) {
+            assertThat(System.currentTimeMillis()).as("waiting for feed stream events").isLessThan(deadline);
+            feedStreamHub.poll();
+            Thread.sleep(20);
+        }
+    }
+
+    private RecordingEmitter subscribe(long userId, String lastEventId) throws InterruptedException {
+        RecordingEmitter emitter = new RecordingEmitter(null);
+        feedStreamHub.subscribe(userId, lastEventId, emitter);
+        await(emitter, recorded -> !recorded.events.isEmpty());
+        return emitter;
+    }
+
+    @Test
+    void tweetsFanOutToTheAuthorAndFollowersOnly() throws InterruptedException {
+        long author = createUser("fanauthor");
+        long follower = createUser("fanfollower");
+        long stranger = createUser("fanstranger");
+        userService.followUser("fanauthor", credentials("fanfollower"));
+        RecordingEmitter authorStream = subscribe(author, null);
+        RecordingEmitter followerStream = subscribe(follower, null);
+        RecordingEmitter strangerStream = subscribe(stranger, null);
+
+        TweetResponseDto tweet = tweetService.createTweet(newTweet("fanauthor", "fanned out"));
+        await(authorStream, recorded -> !recorded.tweets().isEmpty());
+        await(followerStream, recorded -> !recorded.tweets().isEmpty());
+        TweetResponseDto later = tweetService.createTweet(newTweet("fanauthor", "fanned out again"));
+        await(followerStream, recorded -> recorded.tweets().size() == 2);
+
+        assertThat(authorStream.tweets()).extracting(Event::tweetId).startsWith(tweet.getId());
+        assertThat(followerStream.tweets()).extracting(Event::tweetId).containsExactly(tweet.getId(), later.getId());
+        assertThat(strangerStream.tweets()).isEmpty();
+    }
+
+    @Test
+    void slowConsumersAreDropped() throws InterruptedException {
+        long userId = createUser("slowreader");
+        CountDownLatch stalled = new CountDownLatch(1);
+        RecordingEmitter emitter = new RecordingEmitter(stalled);
+        long dropped = feedStreamHub.getDroppedStreams();
+        feedStreamHub.subscribe(userId, null, emitter);
+
+        // the open event holds the sender; the buffer of two takes two tweets and the third overflows it
+        for (int i = 0; i < 3; i++) {
+            tweetService.createTweet(newTweet("slowreader", "too fast " + i));
+        }
+        long deadline = System.currentTimeMillis() + WAIT;
+        while (feedStreamHub.getDroppedStreams() == dropped) {
+            assertThat(System.currentTimeMillis()).as("waiting for the stream to be dropped").isLessThan(deadline);
+            feedStreamHub.poll();
+            Thread.sleep(20);
+        }
+        stalled.countDown();
+
+        assertThat(feedStreamHub.getDroppedStreams()).isEqualTo(dropped + 1);
+    }
+
+    @Test
+    void lastEventIdReplaysWhatWasMissed() throws InterruptedException {
+        long reader = createUser("replayreader");
+        createUser("replaywriter");
+        userService.followUser("replaywriter", credentials("replayreader"));
+        RecordingEmitter live = subscribe(reader, null);
+        String opened = live.events.get(0).id();
+
+        TweetResponseDto first = tweetService.createTweet(newTweet("replaywriter", "missed once"));
+        TweetResponseDto second = tweetService.createTweet(newTweet("replaywriter", "missed twice"));
+        await(live, recorded -> recorded.tweets().size() == 2);
+
+        RecordingEmitter fromOpen = subscribe(reader, opened);
+        await(fromOpen, recorded -> recorded.tweets().size() == 2);
+        assertThat(fromOpen.tweets()).extracting(Event::tweetId).containsExactly(first.getId(), second.getId());
+        assertThat(fromOpen.tweets()).extracting(Event::id).containsExactlyElementsOf(
+                live.tweets().stream().map(Event::id).toList());
+
+        RecordingEmitter fromFirst = subscribe(reader, live.tweets().get(0).id());
+        assertThat(fromFirst.tweets()).extracting(Event::tweetId).containsExactly(second.getId());
+    }
+
+    @Test
+    void malformedLastEventIdsAreRejected() {
+        assertThatThrownBy(() -> feedStreamHub.subscribe(1L, "42", new RecordingEmitter(null)))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+}